@@ -0,0 +1,160 @@
+package oakbot.doclet;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Records how often each class is accessed, so the classes that are accessed
+ * the most can be saved at the beginning of the ZIP file.
+ * <p>
+ * A profile is loaded from a text file. Each line contains a fully-qualified
+ * class name and a count, separated by whitespace, in either order (the
+ * output of the "uniq -c" command can be used as-is). Nested classes can be
+ * written with a dot or a dollar sign (e.g. "java.util.Map.Entry" or
+ * "java.util.Map$Entry"). Counts of the same class are added together. Blank
+ * lines and lines that start with "#" are ignored.
+ * </p>
+ *
+ * <pre>
+ * java.lang.String 1520
+ * java.util.List   873
+ * 612 java.util.Map
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class AccessProfile {
+	private final Map<String, Long> counts;
+
+	/**
+	 * @param counts the number of times each class was accessed
+	 */
+	public AccessProfile(Map<String, Long> counts) {
+		this.counts = new HashMap<>();
+		for (Map.Entry<String, Long> entry : counts.entrySet()) {
+			this.counts.merge(normalize(entry.getKey()), entry.getValue(), Long::sum);
+		}
+	}
+
+	/**
+	 * Loads a profile from a file.
+	 * @param file the file
+	 * @return the profile
+	 * @throws IOException if there's a problem reading the file or the file
+	 * is invalid
+	 */
+	public static AccessProfile load(Path file) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return parse(reader);
+		}
+	}
+
+	/**
+	 * Parses a profile.
+	 * @param reader the profile
+	 * @return the profile
+	 * @throws IOException if there's a problem reading the profile or the
+	 * profile is invalid
+	 */
+	public static AccessProfile parse(Reader reader) throws IOException {
+		Map<String, Long> counts = new HashMap<>();
+		BufferedReader in = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+		String line;
+		int lineNumber = 0;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			String fields[] = line.split("\\s+");
+			if (fields.length != 2) {
+				throw new IOException("Line " + lineNumber + " of the access profile must contain a class name and a count: " + line);
+			}
+
+			String className;
+			long count;
+			if (isNumber(fields[0])) {
+				count = Long.parseLong(fields[0]);
+				className = fields[1];
+			} else if (isNumber(fields[1])) {
+				count = Long.parseLong(fields[1]);
+				className = fields[0];
+			} else {
+				throw new IOException("Line " + lineNumber + " of the access profile does not contain a count: " + line);
+			}
+
+			counts.merge(className, count, Long::sum);
+		}
+		return new AccessProfile(counts);
+	}
+
+	private static boolean isNumber(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			if (!Character.isDigit(value.charAt(i))) {
+				return false;
+			}
+		}
+		return !value.isEmpty() && value.length() < 19;
+	}
+
+	private static String normalize(String className) {
+		return className.replace('$', '.');
+	}
+
+	/**
+	 * Gets the number of times a class was accessed.
+	 * @param className the fully-qualified class name (e.g.
+	 * "java.util.Map.Entry")
+	 * @return the count or 0 if the class is not in the profile
+	 */
+	public long getCount(String className) {
+		Long count = counts.get(normalize(className));
+		return (count == null) ? 0 : count;
+	}
+
+	/**
+	 * Sorts classes so the ones that are accessed the most come first. The
+	 * classes that are not in the profile come last. The sort is stable, so
+	 * classes with the same count stay in the order they were given in.
+	 * @param classes the classes
+	 * @param className gets the fully-qualified name of a class
+	 * @param <T> the class type
+	 * @return the sorted classes
+	 */
+	public <T> List<T> sort(Collection<T> classes, Function<T, String> className) {
+		List<T> sorted = new ArrayList<>(classes);
+		sorted.sort(Comparator.comparingLong((T t) -> getCount(className.apply(t))).reversed());
+		return sorted;
+	}
+
+	/**
+	 * Counts how many of the given classes are in the profile. If the classes
+	 * were sorted with {@link #sort}, these are the classes at the beginning
+	 * of the list.
+	 * @param classes the classes
+	 * @param className gets the fully-qualified name of a class
+	 * @param <T> the class type
+	 * @return the number of classes in the profile
+	 */
+	public <T> int countWarm(Collection<T> classes, Function<T, String> className) {
+		int warm = 0;
+		for (T t : classes) {
+			if (getCount(className.apply(t)) > 0) {
+				warm++;
+			}
+		}
+		return warm;
+	}
+}
@@ -0,0 +1,45 @@
+package oakbot.doclet;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.w3c.dom.Document;
+
+/**
+ * Receives the class XML files that the doclet generates.
+ * @author Michael Angstadt
+ */
+interface ArchiveOutput extends Closeable {
+	/**
+	 * Creates the output that the given configuration calls for.
+	 * @param properties the doclet's configuration
+	 * @return a {@link ShardedArchiveWriter} if package shards are enabled,
+	 * otherwise an {@link ArchiveWriter}
+	 * @throws IOException if there's a problem creating the output
+	 */
+	static ArchiveOutput open(ConfigProperties properties) throws IOException {
+		return properties.isPackageShards() ? new ShardedArchiveWriter(properties) : new ArchiveWriter(properties);
+	}
+
+	/**
+	 * Adds the XML file of a class.
+	 * @param path the path of the file within the ZIP file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @param document the XML document
+	 * @throws IOException if there's a problem writing the file
+	 */
+	void writeClass(String path, Document document) throws IOException;
+
+	/**
+	 * Marks the classes that have been added so far as the warm set: the
+	 * classes that are accessed the most, which consumers may want to load
+	 * ahead of time (see {@link AccessProfile}).
+	 */
+	void markWarmSet();
+
+	/**
+	 * Finishes the output and moves it to the output path.
+	 * @throws IOException if there's a problem finishing the output
+	 */
+	void commit() throws IOException;
+}
@@ -0,0 +1,571 @@
+package oakbot.doclet;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import oakbot.util.DeflateDictionary;
+import oakbot.util.Files2;
+import oakbot.util.XmlUtils;
+import oakbot.util.ZipWriter;
+
+/**
+ * Reads the class XML files out of a ZIP file that the doclet generated.
+ * <p>
+ * By default, each class's XML file is saved as its own ZIP entry. If a block
+ * size, a preset dictionary, or split descriptions were used (see
+ * {@link ConfigProperties#getBlockSize},
+ * {@link ConfigProperties#isDictionary}, and
+ * {@link ConfigProperties#isSplitDescriptions}), the ZIP file also contains an
+ * "index" directory. The index directory contains one index file per doclet
+ * run that contributed to the ZIP file (there is more than one if javadoc was
+ * run in multiple processes). Each line of an index file describes one class.
+ * </p>
+ * <p>
+ * If a block size was used, the class XML files are concatenated into blocks,
+ * each of which is stored as a ZIP entry in the "blocks" directory. The lines
+ * of the index file are tab-delimited:
+ * </p>
+ *
+ * <pre>
+ * PATH    BLOCK    OFFSET    LENGTH
+ * </pre>
+ * <p>
+ * PATH is the path the class's XML file would have if it were saved as its own
+ * ZIP entry (e.g. "java/util/Map.Entry.xml"). BLOCK is the number of the block
+ * (the block's ZIP entry is "blocks/PART-BLOCK", where PART is the name of the
+ * index file without its extension). OFFSET and LENGTH are the location of the
+ * XML file in the uncompressed block, in bytes. Only the block that contains
+ * the requested class is decompressed.
+ * </p>
+ * <p>
+ * If a block size was not used, each line only contains PATH, and the class's
+ * XML file is saved as its own ZIP entry.
+ * </p>
+ * <p>
+ * If the library has a Javadoc URL (see
+ * {@link ConfigProperties#getLibraryBaseUrl} and
+ * {@link ConfigProperties#getLibraryJavadocUrlPattern}), each line ends with
+ * an additional field that contains the URL of the class's Javadoc page (see
+ * {@link #getUrl}).
+ * </p>
+ * <p>
+ * If an access profile was used (see {@link ConfigProperties#getAccessProfile}),
+ * the classes that are accessed the most are listed first, and their ZIP
+ * entries (or blocks) are at the beginning of the ZIP file. The first line of
+ * the index file is a marker that says how many of the classes that follow
+ * make up this warm set:
+ * </p>
+ *
+ * <pre>
+ * #warm    COUNT
+ * </pre>
+ * <p>
+ * Other lines that start with "#" are ignored. The classes of the warm set
+ * can be retrieved with {@link #getWarmSet}.
+ * </p>
+ * <p>
+ * If a preset dictionary was used, the dictionary is saved to
+ * "dictionaries/PART". The ZIP entries of the classes (or blocks) that are
+ * listed in the index file contain a raw DEFLATE stream that was compressed
+ * with the dictionary.
+ * </p>
+ * <p>
+ * If descriptions were split, the class XML files are skeletons that do not
+ * contain any non-empty {@code <description>} elements. Instead, each element
+ * whose description was removed has a "description" attribute. The
+ * descriptions of each class are saved in document order to
+ * "descriptions/PATH", an XML file whose root {@code <descriptions>} element
+ * contains one {@code <description>} element per description, and the
+ * attribute contains the position of the element's description in that list.
+ * This file is only read when it is needed (see {@link #getDescriptions}).
+ * </p>
+ * <p>
+ * If the ZIP file was created in reproducible mode (see
+ * {@link ConfigProperties#isReproducible}), each doclet run also saves a
+ * manifest to "manifests/PART.txt". Each line of a manifest contains the
+ * SHA-256 hash of a ZIP entry's uncompressed contents, followed by two spaces
+ * and the entry's name (the same format that the "sha256sum" command uses).
+ * For entries that are compressed with a dictionary, the hash is calculated
+ * from the XML document, before it was compressed.
+ * The "info.xml" file and the manifests themselves are not listed. The
+ * "digest" attribute of "info.xml" is calculated from the lines of all the
+ * manifests (see {@link #digest}), so it only changes when the contents of
+ * the ZIP file change.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ArchiveReader implements Closeable {
+	private static final String BLOCKS_DIR = "blocks/";
+	private static final String DICTIONARIES_DIR = "dictionaries/";
+	private static final String INDEX_DIR = "index/";
+	private static final String MANIFESTS_DIR = "manifests/";
+	private static final String DESCRIPTIONS_DIR = "descriptions/";
+
+	/**
+	 * The attribute that refers to an element's description if descriptions
+	 * were split.
+	 */
+	static final String DESCRIPTION_ATTRIBUTE = "description";
+
+	/**
+	 * The marker at the beginning of an index file that says how many classes
+	 * are in the warm set.
+	 */
+	static final String WARM_SET_MARKER = "#warm";
+	private static final String INDEX_EXTENSION = ".txt";
+
+	private final ZipFile zip;
+	private final Map<String, Location> index = new HashMap<>();
+	private final List<String> warmSet = new ArrayList<>();
+	private final Map<String, String> urls = new HashMap<>();
+
+	/**
+	 * Opens a ZIP file and reads its index.
+	 * @param file the ZIP file
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	public ArchiveReader(Path file) throws IOException {
+		zip = new ZipFile(file.toFile());
+		try {
+			readIndex();
+		} catch (IOException e) {
+			zip.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the path of a block's ZIP entry.
+	 * @param partName the name of the doclet run that created the block
+	 * @param block the block number
+	 * @return the path
+	 */
+	static String blockPath(String partName, int block) {
+		return BLOCKS_DIR + partName + "-" + block;
+	}
+
+	/**
+	 * Gets the path of a preset dictionary's ZIP entry.
+	 * @param partName the name of the doclet run that created the dictionary
+	 * @return the path
+	 */
+	static String dictionaryPath(String partName) {
+		return DICTIONARIES_DIR + partName;
+	}
+
+	/**
+	 * Gets the path of an index file's ZIP entry.
+	 * @param partName the name of the doclet run that created the index
+	 * @return the path
+	 */
+	static String indexPath(String partName) {
+		return INDEX_DIR + partName + INDEX_EXTENSION;
+	}
+
+	/**
+	 * Gets the path of a manifest's ZIP entry.
+	 * @param partName the name of the doclet run that created the manifest
+	 * @return the path
+	 */
+	static String manifestPath(String partName) {
+		return MANIFESTS_DIR + partName + INDEX_EXTENSION;
+	}
+
+	/**
+	 * Gets the path of the ZIP entry that contains the descriptions of a class
+	 * if descriptions were split.
+	 * @param classPath the path of the class's XML file
+	 * @return the path
+	 */
+	static String descriptionsPath(String classPath) {
+		return DESCRIPTIONS_DIR + classPath;
+	}
+
+	/**
+	 * Calculates the digest of a whole ZIP file from the lines of its
+	 * manifests. The lines are sorted by entry name, so the order in which
+	 * they are passed in does not matter.
+	 * @param manifest the manifest lines
+	 * @return the digest (a lower-case hex string)
+	 */
+	public static String digest(Collection<String> manifest) {
+		List<String> lines = new ArrayList<>(manifest);
+		lines.sort(Comparator.comparing(line -> line.substring(line.indexOf("  ") + 2)));
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(ZipWriter.DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		for (String line : lines) {
+			digest.update((line + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+		return Files2.toHex(digest.digest());
+	}
+
+	private void readIndex() throws IOException {
+		boolean found = false;
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String name = entry.getName();
+			if (!name.startsWith(INDEX_DIR) || !name.endsWith(INDEX_EXTENSION)) {
+				continue;
+			}
+
+			found = true;
+			String partName = name.substring(INDEX_DIR.length(), name.length() - INDEX_EXTENSION.length());
+			byte dictionary[] = readDictionary(partName);
+			int warm = 0;
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.isEmpty()) {
+						continue;
+					}
+
+					String fields[] = line.split("\t");
+					if (line.startsWith("#")) {
+						if (fields[0].equals(WARM_SET_MARKER) && fields.length > 1) {
+							warm = Integer.parseInt(fields[1]);
+						}
+						continue;
+					}
+
+					if (warm > 0) {
+						warmSet.add(fields[0]);
+						warm--;
+					}
+
+					int urlField;
+					switch (fields.length) {
+					case 1:
+					case 2:
+						index.put(fields[0], new Location(fields[0], 0, -1, dictionary));
+						urlField = 1;
+						break;
+					case 4:
+					case 5:
+						String block = blockPath(partName, Integer.parseInt(fields[1]));
+						index.put(fields[0], new Location(block, Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), dictionary));
+						urlField = 4;
+						break;
+					default:
+						throw new ZipException("Invalid line in " + name + ": " + line);
+					}
+
+					if (fields.length > urlField) {
+						urls.put(fields[0], fields[urlField]);
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new ZipException("Invalid number in " + name + ": " + e.getMessage());
+			}
+		}
+
+		if (found) {
+			return;
+		}
+
+		/*
+		 * The ZIP file has the default layout, where each class is saved as
+		 * its own ZIP entry.
+		 */
+		entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String name = entry.getName();
+			if (entry.isDirectory() || !name.endsWith(".xml") || name.equals("info.xml")) {
+				continue;
+			}
+			index.put(name, new Location(name, 0, -1, null));
+		}
+	}
+
+	/**
+	 * Reads the preset dictionary of a doclet run.
+	 * @param partName the name of the doclet run
+	 * @return the dictionary or null if the doclet run did not use one
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	private byte[] readDictionary(String partName) throws IOException {
+		ZipEntry entry = zip.getEntry(dictionaryPath(partName));
+		if (entry == null) {
+			return null;
+		}
+
+		try (InputStream in = zip.getInputStream(entry)) {
+			return in.readAllBytes();
+		}
+	}
+
+	/**
+	 * Reads the manifests of the ZIP file.
+	 * @return the lines of all the manifests or an empty list if the ZIP file
+	 * was not created in reproducible mode
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	public List<String> getManifest() throws IOException {
+		List<String> lines = new ArrayList<>();
+		Enumeration<? extends ZipEntry> entries = zip.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			String name = entry.getName();
+			if (!name.startsWith(MANIFESTS_DIR) || !name.endsWith(INDEX_EXTENSION)) {
+				continue;
+			}
+
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!line.isEmpty()) {
+						lines.add(line);
+					}
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * Gets the classes that are accessed the most, if an access profile was
+	 * used when the ZIP file was created. Their ZIP entries are next to each
+	 * other at the beginning of the ZIP file, so reading them all at once is
+	 * fast.
+	 * @return the class paths, in the order they are saved in (empty if an
+	 * access profile was not used)
+	 */
+	public List<String> getWarmSet() {
+		return Collections.unmodifiableList(warmSet);
+	}
+
+	/**
+	 * Gets the URL of a class's Javadoc page from the index, so the class's
+	 * XML file does not have to be read. The URLs of the class's constructors
+	 * and methods are built by appending their "anchor" or "java8Anchor"
+	 * attributes to this URL.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the URL or null if the class does not exist or the index does
+	 * not contain its URL
+	 */
+	public String getUrl(String path) {
+		return urls.get(path);
+	}
+
+	/**
+	 * Gets the paths of all the classes in the ZIP file.
+	 * @return the class paths (e.g. "java/util/Map.Entry.xml")
+	 */
+	public Set<String> getClassPaths() {
+		return Collections.unmodifiableSet(index.keySet());
+	}
+
+	/**
+	 * Reads the XML file of a class.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the contents of the XML file or null if the class does not exist
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	public byte[] read(String path) throws IOException {
+		Location location = index.get(path);
+		if (location == null) {
+			return null;
+		}
+
+		ZipEntry entry = zip.getEntry(location.entry);
+		if (entry == null) {
+			throw new ZipException("ZIP entry " + location.entry + " is missing.");
+		}
+
+		InputStream in = zip.getInputStream(entry);
+		if (location.dictionary != null) {
+			in = DeflateDictionary.inflate(in, location.dictionary);
+		}
+
+		try {
+			if (location.length < 0) {
+				return in.readAllBytes();
+			}
+
+			skipFully(in, location.offset);
+
+			byte buffer[] = new byte[location.length];
+			int read = 0;
+			while (read < buffer.length) {
+				int r = in.read(buffer, read, buffer.length - read);
+				if (r < 0) {
+					throw new EOFException("Block " + location.entry + " is shorter than its index says.");
+				}
+				read += r;
+			}
+			return buffer;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads and parses the XML file of a class. If descriptions were split,
+	 * they are put back into the document, so it is the same as it would be
+	 * if they had not been split.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the XML document or null if the class does not exist
+	 * @throws IOException if there's a problem reading the ZIP file
+	 * @throws SAXException if the XML is invalid
+	 */
+	public Document parse(String path) throws IOException, SAXException {
+		Document document = parseSkeleton(path);
+		if (document == null) {
+			return null;
+		}
+
+		List<Element> elements = new ArrayList<>();
+		NodeList nodes = document.getElementsByTagName("*");
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Element element = (Element) nodes.item(i);
+			if (element.hasAttribute(DESCRIPTION_ATTRIBUTE)) {
+				elements.add(element);
+			}
+		}
+		if (elements.isEmpty()) {
+			return document;
+		}
+
+		List<String> descriptions = getDescriptions(path);
+		for (Element element : elements) {
+			String value = element.getAttribute(DESCRIPTION_ATTRIBUTE);
+			String description;
+			try {
+				description = descriptions.get(Integer.parseInt(value));
+			} catch (NumberFormatException | IndexOutOfBoundsException e) {
+				throw new ZipException("Invalid description reference in " + path + ": " + value);
+			}
+
+			element.removeAttribute(DESCRIPTION_ATTRIBUTE);
+			Element descriptionElement = document.createElement("description");
+			descriptionElement.setTextContent(description);
+			element.insertBefore(descriptionElement, element.getFirstChild());
+		}
+
+		return document;
+	}
+
+	/**
+	 * Reads and parses the XML file of a class without putting its
+	 * descriptions back in. If descriptions were split, this is much smaller
+	 * than the full document, and the description of an element can be
+	 * looked up with {@link #getDescriptions} when it is needed.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the XML document or null if the class does not exist
+	 * @throws IOException if there's a problem reading the ZIP file
+	 * @throws SAXException if the XML is invalid
+	 */
+	public Document parseSkeleton(String path) throws IOException, SAXException {
+		byte xml[] = read(path);
+		return (xml == null) ? null : XmlUtils.parse(new ByteArrayInputStream(xml));
+	}
+
+	/**
+	 * Reads the descriptions of a class, if descriptions were split. The
+	 * "description" attribute of an element in the class's skeleton is the
+	 * position of its description in this list.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the descriptions (empty if the class does not have any or if
+	 * descriptions were not split)
+	 * @throws IOException if there's a problem reading the ZIP file
+	 * @throws SAXException if the XML is invalid
+	 */
+	public List<String> getDescriptions(String path) throws IOException, SAXException {
+		ZipEntry entry = zip.getEntry(descriptionsPath(path));
+		if (entry == null) {
+			return Collections.emptyList();
+		}
+
+		Document document;
+		try (InputStream in = zip.getInputStream(entry)) {
+			document = XmlUtils.parse(in);
+		}
+
+		NodeList nodes = document.getElementsByTagName("description");
+		List<String> descriptions = new ArrayList<>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			descriptions.add(nodes.item(i).getTextContent());
+		}
+		return descriptions;
+	}
+
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) {
+				if (in.read() < 0) {
+					throw new EOFException();
+				}
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		zip.close();
+	}
+
+	private static class Location {
+		private final String entry;
+		private final int offset, length;
+		private final byte[] dictionary;
+
+		/**
+		 * @param entry the ZIP entry the class is in
+		 * @param offset the offset of the class in the uncompressed entry
+		 * @param length the length of the class's XML file or -1 if it takes
+		 * up the whole entry
+		 * @param dictionary the preset dictionary the entry was compressed
+		 * with or null if it was only compressed by the ZIP file
+		 */
+		public Location(String entry, int offset, int length, byte[] dictionary) {
+			this.entry = entry;
+			this.offset = offset;
+			this.length = length;
+			this.dictionary = dictionary;
+		}
+	}
+}
@@ -0,0 +1,507 @@
+package oakbot.doclet;
+
+import static oakbot.util.XmlUtils.newDocument;
+import static oakbot.util.XmlUtils.write;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+import javax.xml.transform.TransformerException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import oakbot.util.DeflateDictionary;
+import oakbot.util.Files2;
+import oakbot.util.ZipWriter;
+
+/**
+ * Writes the ZIP file that the doclet generates. The ZIP file is built in a
+ * temporary location and is only moved to the output path when
+ * {@link #commit} is called.
+ * <p>
+ * The classes are converted to XML on the thread that calls
+ * {@link #writeClass}, but they are compressed on multiple threads (see
+ * {@link ConfigProperties#getThreads}). The entries are written in the order
+ * they were added.
+ * </p>
+ * <p>
+ * If a block size is configured, the class XML files are not saved as
+ * individual ZIP entries. Instead, they are concatenated into blocks of
+ * roughly that size, and an index records where each class is located (see
+ * {@link ArchiveReader}). Class XML files are usually only a few hundred
+ * bytes, so compressing them together gets a much better ratio and saves the
+ * overhead of a ZIP entry for every class.
+ * </p>
+ * <p>
+ * If a preset dictionary is used, the first classes (up to
+ * {@value #SAMPLE_SIZE} bytes) are held in memory and used to build a DEFLATE
+ * dictionary. Each class (or block) is then compressed with the dictionary
+ * before it is added to the ZIP file. Small classes benefit the most, since
+ * DEFLATE would otherwise start each of them from an empty window.
+ * </p>
+ * <p>
+ * If an access profile is used, the doclets add the classes that are accessed
+ * the most first, so they end up next to each other at the beginning of the
+ * ZIP file, and the index records how many of them there are (see
+ * {@link #markWarmSet}).
+ * </p>
+ * <p>
+ * If descriptions are split, the non-empty {@code <description>} elements are
+ * moved out of each class's XML document and into a separate ZIP entry (see
+ * {@link ArchiveReader}). What is left is a compact skeleton that only
+ * contains the signatures, which is saved according to the settings above.
+ * </p>
+ * <p>
+ * In reproducible mode, the entries are sorted by name (unless an access
+ * profile is used) and all have the same timestamp, a manifest of their
+ * hashes is saved, and the generation time in "info.xml" is taken from
+ * {@link ConfigProperties#getSourceDateEpoch} (it is left out if that is not
+ * set). The doclets also sort the classes before adding them, so the blocks
+ * and the dictionary are the same every time.
+ * </p>
+ * @author Michael Angstadt
+ */
+class ArchiveWriter implements ArchiveOutput {
+	/**
+	 * The number of bytes of class XML to build the preset dictionary from.
+	 */
+	static final int SAMPLE_SIZE = 1024 * 1024;
+
+	/**
+	 * The timestamp of the entries of a reproducible ZIP file if no source
+	 * date epoch is set.
+	 */
+	private static final LocalDateTime DEFAULT_ENTRY_TIME = LocalDateTime.of(1980, 1, 1, 0, 0);
+
+	private final ConfigProperties properties;
+	private final Path outputPath, tempFile;
+	private final ZipWriter zip;
+	private boolean committed = false;
+
+	private final int blockSize;
+	private final boolean dictionary, splitDescriptions, indexed;
+	private final String partName;
+	private final boolean reproducible;
+	private final Long sourceDateEpoch;
+	private final ByteArrayOutputStream block = new ByteArrayOutputStream();
+	private final StringBuilder index = new StringBuilder();
+	private final Map<String, String> urls = new HashMap<>();
+	private int blockCount = 0;
+	private int classCount = 0, warmCount = 0;
+	private String digest;
+
+	private Map<String, byte[]> samples;
+	private int sampleSize = 0;
+	private byte[] presetDictionary;
+
+	/**
+	 * @param properties the doclet's configuration
+	 * @throws IOException if there's a problem creating the ZIP file
+	 */
+	public ArchiveWriter(ConfigProperties properties) throws IOException {
+		this.properties = properties;
+		outputPath = properties.resolveOutputPath();
+		blockSize = properties.getBlockSize();
+		dictionary = properties.isDictionary();
+		partName = properties.getPartName();
+		splitDescriptions = properties.isSplitDescriptions();
+		boolean profiled = properties.getAccessProfile() != null;
+		indexed = blockSize > 0 || dictionary || splitDescriptions || profiled;
+		if (dictionary) {
+			samples = new LinkedHashMap<>();
+		}
+
+		reproducible = properties.isReproducible();
+		sourceDateEpoch = sourceDateEpoch(properties);
+
+		System.out.println("Saving to: " + outputPath);
+
+		tempFile = Files.createTempFile("oakbot-doclet-javadocs", ".zip");
+		Files.delete(tempFile); //temp files are only readable by the owner, so let the ZIP file be created with the default permissions
+		zip = new ZipWriter(tempFile, properties.getThreads());
+		if (reproducible) {
+			/*
+			 * If an access profile is used, the entries must stay in the
+			 * order they were added. The doclets add the classes in a fixed
+			 * order, so the ZIP file is still reproducible.
+			 */
+			zip.time(entryTime(sourceDateEpoch)).sorted(!profiled).digests(true);
+		}
+	}
+
+	/**
+	 * Gets the source date epoch of a reproducible ZIP file.
+	 * @param properties the doclet's configuration
+	 * @return the source date epoch or null if it is not set or the ZIP file
+	 * is not reproducible
+	 * @throws IOException if the source date epoch is invalid
+	 */
+	static Long sourceDateEpoch(ConfigProperties properties) throws IOException {
+		if (!properties.isReproducible()) {
+			return null;
+		}
+
+		try {
+			return properties.getSourceDateEpoch();
+		} catch (NumberFormatException e) {
+			throw new IOException("SOURCE_DATE_EPOCH must be a number of seconds: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the timestamp of the entries of a reproducible ZIP file.
+	 * @param sourceDateEpoch the source date epoch or null if not set
+	 * @return the timestamp
+	 */
+	static LocalDateTime entryTime(Long sourceDateEpoch) {
+		return (sourceDateEpoch == null) ? DEFAULT_ENTRY_TIME : LocalDateTime.ofEpochSecond(sourceDateEpoch, 0, ZoneOffset.UTC);
+	}
+
+	/**
+	 * Adds the XML file of a class to the ZIP file.
+	 * @param path the path of the file within the ZIP file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @param document the XML document
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	@Override
+	public void writeClass(String path, Document document) throws IOException {
+		classCount++;
+
+		if (splitDescriptions) {
+			Document descriptions = splitDescriptions(document);
+			if (descriptions != null) {
+				zip.add(ArchiveReader.descriptionsPath(path), toBytes(descriptions));
+			}
+		}
+
+		byte xml[] = toBytes(document);
+		if (!indexed) {
+			zip.add(path, xml);
+			return;
+		}
+
+		String url = document.getDocumentElement().getAttribute("url");
+		if (!url.isEmpty()) {
+			urls.put(path, url);
+		}
+
+		if (samples != null) {
+			samples.put(path, xml);
+			sampleSize += xml.length;
+			if (sampleSize >= SAMPLE_SIZE) {
+				writeDictionary();
+			}
+			return;
+		}
+
+		store(path, xml);
+	}
+
+	@Override
+	public void markWarmSet() {
+		warmCount = classCount;
+	}
+
+	/**
+	 * Moves the non-empty descriptions out of a class's XML document. Each
+	 * element whose description was removed is given an attribute that
+	 * contains the position of the description in the returned document.
+	 * @param document the class's XML document (this is modified)
+	 * @return the descriptions or null if the class does not have any
+	 */
+	private static Document splitDescriptions(Document document) {
+		NodeList nodes = document.getElementsByTagName("description");
+		List<Element> elements = new ArrayList<>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			elements.add((Element) nodes.item(i));
+		}
+
+		Document descriptions = null;
+		int count = 0;
+		for (Element element : elements) {
+			if (element.getTextContent().isEmpty()) {
+				continue;
+			}
+
+			if (descriptions == null) {
+				descriptions = newDocument();
+				descriptions.appendChild(descriptions.createElement("descriptions"));
+			}
+
+			Element parent = (Element) element.getParentNode();
+			parent.setAttribute(ArchiveReader.DESCRIPTION_ATTRIBUTE, Integer.toString(count++));
+			parent.removeChild(element);
+			descriptions.getDocumentElement().appendChild(descriptions.adoptNode(element));
+		}
+
+		return descriptions;
+	}
+
+	/**
+	 * Builds the preset dictionary from the classes that have been sampled,
+	 * saves it to the ZIP file, and then saves the sampled classes.
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private void writeDictionary() throws IOException {
+		presetDictionary = DeflateDictionary.build(new ArrayList<>(samples.values()), DeflateDictionary.MAX_SIZE);
+
+		zip.add(ArchiveReader.dictionaryPath(partName), presetDictionary);
+
+		Map<String, byte[]> sampled = samples;
+		samples = null;
+		for (Map.Entry<String, byte[]> entry : sampled.entrySet()) {
+			store(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Saves the XML file of a class to the ZIP file, either as its own entry
+	 * or as part of a block, and adds it to the index.
+	 * @param path the path of the class's XML file
+	 * @param xml the XML file
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private void store(String path, byte[] xml) throws IOException {
+		String url = urls.remove(path);
+
+		if (blockSize <= 0) {
+			writeEntry(path, xml);
+			index.append(path);
+			appendUrl(url);
+			return;
+		}
+
+		int offset = block.size();
+		block.write(xml);
+		index.append(path).append('\t').append(blockCount).append('\t').append(offset).append('\t').append(xml.length);
+		appendUrl(url);
+
+		if (block.size() >= blockSize) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Ends the current line of the index, adding the URL of the class's
+	 * Javadoc page to it.
+	 * @param url the URL or null if the class does not have one
+	 */
+	private void appendUrl(String url) {
+		if (url != null) {
+			index.append('\t').append(url);
+		}
+		index.append('\n');
+	}
+
+	/**
+	 * Writes the current block to the ZIP file.
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private void writeBlock() throws IOException {
+		if (block.size() == 0) {
+			return;
+		}
+
+		writeEntry(ArchiveReader.blockPath(partName, blockCount), block.toByteArray());
+		block.reset();
+		blockCount++;
+	}
+
+	/**
+	 * Writes a class or block to the ZIP file, compressing it with the preset
+	 * dictionary if one is being used. Data that is compressed with the
+	 * dictionary is stored as-is, since compressing it again would be a wasted
+	 * DEFLATE pass. Its digest is calculated from the uncompressed data, so the
+	 * manifest does not depend on the JDK's zlib build.
+	 * @param path the path of the ZIP entry
+	 * @param data the data to write
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private void writeEntry(String path, byte[] data) throws IOException {
+		if (presetDictionary == null) {
+			zip.add(path, data);
+			return;
+		}
+
+		byte dictionary[] = presetDictionary;
+		zip.add(path, data, bytes -> DeflateDictionary.compress(bytes, dictionary));
+	}
+
+	/**
+	 * Writes the "info.xml" file and moves the finished ZIP file to the output
+	 * path.
+	 * @throws IOException if there's a problem writing the ZIP file
+	 */
+	@Override
+	public void commit() throws IOException {
+		if (samples != null) {
+			writeDictionary();
+		}
+
+		if (indexed) {
+			writeBlock();
+
+			if (warmCount > 0) {
+				index.insert(0, ArchiveReader.WARM_SET_MARKER + "\t" + warmCount + "\n");
+			}
+			zip.add(ArchiveReader.indexPath(partName), index.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		digest = reproducible ? writeManifest() : null;
+		createInfoFile(digest);
+		zip.close();
+		Files.move(tempFile, outputPath, StandardCopyOption.REPLACE_EXISTING);
+		committed = true;
+	}
+
+	/**
+	 * Gets the digest of the ZIP file (the "digest" attribute of its
+	 * "info.xml" file).
+	 * @return the digest or null if the ZIP file is not reproducible or has
+	 * not been committed
+	 */
+	String getDigest() {
+		return digest;
+	}
+
+	/**
+	 * Saves the hashes of the entries that have been added to the ZIP file.
+	 * @return the digest of the manifest
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private String writeManifest() throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, byte[]> entry : new TreeMap<>(zip.getDigests()).entrySet()) {
+			lines.add(Files2.toHex(entry.getValue()) + "  " + entry.getKey());
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append('\n');
+		}
+		zip.add(ArchiveReader.manifestPath(partName), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+		return ArchiveReader.digest(lines);
+	}
+
+	/**
+	 * Creates the "info.xml" file.
+	 * @param digest the digest of the manifest or null if the ZIP file is not
+	 * reproducible
+	 * @throws IOException if there's a problem creating the file
+	 */
+	private void createInfoFile(String digest) throws IOException {
+		Document document = createInfoDocument(properties, sourceDateEpoch);
+		Element element = document.getDocumentElement();
+		if (blockSize > 0) {
+			element.setAttribute("blockSize", Integer.toString(blockSize));
+		}
+		if (dictionary) {
+			element.setAttribute("dictionary", "true");
+		}
+		if (splitDescriptions) {
+			element.setAttribute("splitDescriptions", "true");
+		}
+		if (digest != null) {
+			element.setAttribute("digest", digest);
+		}
+
+		zip.add("info.xml", toBytes(document));
+	}
+
+	/**
+	 * Creates an "info.xml" file that contains the library's information and
+	 * the generation time.
+	 * @param properties the doclet's configuration
+	 * @param sourceDateEpoch the source date epoch of a reproducible ZIP file
+	 * or null if not set
+	 * @return the XML document
+	 */
+	static Document createInfoDocument(ConfigProperties properties, Long sourceDateEpoch) {
+		Document document = newDocument();
+		Element element = document.createElement("info");
+		setAttribute("name", properties.getLibraryName(), element);
+		setAttribute("version", properties.getLibraryVersion(), element);
+		setAttribute("baseUrl", properties.getLibraryBaseUrl(), element);
+		setAttribute("javadocUrlPattern", properties.getLibraryJavadocUrlPattern(), element);
+		setAttribute("projectUrl", properties.getProjectUrl(), element);
+
+		SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+		if (!properties.isReproducible()) {
+			element.setAttribute("generated", df.format(new Date()));
+		} else if (sourceDateEpoch != null) {
+			df.setTimeZone(TimeZone.getTimeZone("UTC"));
+			element.setAttribute("generated", df.format(new Date(sourceDateEpoch * 1000)));
+		}
+
+		document.appendChild(element);
+		return document;
+	}
+
+	private static void setAttribute(String name, String value, Element element) {
+		if (value == null || value.isEmpty()) {
+			return;
+		}
+
+		element.setAttribute(name, value);
+	}
+
+	private byte[] toBytes(Document document) throws IOException {
+		return toBytes(document, properties.isPrettyPrint());
+	}
+
+	/**
+	 * Converts an XML document to bytes.
+	 * @param document the XML document
+	 * @param prettyPrint true to pretty print the XML, false not to
+	 * @return the UTF-8 encoded XML
+	 * @throws IOException if the document could not be converted
+	 */
+	static byte[] toBytes(Document document, boolean prettyPrint) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		try {
+			write(document, writer, prettyPrint);
+			writer.flush();
+		} catch (TransformerException e) {
+			throw new IOException(e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Deletes the temporary ZIP file if {@link #commit} was never called.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (committed) {
+			return;
+		}
+
+		try {
+			zip.close();
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+}
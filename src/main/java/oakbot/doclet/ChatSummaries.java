@@ -0,0 +1,102 @@
+package oakbot.doclet;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import oakbot.util.ChatBuilder;
+import oakbot.util.MarkdownTruncator;
+
+/**
+ * Builds the chat summaries of classes, constructors, and methods (see
+ * {@link ConfigProperties#isChatSummaries}). A chat summary is an SO Chat
+ * message that contains the name of the class or member, linked to its
+ * Javadoc page (see {@link JavadocUrls}), followed by the first sentence of
+ * its description. It is truncated to the maximum length of a chat message,
+ * so it can be posted as-is.
+ * @author Michael Angstadt
+ */
+final class ChatSummaries {
+	/**
+	 * Creates a chat summary builder from the doclet's configuration.
+	 * @param properties the configuration
+	 * @return the builder or null if chat summaries are disabled
+	 */
+	static ChatSummaries create(ConfigProperties properties) {
+		return properties.isChatSummaries() ? new ChatSummaries() : null;
+	}
+
+	/**
+	 * Builds the chat summary of a class.
+	 * @param className the fully-qualified class name (e.g.
+	 * "java.util|Map.Entry")
+	 * @param url the URL of the class's Javadoc page or null to not link to
+	 * it
+	 * @param summary the first sentence of the class's description
+	 * @return the chat summary
+	 */
+	String forClass(String className, String url, String summary) {
+		String display = className.replace('|', '.');
+		return format(display, url, summary);
+	}
+
+	/**
+	 * Builds the chat summary of a constructor.
+	 * @param className the fully-qualified class name (e.g.
+	 * "java.util|HashMap")
+	 * @param parameterTypes the fully-qualified types of the parameters (e.g.
+	 * "int", "java.lang|String[]")
+	 * @param url the URL of the constructor's Javadoc or null to not link to
+	 * it
+	 * @param summary the first sentence of the constructor's description
+	 * @return the chat summary
+	 */
+	String forConstructor(String className, List<String> parameterTypes, String url, String summary) {
+		String display = simpleName(className) + parameters(parameterTypes);
+		return format(display, url, summary);
+	}
+
+	/**
+	 * Builds the chat summary of a method.
+	 * @param className the fully-qualified name of the method's class (e.g.
+	 * "java.util|Map.Entry")
+	 * @param methodName the method name
+	 * @param parameterTypes the fully-qualified types of the parameters (e.g.
+	 * "int", "java.lang|String[]")
+	 * @param url the URL of the method's Javadoc or null to not link to it
+	 * @param summary the first sentence of the method's description
+	 * @return the chat summary
+	 */
+	String forMethod(String className, String methodName, List<String> parameterTypes, String url, String summary) {
+		String display = simpleName(className) + '#' + methodName + parameters(parameterTypes);
+		return format(display, url, summary);
+	}
+
+	private String format(String display, String url, String summary) {
+		ChatBuilder name = new ChatBuilder().bold().code(display).bold();
+
+		ChatBuilder cb = new ChatBuilder();
+		if (url == null) {
+			cb.append(name);
+		} else {
+			cb.link(name.toString(), url);
+		}
+
+		/*
+		 * SO Chat only formats messages that are on a single line.
+		 */
+		summary = summary.replaceAll("\\s+", " ").trim();
+		if (!summary.isEmpty()) {
+			cb.append(": ").append(summary);
+		}
+
+		return MarkdownTruncator.truncate(cb.toString(), MarkdownTruncator.MAX_MESSAGE_LENGTH);
+	}
+
+	private static String simpleName(String className) {
+		return className.substring(className.indexOf('|') + 1);
+	}
+
+	private static String parameters(List<String> parameterTypes) {
+		return parameterTypes.stream().map(ChatSummaries::simpleName).collect(Collectors.joining(", ", "(", ")"));
+	}
+}
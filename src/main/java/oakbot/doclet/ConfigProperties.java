@@ -1,6 +1,11 @@
 package oakbot.doclet;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 import oakbot.util.PropertiesWrapper;
@@ -12,11 +17,25 @@ import oakbot.util.PropertiesWrapper;
 public class ConfigProperties extends PropertiesWrapper {
 	private static final String OUTPUT_PATH = "oakbot.doclet.output.path";
 	private static final String PRETTY_PRINT = "oakbot.doclet.output.prettyPrint";
+	private static final String BLOCK_SIZE = "oakbot.doclet.output.blockSize";
+	private static final String DICTIONARY = "oakbot.doclet.output.dictionary";
+	private static final String SPLIT_DESCRIPTIONS = "oakbot.doclet.output.splitDescriptions";
+	private static final String THREADS = "oakbot.doclet.output.threads";
+	private static final String REPRODUCIBLE = "oakbot.doclet.output.reproducible";
+	private static final String SOURCE_DATE_EPOCH = "oakbot.doclet.output.sourceDateEpoch";
+	private static final String PART_NAME = "oakbot.doclet.output.partName";
+	private static final String PACKAGE_SHARDS = "oakbot.doclet.output.packageShards";
+	private static final String PACKAGE_GROUPS = "oakbot.doclet.output.packageGroups";
+	private static final String ACCESS_PROFILE = "oakbot.doclet.output.accessProfile";
+	private static final String CHAT_SUMMARIES = "oakbot.doclet.output.chatSummaries";
 	private static final String LIBRARY_NAME = "oakbot.doclet.library.name";
 	private static final String LIBRARY_VERSION = "oakbot.doclet.library.version";
 	private static final String LIBRARY_BASEURL = "oakbot.doclet.library.baseUrl";
 	private static final String LIBRARY_JAVADOC_URL_PATTERN = "oakbot.doclet.library.javadocUrlPattern";
 	private static final String LIBRARY_PROJECT_URL = "oakbot.doclet.library.projectUrl";
+	private static final String LIBRARY_PACKAGE_LIST = "oakbot.doclet.library.packageList";
+
+	private static volatile ConfigProperties current;
 
 	public ConfigProperties() {
 		super();
@@ -26,10 +45,48 @@ public class ConfigProperties extends PropertiesWrapper {
 		super(properties);
 	}
 
+	/**
+	 * Gets the configuration of the doclet run that is currently taking place.
+	 * @return the configuration that was passed to {@link #setCurrent} if
+	 * javadoc is running in-process, or the configuration that is defined in
+	 * the system properties if javadoc was forked
+	 */
+	public static ConfigProperties current() {
+		ConfigProperties properties = current;
+		return (properties == null) ? new ConfigProperties(System.getProperties()) : properties;
+	}
+
+	/**
+	 * Sets the configuration to use for an in-process doclet run.
+	 * @param properties the configuration or null to read the configuration
+	 * from the system properties
+	 */
+	public static void setCurrent(ConfigProperties properties) {
+		current = properties;
+	}
+
 	public Path getOutputPath() {
 		return getFile(OUTPUT_PATH);
 	}
 
+	/**
+	 * Gets the path that the ZIP file will be saved to. If no output path is
+	 * set, or if it is a directory, the file name is based on the library's
+	 * name and version.
+	 * @return the path to the ZIP file
+	 */
+	public Path resolveOutputPath() {
+		Path outputPath = getOutputPath();
+		String defaultFilename = getLibraryName() + "-" + getLibraryVersion() + ".zip";
+		if (outputPath == null) {
+			return Paths.get(defaultFilename);
+		}
+		if (Files.isDirectory(outputPath)) {
+			return outputPath.resolve(defaultFilename);
+		}
+		return outputPath;
+	}
+
 	public void setOutputPath(Path path) {
 		set(OUTPUT_PATH, path);
 	}
@@ -42,6 +99,195 @@ public class ConfigProperties extends PropertiesWrapper {
 		set(PRETTY_PRINT, prettyPrint);
 	}
 
+	/**
+	 * Gets the size of the blocks that the class XML files are grouped into.
+	 * @return the block size in bytes or 0 to save each class as its own ZIP
+	 * entry
+	 * @see ArchiveReader
+	 */
+	public int getBlockSize() {
+		return getInteger(BLOCK_SIZE, 0);
+	}
+
+	public void setBlockSize(int bytes) {
+		set(BLOCK_SIZE, bytes);
+	}
+
+	/**
+	 * Determines whether the class XML files (or blocks) are compressed with a
+	 * preset dictionary that is built from a sample of the classes.
+	 * @return true to use a preset dictionary, false not to
+	 * @see ArchiveReader
+	 */
+	public boolean isDictionary() {
+		return getBoolean(DICTIONARY, false);
+	}
+
+	public void setDictionary(boolean dictionary) {
+		set(DICTIONARY, dictionary);
+	}
+
+	/**
+	 * Determines whether the descriptions of each class are saved separately
+	 * from the rest of its XML file, so the class's signatures can be loaded
+	 * without them.
+	 * @return true to save the descriptions separately, false to keep them
+	 * in the class XML files
+	 * @see ArchiveReader
+	 */
+	public boolean isSplitDescriptions() {
+		return getBoolean(SPLIT_DESCRIPTIONS, false);
+	}
+
+	public void setSplitDescriptions(boolean splitDescriptions) {
+		set(SPLIT_DESCRIPTIONS, splitDescriptions);
+	}
+
+	/**
+	 * Gets the number of threads to compress the ZIP file's entries on.
+	 * @return the number of threads (defaults to the number of processors)
+	 */
+	public int getThreads() {
+		return getInteger(THREADS, Runtime.getRuntime().availableProcessors());
+	}
+
+	public void setThreads(int threads) {
+		set(THREADS, threads);
+	}
+
+	/**
+	 * Determines whether the ZIP file should be reproducible, meaning that it
+	 * is identical every time it is generated from the same source code. The
+	 * classes and ZIP entries are sorted, the ZIP entries are given a fixed
+	 * timestamp, and a manifest of the entries' hashes is saved.
+	 * @return true to create a reproducible ZIP file, false not to
+	 * @see ArchiveReader
+	 * @see #getSourceDateEpoch
+	 */
+	public boolean isReproducible() {
+		return getBoolean(REPRODUCIBLE, false);
+	}
+
+	public void setReproducible(boolean reproducible) {
+		set(REPRODUCIBLE, reproducible);
+	}
+
+	/**
+	 * Gets the time to use as the generation time of a reproducible ZIP file
+	 * and as the timestamp of its entries. If this property is not set, the
+	 * "SOURCE_DATE_EPOCH" environment variable is used.
+	 * @return the time in seconds since the Unix epoch or null if not set
+	 * @throws NumberFormatException if the value is not a number
+	 * @see <a href="https://reproducible-builds.org/specs/source-date-epoch/">SOURCE_DATE_EPOCH specification</a>
+	 */
+	public Long getSourceDateEpoch() {
+		String value = get(SOURCE_DATE_EPOCH);
+		if (value == null) {
+			value = System.getenv("SOURCE_DATE_EPOCH");
+		}
+		if (value == null || value.trim().isEmpty()) {
+			return null;
+		}
+
+		return Long.valueOf(value.trim());
+	}
+
+	public void setSourceDateEpoch(Long seconds) {
+		set(SOURCE_DATE_EPOCH, seconds);
+	}
+
+	/**
+	 * Gets the name that distinguishes the blocks, dictionary, and index of
+	 * this doclet run from those of other runs whose ZIP files will be merged
+	 * with it (see {@link #getBlockSize} and {@link #isDictionary}).
+	 * @return the name
+	 */
+	public String getPartName() {
+		return get(PART_NAME, "0");
+	}
+
+	public void setPartName(String name) {
+		set(PART_NAME, name);
+	}
+
+	/**
+	 * Determines whether the classes are split into one ZIP file per package
+	 * group (called a shard), plus a small root ZIP file that maps each
+	 * package to its shard. This is always true if package groups are
+	 * defined.
+	 * @return true to split the classes into shards, false to save them all
+	 * in one ZIP file
+	 * @see ShardedArchiveReader
+	 * @see #getPackageGroups
+	 */
+	public boolean isPackageShards() {
+		return getBoolean(PACKAGE_SHARDS, false) || !getPackageGroups().isEmpty();
+	}
+
+	public void setPackageShards(boolean packageShards) {
+		set(PACKAGE_SHARDS, packageShards);
+	}
+
+	/**
+	 * Gets the package groups that the classes are split into if package
+	 * shards are enabled. Each group is a package name, and contains that
+	 * package and its subpackages. A package belongs to the longest group that
+	 * matches it. Packages that do not belong to any group are grouped by
+	 * their top-level package.
+	 * @return the package groups (e.g. "java.util", "java.util.concurrent")
+	 * @see #isPackageShards
+	 */
+	public List<String> getPackageGroups() {
+		String value = get(PACKAGE_GROUPS);
+		if (value == null) {
+			return Collections.emptyList();
+		}
+
+		List<String> groups = new ArrayList<>();
+		for (String group : value.split(",")) {
+			group = group.trim();
+			if (!group.isEmpty()) {
+				groups.add(group);
+			}
+		}
+		return groups;
+	}
+
+	public void setPackageGroups(List<String> groups) {
+		set(PACKAGE_GROUPS, (groups == null || groups.isEmpty()) ? null : String.join(",", groups));
+	}
+
+	/**
+	 * Gets the file that records how often each class is accessed. The
+	 * classes that are accessed the most are saved first, and the index marks
+	 * them as the warm set.
+	 * @return the path to the file or null if not set
+	 * @see AccessProfile
+	 * @see ArchiveReader#getWarmSet
+	 */
+	public Path getAccessProfile() {
+		return getFile(ACCESS_PROFILE);
+	}
+
+	public void setAccessProfile(Path file) {
+		set(ACCESS_PROFILE, file);
+	}
+
+	/**
+	 * Determines whether a chat summary is saved for each class, constructor,
+	 * and method. A chat summary is the first sentence of the description,
+	 * formatted as an SO Chat message that is ready to be posted.
+	 * @return true to save chat summaries, false not to
+	 * @see ChatSummaries
+	 */
+	public boolean isChatSummaries() {
+		return getBoolean(CHAT_SUMMARIES, false);
+	}
+
+	public void setChatSummaries(boolean chatSummaries) {
+		set(CHAT_SUMMARIES, chatSummaries);
+	}
+
 	public String getLibraryName() {
 		return get(LIBRARY_NAME);
 	}
@@ -82,4 +328,20 @@ public class ConfigProperties extends PropertiesWrapper {
 		set(LIBRARY_PROJECT_URL, url);
 	}
 
+	/**
+	 * Gets the file that lists all of the library's packages, one per line.
+	 * This is set when the library is divided between several doclet runs
+	 * (see {@link #getPartName}), so that {@literal @link} tags that point to
+	 * the classes of another run can still be turned into links.
+	 * @return the path to the file or null if this run documents the whole
+	 * library
+	 */
+	public Path getLibraryPackageList() {
+		return getFile(LIBRARY_PACKAGE_LIST);
+	}
+
+	public void setLibraryPackageList(Path file) {
+		set(LIBRARY_PACKAGE_LIST, file);
+	}
+
 }
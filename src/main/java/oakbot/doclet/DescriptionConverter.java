@@ -0,0 +1,326 @@
+package oakbot.doclet;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jsoup.helper.StringUtil;
+
+import oakbot.util.ChatBuilder;
+
+/**
+ * Converts the HTML elements and text of a class's or method's Javadoc
+ * description to SO Chat markdown. The elements are fed to this class one at a
+ * time, which allows the description to come from different sources (e.g. a
+ * jsoup DOM or a {@link com.sun.source.doctree.DocCommentTree}).
+ * @author Michael Angstadt
+ */
+class DescriptionConverter {
+	private final ChatBuilder cb = new ChatBuilder();
+	private final Pattern escapeRegex = Pattern.compile("[*_\\[\\]`]");
+	private final boolean ignoreDuplicateText;
+	private String prevText;
+
+	private boolean inPre = false, inCode = false;
+	private final StringBuilder preSb = new StringBuilder();
+
+	private String linkUrl, linkTitle, linkText;
+	private boolean linkTextCode, linkTextBold, linkTextItalic, linkTextStrike;
+
+	/**
+	 * @param ignoreDuplicateText true to ignore a text node if it is the same
+	 * as the text node that came before it (jsoup sometimes visits the same
+	 * text node twice), false not to
+	 */
+	DescriptionConverter(boolean ignoreDuplicateText) {
+		this.ignoreDuplicateText = ignoreDuplicateText;
+	}
+
+	/**
+	 * Called when an anchor element is encountered.
+	 * @param url the absolute URL of the link or empty string if the element
+	 * doesn't have one (the element is then treated as plain text)
+	 * @param title the link title or empty string if there is none
+	 */
+	public void startLink(String url, String title) {
+		if (!url.isEmpty()) {
+			linkUrl = url;
+			linkTitle = title;
+		}
+	}
+
+	/**
+	 * Called when an HTML start element is encountered. Anchor elements must be
+	 * passed to {@link #startLink} instead.
+	 * @param name the element name (lower case)
+	 */
+	public void startElement(String name) {
+		switch (name) {
+		case "code":
+		case "tt":
+			if (inLink()) {
+				linkTextCode = true;
+			} else if (!inPre) {
+				inCode = true;
+				cb.code();
+			}
+			break;
+		case "i":
+		case "em":
+			if (inLink()) {
+				linkTextItalic = true;
+			} else if (!inPre) {
+				cb.italic();
+			}
+			break;
+		case "b":
+		case "strong":
+			if (inLink()) {
+				linkTextBold = true;
+			} else if (!inPre) {
+				cb.bold();
+			}
+			break;
+		case "strike":
+		case "s":
+		case "del":
+			if (inLink()) {
+				linkTextStrike = true;
+			} else if (!inPre) {
+				cb.strike();
+			}
+			break;
+		case "br":
+		case "p":
+			cb.nl();
+			if (!inPre) {
+				cb.nl();
+			}
+			break;
+		case "pre":
+			inPre = true;
+			cb.nl().nl();
+			break;
+		case "ul":
+		case "ol":
+			cb.nl().nl();
+			break;
+		case "h1":
+		case "h2":
+		case "h3":
+		case "h4":
+		case "h5":
+		case "h6":
+			cb.nl().nl().bold();
+			break;
+		case "sup":
+			cb.append('^');
+			break;
+		case "sub":
+			cb.append('[');
+			break;
+		}
+	}
+
+	/**
+	 * Called when text is encountered.
+	 * @param wholeText the text, with its whitespace untouched and its HTML
+	 * entities decoded
+	 */
+	public void text(String wholeText) {
+		if (inPre) {
+			preSb.append(wholeText);
+			return;
+		}
+
+		String content = StringUtil.normaliseWhitespace(wholeText);
+		if (!inCode) {
+			content = escapeRegex.matcher(content).replaceAll("\\\\$0"); //escape special chars
+		}
+
+		if (ignoreDuplicateText) {
+			if (prevText != null && prevText.equals(content)) {
+				prevText = null;
+				return;
+			}
+			prevText = content;
+		}
+
+		if (inLink()) {
+			linkText = content;
+		} else {
+			if (precededByWhitespace()) {
+				//collapse whitespace that spans text nodes and ignore whitespace at the beginning of a line
+				content = content.replaceFirst("^ +", "");
+			}
+			cb.append(content);
+		}
+	}
+
+	private boolean precededByWhitespace() {
+		int length = cb.length();
+		if (length == 0) {
+			return true;
+		}
+
+		char last = cb.charAt(length - 1);
+		return last == '\n' || last == ' ';
+	}
+
+	/**
+	 * Called when an HTML end element is encountered.
+	 * @param name the element name (lower case)
+	 */
+	public void endElement(String name) {
+		switch (name) {
+		case "a":
+			if (inLink()) {
+				ChatBuilder cb2 = new ChatBuilder();
+				if (linkTextBold) cb2.bold();
+				if (linkTextItalic) cb2.italic();
+				if (linkTextStrike) cb2.strike();
+				if (linkTextCode) cb2.code(); //"code" formatting has to be last
+				cb2.append(linkText);
+				if (linkTextCode) cb2.code();
+				if (linkTextStrike) cb2.strike();
+				if (linkTextItalic) cb2.italic();
+				if (linkTextBold) cb2.bold();
+
+				cb.link(cb2.toString(), linkUrl, linkTitle);
+
+				linkUrl = linkText = linkTitle = null;
+				linkTextBold = linkTextItalic = linkTextStrike = linkTextCode = false;
+			}
+			break;
+		case "code":
+		case "tt":
+			if (!inLink() && !inPre) {
+				inCode = false;
+				cb.code();
+			}
+			break;
+		case "i":
+		case "em":
+			if (!inLink() && !inPre) {
+				cb.italic();
+			}
+			break;
+		case "b":
+		case "strong":
+			if (!inLink() && !inPre) {
+				cb.bold();
+			}
+			break;
+		case "strike":
+		case "s":
+		case "del":
+			if (!inLink() && !inPre) {
+				cb.strike();
+			}
+			break;
+		case "p":
+			cb.nl();
+			break;
+		case "pre":
+			inPre = false;
+			handlePreText();
+			cb.nl();
+			preSb.setLength(0);
+			break;
+		case "ul":
+		case "ol":
+			cb.nl();
+			break;
+		case "h1":
+		case "h2":
+		case "h3":
+		case "h4":
+		case "h5":
+		case "h6":
+			cb.append(':').bold().append(' ');
+			break;
+		case "sub":
+			cb.append(']');
+			break;
+		}
+	}
+
+	private void handlePreText() {
+		String text = preSb.toString().trim();
+		String lines[] = text.split("\r\n|\n|\r");
+		if (lines.length == 1) {
+			cb.code(lines[0]).nl();
+			return;
+		}
+
+		List<Integer> spaceCounts = new ArrayList<>(lines.length - 1);
+		int minSpaces = Integer.MAX_VALUE;
+		for (int i = 1; i < lines.length; i++) {
+			String line = lines[i];
+
+			//count the number of spaces/tabs at the beginning of the line
+			int spaces = 0;
+			for (int j = 0; j < line.length(); j++) {
+				char c = line.charAt(j);
+				if (c != ' ' && c != '\t') {
+					break;
+				}
+				spaces++;
+			}
+
+			if (spaces < minSpaces) {
+				minSpaces = spaces;
+			}
+
+			spaceCounts.add(spaces);
+			lines[i] = line.trim();
+		}
+
+		cb.fixed().append(lines[0]).nl(); //handle the first line differently because its prepended spaces were trimmed
+		Iterator<Integer> it = spaceCounts.iterator();
+		for (int i = 1; i < lines.length; i++) {
+			String line = lines[i];
+			cb.fixed();
+			int indent = it.next() - minSpaces;
+			for (int j = 0; j < indent; j++) {
+				cb.append(' ');
+			}
+			cb.append(line).nl();
+		}
+	}
+
+	private boolean inLink() {
+		return linkUrl != null;
+	}
+
+	/**
+	 * Gets the description that was parsed.
+	 * @return the description
+	 */
+	public String getDescription() {
+		//@formatter:off
+		return cb.toString()
+		
+		.trim()
+		
+		//jsoup converts "&nbsp;" to a character that doesn't display right on SO Chat
+		.replace((char)160, ' ')
+		
+		//remove whitespace that's at the end of each line
+		.replaceAll("[ \\t]+\\n", "\n")
+		
+		//there should never be a run of more than consecutive 2 newlines
+		.replaceAll("\\n{3,}", "\n\n")
+		
+		//the code tag should be inner most formatting tag (e.g. "`**test**`" --> "**`test`**")
+		.replaceAll("`([\\*\\-]+)(.*?)([\\*\\-]+)`", "$1`$2`$3")
+		
+		//move the code tags surrounding links so that they are inside the brackets (e.g. "`[test](...)`" --> "[`test`](...)")
+		.replaceAll("`\\[(.*?)\\]\\((.*?)\\)`", "[`$1`]($2)")
+		
+		//run this regex again to fix certain edge cases with links (e.g. "`*[**test**](...)*`" --> "*`[**test**](...)`*" --> "*[**`test`**](...)*")
+		.replaceAll("`([\\*\\-]+)(.*?)([\\*\\-]+)`", "$1`$2`$3");
+		//@formatter:on
+	}
+}
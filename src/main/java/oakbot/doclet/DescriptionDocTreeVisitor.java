@@ -0,0 +1,247 @@
+package oakbot.doclet;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Entities;
+
+import com.sun.source.doctree.AttributeTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.EndElementTree;
+import com.sun.source.doctree.EntityTree;
+import com.sun.source.doctree.ErroneousTree;
+import com.sun.source.doctree.IndexTree;
+import com.sun.source.doctree.LinkTree;
+import com.sun.source.doctree.LiteralTree;
+import com.sun.source.doctree.StartElementTree;
+import com.sun.source.doctree.SummaryTree;
+import com.sun.source.doctree.TextTree;
+import com.sun.source.doctree.UnknownInlineTagTree;
+import com.sun.source.doctree.ValueTree;
+import com.sun.source.util.SimpleDocTreeVisitor;
+
+/**
+ * Iterates through the nodes of a class's or method's parsed Javadoc
+ * description, converting the description to SO Chat markdown. Unlike
+ * {@link DescriptionNodeVisitor}, the description does not have to be turned
+ * back into an HTML string and re-parsed.
+ * @author Michael Angstadt
+ */
+public class DescriptionDocTreeVisitor extends SimpleDocTreeVisitor<Void, Void> {
+	private final DescriptionConverter converter = new DescriptionConverter(false);
+	private final Function<LinkTree, String> linkResolver;
+
+	private DescriptionDocTreeVisitor(Function<LinkTree, String> linkResolver) {
+		this.linkResolver = linkResolver;
+	}
+
+	/**
+	 * Converts a Javadoc description to SO Chat markdown.
+	 * @param body the description (e.g. {@code DocCommentTree.getFullBody()})
+	 * @return the markdown
+	 */
+	public static String toMarkdown(List<? extends DocTree> body) {
+		return toMarkdown(body, null);
+	}
+
+	/**
+	 * Converts a Javadoc description to SO Chat markdown.
+	 * @param body the description (e.g. {@code DocCommentTree.getFullBody()})
+	 * @param linkResolver gets the URLs of the targets of {@literal @link}
+	 * tags, returning null if a target has no URL (can be null to not link
+	 * any of them)
+	 * @return the markdown
+	 */
+	public static String toMarkdown(List<? extends DocTree> body, Function<LinkTree, String> linkResolver) {
+		DescriptionDocTreeVisitor visitor = new DescriptionDocTreeVisitor(linkResolver);
+		visitor.visit(body, null);
+		return visitor.getDescription();
+	}
+
+	@Override
+	public Void visitText(TextTree node, Void p) {
+		converter.text(node.getBody());
+		return null;
+	}
+
+	@Override
+	public Void visitEntity(EntityTree node, Void p) {
+		converter.text(decodeEntity(node.getName().toString()));
+		return null;
+	}
+
+	@Override
+	public Void visitStartElement(StartElementTree node, Void p) {
+		String name = node.getName().toString().toLowerCase(Locale.ROOT);
+		if (!"a".equals(name)) {
+			converter.startElement(name);
+			return null;
+		}
+
+		String href = "", title = "";
+		for (DocTree attribute : node.getAttributes()) {
+			if (!(attribute instanceof AttributeTree)) {
+				continue;
+			}
+
+			AttributeTree attributeTree = (AttributeTree) attribute;
+			String attributeName = attributeTree.getName().toString().toLowerCase(Locale.ROOT);
+			switch (attributeName) {
+			case "href":
+				href = absoluteUrl(attributeValue(attributeTree).trim());
+				break;
+			case "title":
+				title = attributeValue(attributeTree);
+				break;
+			}
+		}
+
+		converter.startLink(href, title);
+		return null;
+	}
+
+	@Override
+	public Void visitEndElement(EndElementTree node, Void p) {
+		converter.endElement(node.getName().toString().toLowerCase(Locale.ROOT));
+		return null;
+	}
+
+	@Override
+	public Void visitLiteral(LiteralTree node, Void p) {
+		//the whitespace that separates the tag name from its body is kept by the parser
+		String body = node.getBody().getBody().replaceFirst("^\\s+", "");
+		if (node.getKind() == DocTree.Kind.CODE) {
+			converter.startElement("code");
+			converter.text(body);
+			converter.endElement("code");
+		} else {
+			converter.text(body);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitLink(LinkTree node, Void p) {
+		String url = (linkResolver == null) ? null : linkResolver.apply(node);
+		boolean code = (node.getKind() == DocTree.Kind.LINK);
+		if (url != null) {
+			converter.startLink(url, null);
+			if (code) {
+				converter.startElement("code");
+			}
+		}
+
+		List<? extends DocTree> label = node.getLabel();
+		if (label.isEmpty()) {
+			converter.text(node.getReference().getSignature());
+		} else {
+			visit(label, p);
+		}
+
+		if (url != null) {
+			if (code) {
+				converter.endElement("code");
+			}
+			converter.endElement("a");
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitValue(ValueTree node, Void p) {
+		if (node.getReference() != null) {
+			converter.text(node.getReference().getSignature());
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitIndex(IndexTree node, Void p) {
+		return visit(node.getSearchTerm(), p);
+	}
+
+	@Override
+	public Void visitSummary(SummaryTree node, Void p) {
+		return visit(node.getSummary(), p);
+	}
+
+	@Override
+	public Void visitUnknownInlineTag(UnknownInlineTagTree node, Void p) {
+		return visit(node.getContent(), p);
+	}
+
+	@Override
+	public Void visitErroneous(ErroneousTree node, Void p) {
+		converter.text(node.getBody());
+		return null;
+	}
+
+	/**
+	 * Gets the description that was parsed.
+	 * @return the description
+	 */
+	public String getDescription() {
+		return converter.getDescription();
+	}
+
+	/**
+	 * Gets the value of an HTML attribute, decoding any HTML entities.
+	 * @param attribute the attribute
+	 * @return the value
+	 */
+	private static String attributeValue(AttributeTree attribute) {
+		List<? extends DocTree> value = attribute.getValue();
+		if (value == null) {
+			return "";
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (DocTree node : value) {
+			if (node instanceof TextTree) {
+				sb.append(((TextTree) node).getBody());
+			} else if (node instanceof EntityTree) {
+				sb.append(decodeEntity(((EntityTree) node).getName().toString()));
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Decodes an HTML entity.
+	 * @param name the entity name, without the leading "&" and trailing ";"
+	 * (e.g. "lt", "#60", "#x3C")
+	 * @return the decoded character(s), or the entity itself if it is not
+	 * recognized
+	 */
+	private static String decodeEntity(String name) {
+		if (name.startsWith("#")) {
+			try {
+				boolean hex = name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X');
+				int codePoint = hex ? Integer.parseInt(name.substring(2), 16) : Integer.parseInt(name.substring(1));
+				return new String(Character.toChars(codePoint));
+			} catch (IllegalArgumentException e) {
+				return "&" + name + ";";
+			}
+		}
+
+		Character c = Entities.isNamedEntity(name) ? Entities.getCharacterByName(name) : null;
+		return (c == null) ? "&" + name + ";" : c.toString();
+	}
+
+	/**
+	 * Determines if a link URL is absolute. Relative URLs are ignored, since
+	 * the description has no base URL to resolve them against.
+	 * @param href the link URL
+	 * @return the URL or empty string if the URL is not absolute
+	 */
+	private static String absoluteUrl(String href) {
+		try {
+			return new URL(href).toExternalForm();
+		} catch (MalformedURLException e) {
+			return "";
+		}
+	}
+}
@@ -0,0 +1,927 @@
+package oakbot.doclet;
+
+import static oakbot.util.XmlUtils.newDocument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import org.w3c.dom.Document;
+
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.DocTree;
+import com.sun.source.doctree.LinkTree;
+import com.sun.source.doctree.SinceTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.util.DocTreePath;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+
+import jdk.javadoc.doclet.DocletEnvironment;
+
+/**
+ * Converts the Javadoc info in a {@link TypeElement} object to XML. Produces
+ * the same XML as {@link RootDocXmlProcessor}.
+ * @author Michael Angstadt
+ */
+public final class ElementXmlProcessor {
+	/**
+	 * The order in which {@link java.lang.reflect.Modifier#toString} lists
+	 * modifiers.
+	 */
+	private static final Modifier[] MODIFIER_ORDER = { Modifier.PUBLIC, Modifier.PROTECTED, Modifier.PRIVATE, Modifier.ABSTRACT, Modifier.STATIC, Modifier.FINAL, Modifier.TRANSIENT, Modifier.VOLATILE, Modifier.SYNCHRONIZED, Modifier.NATIVE, Modifier.STRICTFP };
+
+	private final DocletEnvironment environment;
+	private final DocTrees docTrees;
+	private final Elements elements;
+	private final Types types;
+	private final Map<Element, DocCommentTree> docComments = new HashMap<>();
+	private final Map<Element, TreePath> treePaths = new HashMap<>();
+	private final JavadocUrls javadocUrls;
+	private final SymbolTable symbolTable;
+	private final Set<String> libraryPackages;
+	private final ChatSummaries chatSummaries;
+	private Document document;
+	private String className, classUrl;
+
+	/**
+	 * @param environment the doclet environment
+	 */
+	public ElementXmlProcessor(DocletEnvironment environment) {
+		this(environment, null, null, null);
+	}
+
+	/**
+	 * @param environment the doclet environment
+	 * @param javadocUrls builds the Javadoc URLs or null not to include URLs
+	 * (if not null, {@literal @link} tags are also turned into links)
+	 * @param libraryPackages all of the library's packages or null if this
+	 * run documents the whole library (see
+	 * {@link ConfigProperties#getLibraryPackageList})
+	 * @param chatSummaries builds the chat summaries or null not to include
+	 * chat summaries
+	 */
+	ElementXmlProcessor(DocletEnvironment environment, JavadocUrls javadocUrls, Set<String> libraryPackages, ChatSummaries chatSummaries) {
+		this.environment = environment;
+		this.javadocUrls = javadocUrls;
+		this.libraryPackages = libraryPackages;
+		this.chatSummaries = chatSummaries;
+		docTrees = environment.getDocTrees();
+		elements = environment.getElementUtils();
+		types = environment.getTypeUtils();
+		symbolTable = (javadocUrls == null) ? null : buildSymbolTable();
+	}
+
+	/**
+	 * Maps every class, constructor, method, and field that is being
+	 * documented to its Javadoc URL, so {@literal @link} tags can be resolved
+	 * without searching the whole environment for their targets.
+	 * @return the symbol table
+	 */
+	private SymbolTable buildSymbolTable() {
+		Set<TypeElement> typeElements = ElementFilter.typesIn(environment.getIncludedElements());
+		SymbolTable symbolTable = new SymbolTable(typeElements.size() * 16);
+		for (TypeElement typeElement : typeElements) {
+			String className = typeElement.getQualifiedName().toString();
+			String classUrl = javadocUrls.classUrl(className(typeElement));
+			symbolTable.put(className, classUrl);
+
+			for (Element member : typeElement.getEnclosedElements()) {
+				//nested classes are included elements of their own
+				if (!environment.isIncluded(member) || member instanceof TypeElement) {
+					continue;
+				}
+
+				String key = symbolKey(member);
+				if (key != null) {
+					symbolTable.put(key, memberUrl(classUrl, member));
+				}
+			}
+		}
+		return symbolTable;
+	}
+
+	/**
+	 * Builds the URL of a constructor, method, or field.
+	 * @param classUrl the URL of the member's class
+	 * @param member the member
+	 * @return the URL
+	 */
+	private static String memberUrl(String classUrl, Element member) {
+		String name = member.getSimpleName().toString();
+		switch (member.getKind()) {
+		case CONSTRUCTOR:
+			return classUrl + '#' + JavadocUrls.anchor(null, anchorTypes((ExecutableElement) member));
+		case METHOD:
+			return classUrl + '#' + JavadocUrls.anchor(name, anchorTypes((ExecutableElement) member));
+		default:
+			return classUrl + '#' + name;
+		}
+	}
+
+	/**
+	 * Builds the URL of a class or member that is documented by another
+	 * doclet run of the same library. These classes are not in the symbol
+	 * table, because javac only parses their source files when a
+	 * {@literal @link} tag points to them. Like javadoc, only public and
+	 * protected classes and members are considered to be documented.
+	 * @param target the class or member (must have a symbol table key, see
+	 * {@link #symbolKey})
+	 * @return the URL or null if the target does not belong to a package of
+	 * the library that is documented by another run
+	 */
+	private String libraryUrl(Element target) {
+		if (libraryPackages == null) {
+			return null;
+		}
+
+		TypeElement typeElement = (TypeElement) ((target instanceof TypeElement) ? target : target.getEnclosingElement());
+		PackageElement packageElement = elements.getPackageOf(typeElement);
+		if (environment.isIncluded(packageElement) || !libraryPackages.contains(packageElement.getQualifiedName().toString())) {
+			return null;
+		}
+
+		for (Element element = target; element != packageElement; element = element.getEnclosingElement()) {
+			Set<Modifier> modifiers = element.getModifiers();
+			if (!modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED)) {
+				return null;
+			}
+		}
+
+		String classUrl = javadocUrls.classUrl(className(typeElement));
+		return (target == typeElement) ? classUrl : memberUrl(classUrl, target);
+	}
+
+	/**
+	 * Builds the symbol table key of an element (see {@link SymbolTable}).
+	 * @param element the element
+	 * @return the key or null if the element cannot be in the symbol table
+	 */
+	private static String symbolKey(Element element) {
+		if (element instanceof TypeElement) {
+			return ((TypeElement) element).getQualifiedName().toString();
+		}
+
+		Element enclosing = element.getEnclosingElement();
+		if (!(enclosing instanceof TypeElement)) {
+			return null;
+		}
+
+		String className = ((TypeElement) enclosing).getQualifiedName().toString();
+		switch (element.getKind()) {
+		case CONSTRUCTOR:
+			return SymbolTable.key(className, null, anchorTypes((ExecutableElement) element));
+		case METHOD:
+			return SymbolTable.key(className, element.getSimpleName().toString(), anchorTypes((ExecutableElement) element));
+		case FIELD:
+		case ENUM_CONSTANT:
+			return SymbolTable.key(className, element.getSimpleName().toString());
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Parses the Javadoc information out of a {@link TypeElement} object and
+	 * into an XML document.
+	 * @param typeElement the class to parse
+	 * @return the XML document containing the Javadoc information
+	 */
+	public Document toDocument(TypeElement typeElement) {
+		document = newDocument();
+		indexDocComments(typeElement);
+		try {
+			org.w3c.dom.Element element = parseClass(typeElement);
+			document.appendChild(element);
+		} finally {
+			docComments.clear();
+			treePaths.clear();
+		}
+		return document;
+	}
+
+	/**
+	 * Gets the Javadoc comments of a class and its methods/constructors in a
+	 * single pass over the class's syntax tree. Calling
+	 * {@link DocTrees#getDocCommentTree(Element)} for each element is slow,
+	 * because javac has to search the entire source file for the element each
+	 * time.
+	 * @param typeElement the class
+	 */
+	private void indexDocComments(TypeElement typeElement) {
+		TreePath classPath = docTrees.getPath(typeElement);
+		if (classPath == null) {
+			return;
+		}
+
+		new TreePathScanner<Void, Void>() {
+			@Override
+			public Void visitClass(ClassTree node, Void p) {
+				index();
+
+				//nested classes are processed separately
+				return (node == classPath.getLeaf()) ? super.visitClass(node, p) : null;
+			}
+
+			@Override
+			public Void visitMethod(MethodTree node, Void p) {
+				index();
+				return null;
+			}
+
+			private void index() {
+				TreePath path = getCurrentPath();
+				Element element = docTrees.getElement(path);
+				if (element != null) {
+					docComments.put(element, docTrees.getDocCommentTree(path));
+					if (symbolTable != null) {
+						treePaths.put(element, path);
+					}
+				}
+			}
+		}.scan(classPath, null);
+	}
+
+	/**
+	 * Gets the Javadoc comment of a class, method, or constructor.
+	 * @param element the element
+	 * @return the comment or null if it doesn't have one
+	 */
+	private DocCommentTree docComment(Element element) {
+		if (docComments.containsKey(element)) {
+			return docComments.get(element);
+		}
+
+		//e.g. methods inherited from package-private super classes
+		return docTrees.getDocCommentTree(element);
+	}
+
+	private org.w3c.dom.Element parseClass(TypeElement typeElement) {
+		org.w3c.dom.Element element = document.createElement("class");
+
+		element.setAttribute("name", className(typeElement));
+
+		//URL
+		className = className(typeElement);
+		classUrl = null;
+		if (javadocUrls != null) {
+			classUrl = javadocUrls.classUrl(className);
+			element.setAttribute("url", classUrl);
+		}
+
+		//modifiers
+		List<String> modifiers = new ArrayList<>();
+		{
+			ElementKind kind = typeElement.getKind();
+			if (kind == ElementKind.ANNOTATION_TYPE) {
+				modifiers.add("annotation");
+			} else if (isException(typeElement)) {
+				modifiers.add("exception");
+			} else if (kind == ElementKind.ENUM) {
+				modifiers.add("enum");
+			} else if (kind == ElementKind.CLASS) {
+				modifiers.add("class");
+			}
+
+			boolean isInterface = kind == ElementKind.INTERFACE || kind == ElementKind.ANNOTATION_TYPE;
+			modifiers.addAll(modifiers(typeElement, isInterface));
+			if (kind == ElementKind.INTERFACE) {
+				modifiers.add("interface");
+			}
+		}
+		if (!modifiers.isEmpty()) {
+			element.setAttribute("modifiers", String.join(" ", modifiers));
+		}
+
+		/*
+		 * If a class's parent is package-private, then the parent class's
+		 * methods are "combined" with the child class's methods in the public
+		 * Javadocs. See RootDocXmlProcessor for details.
+		 */
+		Map<String, ExecutableElement> methodsOfPackagePrivateSuperClasses = new HashMap<>();
+		TypeElement superClass = superclass(typeElement);
+		while (superClass != null && isPackagePrivate(superClass)) {
+			for (ExecutableElement method : ElementFilter.methodsIn(superClass.getEnclosedElements())) {
+				/*
+				 * Ignore methods that aren't accessible to the child class.
+				 */
+				if (isPrivate(method) || isPackagePrivate(method)) {
+					continue;
+				}
+
+				methodsOfPackagePrivateSuperClasses.putIfAbsent(signature(method), method);
+			}
+
+			/*
+			 * Continue up the hierarchy, stopping when we encounter a public
+			 * class.
+			 */
+			superClass = superclass(superClass);
+		}
+		if (superClass != null) {
+			element.setAttribute("extends", className(superClass));
+		}
+
+		//interfaces
+		applyClassNameAttribute("implements", typeElement.getInterfaces(), element);
+
+		//deprecated
+		if (isDeprecated(typeElement)) {
+			element.setAttribute("deprecated", "true");
+		}
+
+		DocCommentTree docComment = docComment(typeElement);
+
+		//since
+		String since = parseSince(docComment);
+		if (since != null) {
+			element.setAttribute("since", since);
+		}
+
+		//description
+		String description = toMarkdown(typeElement, docComment);
+		org.w3c.dom.Element descriptionElement = document.createElement("description");
+		descriptionElement.setTextContent(description);
+		element.appendChild(descriptionElement);
+
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toFirstSentenceMarkdown(typeElement, docComment);
+			appendChatElement(chatSummaries.forClass(className, classUrl, summary), element);
+		}
+
+		//constructors
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(typeElement.getEnclosedElements())) {
+			if (environment.isIncluded(constructor)) {
+				element.appendChild(parseConstructor(constructor));
+			}
+		}
+
+		//methods
+		for (ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+			if (!environment.isIncluded(method)) {
+				continue;
+			}
+
+			element.appendChild(parseMethod(method));
+
+			/*
+			 * The child class's Javadocs should take precedence over any
+			 * Javadocs defined in the parent class.
+			 */
+			if (!methodsOfPackagePrivateSuperClasses.isEmpty()) {
+				methodsOfPackagePrivateSuperClasses.remove(signature(method));
+			}
+		}
+		for (ExecutableElement method : methodsOfPackagePrivateSuperClasses.values()) {
+			element.appendChild(parseMethod(method));
+		}
+
+		//TODO java.lang.Object methods
+
+		return element;
+	}
+
+	private org.w3c.dom.Element parseConstructor(ExecutableElement constructor) {
+		org.w3c.dom.Element element = document.createElement("constructor");
+
+		//deprecated
+		if (isDeprecated(constructor)) {
+			element.setAttribute("deprecated", "true");
+		}
+
+		//thrown exceptions
+		applyClassNameAttribute("throws", constructor.getThrownTypes(), element);
+
+		//anchors
+		String anchor = null;
+		if (javadocUrls != null) {
+			List<String> anchorTypes = anchorTypes(constructor);
+			anchor = JavadocUrls.anchor(null, anchorTypes);
+			element.setAttribute("anchor", anchor);
+			element.setAttribute("java8Anchor", JavadocUrls.java8Anchor(constructor.getEnclosingElement().getSimpleName().toString(), anchorTypes));
+		}
+
+		DocCommentTree docComment = docComment(constructor);
+
+		//since
+		String since = parseSince(docComment);
+		if (since != null) {
+			element.setAttribute("since", since);
+		}
+
+		//description
+		String description = toMarkdown(constructor, docComment);
+		org.w3c.dom.Element descriptionElement = document.createElement("description");
+		descriptionElement.setTextContent(description);
+		element.appendChild(descriptionElement);
+
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toFirstSentenceMarkdown(constructor, docComment);
+			appendChatElement(chatSummaries.forConstructor(className, parameterNames(constructor), memberUrl(anchor), summary), element);
+		}
+
+		//parameters
+		for (VariableElement parameter : constructor.getParameters()) {
+			element.appendChild(parseParameter(parameter));
+		}
+
+		return element;
+	}
+
+	private org.w3c.dom.Element parseMethod(ExecutableElement method) {
+		org.w3c.dom.Element element = document.createElement("method");
+
+		//name
+		String name = method.getSimpleName().toString();
+		element.setAttribute("name", name);
+
+		//modifiers
+		boolean inInterface = method.getEnclosingElement().getKind().isInterface();
+		String modifiers = String.join(" ", modifiers(method, inInterface));
+		element.setAttribute("modifiers", modifiers);
+
+		//deprecated
+		if (isDeprecated(method)) {
+			element.setAttribute("deprecated", "true");
+		}
+
+		//return value
+		TypeMirror returnType = method.getReturnType();
+		if (returnType.getKind() != TypeKind.VOID) {
+			element.setAttribute("returns", typeName(returnType));
+		}
+
+		//thrown exceptions
+		applyClassNameAttribute("throws", method.getThrownTypes(), element);
+
+		//anchors
+		String anchor = null;
+		if (javadocUrls != null) {
+			List<String> anchorTypes = anchorTypes(method);
+			anchor = JavadocUrls.anchor(name, anchorTypes);
+			element.setAttribute("anchor", anchor);
+			element.setAttribute("java8Anchor", JavadocUrls.java8Anchor(name, anchorTypes));
+		}
+
+		DocCommentTree docComment = docComment(method);
+
+		//since
+		String since = parseSince(docComment);
+		if (since != null) {
+			element.setAttribute("since", since);
+		}
+
+		//description
+		ExecutableElement descriptionMethod = method;
+		DocCommentTree descriptionComment = docComment;
+		ExecutableElement overriddenMethod = findOverriddenMethod(method);
+		if (overriddenMethod != null) {
+			if (isPackagePrivate(overriddenMethod.getEnclosingElement())) {
+				descriptionMethod = overriddenMethod;
+				descriptionComment = docComment(overriddenMethod);
+			} else {
+				element.setAttribute("overrides", methodName(overriddenMethod));
+			}
+		}
+		String description = toMarkdown(descriptionMethod, descriptionComment);
+		org.w3c.dom.Element descriptionElement = document.createElement("description");
+		descriptionElement.setTextContent(description);
+		element.appendChild(descriptionElement);
+
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toFirstSentenceMarkdown(descriptionMethod, descriptionComment);
+			appendChatElement(chatSummaries.forMethod(className, name, parameterNames(method), memberUrl(anchor), summary), element);
+		}
+
+		//parameters
+		for (VariableElement parameter : method.getParameters()) {
+			element.appendChild(parseParameter(parameter));
+		}
+
+		return element;
+	}
+
+	/**
+	 * Builds the URL of a constructor or method of the class that is being
+	 * parsed.
+	 * @param anchor the member's anchor or null if URLs are not being built
+	 * @return the URL or null if URLs are not being built
+	 */
+	private String memberUrl(String anchor) {
+		return (anchor == null) ? null : classUrl + '#' + anchor;
+	}
+
+	private void appendChatElement(String chat, org.w3c.dom.Element element) {
+		org.w3c.dom.Element chatElement = document.createElement("chat");
+		chatElement.setTextContent(chat);
+		element.appendChild(chatElement);
+	}
+
+	private org.w3c.dom.Element parseParameter(VariableElement parameter) {
+		org.w3c.dom.Element element = document.createElement("parameter");
+
+		String name = parameter.getSimpleName().toString();
+		element.setAttribute("name", name);
+
+		element.setAttribute("type", typeName(parameter.asType()));
+
+		return element;
+	}
+
+	/**
+	 * Add a specially formatted attribute to an element that contains the
+	 * fully qualified names of a list of types. For example,
+	 * {@code <class implements="java.util|Map.Entry java.io|Serializable">}
+	 * @param attributeName the name of the attribute to add
+	 * @param types the types
+	 * @param element the element
+	 */
+	private void applyClassNameAttribute(String attributeName, List<? extends TypeMirror> types, org.w3c.dom.Element element) {
+		if (types.isEmpty()) {
+			return;
+		}
+
+		List<String> names = types.stream().map(this::typeName).collect(Collectors.toList());
+		element.setAttribute(attributeName, String.join(" ", names));
+	}
+
+	/**
+	 * Builds a specially formatted string that is used to define a type's fully
+	 * qualified name. Generic types are erased.
+	 * @param type the type information
+	 * @return the fully qualified name (e.g. "java.lang|String[]")
+	 */
+	private String typeName(TypeMirror type) {
+		StringBuilder dimension = new StringBuilder();
+		while (type.getKind() == TypeKind.ARRAY) {
+			dimension.append("[]");
+			type = ((ArrayType) type).getComponentType();
+		}
+
+		if (type.getKind() == TypeKind.TYPEVAR) {
+			type = types.erasure(type);
+		}
+
+		String typeName;
+		if (type.getKind() == TypeKind.DECLARED) {
+			typeName = className((TypeElement) ((DeclaredType) type).asElement());
+		} else {
+			typeName = type.toString();
+		}
+		return typeName + dimension;
+	}
+
+	/**
+	 * Builds a specially formatted string that is used to define a method's
+	 * fully qualified name.
+	 * @param method the method information
+	 * @return the fully qualified name (e.g.
+	 * "java.util|Map.Entry#equals(java.lang|Object)")
+	 */
+	private String methodName(ExecutableElement method) {
+		String className = className((TypeElement) method.getEnclosingElement());
+		String methodName = method.getSimpleName().toString();
+		List<String> parameterNames = parameterNames(method);
+
+		return className + '#' + methodName + '(' + String.join(", ", parameterNames) + ')';
+	}
+
+	/**
+	 * Builds the specially formatted names of a method's or constructor's
+	 * parameters.
+	 * @param method the method or constructor
+	 * @return the fully qualified names (e.g. "java.lang|String[]")
+	 */
+	private List<String> parameterNames(ExecutableElement method) {
+		return method.getParameters().stream().map(parameter -> typeName(parameter.asType())).collect(Collectors.toList());
+	}
+
+	/**
+	 * Builds a specially formatted string that is used to define a class's
+	 * fully qualified name.
+	 * @param typeElement the class information
+	 * @return the fully qualified name (e.g. "java.util|Map.Entry")
+	 */
+	private String className(TypeElement typeElement) {
+		StringBuilder sb = new StringBuilder();
+
+		//package
+		PackageElement packageElement = elements.getPackageOf(typeElement);
+		sb.append(packageElement.getQualifiedName()).append('|');
+
+		//outerClasses
+		List<String> outerClasses = new ArrayList<>(1);
+		Element outer = typeElement;
+		while ((outer = outer.getEnclosingElement()) != null && (outer.getKind().isClass() || outer.getKind().isInterface())) {
+			outerClasses.add(outer.getSimpleName().toString());
+		}
+		if (!outerClasses.isEmpty()) {
+			Collections.reverse(outerClasses);
+			sb.append(String.join(".", outerClasses)).append('.');
+		}
+
+		//simple name
+		sb.append(typeElement.getSimpleName());
+
+		return sb.toString();
+	}
+
+	/**
+	 * Builds a string that uniquely identifies a method within a class.
+	 * @param method the method
+	 * @return the signature (e.g. "equals(java.lang.Object)")
+	 */
+	private String signature(ExecutableElement method) {
+		List<String> parameterTypes = method.getParameters().stream().map(parameter -> types.erasure(parameter.asType()).toString()).collect(Collectors.toList());
+		return method.getSimpleName() + "(" + String.join(", ", parameterTypes) + ")";
+	}
+
+	/**
+	 * Lists the modifiers of a class or method in the same order as
+	 * {@link java.lang.reflect.Modifier#toString}.
+	 * @param element the class or method
+	 * @param ignoreAbstract true to leave out the "abstract" modifier (it is
+	 * implicit for interfaces and interface methods)
+	 * @return the modifiers
+	 */
+	private static List<String> modifiers(Element element, boolean ignoreAbstract) {
+		Set<Modifier> modifiers = element.getModifiers();
+		List<String> list = new ArrayList<>(modifiers.size());
+		for (Modifier modifier : MODIFIER_ORDER) {
+			if (modifier == Modifier.ABSTRACT && ignoreAbstract) {
+				continue;
+			}
+			if (modifiers.contains(modifier)) {
+				list.add(modifier.toString());
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Gets the superclass of a class.
+	 * @param typeElement the class
+	 * @return the superclass or null if it does not have one (e.g. interfaces
+	 * and {@link Object})
+	 */
+	private static TypeElement superclass(TypeElement typeElement) {
+		TypeMirror superclass = typeElement.getSuperclass();
+		return (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+	}
+
+	/**
+	 * Determines if a class is an exception.
+	 * @param typeElement the class
+	 * @return true if it's a subclass of {@link Exception}, false if not
+	 */
+	private static boolean isException(TypeElement typeElement) {
+		if (typeElement.getKind() != ElementKind.CLASS) {
+			return false;
+		}
+
+		TypeElement superClass = typeElement;
+		while ((superClass = superclass(superClass)) != null) {
+			if ("java.lang.Exception".equals(superClass.getQualifiedName().toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isPrivate(Element element) {
+		return element.getModifiers().contains(Modifier.PRIVATE);
+	}
+
+	private static boolean isPackagePrivate(Element element) {
+		Set<Modifier> modifiers = element.getModifiers();
+		return !modifiers.contains(Modifier.PUBLIC) && !modifiers.contains(Modifier.PROTECTED) && !modifiers.contains(Modifier.PRIVATE);
+	}
+
+	/**
+	 * Determines if a class or method is deprecated.
+	 * @param element the class or method
+	 * @return true if it's deprecated, false if not
+	 */
+	private static boolean isDeprecated(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			if ("Deprecated".contentEquals(annotation.getAnnotationType().asElement().getSimpleName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the original method which is being overridden by a given method.
+	 * @param method the method which is overriding another method
+	 * @return the method that was overridden or null if not found
+	 */
+	private ExecutableElement findOverriddenMethod(ExecutableElement method) {
+		TypeElement containingClass = (TypeElement) method.getEnclosingElement();
+
+		TypeElement superClass = containingClass;
+		while ((superClass = superclass(superClass)) != null) {
+			for (ExecutableElement superClassMethod : ElementFilter.methodsIn(superClass.getEnclosedElements())) {
+				if (elements.overrides(method, superClassMethod, containingClass)) {
+					return superClassMethod;
+				}
+			}
+		}
+
+		List<? extends VariableElement> methodParams = method.getParameters();
+		for (TypeMirror interfaceType : containingClass.getInterfaces()) {
+			TypeElement interfaceElement = (TypeElement) ((DeclaredType) interfaceType).asElement();
+			for (ExecutableElement interfaceMethod : ElementFilter.methodsIn(interfaceElement.getEnclosedElements())) {
+				if (!interfaceMethod.getSimpleName().equals(method.getSimpleName())) {
+					continue;
+				}
+
+				List<? extends VariableElement> interfaceMethodParams = interfaceMethod.getParameters();
+				if (equals(methodParams, interfaceMethodParams)) {
+					return interfaceMethod;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compares two lists of method parameters for equality.
+	 * @param parameters1 the first list
+	 * @param parameters2 the second list
+	 * @return true if they are equal, false if not
+	 */
+	private static boolean equals(List<? extends VariableElement> parameters1, List<? extends VariableElement> parameters2) {
+		if (parameters1.size() != parameters2.size()) {
+			return false;
+		}
+
+		for (int i = 0; i < parameters1.size(); i++) {
+			TypeMirror one = parameters1.get(i).asType();
+			TypeMirror two = parameters2.get(i).asType();
+			if (!qualifiedTypeName(one).equals(qualifiedTypeName(two))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the parameter types of a method or constructor as they appear in
+	 * its Javadoc anchor.
+	 * @param method the method or constructor
+	 * @return the fully qualified erased types (e.g. "java.lang.Object",
+	 * "int[]", "T...")
+	 */
+	private static List<String> anchorTypes(ExecutableElement method) {
+		List<? extends VariableElement> parameters = method.getParameters();
+		List<String> anchorTypes = new ArrayList<>(parameters.size());
+		for (int i = 0; i < parameters.size(); i++) {
+			TypeMirror type = parameters.get(i).asType();
+			StringBuilder sb = new StringBuilder(qualifiedTypeName(type));
+			while (type.getKind() == TypeKind.ARRAY) {
+				sb.append("[]");
+				type = ((ArrayType) type).getComponentType();
+			}
+
+			boolean varargs = method.isVarArgs() && i == parameters.size() - 1;
+			if (varargs) {
+				sb.setLength(sb.length() - 2);
+				sb.append("...");
+			}
+
+			anchorTypes.add(sb.toString());
+		}
+		return anchorTypes;
+	}
+
+	/**
+	 * Gets the qualified name of a type, without any array dimensions or type
+	 * arguments.
+	 * @param type the type
+	 * @return the qualified name (e.g. "java.util.List", "int", "T")
+	 */
+	private static String qualifiedTypeName(TypeMirror type) {
+		while (type.getKind() == TypeKind.ARRAY) {
+			type = ((ArrayType) type).getComponentType();
+		}
+
+		switch (type.getKind()) {
+		case DECLARED:
+			return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		case TYPEVAR:
+			return ((javax.lang.model.type.TypeVariable) type).asElement().getSimpleName().toString();
+		default:
+			return type.toString();
+		}
+	}
+
+	/**
+	 * Gets the value of an element's {@literal @since} tag, if present.
+	 * @param tree the element's Javadoc comment (can be null)
+	 * @return the {@literal @since} tag text or null if not found
+	 */
+	private static String parseSince(DocCommentTree tree) {
+		if (tree == null) {
+			return null;
+		}
+
+		for (DocTree tag : tree.getBlockTags()) {
+			if (tag.getKind() == DocTree.Kind.SINCE) {
+				List<? extends DocTree> body = ((SinceTree) tag).getBody();
+				return body.stream().map(Object::toString).collect(Collectors.joining()).trim();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Converts a Javadoc element's description to SO-Chat markdown.
+	 * @param element the element
+	 * @param tree the element's Javadoc comment (can be null)
+	 * @return the markdown
+	 */
+	private String toMarkdown(Element element, DocCommentTree tree) {
+		return (tree == null) ? "" : DescriptionDocTreeVisitor.toMarkdown(tree.getFullBody(), linkResolver(element, tree));
+	}
+
+	/**
+	 * Converts the first sentence of a Javadoc element's description to
+	 * SO-Chat markdown.
+	 * @param element the element
+	 * @param tree the element's Javadoc comment (can be null)
+	 * @return the markdown
+	 */
+	private String toFirstSentenceMarkdown(Element element, DocCommentTree tree) {
+		return (tree == null) ? "" : DescriptionDocTreeVisitor.toMarkdown(tree.getFirstSentence(), linkResolver(element, tree));
+	}
+
+	/**
+	 * Creates a function that gets the URLs of the targets of the
+	 * {@literal @link} tags in an element's Javadoc comment. javac resolves
+	 * each reference to an element, which is then looked up in the symbol
+	 * table, or, if it belongs to a package that another doclet run
+	 * documents, given a URL of its own (see {@link #libraryUrl}). Links to
+	 * classes that are not part of the library are not resolved.
+	 * @param element the element
+	 * @param tree the element's Javadoc comment
+	 * @return the function or null if links are not being resolved
+	 */
+	private Function<LinkTree, String> linkResolver(Element element, DocCommentTree tree) {
+		if (symbolTable == null) {
+			return null;
+		}
+
+		TreePath path = treePaths.get(element);
+		if (path == null) {
+			//e.g. methods inherited from package-private super classes
+			path = docTrees.getPath(element);
+			if (path == null) {
+				return null;
+			}
+		}
+
+		DocTreePath commentPath = new DocTreePath(path, tree);
+		return link -> {
+			Element target = docTrees.getElement(new DocTreePath(commentPath, link.getReference()));
+			if (target == null) {
+				return null;
+			}
+
+			String key = symbolKey(target);
+			if (key == null) {
+				return null;
+			}
+
+			String url = symbolTable.get(key);
+			return (url == null) ? libraryUrl(target) : url;
+		};
+	}
+}
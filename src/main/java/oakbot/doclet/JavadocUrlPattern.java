@@ -0,0 +1,167 @@
+package oakbot.doclet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds the URLs of a library's Javadoc pages from a URL pattern (see
+ * {@link ConfigProperties#getLibraryJavadocUrlPattern}). The pattern may
+ * contain the following placeholders:
+ * <ul>
+ * <li>{@code {baseUrl}} - The library's base Javadoc URL (see
+ * {@link ConfigProperties#getLibraryBaseUrl}).</li>
+ * <li>{@code {full}} - The fully-qualified class name (e.g.
+ * "java.util.Map.Entry").</li>
+ * <li>{@code {full SEPARATOR}} - The fully-qualified class name, with the
+ * package names separated by the given string instead of dots (e.g.
+ * <code>{full /}</code> becomes "java/util/Map.Entry"). The names of nested
+ * classes are always separated by dots, like the names of the HTML files that
+ * javadoc generates.</li>
+ * </ul>
+ * <p>
+ * The pattern of a standard Javadoc site is {@value #DEFAULT_PATTERN}.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class JavadocUrlPattern {
+	/**
+	 * The pattern of the sites that javadoc generates.
+	 */
+	public static final String DEFAULT_PATTERN = "{baseUrl}{full /}.html";
+
+	private final String pattern;
+	private final List<Part> parts;
+	private final boolean baseUrl;
+
+	/**
+	 * Parses a URL pattern.
+	 * @param pattern the pattern (e.g. "{baseUrl}{full /}.html")
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 */
+	public JavadocUrlPattern(String pattern) {
+		this.pattern = pattern;
+
+		List<Part> parts = new ArrayList<>();
+		boolean baseUrl = false, full = false;
+		int i = 0;
+		while (i < pattern.length()) {
+			int open = pattern.indexOf('{', i);
+			int close = pattern.indexOf('}', i);
+			if (close >= 0 && (open < 0 || close < open)) {
+				throw new IllegalArgumentException("Unexpected \"}\" at position " + close + " of Javadoc URL pattern: " + pattern);
+			}
+			if (open < 0) {
+				parts.add(new Part(null, pattern.substring(i)));
+				break;
+			}
+
+			if (open > i) {
+				parts.add(new Part(null, pattern.substring(i, open)));
+			}
+			if (close < 0) {
+				throw new IllegalArgumentException("Unclosed \"{\" at position " + open + " of Javadoc URL pattern: " + pattern);
+			}
+
+			String placeholder = pattern.substring(open + 1, close);
+			int space = placeholder.indexOf(' ');
+			String name = (space < 0) ? placeholder : placeholder.substring(0, space);
+			String argument = (space < 0) ? null : placeholder.substring(space + 1);
+			switch (name) {
+			case "baseUrl":
+				if (argument != null) {
+					throw new IllegalArgumentException("The {baseUrl} placeholder does not take an argument: " + pattern);
+				}
+				baseUrl = true;
+				break;
+			case "full":
+				if (argument != null && argument.isEmpty()) {
+					throw new IllegalArgumentException("The separator of the {full} placeholder is empty: " + pattern);
+				}
+				full = true;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown placeholder \"{" + placeholder + "}\" in Javadoc URL pattern: " + pattern);
+			}
+			parts.add(new Part(name, argument));
+
+			i = close + 1;
+		}
+
+		if (!full) {
+			throw new IllegalArgumentException("Javadoc URL pattern must contain a {full} placeholder: " + pattern);
+		}
+
+		this.parts = Collections.unmodifiableList(parts);
+		this.baseUrl = baseUrl;
+	}
+
+	/**
+	 * Determines whether the pattern contains the {@code {baseUrl}}
+	 * placeholder.
+	 * @return true if it contains the placeholder, false if not
+	 */
+	public boolean usesBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * Builds the URL of a class's Javadoc page.
+	 * @param baseUrl the library's base Javadoc URL (can be null if the
+	 * pattern does not use it)
+	 * @param className the fully-qualified class name (e.g.
+	 * "java.util|Map.Entry")
+	 * @return the URL
+	 */
+	public String expand(String baseUrl, String className) {
+		int pipe = className.indexOf('|');
+		String packageName = (pipe < 0) ? "" : className.substring(0, pipe);
+		String simpleName = className.substring(pipe + 1);
+
+		StringBuilder sb = new StringBuilder();
+		for (Part part : parts) {
+			if (part.placeholder == null) {
+				sb.append(part.text);
+				continue;
+			}
+
+			switch (part.placeholder) {
+			case "baseUrl":
+				if (baseUrl != null) {
+					sb.append(baseUrl);
+				}
+				break;
+			case "full":
+				if (!packageName.isEmpty()) {
+					String separator = (part.text == null) ? "." : part.text;
+					sb.append(packageName.replace(".", separator)).append(separator);
+				}
+				sb.append(simpleName);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+
+	private static class Part {
+		/**
+		 * The placeholder name or null if this part is literal text.
+		 */
+		private final String placeholder;
+
+		/**
+		 * The literal text or the placeholder's argument.
+		 */
+		private final String text;
+
+		public Part(String placeholder, String text) {
+			this.placeholder = placeholder;
+			this.text = text;
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package oakbot.doclet;
+
+import java.util.List;
+
+/**
+ * Builds the Javadoc URLs of classes, constructors, and methods. Each class is
+ * given the URL of its Javadoc page, and each constructor and method is given
+ * the anchor of its section on that page. Since the format of the anchors
+ * changed in Java 9, each member is given an anchor in both formats:
+ * <ul>
+ * <li>Java 11+: {@code equals(java.lang.Object)}, {@code <init>(int,float)}
+ * (constructors), {@code sort(int[])}, {@code asList(T...)}</li>
+ * <li>Java 8: {@code equals-java.lang.Object-}, {@code HashMap-int-float-}
+ * (constructors), {@code sort-int:A-}, {@code asList-T...-}</li>
+ * </ul>
+ * <p>
+ * Characters that are not allowed in the fragment of a URL are
+ * percent-encoded, so the anchors can be appended to the class's URL as-is.
+ * </p>
+ * @author Michael Angstadt
+ */
+final class JavadocUrls {
+	private final String baseUrl;
+	private final JavadocUrlPattern pattern;
+
+	/**
+	 * @param baseUrl the library's base Javadoc URL (can be null if the
+	 * pattern does not use it)
+	 * @param pattern the URL pattern
+	 */
+	JavadocUrls(String baseUrl, JavadocUrlPattern pattern) {
+		if (baseUrl != null && !baseUrl.isEmpty() && !baseUrl.endsWith("/")) {
+			baseUrl += "/";
+		}
+		this.baseUrl = baseUrl;
+		this.pattern = pattern;
+	}
+
+	/**
+	 * Creates a URL builder from the doclet's configuration.
+	 * @param properties the configuration
+	 * @return the builder or null if neither a base URL nor a URL pattern is
+	 * configured
+	 * @throws IllegalArgumentException if the URL pattern is invalid or it
+	 * needs a base URL that is not configured
+	 */
+	static JavadocUrls create(ConfigProperties properties) {
+		String baseUrl = emptyToNull(properties.getLibraryBaseUrl());
+		String patternStr = emptyToNull(properties.getLibraryJavadocUrlPattern());
+		if (baseUrl == null && patternStr == null) {
+			return null;
+		}
+
+		JavadocUrlPattern pattern = new JavadocUrlPattern((patternStr == null) ? JavadocUrlPattern.DEFAULT_PATTERN : patternStr);
+		if (baseUrl == null && pattern.usesBaseUrl()) {
+			throw new IllegalArgumentException("Javadoc URL pattern uses {baseUrl}, but no base URL is set: " + pattern);
+		}
+
+		return new JavadocUrls(baseUrl, pattern);
+	}
+
+	private static String emptyToNull(String value) {
+		return (value == null || value.isEmpty()) ? null : value;
+	}
+
+	/**
+	 * Builds the URL of a class's Javadoc page.
+	 * @param className the fully-qualified class name (e.g.
+	 * "java.util|Map.Entry")
+	 * @return the URL
+	 */
+	String classUrl(String className) {
+		return pattern.expand(baseUrl, className);
+	}
+
+	/**
+	 * Builds the anchor of a constructor or method in the format that javadoc
+	 * uses as of Java 9.
+	 * @param name the method name or null for a constructor
+	 * @param parameterTypes the fully-qualified erased types of the parameters
+	 * (e.g. "java.lang.Object", "int[]", "T...")
+	 * @return the anchor (e.g. "equals(java.lang.Object)")
+	 */
+	static String anchor(String name, List<String> parameterTypes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append((name == null) ? "<init>" : name).append('(');
+		sb.append(String.join(",", parameterTypes));
+		sb.append(')');
+		return encode(sb);
+	}
+
+	/**
+	 * Builds the anchor of a constructor or method in the format that javadoc
+	 * used in Java 8.
+	 * @param name the method name or the simple name of the class for a
+	 * constructor
+	 * @param parameterTypes the fully-qualified erased types of the parameters
+	 * (e.g. "java.lang.Object", "int[]", "T...")
+	 * @return the anchor (e.g. "equals-java.lang.Object-")
+	 */
+	static String java8Anchor(String name, List<String> parameterTypes) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(name).append('-');
+		for (String type : parameterTypes) {
+			sb.append(type.replace("[]", ":A")).append('-');
+		}
+		if (parameterTypes.isEmpty()) {
+			sb.append('-');
+		}
+		return encode(sb);
+	}
+
+	/**
+	 * Percent-encodes the characters that are not allowed in the fragment of
+	 * a URL.
+	 * @param anchor the anchor
+	 * @return the encoded anchor
+	 */
+	private static String encode(CharSequence anchor) {
+		StringBuilder sb = new StringBuilder(anchor.length());
+		for (int i = 0; i < anchor.length(); i++) {
+			char c = anchor.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("%3C");
+				break;
+			case '>':
+				sb.append("%3E");
+				break;
+			case '[':
+				sb.append("%5B");
+				break;
+			case ']':
+				sb.append("%5D");
+				break;
+			case ' ':
+				sb.append("%20");
+				break;
+			default:
+				sb.append(c);
+				break;
+			}
+		}
+		return sb.toString();
+	}
+}
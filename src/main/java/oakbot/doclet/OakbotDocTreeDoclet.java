@@ -0,0 +1,183 @@
+package oakbot.doclet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import org.w3c.dom.Document;
+
+import jdk.javadoc.doclet.Doclet;
+import jdk.javadoc.doclet.DocletEnvironment;
+import jdk.javadoc.doclet.Reporter;
+
+/**
+ * A custom Javadoc doclet that saves class information to XML files inside of a
+ * ZIP file. This doclet uses the {@code jdk.javadoc} API, which replaced the
+ * {@code com.sun.javadoc} API that {@link OakbotDoclet} uses. Both doclets
+ * produce the same output.
+ * @author Michael Angstadt
+ */
+/*
+ * The note about multi-threading in OakbotDoclet applies to this doclet too:
+ * the DocletEnvironment must only be accessed by one thread at a time.
+ */
+public class OakbotDocTreeDoclet implements Doclet {
+	private Reporter reporter;
+
+	@Override
+	public void init(Locale locale, Reporter reporter) {
+		this.reporter = reporter;
+	}
+
+	@Override
+	public String getName() {
+		return "OakBot";
+	}
+
+	@Override
+	public Set<? extends Option> getSupportedOptions() {
+		return Collections.emptySet();
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latest();
+	}
+
+	@Override
+	public boolean run(DocletEnvironment environment) {
+		ConfigProperties properties = ConfigProperties.current();
+		AccessProfile profile;
+		try {
+			Path profileFile = properties.getAccessProfile();
+			profile = (profileFile == null) ? null : AccessProfile.load(profileFile);
+		} catch (IOException e) {
+			reporter.print(Diagnostic.Kind.ERROR, "Could not read access profile: " + e.getMessage());
+			return false;
+		}
+
+		Set<String> libraryPackages;
+		try {
+			Path packageList = properties.getLibraryPackageList();
+			libraryPackages = (packageList == null) ? null : new HashSet<>(Files.readAllLines(packageList));
+		} catch (IOException e) {
+			reporter.print(Diagnostic.Kind.ERROR, "Could not read package list: " + e.getMessage());
+			return false;
+		}
+
+		JavadocUrls javadocUrls;
+		try {
+			javadocUrls = JavadocUrls.create(properties);
+		} catch (IllegalArgumentException e) {
+			reporter.print(Diagnostic.Kind.ERROR, e.getMessage());
+			return false;
+		}
+
+		try (ArchiveOutput writer = ArchiveOutput.open(properties)) {
+			createClassFiles(writer, environment, properties.isReproducible(), profile, javadocUrls, libraryPackages, ChatSummaries.create(properties));
+			writer.commit();
+		} catch (IOException e) {
+			reporter.print(Diagnostic.Kind.ERROR, "Could not create ZIP file: " + e.getMessage());
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the XML files containing the Javadoc information of each class.
+	 * @param writer the ZIP file
+	 * @param environment the Javadoc information
+	 * @param sort true to process the classes in order of their paths, false
+	 * to process them in the order javadoc returns them
+	 * @param profile the access profile to process the classes that are
+	 * accessed the most first or null not to use one
+	 * @param javadocUrls builds the Javadoc URLs or null not to include URLs
+	 * @param libraryPackages all of the library's packages or null if this
+	 * run documents the whole library
+	 * @param chatSummaries builds the chat summaries or null not to include
+	 * chat summaries
+	 * @throws IOException if there's a problem writing to the ZIP file
+	 */
+	private static void createClassFiles(ArchiveOutput writer, DocletEnvironment environment, boolean sort, AccessProfile profile, JavadocUrls javadocUrls, Set<String> libraryPackages, ChatSummaries chatSummaries) throws IOException {
+		Collection<TypeElement> typeElements = ElementFilter.typesIn(environment.getIncludedElements());
+		if (sort) {
+			List<TypeElement> sorted = new ArrayList<>(typeElements);
+			sorted.sort(Comparator.comparing(OakbotDocTreeDoclet::classFilePath));
+			typeElements = sorted;
+		}
+
+		int warm = 0;
+		if (profile != null) {
+			Function<TypeElement, String> className = typeElement -> typeElement.getQualifiedName().toString();
+			typeElements = profile.sort(typeElements, className);
+			warm = profile.countWarm(typeElements, className);
+		}
+
+		ElementXmlProcessor processor = new ElementXmlProcessor(environment, javadocUrls, libraryPackages, chatSummaries);
+		ProgressPrinter progress = new ProgressPrinter(typeElements.size());
+		int written = 0;
+		for (TypeElement typeElement : typeElements) {
+			progress.print(typeElement.getSimpleName().toString());
+
+			Document document = processor.toDocument(typeElement);
+			writer.writeClass(classFilePath(typeElement), document);
+			if (++written == warm) {
+				writer.markWarmSet();
+			}
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Builds the path string for where to save a class's Javadoc XML file.
+	 * @param typeElement the class
+	 * @return the path string
+	 */
+	static String classFilePath(TypeElement typeElement) {
+		/*
+		 * Note: We can't just use the class's qualified name because, if we
+		 * replace all dots with slashes, then inner classes will not work
+		 * right. For example, "Map.Entry" will turn into
+		 * "java/util/Map/Entry.xml".
+		 */
+		StringBuilder sb = new StringBuilder();
+
+		List<String> containingClasses = new ArrayList<>();
+		Element enclosing = typeElement;
+		while ((enclosing = enclosing.getEnclosingElement()) != null) {
+			if (enclosing instanceof PackageElement) {
+				PackageElement packageElement = (PackageElement) enclosing;
+				if (!packageElement.isUnnamed()) {
+					sb.append(packageElement.getQualifiedName().toString().replace('.', '/')).append('/');
+				}
+				break;
+			}
+			containingClasses.add(enclosing.getSimpleName().toString());
+		}
+
+		Collections.reverse(containingClasses);
+		for (String containingClass : containingClasses) {
+			sb.append(containingClass).append('.');
+		}
+
+		sb.append(typeElement.getSimpleName()).append(".xml");
+
+		return sb.toString();
+	}
+}
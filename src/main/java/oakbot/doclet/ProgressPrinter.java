@@ -0,0 +1,50 @@
+package oakbot.doclet;
+
+import static oakbot.util.JunkDrawer.WINDOWS_OS;
+
+/**
+ * Outputs the status of the parsing operation.
+ * @author Michael Angstadt
+ */
+class ProgressPrinter {
+	private final int totalClasses;
+	private int classesParsed = 0;
+
+	/**
+	 * @param totalClasses the total number of classes being parsed
+	 */
+	public ProgressPrinter(int totalClasses) {
+		this.totalClasses = totalClasses;
+	}
+
+	/**
+	 * Prints a message saying that a class is about to be parsed.
+	 * @param simpleName the simple name of the next class to be parsed
+	 */
+	public void print(String simpleName) {
+		StringBuilder sb = new StringBuilder();
+
+		//clear the line
+		if (WINDOWS_OS) {
+			sb.append("\r");
+		} else {
+			sb.append("\r\033[K");
+		}
+
+		sb.append("Parsing ").append(++classesParsed).append('/').append(totalClasses);
+		sb.append(" (").append(simpleName).append(')');
+
+		/*
+		 * Windows does not clear the line, it just moves the cursor to the
+		 * beginning of the line. So, clear the rest of the line with
+		 * spaces.
+		 */
+		if (WINDOWS_OS) {
+			for (int i = sb.length(); i < 80; i++) {
+				sb.append(' ');
+			}
+		}
+
+		System.out.print(sb.toString());
+	}
+}
@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.jsoup.Jsoup;
@@ -18,10 +19,14 @@ import com.sun.javadoc.AnnotationDesc;
 import com.sun.javadoc.ClassDoc;
 import com.sun.javadoc.ConstructorDoc;
 import com.sun.javadoc.Doc;
+import com.sun.javadoc.ExecutableMemberDoc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.MemberDoc;
 import com.sun.javadoc.MethodDoc;
 import com.sun.javadoc.PackageDoc;
 import com.sun.javadoc.Parameter;
 import com.sun.javadoc.ProgramElementDoc;
+import com.sun.javadoc.SeeTag;
 import com.sun.javadoc.Tag;
 import com.sun.javadoc.Type;
 
@@ -30,7 +35,14 @@ import com.sun.javadoc.Type;
  * @author Michael Angstadt
  */
 public final class RootDocXmlProcessor {
+	private static final Set<String> PRIMITIVE_TYPES = Set.of("boolean", "byte", "char", "double", "float", "int", "long", "short");
+
 	private final Document document;
+	private final JavadocUrls javadocUrls;
+	private final SymbolTable symbolTable;
+	private final Set<String> libraryPackages;
+	private final ChatSummaries chatSummaries;
+	private String className, classUrl;
 
 	/**
 	 * Parses the Javadoc information out of a Javadoc {@link ClassDoc} object
@@ -39,15 +51,74 @@ public final class RootDocXmlProcessor {
 	 * @return the XML document containing the Javadoc information
 	 */
 	public static Document toDocument(ClassDoc classDoc) {
+		return toDocument(classDoc, null, null, null, null);
+	}
+
+	/**
+	 * Maps every class, constructor, method, and field that is being
+	 * documented to its Javadoc URL, so {@literal @link} tags can be resolved
+	 * without searching the whole {@link com.sun.javadoc.RootDoc} for their
+	 * targets. This should be called once per run.
+	 * @param classDocs the classes that are being documented
+	 * @param javadocUrls builds the Javadoc URLs
+	 * @return the symbol table
+	 */
+	static SymbolTable symbolTable(ClassDoc[] classDocs, JavadocUrls javadocUrls) {
+		SymbolTable symbolTable = new SymbolTable(classDocs.length * 16);
+		for (ClassDoc classDoc : classDocs) {
+			String className = classDoc.qualifiedName();
+			String classUrl = javadocUrls.classUrl(className(classDoc));
+			symbolTable.put(className, classUrl);
+
+			for (ConstructorDoc constructor : classDoc.constructors()) {
+				List<String> anchorTypes = anchorTypes(constructor);
+				symbolTable.put(SymbolTable.key(className, null, anchorTypes), classUrl + '#' + JavadocUrls.anchor(null, anchorTypes));
+			}
+
+			for (MethodDoc method : classDoc.methods()) {
+				List<String> anchorTypes = anchorTypes(method);
+				symbolTable.put(SymbolTable.key(className, method.name(), anchorTypes), classUrl + '#' + JavadocUrls.anchor(method.name(), anchorTypes));
+			}
+
+			for (FieldDoc field : classDoc.fields()) {
+				symbolTable.put(SymbolTable.key(className, field.name()), classUrl + '#' + field.name());
+			}
+			for (FieldDoc field : classDoc.enumConstants()) {
+				symbolTable.put(SymbolTable.key(className, field.name()), classUrl + '#' + field.name());
+			}
+		}
+		return symbolTable;
+	}
+
+	/**
+	 * Parses the Javadoc information out of a Javadoc {@link ClassDoc} object
+	 * and into an XML document.
+	 * @param classDoc the class to parse
+	 * @param javadocUrls builds the Javadoc URLs or null not to include URLs
+	 * @param symbolTable the URLs of the classes and members that are being
+	 * documented or null not to turn {@literal @link} tags into links (see
+	 * {@link #symbolTable})
+	 * @param libraryPackages all of the library's packages or null if this
+	 * run documents the whole library (see
+	 * {@link ConfigProperties#getLibraryPackageList})
+	 * @param chatSummaries builds the chat summaries or null not to include
+	 * chat summaries
+	 * @return the XML document containing the Javadoc information
+	 */
+	static Document toDocument(ClassDoc classDoc, JavadocUrls javadocUrls, SymbolTable symbolTable, Set<String> libraryPackages, ChatSummaries chatSummaries) {
 		Document document = newDocument();
-		RootDocXmlProcessor processor = new RootDocXmlProcessor(document);
+		RootDocXmlProcessor processor = new RootDocXmlProcessor(document, javadocUrls, symbolTable, libraryPackages, chatSummaries);
 		Element element = processor.parseClass(classDoc);
 		document.appendChild(element);
 		return document;
 	}
 
-	private RootDocXmlProcessor(Document document) {
+	private RootDocXmlProcessor(Document document, JavadocUrls javadocUrls, SymbolTable symbolTable, Set<String> libraryPackages, ChatSummaries chatSummaries) {
 		this.document = document;
+		this.javadocUrls = javadocUrls;
+		this.symbolTable = symbolTable;
+		this.libraryPackages = libraryPackages;
+		this.chatSummaries = chatSummaries;
 	}
 
 	private Element parseClass(ClassDoc classDoc) {
@@ -55,6 +126,13 @@ public final class RootDocXmlProcessor {
 
 		applyClassNameAttribute("name", classDoc, element);
 
+		//URL
+		className = className(classDoc);
+		if (javadocUrls != null) {
+			classUrl = javadocUrls.classUrl(className);
+			element.setAttribute("url", classUrl);
+		}
+
 		//modifiers
 		List<String> modifiers = new ArrayList<>();
 		{
@@ -137,6 +215,12 @@ public final class RootDocXmlProcessor {
 		descriptionElement.setTextContent(description);
 		element.appendChild(descriptionElement);
 
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toMarkdown(classDoc.firstSentenceTags());
+			appendChatElement(chatSummaries.forClass(className, classUrl, summary), element);
+		}
+
 		//constructors
 		for (ConstructorDoc constructor : classDoc.constructors()) {
 			element.appendChild(parseConstructor(constructor));
@@ -175,6 +259,15 @@ public final class RootDocXmlProcessor {
 		//thrown exceptions
 		applyClassNameAttribute("throws", constructor.thrownExceptionTypes(), element);
 
+		//anchors
+		String anchor = null;
+		if (javadocUrls != null) {
+			List<String> anchorTypes = anchorTypes(constructor);
+			anchor = JavadocUrls.anchor(null, anchorTypes);
+			element.setAttribute("anchor", anchor);
+			element.setAttribute("java8Anchor", JavadocUrls.java8Anchor(constructor.name(), anchorTypes));
+		}
+
 		//since
 		String since = parseSince(constructor);
 		if (since != null) {
@@ -187,6 +280,12 @@ public final class RootDocXmlProcessor {
 		descriptionElement.setTextContent(description);
 		element.appendChild(descriptionElement);
 
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toMarkdown(constructor.firstSentenceTags());
+			appendChatElement(chatSummaries.forConstructor(className, parameterNames(constructor), memberUrl(anchor), summary), element);
+		}
+
 		//parameters
 		for (Parameter parameter : constructor.parameters()) {
 			element.appendChild(parseParameter(parameter));
@@ -220,6 +319,15 @@ public final class RootDocXmlProcessor {
 		//thrown exceptions
 		applyClassNameAttribute("throws", method.thrownExceptionTypes(), element);
 
+		//anchors
+		String anchor = null;
+		if (javadocUrls != null) {
+			List<String> anchorTypes = anchorTypes(method);
+			anchor = JavadocUrls.anchor(name, anchorTypes);
+			element.setAttribute("anchor", anchor);
+			element.setAttribute("java8Anchor", JavadocUrls.java8Anchor(name, anchorTypes));
+		}
+
 		//since
 		String since = parseSince(method);
 		if (since != null) {
@@ -227,22 +335,26 @@ public final class RootDocXmlProcessor {
 		}
 
 		//description
-		String description;
+		MethodDoc descriptionDoc = method;
 		MethodDoc overriddenMethod = findOverriddenMethod(method);
 		if (overriddenMethod != null) {
 			if (overriddenMethod.containingClass().isPackagePrivate()) {
-				description = toMarkdown(overriddenMethod);
+				descriptionDoc = overriddenMethod;
 			} else {
 				element.setAttribute("overrides", methodName(overriddenMethod));
-				description = toMarkdown(method);
 			}
-		} else {
-			description = toMarkdown(method);
 		}
+		String description = toMarkdown(descriptionDoc);
 		Element descriptionElement = document.createElement("description");
 		descriptionElement.setTextContent(description);
 		element.appendChild(descriptionElement);
 
+		//chat summary
+		if (chatSummaries != null) {
+			String summary = toMarkdown(descriptionDoc.firstSentenceTags());
+			appendChatElement(chatSummaries.forMethod(className, name, parameterNames(method), memberUrl(anchor), summary), element);
+		}
+
 		//parameters
 		for (Parameter parameter : method.parameters()) {
 			element.appendChild(parseParameter(parameter));
@@ -251,6 +363,22 @@ public final class RootDocXmlProcessor {
 		return element;
 	}
 
+	/**
+	 * Builds the URL of a constructor or method of the class that is being
+	 * parsed.
+	 * @param anchor the member's anchor or null if URLs are not being built
+	 * @return the URL or null if URLs are not being built
+	 */
+	private String memberUrl(String anchor) {
+		return (anchor == null) ? null : classUrl + '#' + anchor;
+	}
+
+	private void appendChatElement(String chat, Element element) {
+		Element chatElement = document.createElement("chat");
+		chatElement.setTextContent(chat);
+		element.appendChild(chatElement);
+	}
+
 	private Element parseParameter(Parameter parameter) {
 		Element element = document.createElement("parameter");
 
@@ -353,11 +481,48 @@ public final class RootDocXmlProcessor {
 	private static String methodName(MethodDoc methodDoc) {
 		String className = className(methodDoc.containingClass());
 		String methodName = methodDoc.name();
-		List<String> parameterNames = Arrays.stream(methodDoc.parameters()).map(RootDocXmlProcessor::parameterName).collect(Collectors.toList());
+		List<String> parameterNames = parameterNames(methodDoc);
 
 		return className + '#' + methodName + '(' + String.join(", ", parameterNames) + ')';
 	}
 
+	/**
+	 * Builds the specially formatted names of a method's or constructor's
+	 * parameters.
+	 * @param executable the method or constructor
+	 * @return the fully qualified names (e.g. "java.lang|String[]")
+	 */
+	private static List<String> parameterNames(ExecutableMemberDoc executable) {
+		return Arrays.stream(executable.parameters()).map(RootDocXmlProcessor::parameterName).collect(Collectors.toList());
+	}
+
+	/**
+	 * Gets the parameter types of a method or constructor as they appear in
+	 * its Javadoc anchor. Note that this API reports varargs parameters as
+	 * arrays and type variables as their erasures, because this doclet does
+	 * not declare Java 5 support (see {@link OakbotDoclet}), so the anchors of
+	 * such members will not match the anchors that javadoc generates.
+	 * @param executable the method or constructor
+	 * @return the fully qualified erased types (e.g. "java.lang.Object",
+	 * "int[]", "T...")
+	 */
+	private static List<String> anchorTypes(ExecutableMemberDoc executable) {
+		Parameter parameters[] = executable.parameters();
+		List<String> types = new ArrayList<>(parameters.length);
+		for (int i = 0; i < parameters.length; i++) {
+			Type type = parameters[i].type();
+			String typeName = type.qualifiedTypeName() + type.dimension();
+
+			boolean varargs = executable.isVarArgs() && i == parameters.length - 1;
+			if (varargs && typeName.endsWith("[]")) {
+				typeName = typeName.substring(0, typeName.length() - 2) + "...";
+			}
+
+			types.add(typeName);
+		}
+		return types;
+	}
+
 	/**
 	 * Builds a specially formatted string that is used to define a class's
 	 * fully qualified name.
@@ -485,13 +650,22 @@ public final class RootDocXmlProcessor {
 	 * @param doc the Javadoc element
 	 * @return the markdown
 	 */
-	private static String toMarkdown(Doc doc) {
+	private String toMarkdown(Doc doc) {
+		return toMarkdown(doc.inlineTags());
+	}
+
+	/**
+	 * Converts a list of Javadoc inline tags to SO-Chat markdown.
+	 * @param tags the tags
+	 * @return the markdown
+	 */
+	private String toMarkdown(Tag[] tags) {
 		/*
 		 * Combine all the Tags into a single string, converting Javadoc tags
 		 * (like "@code") into HTML.
 		 */
 		StringBuilder sb = new StringBuilder();
-		for (Tag tag : doc.inlineTags()) {
+		for (Tag tag : tags) {
 			String text = tag.text();
 			switch (tag.name()) {
 			case "@code":
@@ -499,9 +673,16 @@ public final class RootDocXmlProcessor {
 				break;
 			case "@link":
 			case "@linkplain":
-				//TODO format as a <a> link
 				int space = text.indexOf(' ');
-				sb.append((space < 0) ? text : text.substring(space + 1));
+				String label = (space < 0) ? text : text.substring(space + 1);
+				String url = resolveLink(tag);
+				if (url == null) {
+					sb.append(label);
+				} else if (tag.name().equals("@link")) {
+					sb.append("<a href=\"").append(escapeHtml(url)).append("\"><code>").append(label).append("</code></a>");
+				} else {
+					sb.append("<a href=\"").append(escapeHtml(url)).append("\">").append(label).append("</a>");
+				}
 				break;
 			case "@literal":
 				sb.append(escapeHtml(text));
@@ -519,12 +700,155 @@ public final class RootDocXmlProcessor {
 		return visitor.getDescription();
 	}
 
+	/**
+	 * Gets the URL of the target of a {@literal @link} tag.
+	 * @param tag the tag
+	 * @return the URL or null if links are not being resolved or the target is
+	 * not part of the library
+	 */
+	private String resolveLink(Tag tag) {
+		if (symbolTable == null || !(tag instanceof SeeTag)) {
+			return null;
+		}
+
+		SeeTag seeTag = (SeeTag) tag;
+		MemberDoc member = seeTag.referencedMember();
+		String key;
+		if (member == null) {
+			ClassDoc classDoc = seeTag.referencedClass();
+			if (classDoc == null) {
+				return libraryUrl(seeTag.referencedClassName(), seeTag.referencedMemberName());
+			}
+			key = classDoc.qualifiedName();
+		} else {
+			String className = member.containingClass().qualifiedName();
+			if (member instanceof ConstructorDoc) {
+				key = SymbolTable.key(className, null, anchorTypes((ConstructorDoc) member));
+			} else if (member instanceof MethodDoc) {
+				key = SymbolTable.key(className, member.name(), anchorTypes((MethodDoc) member));
+			} else {
+				key = SymbolTable.key(className, member.name());
+			}
+		}
+
+		String url = symbolTable.get(key);
+		return (url == null) ? libraryUrl(seeTag) : url;
+	}
+
+	/**
+	 * Builds the URL of the target of a {@literal @link} tag that is
+	 * documented by another doclet run of the same library. Like javadoc,
+	 * only public and protected classes and members are considered to be
+	 * documented.
+	 * @param tag the tag (its target must have been resolved)
+	 * @return the URL or null if the target does not belong to a package of
+	 * the library that is documented by another run
+	 */
+	private String libraryUrl(SeeTag tag) {
+		if (libraryPackages == null) {
+			return null;
+		}
+
+		ClassDoc classDoc = tag.referencedClass();
+		if (classDoc == null) {
+			return null;
+		}
+
+		PackageDoc packageDoc = classDoc.containingPackage();
+		if (packageDoc.isIncluded() || !libraryPackages.contains(packageDoc.name())) {
+			return null;
+		}
+
+		MemberDoc member = tag.referencedMember();
+		for (ProgramElementDoc doc = (member == null) ? classDoc : member; doc != null; doc = doc.containingClass()) {
+			if (!doc.isPublic() && !doc.isProtected()) {
+				return null;
+			}
+		}
+
+		String classUrl = javadocUrls.classUrl(className(classDoc));
+		if (member == null) {
+			return classUrl;
+		}
+		if (member instanceof ExecutableMemberDoc) {
+			String name = (member instanceof ConstructorDoc) ? null : member.name();
+			return classUrl + '#' + JavadocUrls.anchor(name, anchorTypes((ExecutableMemberDoc) member));
+		}
+		return classUrl + '#' + member.name();
+	}
+
+	/**
+	 * Builds the URL of the target of a {@literal @link} tag that javadoc
+	 * could not resolve. The legacy API only knows about the classes that the
+	 * documented code uses, so a class that is documented by another doclet
+	 * run of the same library usually cannot be resolved. The URL is built
+	 * from the text of the reference instead, so the class name must be fully
+	 * qualified, as must the parameter types of constructors and methods
+	 * (unless they are primitives).
+	 * @param className the referenced class (e.g. "java.util.Map.Entry")
+	 * @param memberName the referenced member (e.g. "equals(java.lang.Object)")
+	 * or null if the tag references a class
+	 * @return the URL or null if the reference does not point to a package of
+	 * the library or its parameter types are not fully qualified
+	 */
+	private String libraryUrl(String className, String memberName) {
+		if (libraryPackages == null || className == null) {
+			return null;
+		}
+
+		String packageName = null;
+		for (int dot = className.lastIndexOf('.'); dot > 0; dot = className.lastIndexOf('.', dot - 1)) {
+			String name = className.substring(0, dot);
+			if (libraryPackages.contains(name)) {
+				packageName = name;
+				break;
+			}
+		}
+		if (packageName == null) {
+			return null;
+		}
+
+		String classUrl = javadocUrls.classUrl(packageName + '|' + className.substring(packageName.length() + 1));
+		if (memberName == null) {
+			return classUrl;
+		}
+
+		int paren = memberName.indexOf('(');
+		if (paren < 0) {
+			return classUrl + '#' + memberName;
+		}
+
+		int end = memberName.lastIndexOf(')');
+		if (end < paren) {
+			return null;
+		}
+
+		List<String> types = new ArrayList<>();
+		String parameters = memberName.substring(paren + 1, end).trim();
+		if (!parameters.isEmpty()) {
+			for (String parameter : parameters.split(",")) {
+				//the parameter name is optional
+				String type = parameter.trim().split("\\s+")[0];
+
+				String baseType = type.replace("[]", "").replace("...", "");
+				if (!PRIMITIVE_TYPES.contains(baseType) && baseType.indexOf('.') < 0) {
+					return null;
+				}
+				types.add(type);
+			}
+		}
+
+		String name = memberName.substring(0, paren);
+		String simpleClassName = className.substring(className.lastIndexOf('.') + 1);
+		return classUrl + '#' + JavadocUrls.anchor(name.equals(simpleClassName) ? null : name, types);
+	}
+
 	/**
 	 * Escapes a string for safe inclusion in HTML.
 	 * @param text the text to escape
 	 * @return the escaped text
 	 */
 	private static String escapeHtml(String text) {
-		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
 	}
 }
@@ -0,0 +1,336 @@
+package oakbot.doclet;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import oakbot.util.Files2;
+import oakbot.util.ZipWriter;
+
+/**
+ * Reads the class XML files out of a set of ZIP files that the doclet
+ * generated with package shards (see {@link ConfigProperties#isPackageShards}).
+ * <p>
+ * The classes are divided into package groups, and the classes of each group
+ * are saved to their own ZIP file, called a shard. Each shard has the same
+ * layout as a regular ZIP file (see {@link ArchiveReader}), including its own
+ * "info.xml" file. A shard is saved next to the root ZIP file, and its name is
+ * the root ZIP file's name followed by a dash and the group (for example,
+ * "jdk-11.zip" and "jdk-11-java.util.zip").
+ * </p>
+ * <p>
+ * The root ZIP file contains an "info.xml" file and a "packages.txt" file.
+ * Each line of "packages.txt" is tab-delimited and maps a package to the
+ * group that contains it:
+ * </p>
+ *
+ * <pre>
+ * PACKAGE    GROUP
+ * </pre>
+ * <p>
+ * The unnamed package is listed as an empty string. A shard is only opened
+ * the first time one of its classes is read. Since the shards do not refer to
+ * each other, a shard can be regenerated and replaced on its own, as long as
+ * its packages stay the same.
+ * </p>
+ * <p>
+ * If the ZIP files were created in reproducible mode, the root ZIP file also
+ * contains a "digests.txt" file, which maps each group to the digest of its
+ * shard (the "digest" attribute of the shard's "info.xml" file) in the same
+ * format as "packages.txt". The "digest" attribute of the root "info.xml"
+ * file is calculated from the package map and the shard digests (see
+ * {@link #digest}), so a consumer can tell whether anything changed without
+ * opening the shards, and which shards changed without opening the others.
+ * </p>
+ * <p>
+ * Instances of this class are thread-safe.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ShardedArchiveReader implements Closeable {
+	/**
+	 * The path of the file in the root ZIP file that maps each package to its
+	 * group.
+	 */
+	public static final String PACKAGES_PATH = "packages.txt";
+
+	/**
+	 * The path of the file in the root ZIP file that maps each group to the
+	 * digest of its shard.
+	 */
+	public static final String DIGESTS_PATH = "digests.txt";
+
+	private final Path root;
+	private final Map<String, String> packages, digests;
+	private final Map<String, ArchiveReader> shards = new HashMap<>();
+
+	/**
+	 * Opens a root ZIP file and reads its package map. The shards are opened
+	 * as they are needed.
+	 * @param root the root ZIP file
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	public ShardedArchiveReader(Path root) throws IOException {
+		this.root = root;
+		try (ZipFile zip = new ZipFile(root.toFile())) {
+			ZipEntry entry = zip.getEntry(PACKAGES_PATH);
+			if (entry == null) {
+				throw new ZipException(PACKAGES_PATH + " is missing from " + root);
+			}
+
+			try (InputStream in = zip.getInputStream(entry)) {
+				packages = Collections.unmodifiableMap(parsePackages(in));
+			}
+
+			entry = zip.getEntry(DIGESTS_PATH);
+			if (entry == null) {
+				digests = Collections.emptyMap();
+			} else {
+				try (InputStream in = zip.getInputStream(entry)) {
+					digests = Collections.unmodifiableMap(parseMap(in, DIGESTS_PATH));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the path of a shard.
+	 * @param root the root ZIP file
+	 * @param group the package group
+	 * @return the path of the shard's ZIP file
+	 */
+	public static Path shardPath(Path root, String group) {
+		String filename = root.getFileName().toString();
+		if (filename.toLowerCase().endsWith(".zip")) {
+			filename = filename.substring(0, filename.length() - 4);
+		}
+		return root.resolveSibling(filename + "-" + group + ".zip");
+	}
+
+	/**
+	 * Gets the package of a class.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the package (e.g. "java.util") or empty string if the class is
+	 * in the unnamed package
+	 */
+	static String packageOf(String path) {
+		int slash = path.lastIndexOf('/');
+		return (slash < 0) ? "" : path.substring(0, slash).replace('/', '.');
+	}
+
+	/**
+	 * Parses a "packages.txt" file.
+	 * @param in the file
+	 * @return the groups of the packages, sorted by package
+	 * @throws IOException if there's a problem reading the file or the file
+	 * is invalid
+	 */
+	public static Map<String, String> parsePackages(InputStream in) throws IOException {
+		return parseMap(in, PACKAGES_PATH);
+	}
+
+	/**
+	 * Parses a "digests.txt" file.
+	 * @param in the file
+	 * @return the digests of the shards, sorted by group
+	 * @throws IOException if there's a problem reading the file or the file
+	 * is invalid
+	 */
+	public static Map<String, String> parseDigests(InputStream in) throws IOException {
+		return parseMap(in, DIGESTS_PATH);
+	}
+
+	private static Map<String, String> parseMap(InputStream in, String name) throws IOException {
+		Map<String, String> map = new TreeMap<>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				continue;
+			}
+
+			int tab = line.indexOf('\t');
+			if (tab < 0) {
+				throw new ZipException("Invalid line in " + name + ": " + line);
+			}
+			map.put(line.substring(0, tab), line.substring(tab + 1));
+		}
+		return map;
+	}
+
+	/**
+	 * Creates a "packages.txt" file.
+	 * @param packages the groups of the packages
+	 * @return the file
+	 */
+	public static byte[] formatPackages(Map<String, String> packages) {
+		return formatMap(packages);
+	}
+
+	/**
+	 * Creates a "digests.txt" file.
+	 * @param digests the digests of the shards
+	 * @return the file
+	 */
+	public static byte[] formatDigests(Map<String, String> digests) {
+		return formatMap(digests);
+	}
+
+	private static byte[] formatMap(Map<String, String> map) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> entry : new TreeMap<>(map).entrySet()) {
+			sb.append(entry.getKey()).append('\t').append(entry.getValue()).append('\n');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Calculates the digest of a set of sharded ZIP files. It covers the
+	 * package map and the digest of each shard, so it changes when a shard
+	 * changes or when packages move between shards.
+	 * @param packages the groups of the packages
+	 * @param digests the digests of the shards
+	 * @return the digest (a lower-case hex string)
+	 */
+	public static String digest(Map<String, String> packages, Map<String, String> digests) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance(ZipWriter.DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		//the same format as the lines of a ZIP file's manifest
+		List<String> lines = new ArrayList<>();
+		lines.add(Files2.toHex(md.digest(formatPackages(packages))) + "  " + PACKAGES_PATH);
+		for (Map.Entry<String, String> entry : digests.entrySet()) {
+			lines.add(entry.getValue() + "  " + entry.getKey());
+		}
+		return ArchiveReader.digest(lines);
+	}
+
+	/**
+	 * Gets the groups of all the packages.
+	 * @return the groups of the packages, sorted by package
+	 */
+	public Map<String, String> getPackages() {
+		return packages;
+	}
+
+	/**
+	 * Gets the digests of all the shards.
+	 * @return the digests of the shards, sorted by group, or an empty map if
+	 * the ZIP files were not created in reproducible mode
+	 */
+	public Map<String, String> getDigests() {
+		return digests;
+	}
+
+	/**
+	 * Gets the shard of a package group, opening it if it has not been opened
+	 * yet.
+	 * @param group the package group
+	 * @return the shard
+	 * @throws IOException if there's a problem opening the shard
+	 */
+	public synchronized ArchiveReader getShard(String group) throws IOException {
+		ArchiveReader shard = shards.get(group);
+		if (shard == null) {
+			shard = new ArchiveReader(shardPath(root, group));
+			shards.put(group, shard);
+		}
+		return shard;
+	}
+
+	/**
+	 * Gets the shard that contains a class.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the shard or null if the class's package does not exist
+	 * @throws IOException if there's a problem opening the shard
+	 */
+	public ArchiveReader getShardOf(String path) throws IOException {
+		String group = packages.get(packageOf(path));
+		return (group == null) ? null : getShard(group);
+	}
+
+	/**
+	 * Reads the XML file of a class.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the contents of the XML file or null if the class does not exist
+	 * @throws IOException if there's a problem reading the ZIP files
+	 * @see ArchiveReader#read
+	 */
+	public byte[] read(String path) throws IOException {
+		ArchiveReader shard = getShardOf(path);
+		return (shard == null) ? null : shard.read(path);
+	}
+
+	/**
+	 * Reads and parses the XML file of a class.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the XML document or null if the class does not exist
+	 * @throws IOException if there's a problem reading the ZIP files
+	 * @throws SAXException if the XML is invalid
+	 * @see ArchiveReader#parse
+	 */
+	public Document parse(String path) throws IOException, SAXException {
+		ArchiveReader shard = getShardOf(path);
+		return (shard == null) ? null : shard.parse(path);
+	}
+
+	/**
+	 * Gets the URL of a class's Javadoc page from the index of its shard.
+	 * @param path the path of the class's XML file (e.g.
+	 * "java/util/Map.Entry.xml")
+	 * @return the URL or null if the class does not exist or the index does
+	 * not contain its URL
+	 * @throws IOException if there's a problem opening the shard
+	 * @see ArchiveReader#getUrl
+	 */
+	public String getUrl(String path) throws IOException {
+		ArchiveReader shard = getShardOf(path);
+		return (shard == null) ? null : shard.getUrl(path);
+	}
+
+	/**
+	 * Closes the shards that have been opened.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		IOException thrown = null;
+		for (ArchiveReader shard : shards.values()) {
+			try {
+				shard.close();
+			} catch (IOException e) {
+				thrown = e;
+			}
+		}
+		shards.clear();
+
+		if (thrown != null) {
+			throw thrown;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package oakbot.doclet;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.w3c.dom.Document;
+
+import oakbot.util.ZipWriter;
+
+/**
+ * Writes one ZIP file per package group (called a shard), plus a root ZIP
+ * file that maps each package to its shard (see {@link ShardedArchiveReader}).
+ * Each shard is written by its own {@link ArchiveWriter}, so it has the same
+ * layout as a regular ZIP file. A shard is created when the first class of
+ * its group is added. In reproducible mode, the root ZIP file also records
+ * the digest of each shard, along with a digest that covers all of them.
+ * @author Michael Angstadt
+ */
+class ShardedArchiveWriter implements ArchiveOutput {
+	/**
+	 * The group of the classes that are in the unnamed package.
+	 */
+	static final String DEFAULT_GROUP = "default";
+
+	private final ConfigProperties properties;
+	private final Path outputPath;
+	private final List<String> groups;
+	private final Long sourceDateEpoch;
+	private final Map<String, String> packages = new TreeMap<>();
+	private final Map<String, ArchiveWriter> shards = new TreeMap<>();
+
+	/**
+	 * @param properties the doclet's configuration
+	 * @throws IOException if the configuration is invalid
+	 */
+	public ShardedArchiveWriter(ConfigProperties properties) throws IOException {
+		this.properties = properties;
+		outputPath = properties.resolveOutputPath();
+		groups = properties.getPackageGroups();
+		sourceDateEpoch = ArchiveWriter.sourceDateEpoch(properties);
+	}
+
+	/**
+	 * Determines which group a package belongs to.
+	 * @param packageName the package (e.g. "java.util.concurrent") or empty
+	 * string for the unnamed package
+	 * @param groups the package groups
+	 * @return the longest group that matches the package, or the package's
+	 * top-level package if none match
+	 */
+	static String groupOf(String packageName, List<String> groups) {
+		String longest = null;
+		for (String group : groups) {
+			boolean matches = packageName.equals(group) || packageName.startsWith(group + ".");
+			if (matches && (longest == null || group.length() > longest.length())) {
+				longest = group;
+			}
+		}
+		if (longest != null) {
+			return longest;
+		}
+
+		if (packageName.isEmpty()) {
+			return DEFAULT_GROUP;
+		}
+
+		int dot = packageName.indexOf('.');
+		return (dot < 0) ? packageName : packageName.substring(0, dot);
+	}
+
+	@Override
+	public void writeClass(String path, Document document) throws IOException {
+		String packageName = ShardedArchiveReader.packageOf(path);
+		String group = packages.computeIfAbsent(packageName, name -> groupOf(name, groups));
+
+		ArchiveWriter shard = shards.get(group);
+		if (shard == null) {
+			shard = new ArchiveWriter(shardProperties(group));
+			shards.put(group, shard);
+		}
+		shard.writeClass(path, document);
+	}
+
+	/**
+	 * Marks the warm set of each shard that has been created so far. The
+	 * shards that are created afterwards do not have a warm set.
+	 */
+	@Override
+	public void markWarmSet() {
+		for (ArchiveWriter shard : shards.values()) {
+			shard.markWarmSet();
+		}
+	}
+
+	/**
+	 * Creates the configuration of a shard's writer.
+	 * @param group the shard's package group
+	 * @return the configuration
+	 */
+	private ConfigProperties shardProperties(String group) {
+		ConfigProperties shardProperties = new ConfigProperties();
+		for (Map.Entry<String, String> entry : properties) {
+			shardProperties.set(entry.getKey(), entry.getValue());
+		}
+		shardProperties.setOutputPath(ShardedArchiveReader.shardPath(outputPath, group));
+		return shardProperties;
+	}
+
+	/**
+	 * Finishes the shards and writes the root ZIP file.
+	 * @throws IOException if there's a problem writing the ZIP files
+	 */
+	@Override
+	public void commit() throws IOException {
+		for (ArchiveWriter shard : shards.values()) {
+			shard.commit();
+		}
+
+		System.out.println("Saving to: " + outputPath);
+
+		Path tempFile = Files.createTempFile("oakbot-doclet-javadocs", ".zip");
+		Files.delete(tempFile); //temp files are only readable by the owner, so let the ZIP file be created with the default permissions
+		try {
+			try (ZipWriter zip = new ZipWriter(tempFile, 1)) {
+				if (properties.isReproducible()) {
+					zip.time(ArchiveWriter.entryTime(sourceDateEpoch)).sorted(true);
+				}
+
+				Document info = ArchiveWriter.createInfoDocument(properties, sourceDateEpoch);
+				info.getDocumentElement().setAttribute("packageShards", "true");
+				zip.add(ShardedArchiveReader.PACKAGES_PATH, ShardedArchiveReader.formatPackages(packages));
+
+				if (properties.isReproducible()) {
+					Map<String, String> digests = new TreeMap<>();
+					for (Map.Entry<String, ArchiveWriter> entry : shards.entrySet()) {
+						digests.put(entry.getKey(), entry.getValue().getDigest());
+					}
+					zip.add(ShardedArchiveReader.DIGESTS_PATH, ShardedArchiveReader.formatDigests(digests));
+					info.getDocumentElement().setAttribute("digest", ShardedArchiveReader.digest(packages, digests));
+				}
+
+				zip.add("info.xml", ArchiveWriter.toBytes(info, properties.isPrettyPrint()));
+			}
+			Files.move(tempFile, outputPath, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Deletes the temporary ZIP files of the shards that were not committed.
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException thrown = null;
+		for (ArchiveWriter shard : shards.values()) {
+			try {
+				shard.close();
+			} catch (IOException e) {
+				thrown = e;
+			}
+		}
+
+		if (thrown != null) {
+			throw thrown;
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package oakbot.doclet;
+
+import java.util.List;
+
+/**
+ * Maps the qualified names of the classes, constructors, methods, and fields
+ * that are being documented to the URLs of their Javadocs, so that
+ * {@literal @link} tags can be turned into links. It is built once per doclet
+ * run, before any classes are processed.
+ * <p>
+ * The keys look like this:
+ * </p>
+ * <ul>
+ * <li>Classes: {@code java.util.Map.Entry}</li>
+ * <li>Constructors: {@code java.util.HashMap#<init>(int,float)}</li>
+ * <li>Methods: {@code java.util.Map.Entry#equals(java.lang.Object)}</li>
+ * <li>Fields: {@code java.lang.String#CASE_INSENSITIVE_ORDER}</li>
+ * </ul>
+ * <p>
+ * The parameter types are the same as the ones in the member's anchor (see
+ * {@link JavadocUrls#anchor}). The entries are stored in an open-addressing
+ * hash table with linear probing. Large libraries have tens of thousands of
+ * members, and the flat arrays are smaller and faster to search than the
+ * entry objects of a {@link java.util.HashMap}.
+ * </p>
+ * @author Michael Angstadt
+ */
+final class SymbolTable {
+	private String keys[], values[];
+	private int size = 0;
+
+	/**
+	 * @param expectedSize the number of entries that are expected to be added
+	 */
+	SymbolTable(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) * 2;
+		keys = new String[capacity];
+		values = new String[capacity];
+	}
+
+	/**
+	 * Builds the key of a constructor or method.
+	 * @param className the qualified class name (e.g. "java.util.Map.Entry")
+	 * @param name the method name or null for a constructor
+	 * @param parameterTypes the parameter types (e.g. "java.lang.Object",
+	 * "int[]")
+	 * @return the key
+	 */
+	static String key(String className, String name, List<String> parameterTypes) {
+		return className + '#' + ((name == null) ? "<init>" : name) + '(' + String.join(",", parameterTypes) + ')';
+	}
+
+	/**
+	 * Builds the key of a field.
+	 * @param className the qualified class name (e.g. "java.lang.String")
+	 * @param name the field name
+	 * @return the key
+	 */
+	static String key(String className, String name) {
+		return className + '#' + name;
+	}
+
+	/**
+	 * Adds an entry, replacing the existing entry with the same key.
+	 * @param key the key
+	 * @param url the URL
+	 */
+	void put(String key, String url) {
+		if ((size + 1) * 2 > keys.length) {
+			resize();
+		}
+
+		int i = slot(keys, key);
+		if (keys[i] == null) {
+			keys[i] = key;
+			size++;
+		}
+		values[i] = url;
+	}
+
+	/**
+	 * Looks up an entry.
+	 * @param key the key
+	 * @return the URL or null if not found
+	 */
+	String get(String key) {
+		int i = slot(keys, key);
+		return values[i];
+	}
+
+	/**
+	 * Gets the number of entries.
+	 * @return the number of entries
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Finds the slot that contains a key or, if the key is not in the table,
+	 * the empty slot where it belongs.
+	 * @param keys the table
+	 * @param key the key
+	 * @return the slot
+	 */
+	private static int slot(String keys[], String key) {
+		int mask = keys.length - 1;
+		int h = key.hashCode();
+		int i = (h ^ (h >>> 16)) & mask;
+		while (keys[i] != null && !keys[i].equals(key)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Doubles the size of the table, so it is never more than half full.
+	 */
+	private void resize() {
+		String oldKeys[] = keys, oldValues[] = values;
+		keys = new String[oldKeys.length * 2];
+		values = new String[oldKeys.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != null) {
+				int slot = slot(keys, oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
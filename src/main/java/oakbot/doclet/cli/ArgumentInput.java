@@ -3,6 +3,8 @@ package oakbot.doclet.cli;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import oakbot.doclet.JavadocUrlPattern;
+
 /**
  * Gets the program's input from the command-line arguments.
  * @author Michael Angstadt
@@ -37,6 +39,16 @@ public class ArgumentInput implements Input {
 			name = mavenLibrary.getArtifactId();
 		}
 
+		int blockSize;
+		try {
+			blockSize = arguments.blockSize();
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("The block size (--blockSize) must be a number.");
+		}
+		if (blockSize < 0) {
+			throw new IllegalArgumentException("The block size (--blockSize) cannot be negative.");
+		}
+
 		String version = arguments.ver();
 		if (version.isEmpty()) {
 			if (mavenLibrary == null) {
@@ -45,16 +57,32 @@ public class ArgumentInput implements Input {
 			version = mavenLibrary.getVersion();
 		}
 
+		String javadocUrlPattern = arguments.javadocUrlPattern();
+		if (!javadocUrlPattern.isEmpty()) {
+			JavadocUrlPattern pattern = new JavadocUrlPattern(javadocUrlPattern);
+			if (pattern.usesBaseUrl() && arguments.javadocUrl().isEmpty()) {
+				throw new IllegalArgumentException("A Javadoc URL (--javadocUrl) must be specified if the Javadoc URL pattern (--javadocUrlPattern) contains {baseUrl}.");
+			}
+		}
+
 		return new InputParameters.Builder() //@formatter:off
 			.source(source)
 			.mavenLibrary(mavenLibrary)
 			.name(name)
 			.version(version)
 			.javadocUrl(arguments.javadocUrl())
-			.javadocUrlPattern(arguments.javadocUrlPattern())
+			.javadocUrlPattern(javadocUrlPattern)
 			.website(arguments.website())
 			.excludePackages(arguments.excludePackages())
 			.prettyPrint(arguments.prettyPrint())
+			.blockSize(blockSize * 1024)
+			.dictionary(arguments.dictionary())
+			.splitDescriptions(arguments.splitDescriptions())
+			.reproducible(arguments.reproducible())
+			.packageShards(arguments.packageShards())
+			.packageGroups(arguments.packageGroups())
+			.accessProfile(arguments.accessProfile())
+			.chatSummaries(arguments.chatSummaries())
 			.output(arguments.output())
 		.build(); //@formatter:on
 	}
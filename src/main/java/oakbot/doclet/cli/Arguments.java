@@ -6,6 +6,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -27,6 +28,17 @@ public class Arguments {
 		parser.accepts("i");
 		parser.accepts("help");
 		parser.accepts("h");
+		parser.accepts("fork");
+		parser.accepts("legacyDoclet");
+		parser.accepts("batch").withRequiredArg();
+		parser.accepts("repos").withRequiredArg();
+		parser.accepts("cacheDir").withRequiredArg();
+		parser.accepts("cacheSize").withRequiredArg();
+		parser.accepts("noCacheSources");
+		parser.accepts("noExtract");
+		parser.accepts("keepSources").withRequiredArg();
+		parser.accepts("shards").withRequiredArg();
+		parser.accepts("noCds");
 
 		parser.accepts("maven").withRequiredArg();
 
@@ -40,6 +52,14 @@ public class Arguments {
 		parser.accepts("website").withRequiredArg();
 
 		parser.accepts("prettyPrint");
+		parser.accepts("blockSize").withRequiredArg();
+		parser.accepts("dictionary");
+		parser.accepts("splitDescriptions");
+		parser.accepts("reproducible");
+		parser.accepts("packageShards");
+		parser.accepts("packageGroups").withRequiredArg();
+		parser.accepts("accessProfile").withRequiredArg();
+		parser.accepts("chatSummaries");
 		parser.accepts("output").withRequiredArg();
 
 		options = parser.parse(args);
@@ -57,6 +77,76 @@ public class Arguments {
 		return bool(false, "help", "h");
 	}
 
+	public boolean fork() {
+		return bool(false, "fork");
+	}
+
+	public boolean legacyDoclet() {
+		return bool(false, "legacyDoclet");
+	}
+
+	public Path batch() {
+		return path("batch");
+	}
+
+	public List<MavenRepository> repos() {
+		String value = value("repos");
+		if (value.isEmpty()) {
+			return Collections.singletonList(MavenRepository.CENTRAL);
+		}
+
+		List<MavenRepository> repos = new ArrayList<>();
+		for (String location : value.split("\\s*,\\s*")) {
+			repos.add(MavenRepository.parse(location));
+		}
+		return repos;
+	}
+
+	public Path cacheDir() {
+		Path value = path("cacheDir");
+		return (value == null) ? ArtifactCache.defaultDirectory() : value;
+	}
+
+	/**
+	 * Gets the maximum size of the artifact cache.
+	 * @return the size in bytes
+	 */
+	public long cacheSize() {
+		String value = value("cacheSize");
+		long megabytes = value.isEmpty() ? 1024 : Long.parseLong(value);
+		return megabytes * 1024 * 1024;
+	}
+
+	public boolean noCacheSources() {
+		return bool(false, "noCacheSources");
+	}
+
+	public boolean noExtract() {
+		return bool(false, "noExtract");
+	}
+
+	public boolean noCds() {
+		return bool(false, "noCds");
+	}
+
+	/**
+	 * Gets the number of extracted source code trees to keep for reuse.
+	 * @return the number of trees
+	 */
+	public int keepSources() {
+		String value = value("keepSources");
+		return value.isEmpty() ? WorkspaceManager.DEFAULT_MAX_TREES : Integer.parseInt(value);
+	}
+
+	/**
+	 * Gets the number of javadoc processes to divide each library between.
+	 * @return the number of processes or null if not specified
+	 */
+	public Integer shards() {
+		String value = value("shards");
+		return value.isEmpty() ? null : Integer.valueOf(value);
+	}
+
 	public MavenLibrary maven() {
 		String value = value("maven");
 		return value.isEmpty() ? null : MavenLibrary.parse(value);
@@ -95,6 +185,45 @@ public class Arguments {
 		return bool(false, "prettyPrint");
 	}
 
+	/**
+	 * Gets the size of the blocks to group the class XML files into.
+	 * @return the block size in kilobytes or 0 to save each class as its own
+	 * ZIP entry
+	 */
+	public int blockSize() {
+		String value = value("blockSize");
+		return value.isEmpty() ? 0 : Integer.parseInt(value);
+	}
+
+	public boolean dictionary() {
+		return bool(false, "dictionary");
+	}
+
+	public boolean splitDescriptions() {
+		return bool(false, "splitDescriptions");
+	}
+
+	public boolean reproducible() {
+		return bool(false, "reproducible");
+	}
+
+	public boolean packageShards() {
+		return bool(false, "packageShards");
+	}
+
+	public List<String> packageGroups() {
+		String value = value("packageGroups");
+		return value.isEmpty() ? Collections.emptyList() : Arrays.asList(value.split("\\s*,\\s*"));
+	}
+
+	public Path accessProfile() {
+		return path("accessProfile");
+	}
+
+	public boolean chatSummaries() {
+		return bool(false, "chatSummaries");
+	}
+
 	public Path output() {
 		return path("output");
 	}
@@ -119,6 +248,44 @@ public class Arguments {
 		System.out.println(helpText);
 	}
 
+	/**
+	 * Splits a line of text into individual arguments, the same way that a
+	 * command-line shell would. Arguments are separated by whitespace.
+	 * Double quotes can be used to include whitespace in an argument.
+	 * @param line the line (e.g. a line from a batch file)
+	 * @return the arguments
+	 */
+	public static String[] split(String line) {
+		List<String> args = new ArrayList<>();
+		StringBuilder sb = new StringBuilder();
+		boolean inQuotes = false, inArg = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				inQuotes = !inQuotes;
+				inArg = true;
+				continue;
+			}
+
+			if (Character.isWhitespace(c) && !inQuotes) {
+				if (inArg) {
+					args.add(sb.toString());
+					sb.setLength(0);
+					inArg = false;
+				}
+				continue;
+			}
+
+			sb.append(c);
+			inArg = true;
+		}
+		if (inArg) {
+			args.add(sb.toString());
+		}
+
+		return args.toArray(new String[0]);
+	}
+
 	private boolean bool(boolean defaultValue, String... options) {
 		for (String option : options) {
 			if (this.options.has(option)) {
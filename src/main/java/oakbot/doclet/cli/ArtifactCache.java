@@ -0,0 +1,270 @@
+package oakbot.doclet.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import oakbot.util.Files2;
+
+/**
+ * A local, content-addressed cache of files that were downloaded from Maven
+ * repositories. Each file is stored under the name of its SHA-1 hash, which
+ * is used to verify the file's integrity every time it is retrieved from the
+ * cache. An index maps each repository path (e.g.
+ * "org/jsoup/jsoup/1.8.3/jsoup-1.8.3.pom") to a hash. When the total size of
+ * the cached files exceeds a limit, the least recently used files are deleted.
+ * Files that this object has returned are never deleted, since they may still
+ * be in use (e.g. a sources JAR that is being extracted while other files are
+ * being downloaded).
+ * @author Michael Angstadt
+ */
+public class ArtifactCache {
+	private static final String ALGORITHM = "SHA-1";
+
+	private final Path blobsDir, indexDir, tempDir;
+	private final long maxSize;
+
+	/**
+	 * The files that have been returned by {@link #get} or {@link #put}. They
+	 * are not evicted.
+	 */
+	private final Set<Path> pinned = new HashSet<>();
+
+	/**
+	 * @param directory the cache directory (created if it doesn't exist)
+	 * @param maxSize the maximum total size of the cached files, in bytes
+	 * @throws IOException if there's a problem creating the cache directory
+	 */
+	public ArtifactCache(Path directory, long maxSize) throws IOException {
+		blobsDir = directory.resolve("blobs");
+		indexDir = directory.resolve("index");
+		tempDir = directory.resolve("tmp");
+		this.maxSize = maxSize;
+
+		Files.createDirectories(blobsDir);
+		Files.createDirectories(indexDir);
+		Files.createDirectories(tempDir);
+	}
+
+	/**
+	 * Gets the default cache directory.
+	 * @return the directory
+	 */
+	public static Path defaultDirectory() {
+		return Paths.get(System.getProperty("user.home"), ".oakbot-doclet", "cache");
+	}
+
+	/**
+	 * Gets a file from the cache. The file's checksum is verified before it is
+	 * returned. If the file is corrupt, it is removed from the cache.
+	 * @param path the file's repository path
+	 * @return the cached file or null if it's not in the cache
+	 * @throws IOException if there's a problem reading the cache
+	 */
+	public Path get(String path) throws IOException {
+		Path indexFile = indexFile(path);
+		String hash;
+		try {
+			hash = new String(Files.readAllBytes(indexFile), StandardCharsets.UTF_8).trim();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+
+		Path blob = blob(hash, path);
+		boolean pinnedHere;
+		synchronized (this) {
+			if (!Files.exists(blob)) {
+				//evicted
+				Files.deleteIfExists(indexFile);
+				return null;
+			}
+			pinnedHere = pinned.add(blob);
+		}
+
+		try {
+			if (!hash.equals(Files2.checksum(blob, ALGORITHM))) {
+				unpin(blob, pinnedHere);
+				Files.deleteIfExists(blob);
+				Files.deleteIfExists(indexFile);
+				return null;
+			}
+
+			//the modification time is used to determine which files were least recently used
+			Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (NoSuchFileException e) {
+			//evicted by another process
+			unpin(blob, pinnedHere);
+			Files.deleteIfExists(indexFile);
+			return null;
+		}
+
+		return blob;
+	}
+
+	/**
+	 * Adds a file to the cache. The file is moved, not copied. Files that are
+	 * no longer needed are evicted afterwards if the cache is too big.
+	 * @param path the file's repository path
+	 * @param file the file (must be on the same file system as the cache,
+	 * see {@link #createTempFile})
+	 * @return the cached file
+	 * @throws IOException if there's a problem adding the file to the cache
+	 */
+	public synchronized Path put(String path, Path file) throws IOException {
+		String hash = Files2.checksum(file, ALGORITHM);
+
+		Path blob = blob(hash, path);
+		Files.createDirectories(blob.getParent());
+		if (Files.exists(blob)) {
+			//the cache already has a file with the same contents
+			Files.delete(file);
+			Files.setLastModifiedTime(blob, FileTime.fromMillis(System.currentTimeMillis()));
+		} else {
+			move(file, blob);
+		}
+
+		Path indexFile = indexFile(path);
+		Files.createDirectories(indexFile.getParent());
+		Files.write(indexFile, hash.getBytes(StandardCharsets.UTF_8));
+
+		pinned.add(blob);
+		evict();
+
+		return blob;
+	}
+
+	private synchronized void unpin(Path blob, boolean pinnedHere) {
+		if (pinnedHere) {
+			pinned.remove(blob);
+		}
+	}
+
+	/**
+	 * Creates an empty temporary file inside of the cache directory. Files
+	 * should be downloaded to temporary files like this before being added to
+	 * the cache, so that they can be moved into the cache without being
+	 * copied.
+	 * @return the temporary file
+	 * @throws IOException if there's a problem creating the file
+	 */
+	public Path createTempFile() throws IOException {
+		return Files.createTempFile(tempDir, "download", ".tmp");
+	}
+
+	/**
+	 * Gets the total size of the cached files.
+	 * @return the size in bytes
+	 * @throws IOException if there's a problem reading the cache
+	 */
+	public long size() throws IOException {
+		long size = 0;
+		for (Path blob : blobs()) {
+			size += Files.size(blob);
+		}
+		return size;
+	}
+
+	/**
+	 * Deletes the least recently used files until the total size of the cache
+	 * is below the limit. Pinned files are not deleted, even if the cache is
+	 * still too big.
+	 * @throws IOException if there's a problem deleting the files
+	 */
+	private void evict() throws IOException {
+		List<Path> blobs = blobs();
+		long size = 0;
+		for (Path blob : blobs) {
+			size += sizeOf(blob);
+		}
+		if (size <= maxSize) {
+			return;
+		}
+
+		blobs.sort(Comparator.comparing(blob -> {
+			try {
+				return Files.getLastModifiedTime(blob);
+			} catch (IOException e) {
+				return FileTime.fromMillis(0);
+			}
+		}));
+
+		/*
+		 * The index files of evicted blobs are left alone. They are deleted
+		 * the next time they are accessed.
+		 */
+		for (Path blob : blobs) {
+			if (size <= maxSize) {
+				break;
+			}
+			if (pinned.contains(blob)) {
+				continue;
+			}
+
+			long blobSize = sizeOf(blob);
+			Files.deleteIfExists(blob);
+			size -= blobSize;
+		}
+	}
+
+	/**
+	 * Gets the size of a file.
+	 * @param blob the file
+	 * @return the size or zero if the file was deleted by another process
+	 * @throws IOException if there's a problem reading the file
+	 */
+	private static long sizeOf(Path blob) throws IOException {
+		try {
+			return Files.size(blob);
+		} catch (NoSuchFileException e) {
+			return 0;
+		}
+	}
+
+	private List<Path> blobs() throws IOException {
+		try (Stream<Path> stream = Files.walk(blobsDir)) {
+			return stream.filter(Files::isRegularFile).collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	private Path indexFile(String path) {
+		return indexDir.resolve(path + ".sha1");
+	}
+
+	/**
+	 * Gets the location of the file that has the given hash. The file
+	 * extension is preserved, since some tools (such as javac) look at file
+	 * extensions.
+	 * @param hash the file's hash
+	 * @param path the file's repository path
+	 * @return the location of the file
+	 */
+	private Path blob(String hash, String path) {
+		String filename = path.substring(path.lastIndexOf('/') + 1);
+		int dot = filename.lastIndexOf('.');
+		String extension = (dot < 0) ? "" : filename.substring(dot);
+
+		return blobsDir.resolve(hash.substring(0, 2)).resolve(hash + extension);
+	}
+
+	private static void move(Path source, Path target) throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException | FileAlreadyExistsException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
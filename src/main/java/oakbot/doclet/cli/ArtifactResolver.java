@@ -0,0 +1,199 @@
+package oakbot.doclet.cli;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import oakbot.util.Downloader;
+import oakbot.util.Downloader.Progress;
+import oakbot.util.Files2;
+
+/**
+ * Finds the files of Maven libraries. The following locations are searched,
+ * in order:
+ * <ol>
+ * <li>the local artifact cache</li>
+ * <li>the local Maven repository (e.g. "~/.m2/repository")</li>
+ * <li>the remote repositories (e.g. Maven Central), in the order they were
+ * given</li>
+ * </ol>
+ * Downloaded files are verified against the checksum files that the
+ * repository provides (SHA-1 or SHA-256), and then added to the cache.
+ * @author Michael Angstadt
+ */
+public class ArtifactResolver {
+	private final ArtifactCache cache;
+	private final Path localRepository;
+	private final List<MavenRepository> repositories;
+
+	/**
+	 * @param cache the cache
+	 * @param localRepository the local Maven repository or null not to use
+	 * one
+	 * @param repositories the remote repositories
+	 */
+	public ArtifactResolver(ArtifactCache cache, Path localRepository, List<MavenRepository> repositories) {
+		this.cache = cache;
+		this.localRepository = localRepository;
+		this.repositories = new ArrayList<>(repositories);
+	}
+
+	/**
+	 * Gets the location of the local Maven repository.
+	 * @return the location (e.g. "~/.m2/repository")
+	 */
+	public static Path defaultLocalRepository() {
+		String value = System.getProperty("maven.repo.local");
+		return (value == null) ? Paths.get(System.getProperty("user.home"), ".m2", "repository") : Paths.get(value);
+	}
+
+	/**
+	 * Finds a file.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @return the file
+	 * @throws FileNotFoundException if the file could not be found
+	 * @throws IOException if there's a problem downloading the file or if its
+	 * checksum is invalid
+	 */
+	public Path resolve(String path) throws IOException {
+		return resolve(path, null);
+	}
+
+	/**
+	 * Finds a file.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @param progress monitors the progress of the download if the file has to
+	 * be downloaded (can be null)
+	 * @return the file
+	 * @throws FileNotFoundException if the file could not be found
+	 * @throws IOException if there's a problem downloading the file or if its
+	 * checksum is invalid
+	 */
+	public Path resolve(String path, Progress progress) throws IOException {
+		return resolve(path, progress, null, true);
+	}
+
+	/**
+	 * Finds a file and writes its contents to a stream. If the file has to be
+	 * downloaded, its contents are written to the stream while it is being
+	 * downloaded, so the caller can start processing the file right away.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @param progress monitors the progress of the download if the file has to
+	 * be downloaded (can be null)
+	 * @param out the stream to write the file's contents to (can be null). It
+	 * is not closed.
+	 * @param cacheDownload true to add the file to the cache if it has to be
+	 * downloaded, false to not save the downloaded file to disk at all
+	 * @return the file or null if it was downloaded and not added to the cache
+	 * @throws FileNotFoundException if the file could not be found
+	 * @throws IOException if there's a problem downloading the file, if its
+	 * checksum is invalid, or if there's a problem writing to the stream
+	 */
+	public Path resolve(String path, Progress progress, OutputStream out, boolean cacheDownload) throws IOException {
+		Path file = findLocal(path);
+		if (file != null) {
+			if (out != null) {
+				Files.copy(file, out);
+			}
+			return file;
+		}
+
+		for (MavenRepository repository : repositories) {
+			try {
+				return download(repository, path, progress, out, cacheDownload);
+			} catch (FileNotFoundException e) {
+				//try the next repository
+			}
+		}
+
+		String searched = repositories.stream().map(MavenRepository::toString).collect(Collectors.joining(", "));
+		throw new FileNotFoundException(path + " could not be found in any of the following repositories: " + searched);
+	}
+
+	/**
+	 * Finds a file without downloading it. The artifact cache is checked
+	 * first, then the local Maven repository.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @return the file or null if it would have to be downloaded
+	 * @throws IOException if there's a problem reading the file
+	 */
+	public Path findLocal(String path) throws IOException {
+		Path file = cache.get(path);
+		return (file == null) ? findInLocalRepository(path) : file;
+	}
+
+	/**
+	 * Looks for a file in the local Maven repository. If the repository has a
+	 * checksum file for the file, the checksum is verified.
+	 * @param path the file's repository path
+	 * @return the file or null if not found
+	 * @throws IOException if there's a problem reading the file
+	 */
+	private Path findInLocalRepository(String path) throws IOException {
+		if (localRepository == null) {
+			return null;
+		}
+
+		Path file = localRepository.resolve(path);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+
+		Path checksumFile = file.resolveSibling(file.getFileName() + ".sha1");
+		if (Files.isRegularFile(checksumFile)) {
+			String expected = Downloader.parseChecksum(new String(Files.readAllBytes(checksumFile), StandardCharsets.UTF_8));
+			if (!expected.equals(Files2.checksum(file, "SHA-1"))) {
+				//corrupt, download it instead
+				return null;
+			}
+		}
+
+		return file;
+	}
+
+	/**
+	 * Downloads a file from a remote repository and adds it to the cache.
+	 * @param repository the repository
+	 * @param path the file's repository path
+	 * @param progress monitors the progress of the download (can be null)
+	 * @param out the stream to write the file's contents to as it is being
+	 * downloaded (can be null)
+	 * @param cacheDownload true to add the file to the cache, false to not
+	 * save it to disk
+	 * @return the cached file or null if it was not added to the cache
+	 * @throws FileNotFoundException if the repository does not have the file
+	 * @throws IOException if there's a problem downloading the file or if its
+	 * checksum is invalid
+	 */
+	private Path download(MavenRepository repository, String path, Progress progress, OutputStream out, boolean cacheDownload) throws IOException {
+		String url = repository.getUrl(path);
+		Path tempFile = null;
+		try {
+			if (cacheDownload) {
+				tempFile = cache.createTempFile();
+				Files.delete(tempFile);
+			}
+
+			//@formatter:off
+			new Downloader(url, tempFile)
+				.onProgress(progress)
+				.tee(out)
+				.verifyChecksum("SHA-1", "SHA-256")
+			.start();
+			//@formatter:on
+
+			return cacheDownload ? cache.put(path, tempFile) : null;
+		} finally {
+			if (tempFile != null) {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package oakbot.doclet.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Creates and finds the class data sharing (AppCDS) archives that make the
+ * JVMs of this program start faster. An archive contains classes that have
+ * already been parsed and verified, so the JVM does not have to load them
+ * from scratch.
+ * <p>
+ * There are two archives. The javadoc archive is used by forked javadoc
+ * processes. It is created from the classes that the first forked javadoc
+ * process loads. The program archive is used by this program's own JVM. It is
+ * created from the classes that this JVM has loaded by the end of a run, and
+ * it has to be passed to the JVM by the user (see
+ * {@link #isUsingArchive}).
+ * </p>
+ * <p>
+ * An archive is only valid for the JVM and the classpath it was created
+ * with. The archives' file names contain a hash of both, so a new archive is
+ * created whenever either one changes.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ClassDataSharing {
+	private static final String JAVADOC = "javadoc";
+	private static final String PROGRAM = "program";
+	private static final String ARCHIVE_EXTENSION = ".jsa";
+
+	private final Path dir;
+
+	/**
+	 * Only one javadoc process records its classes at a time.
+	 */
+	private final AtomicBoolean recording = new AtomicBoolean();
+
+	/**
+	 * @param dir the directory to save the archives to
+	 * @throws IOException if the directory could not be created
+	 */
+	public ClassDataSharing(Path dir) throws IOException {
+		this.dir = dir;
+		Files.createDirectories(dir);
+	}
+
+	/**
+	 * Configures a forked javadoc command to use the javadoc archive. If the
+	 * archive does not exist yet, the command is configured to record the
+	 * classes it loads instead, so that the archive can be created once it
+	 * finishes.
+	 * @param builder the javadoc command
+	 * @param javadocExe the path to the javadoc executable
+	 * @return the recording or null if the command does not record its classes
+	 * @throws IOException if there's a problem reading the classpath
+	 */
+	public Recording configure(JavadocCommandBuilder builder, String javadocExe) throws IOException {
+		/*
+		 * Classes loaded from the doclet path cannot be archived, but
+		 * classes loaded from the JVM's classpath can, as long as the
+		 * classpath only contains JAR files.
+		 */
+		String classpath = builder.getDocletClasspath();
+		List<Path> jars = jars(classpath);
+		if (jars != null) {
+			builder.docletOnJvmClasspath();
+		}
+
+		List<String> keyParts = new ArrayList<>();
+		keyParts.add(javadocExe);
+		if (jars != null) {
+			keyParts.add(classpath);
+		}
+
+		List<Path> keyFiles = new ArrayList<>();
+		keyFiles.add(Paths.get(javadocExe));
+		if (jars != null) {
+			keyFiles.addAll(jars);
+		}
+
+		Path archive = archive(JAVADOC, keyParts, keyFiles);
+		if (Files.exists(archive)) {
+			builder.sharedArchiveFile(archive);
+			return null;
+		}
+
+		if (!recording.compareAndSet(false, true)) {
+			return null;
+		}
+
+		Path classList = Files.createTempFile(dir, JAVADOC, ".classlist");
+		builder.dumpLoadedClassList(classList);
+
+		List<String> command = new ArrayList<>();
+		command.add(javadocExe);
+		if (jars != null) {
+			command.add("-J-cp");
+			command.add("-J" + classpath);
+		}
+		command.add("-J-Xshare:dump");
+		command.add("-J-XX:SharedClassListFile=" + classList);
+		command.add("-J-XX:SharedArchiveFile=%s");
+
+		return new Recording(classList, archive, command);
+	}
+
+	/**
+	 * Gets the archive for this program's JVM.
+	 * @return the archive or null if it has not been created yet or if it
+	 * cannot be created
+	 * @throws IOException if there's a problem reading the classpath
+	 */
+	public Path getProgramArchive() throws IOException {
+		String classpath = System.getProperty("java.class.path");
+		List<Path> jars = jars(classpath);
+		if (jars == null) {
+			return null;
+		}
+
+		Path archive = programArchive(classpath, jars);
+		return Files.exists(archive) ? archive : null;
+	}
+
+	/**
+	 * Creates the archive for this program's JVM, using the classes that
+	 * this JVM has loaded so far.
+	 * @return the archive or null if it cannot be created (for example, if
+	 * the classpath contains directories or if the JVM cannot list its
+	 * classes)
+	 * @throws IOException if there's a problem creating the archive
+	 * @throws InterruptedException if the thread is interrupted while the
+	 * archive is being created
+	 */
+	public Path createProgramArchive() throws IOException, InterruptedException {
+		String classpath = System.getProperty("java.class.path");
+		List<Path> jars = jars(classpath);
+		if (jars == null) {
+			return null;
+		}
+
+		List<String> classes = loadedClasses();
+		if (classes == null) {
+			return null;
+		}
+
+		Path classList = Files.createTempFile(dir, PROGRAM, ".classlist");
+		Files.write(classList, classes);
+
+		String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		Path archive = programArchive(classpath, jars);
+
+		List<String> command = new ArrayList<>();
+		command.add(java);
+		command.add("-cp");
+		command.add(classpath);
+		command.add("-Xshare:dump");
+		command.add("-XX:SharedClassListFile=" + classList);
+		command.add("-XX:SharedArchiveFile=%s");
+
+		try {
+			return new Recording(classList, archive, command).createArchive() ? archive : null;
+		} finally {
+			Files.deleteIfExists(classList);
+		}
+	}
+
+	/**
+	 * Determines if this program's JVM was started with a class data sharing
+	 * archive.
+	 * @return true if it was, false if not
+	 */
+	public static boolean isUsingArchive() {
+		return ManagementFactory.getRuntimeMXBean().getInputArguments().stream().anyMatch(arg -> arg.startsWith("-XX:SharedArchiveFile="));
+	}
+
+	private Path programArchive(String classpath, List<Path> jars) throws IOException {
+		List<String> keyParts = Arrays.asList(System.getProperty("java.home"), System.getProperty("java.vm.version"), classpath);
+		return archive(PROGRAM, keyParts, jars);
+	}
+
+	/**
+	 * Determines the path of an archive.
+	 * @param name the archive's name
+	 * @param keyParts the strings that identify the archive
+	 * @param keyFiles the files that identify the archive (their sizes and
+	 * modification dates are used)
+	 * @return the path to the archive
+	 * @throws IOException if one of the files could not be read
+	 */
+	private Path archive(String name, List<String> keyParts, List<Path> keyFiles) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+
+		for (String part : keyParts) {
+			digest.update(part.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		for (Path file : keyFiles) {
+			String stamp = Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+			digest.update(stamp.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+
+		StringBuilder sb = new StringBuilder(name).append('-');
+		byte hash[] = digest.digest();
+		for (int i = 0; i < 8; i++) {
+			sb.append(String.format("%02x", hash[i]));
+		}
+		sb.append(ARCHIVE_EXTENSION);
+		return dir.resolve(sb.toString());
+	}
+
+	/**
+	 * Gets the JAR files of a classpath.
+	 * @param classpath the classpath
+	 * @return the JAR files or null if the classpath contains anything other
+	 * than JAR files (class data sharing does not support directories)
+	 */
+	private static List<Path> jars(String classpath) {
+		if (classpath == null || classpath.isEmpty()) {
+			return null;
+		}
+
+		List<Path> jars = new ArrayList<>();
+		for (String entry : classpath.split(File.pathSeparator)) {
+			Path path = Paths.get(entry);
+			if (!Files.isRegularFile(path) || !entry.toLowerCase().endsWith(".jar")) {
+				return null;
+			}
+			jars.add(path);
+		}
+		return jars;
+	}
+
+	/**
+	 * Gets the names of the classes that this JVM has loaded.
+	 * @return the class names, in the format of a class list file (for
+	 * example, "java/lang/String"), or null if they could not be retrieved
+	 */
+	private static List<String> loadedClasses() {
+		String hierarchy;
+		try {
+			ObjectName diagnosticCommand = new ObjectName("com.sun.management:type=DiagnosticCommand");
+			Object[] params = { null };
+			String[] signature = { String[].class.getName() };
+			hierarchy = (String) ManagementFactory.getPlatformMBeanServer().invoke(diagnosticCommand, "vmClassHierarchy", params, signature);
+		} catch (JMException | RuntimeException e) {
+			return null;
+		}
+
+		/*
+		 * Each line contains the class name and the address of its class
+		 * loader (or "null" for the bootstrap class loader), separated by a
+		 * slash. The names of classes that are generated at runtime (such as
+		 * lambdas) contain an extra slash. They cannot be archived.
+		 */
+		Set<String> classes = new LinkedHashSet<>();
+		for (String line : hierarchy.split("\\R")) {
+			int start = 0;
+			while (start < line.length() && (line.charAt(start) == '|' || line.charAt(start) == '-' || line.charAt(start) == ' ')) {
+				start++;
+			}
+
+			int end = line.indexOf(' ', start);
+			String entry = (end < 0) ? line.substring(start) : line.substring(start, end);
+			String parts[] = entry.split("/");
+			if (parts.length != 2 || parts[0].startsWith("jdk.internal.reflect.Generated")) {
+				continue;
+			}
+
+			classes.add(parts[0].replace('.', '/'));
+		}
+		return new ArrayList<>(classes);
+	}
+
+	/**
+	 * A class list that is being recorded, from which an archive will be
+	 * created.
+	 * @author Michael Angstadt
+	 */
+	public class Recording implements AutoCloseable {
+		private final Path classList, archive;
+		private final List<String> command;
+
+		/**
+		 * @param classList the class list file
+		 * @param archive the archive to create
+		 * @param command the command that creates the archive ("%s" is
+		 * replaced with the archive file)
+		 */
+		private Recording(Path classList, Path archive, List<String> command) {
+			this.classList = classList;
+			this.archive = archive;
+			this.command = command;
+		}
+
+		/**
+		 * Creates the archive from the recorded class list. Any older
+		 * archives of the same kind are deleted.
+		 * @return true if the archive was created, false if the JVM could not
+		 * create it
+		 * @throws IOException if there's a problem running the JVM
+		 * @throws InterruptedException if the thread is interrupted while the
+		 * archive is being created
+		 */
+		public boolean createArchive() throws IOException, InterruptedException {
+			/*
+			 * The archive is created under a temporary name, so that other
+			 * instances of this program do not use it before it is complete.
+			 */
+			Path temp = Files.createTempFile(dir, "archive", ".tmp");
+			List<String> command = new ArrayList<>(this.command);
+			command.replaceAll(arg -> arg.replace("%s", temp.toString()));
+
+			ProcessBuilder processBuilder = new ProcessBuilder(command);
+			processBuilder.redirectErrorStream(true);
+			processBuilder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+
+			Process process = processBuilder.start();
+			int exitValue;
+			try {
+				exitValue = process.waitFor();
+			} catch (InterruptedException e) {
+				process.destroyForcibly();
+				Files.deleteIfExists(temp);
+				throw e;
+			}
+
+			if (exitValue != 0 || Files.size(temp) == 0) {
+				Files.deleteIfExists(temp);
+				return false;
+			}
+
+			deleteOtherArchives();
+			Files.move(temp, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		}
+
+		/**
+		 * Gets the archive that will be created.
+		 * @return the archive file
+		 */
+		Path getArchive() {
+			return archive;
+		}
+
+		private void deleteOtherArchives() throws IOException {
+			String name = archive.getFileName().toString();
+			String prefix = name.substring(0, name.indexOf('-') + 1);
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, prefix + "*" + ARCHIVE_EXTENSION)) {
+				for (Path file : stream) {
+					try {
+						Files.deleteIfExists(file);
+					} catch (IOException ignore) {
+						//it will be deleted the next time an archive is created
+					}
+				}
+			}
+		}
+
+		/**
+		 * Deletes the class list and lets another javadoc process record its
+		 * classes.
+		 */
+		@Override
+		public void close() throws IOException {
+			Files.deleteIfExists(classList);
+			recording.set(false);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package oakbot.doclet.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oakbot.util.Downloader.Progress;
+
+/**
+ * Fetches the files of Maven libraries in parallel, using a bounded number of
+ * threads.
+ * <p>
+ * Each thread downloads one file at a time using
+ * {@link java.net.HttpURLConnection}, which keeps connections alive and reuses
+ * them for later requests to the same host (see the "http.keepAlive" and "http.maxConnections" system
+ * properties). Since the number of threads is bounded, the number of
+ * connections to each repository is bounded too.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class FetchScheduler implements Closeable {
+	/**
+	 * The default number of files to fetch at once. This is the number of
+	 * idle connections that {@link java.net.HttpURLConnection} keeps alive per
+	 * host by default.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 5;
+
+	private final ArtifactResolver resolver;
+	private final ExecutorService executor;
+
+	private final AtomicLong bytesDownloaded = new AtomicLong();
+	private final AtomicInteger filesDownloaded = new AtomicInteger();
+	private int active;
+	private long activeSince, activeNanos;
+
+	/**
+	 * @param resolver finds the files
+	 * @param concurrency the maximum number of files to fetch at once
+	 */
+	public FetchScheduler(ArtifactResolver resolver, int concurrency) {
+		this.resolver = resolver;
+		executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+			Thread thread = new Thread(runnable, "fetch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Fetches a file in the background.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @return the file
+	 */
+	public Future<Path> fetch(String path) {
+		return fetch(path, null);
+	}
+
+	/**
+	 * Fetches a file in the background.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @param progress monitors the progress of the download if the file has to
+	 * be downloaded (can be null). Called from a background thread.
+	 * @return the file
+	 */
+	public Future<Path> fetch(String path, Progress progress) {
+		return fetch(path, progress, null, true);
+	}
+
+	/**
+	 * Fetches a file in the background and writes its contents to a stream.
+	 * If the file has to be downloaded, its contents are written to the
+	 * stream while it is being downloaded.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @param progress monitors the progress of the download if the file has to
+	 * be downloaded (can be null). Called from a background thread.
+	 * @param out the stream to write the file's contents to. It is closed when
+	 * the fetch finishes, whether or not it was successful.
+	 * @param cacheDownload true to add the file to the cache if it has to be
+	 * downloaded, false to not save the downloaded file to disk at all
+	 * @return the file or null if it was downloaded and not added to the cache
+	 * @see ArtifactResolver#resolve(String, Progress, OutputStream, boolean)
+	 */
+	public Future<Path> fetch(String path, Progress progress, OutputStream out, boolean cacheDownload) {
+		return executor.submit(() -> {
+			started();
+			try {
+				long counted[] = { 0 };
+				Path file = resolver.resolve(path, (downloaded, size) -> {
+					bytesDownloaded.addAndGet(downloaded - counted[0]);
+					counted[0] = downloaded;
+					if (progress != null) {
+						progress.progress(downloaded, size);
+					}
+				}, out, cacheDownload);
+
+				if (counted[0] > 0) {
+					filesDownloaded.incrementAndGet();
+				}
+				return file;
+			} finally {
+				finished();
+				if (out != null) {
+					out.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Finds a file without downloading it.
+	 * @param path the file's repository path (see {@link MavenLibrary#getPath})
+	 * @return the file or null if it would have to be downloaded
+	 * @throws IOException if there's a problem reading the file
+	 * @see ArtifactResolver#findLocal
+	 */
+	public Path findLocal(String path) throws IOException {
+		return resolver.findLocal(path);
+	}
+
+	/**
+	 * Fetches multiple files and waits for them all to finish.
+	 * @param paths the files' repository paths
+	 * @return the files, in the same order as the given paths
+	 * @throws IOException if any of the files could not be fetched
+	 */
+	public List<Path> fetchAll(Collection<String> paths) throws IOException {
+		List<Future<Path>> futures = new ArrayList<>(paths.size());
+		for (String path : paths) {
+			futures.add(fetch(path));
+		}
+
+		List<Path> files = new ArrayList<>(futures.size());
+		try {
+			for (Future<Path> future : futures) {
+				files.add(get(future));
+			}
+		} finally {
+			for (Future<Path> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Waits for a fetch to finish.
+	 * @param future the fetch
+	 * @return the file
+	 * @throws IOException if the file could not be fetched
+	 */
+	public static Path get(Future<Path> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	/**
+	 * Gets the total number of bytes that were downloaded (files that were
+	 * found locally are not counted).
+	 * @return the number of bytes
+	 */
+	public long getBytesDownloaded() {
+		return bytesDownloaded.get();
+	}
+
+	/**
+	 * Gets the number of files that were downloaded (files that were found
+	 * locally are not counted).
+	 * @return the number of files
+	 */
+	public int getFilesDownloaded() {
+		return filesDownloaded.get();
+	}
+
+	/**
+	 * Gets the aggregate download throughput. This is the total number of
+	 * bytes downloaded divided by the amount of time during which at least one
+	 * fetch was running.
+	 * @return the throughput in bytes per second or 0 if nothing was
+	 * downloaded
+	 */
+	public synchronized double getThroughput() {
+		long nanos = activeNanos;
+		if (active > 0) {
+			nanos += System.nanoTime() - activeSince;
+		}
+		return (nanos == 0) ? 0 : bytesDownloaded.get() / (nanos / 1_000_000_000.0);
+	}
+
+	private synchronized void started() {
+		if (active++ == 0) {
+			activeSince = System.nanoTime();
+		}
+	}
+
+	private synchronized void finished() {
+		if (--active == 0) {
+			activeNanos += System.nanoTime() - activeSince;
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
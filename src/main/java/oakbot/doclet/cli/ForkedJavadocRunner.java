@@ -0,0 +1,230 @@
+package oakbot.doclet.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import oakbot.doclet.ConfigProperties;
+import oakbot.doclet.cli.ClassDataSharing.Recording;
+
+/**
+ * Runs javadoc in a separate process. The doclet's configuration is passed to
+ * the child JVM as system properties.
+ * @author Michael Angstadt
+ */
+public class ForkedJavadocRunner implements JavadocRunner {
+	/**
+	 * How often to check how much memory the javadoc process is using.
+	 */
+	private static final long MEMORY_POLL_INTERVAL_MS = 250;
+
+	/**
+	 * The text the JVM prints when it runs out of memory.
+	 */
+	private static final String OUT_OF_MEMORY = "java.lang.OutOfMemoryError";
+
+	private final String javadocExe;
+	private final Console console;
+	private final boolean verbose;
+	private ClassDataSharing classDataSharing;
+
+	/**
+	 * @param javadocExe the path to the javadoc executable
+	 * @param console the console to print status messages to
+	 * @param verbose true to print the full command, false not to
+	 */
+	public ForkedJavadocRunner(String javadocExe, Console console, boolean verbose) {
+		this.javadocExe = javadocExe;
+		this.console = console;
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Makes the javadoc processes use a class data sharing archive, so they
+	 * start faster. The archive is created after the first process finishes.
+	 * @param classDataSharing the archives or null not to use an archive
+	 * @return this
+	 */
+	public ForkedJavadocRunner classDataSharing(ClassDataSharing classDataSharing) {
+		this.classDataSharing = classDataSharing;
+		return this;
+	}
+
+	@Override
+	public void run(JavadocCommandBuilder builder, ConfigProperties properties) throws IOException, InterruptedException {
+		run(builder, properties, null);
+	}
+
+	/**
+	 * Runs javadoc.
+	 * @param builder the javadoc arguments
+	 * @param properties the doclet's configuration
+	 * @param log the file to write javadoc's output to or null to print it to
+	 * the console
+	 * @return the most physical memory the javadoc process used at any one
+	 * time (in bytes) or 0 if this cannot be determined on the local machine
+	 * @throws OutOfMemoryException if the javadoc process ran out of memory
+	 * @throws IOException if javadoc could not be started or if it reported a
+	 * failure
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 * for javadoc to finish. The javadoc process is killed.
+	 */
+	public long run(JavadocCommandBuilder builder, ConfigProperties properties, Path log) throws IOException, InterruptedException {
+		builder.systemProperties(properties);
+		Recording recording = (classDataSharing == null) ? null : classDataSharing.configure(builder, javadocExe);
+		try {
+			long peakMemory = run(builder, log);
+			if (recording != null) {
+				console.printf("Creating class data sharing archive for javadoc...%n");
+				if (!recording.createArchive()) {
+					console.printf("The archive could not be created.%n");
+				}
+			}
+			return peakMemory;
+		} finally {
+			if (recording != null) {
+				recording.close();
+			}
+		}
+	}
+
+	private long run(JavadocCommandBuilder builder, Path log) throws IOException, InterruptedException {
+		List<String> command = builder.build(javadocExe);
+
+		if (verbose) {
+			console.printf("Starting doclet: %s%n", command);
+		} else if (log == null) {
+			console.printf("Starting doclet...%n");
+		}
+
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+
+		/*
+		 * The output is copied by this program instead of being redirected,
+		 * so it can be checked for out of memory errors.
+		 */
+		OutputStream out = (log == null) ? System.out : Files.newOutputStream(log);
+		Process process = processBuilder.start();
+		OutputPump pump = new OutputPump(process.getInputStream(), out);
+		pump.start();
+
+		int exitValue;
+		long peakMemory = 0;
+		try {
+			/*
+			 * The peak memory usage can only be read while the process is
+			 * running.
+			 */
+			Path status = Paths.get("/proc", Long.toString(process.pid()), "status");
+			boolean canReadStatus = Files.isReadable(status);
+			while (!process.waitFor(MEMORY_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+				if (canReadStatus) {
+					peakMemory = Math.max(peakMemory, readPeakMemory(status));
+				}
+			}
+			exitValue = process.exitValue();
+			pump.join();
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+			throw e;
+		} finally {
+			if (log != null) {
+				out.close();
+			} else {
+				out.flush();
+			}
+		}
+
+		if (exitValue != 0) {
+			if (pump.outOfMemory) {
+				throw new OutOfMemoryException("javadoc process ran out of memory.");
+			}
+			throw new IOException("javadoc process failed with exit code " + exitValue + ".");
+		}
+
+		return peakMemory;
+	}
+
+	/**
+	 * Reads a process's peak resident set size from its Linux "status" file.
+	 * @param status the status file
+	 * @return the peak memory usage in bytes or 0 if it could not be read (for
+	 * example, if the process has just exited)
+	 */
+	private static long readPeakMemory(Path status) {
+		try (BufferedReader reader = Files.newBufferedReader(status, StandardCharsets.ISO_8859_1)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("VmHWM:")) {
+					String kb = line.substring("VmHWM:".length()).replace("kB", "").trim();
+					return Long.parseLong(kb) * 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException ignore) {
+			//process exited
+		}
+		return 0;
+	}
+
+	/**
+	 * Copies the output of the javadoc process, watching for out of memory
+	 * errors.
+	 */
+	private static class OutputPump extends Thread {
+		private final InputStream in;
+		private final OutputStream out;
+		private volatile boolean outOfMemory;
+
+		public OutputPump(InputStream in, OutputStream out) {
+			this.in = in;
+			this.out = out;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			byte buffer[] = new byte[8192];
+
+			/*
+			 * Holds the end of the previous chunk, in case the message is
+			 * split between two chunks.
+			 */
+			String previous = "";
+
+			try {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					out.write(buffer, 0, read);
+					out.flush();
+
+					String text = previous + new String(buffer, 0, read, StandardCharsets.ISO_8859_1);
+					if (text.contains(OUT_OF_MEMORY)) {
+						outOfMemory = true;
+					}
+					previous = text.substring(Math.max(0, text.length() - OUT_OF_MEMORY.length() + 1));
+				}
+			} catch (IOException ignore) {
+				//process was killed
+			}
+		}
+	}
+
+	/**
+	 * Thrown when a javadoc process runs out of memory.
+	 * @author Michael Angstadt
+	 */
+	@SuppressWarnings("serial")
+	public static class OutOfMemoryException extends IOException {
+		public OutOfMemoryException(String message) {
+			super(message);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package oakbot.doclet.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.tools.DocumentationTool;
+import javax.tools.DocumentationTool.DocumentationTask;
+import javax.tools.JavaFileManager;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import oakbot.doclet.ConfigProperties;
+
+/**
+ * Runs javadoc inside of the current JVM using the JDK's
+ * {@link DocumentationTool}. This avoids the cost of starting a second JVM.
+ * When multiple libraries are generated, the classes that were loaded and the
+ * code that was JIT-compiled during the first run are reused by the runs that
+ * follow.
+ * @author Michael Angstadt
+ */
+public class InProcessJavadocRunner implements JavadocRunner {
+	private final DocumentationTool tool;
+	private final Console console;
+	private final boolean verbose;
+
+	/**
+	 * @param tool the JDK's documentation tool
+	 * @param console the console to print status messages to
+	 * @param verbose true to print the javadoc options, false not to
+	 * @see #getSystemDocumentationTool
+	 */
+	public InProcessJavadocRunner(DocumentationTool tool, Console console, boolean verbose) {
+		this.tool = tool;
+		this.console = console;
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Gets the documentation tool of the JDK that the program is running in.
+	 * @return the documentation tool or null if the program is not running in
+	 * a JDK
+	 */
+	public static DocumentationTool getSystemDocumentationTool() {
+		return ToolProvider.getSystemDocumentationTool();
+	}
+
+	@Override
+	public void run(JavadocCommandBuilder builder, ConfigProperties properties) throws IOException {
+		Class<?> docletClass;
+		try {
+			docletClass = Class.forName(builder.getDoclet());
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Doclet class not found: " + builder.getDoclet(), e);
+		}
+
+		List<String> options = builder.buildOptions();
+		if (verbose) {
+			console.printf("Starting doclet (in-process): %s%n", options);
+		} else {
+			console.printf("Starting doclet...%n");
+		}
+
+		ConfigProperties.setCurrent(properties);
+		try (JavaFileManager fileManager = createFileManager(builder)) {
+			DocumentationTask task = tool.getTask(null, fileManager, null, docletClass, options, null);
+			if (!task.call()) {
+				throw new IOException("javadoc failed.");
+			}
+		} finally {
+			ConfigProperties.setCurrent(null);
+		}
+	}
+
+	@Override
+	public boolean canReadSourceArchives() {
+		return true;
+	}
+
+	/**
+	 * Creates the file manager that javadoc will use to find the source code
+	 * and its dependencies.
+	 * @param builder the javadoc arguments
+	 * @return the file manager
+	 * @throws IOException if there's a problem opening the source code archive
+	 */
+	private JavaFileManager createFileManager(JavadocCommandBuilder builder) throws IOException {
+		StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+
+		/*
+		 * Do not let javadoc fall back to the classpath of this JVM.
+		 */
+		fileManager.setLocation(StandardLocation.CLASS_PATH, toFiles(builder.getSourceDependenciesClasspath()));
+
+		String source = builder.getSource();
+		if (source != null && Files.isRegularFile(Paths.get(source))) {
+			return new ZipSourceFileManager(fileManager, Paths.get(source), StandardCharsets.UTF_8);
+		}
+
+		fileManager.setLocation(StandardLocation.SOURCE_PATH, toFiles(source));
+		return fileManager;
+	}
+
+	/**
+	 * Converts a path string into a list of files.
+	 * @param path the path string (e.g. a classpath) or null
+	 * @return the files
+	 */
+	private static List<File> toFiles(String path) {
+		if (path == null) {
+			return Collections.emptyList();
+		}
+
+		String separator = System.getProperty("path.separator");
+		return Arrays.stream(path.split(Pattern.quote(separator))).map(File::new).collect(Collectors.toList());
+	}
+}
@@ -10,10 +10,11 @@ import java.util.List;
  */
 public class InputParameters {
 	private final String name, version, javadocUrl, javadocUrlPattern, website;
-	private final List<String> excludePackages;
-	private final boolean prettyPrint;
+	private final List<String> excludePackages, packageGroups;
+	private final boolean prettyPrint, dictionary, splitDescriptions, reproducible, packageShards, chatSummaries;
+	private final int blockSize;
 	private final MavenLibrary mavenLibrary;
-	private final Path source, output;
+	private final Path source, output, accessProfile;
 
 	private InputParameters(Builder builder) {
 		name = builder.name;
@@ -23,9 +24,17 @@ public class InputParameters {
 		website = builder.website;
 		excludePackages = builder.excludePackages;
 		prettyPrint = builder.prettyPrint;
+		blockSize = builder.blockSize;
+		dictionary = builder.dictionary;
+		splitDescriptions = builder.splitDescriptions;
+		reproducible = builder.reproducible;
+		packageShards = builder.packageShards || !builder.packageGroups.isEmpty();
+		packageGroups = builder.packageGroups;
 		mavenLibrary = builder.mavenLibrary;
 		source = builder.source;
 		output = builder.output;
+		accessProfile = builder.accessProfile;
+		chatSummaries = builder.chatSummaries;
 	}
 
 	/**
@@ -86,6 +95,80 @@ public class InputParameters {
 		return prettyPrint;
 	}
 
+	/**
+	 * Gets the size of the blocks to group the class XML files into.
+	 * @return the block size in bytes or 0 to save each class as its own ZIP
+	 * entry
+	 */
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	/**
+	 * Determines whether the class XML files should be compressed with a
+	 * preset dictionary.
+	 * @return true to use a preset dictionary, false not to
+	 */
+	public boolean isDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Determines whether the descriptions of each class should be saved
+	 * separately from its signatures.
+	 * @return true to split the descriptions, false not to
+	 */
+	public boolean isSplitDescriptions() {
+		return splitDescriptions;
+	}
+
+	/**
+	 * Determines whether the ZIP file should be identical every time it is
+	 * generated from the same source code.
+	 * @return true to create a reproducible ZIP file, false not to
+	 */
+	public boolean isReproducible() {
+		return reproducible;
+	}
+
+	/**
+	 * Determines whether the classes should be split into one ZIP file per
+	 * package group, plus a root ZIP file that maps each package to its ZIP
+	 * file.
+	 * @return true to split the classes by package, false not to
+	 */
+	public boolean isPackageShards() {
+		return packageShards;
+	}
+
+	/**
+	 * Gets the package groups to split the classes into. Packages that do not
+	 * belong to a group are grouped by their top-level package.
+	 * @return the package groups (empty to group every package by its
+	 * top-level package)
+	 */
+	public List<String> getPackageGroups() {
+		return packageGroups;
+	}
+
+	/**
+	 * Gets the file that records how often each class is accessed, so the
+	 * classes that are accessed the most can be saved first.
+	 * @return the path to the file or null if not specified
+	 */
+	public Path getAccessProfile() {
+		return accessProfile;
+	}
+
+	/**
+	 * Gets whether to save a ready-to-post SO Chat summary of each class,
+	 * constructor, and method.
+	 * @return true to save chat summaries, false not to
+	 */
+	public boolean isChatSummaries() {
+		return chatSummaries;
+	}
+
 	/**
 	 * Gets the Maven information on the library.
 	 * @return the Maven information or null if source code was specified
@@ -118,10 +201,11 @@ public class InputParameters {
 	 */
 	public static class Builder {
 		private String name, version, javadocUrl, javadocUrlPattern, website;
-		private List<String> excludePackages = Collections.emptyList();
-		private boolean prettyPrint;
+		private List<String> excludePackages = Collections.emptyList(), packageGroups = Collections.emptyList();
+		private boolean prettyPrint, dictionary, splitDescriptions, reproducible, packageShards, chatSummaries;
+		private int blockSize;
 		private MavenLibrary mavenLibrary;
-		private Path source, output;
+		private Path source, output, accessProfile;
 
 		public Builder name(String name) {
 			this.name = name;
@@ -158,6 +242,36 @@ public class InputParameters {
 			return this;
 		}
 
+		public Builder blockSize(int blockSize) {
+			this.blockSize = blockSize;
+			return this;
+		}
+
+		public Builder dictionary(boolean dictionary) {
+			this.dictionary = dictionary;
+			return this;
+		}
+
+		public Builder splitDescriptions(boolean splitDescriptions) {
+			this.splitDescriptions = splitDescriptions;
+			return this;
+		}
+
+		public Builder reproducible(boolean reproducible) {
+			this.reproducible = reproducible;
+			return this;
+		}
+
+		public Builder packageShards(boolean packageShards) {
+			this.packageShards = packageShards;
+			return this;
+		}
+
+		public Builder packageGroups(List<String> packageGroups) {
+			this.packageGroups = packageGroups;
+			return this;
+		}
+
 		public Builder mavenLibrary(MavenLibrary mavenLibrary) {
 			this.mavenLibrary = mavenLibrary;
 			return this;
@@ -173,6 +287,16 @@ public class InputParameters {
 			return this;
 		}
 
+		public Builder accessProfile(Path accessProfile) {
+			this.accessProfile = accessProfile;
+			return this;
+		}
+
+		public Builder chatSummaries(boolean chatSummaries) {
+			this.chatSummaries = chatSummaries;
+			return this;
+		}
+
 		public InputParameters build() {
 			return new InputParameters(this);
 		}
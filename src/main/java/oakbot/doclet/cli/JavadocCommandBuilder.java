@@ -1,22 +1,22 @@
 package oakbot.doclet.cli;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 /**
- * Builds a javadoc command.
+ * Builds the arguments for a javadoc run. The arguments can either be turned
+ * into a command for a forked javadoc process (see {@link #build}) or into the
+ * options of an in-process {@link javax.tools.DocumentationTool} task (see
+ * {@link #buildOptions}).
  * @author Michael Angstadt
  */
 public class JavadocCommandBuilder {
-	private final List<String> command = new ArrayList<>();
-
-	/**
-	 * @param javadocExe the path to the javadoc executable
-	 */
-	public JavadocCommandBuilder(String javadocExe) {
-		command.add(javadocExe);
-	}
+	private final List<String> options = new ArrayList<>();
+	private final List<String> jvmOptions = new ArrayList<>();
+	private String doclet, docletClasspath, source, sourceDependenciesClasspath;
+	private boolean docletOnJvmClasspath;
 
 	/**
 	 * Sets the fully-qualified name of the doclet class.
@@ -24,25 +24,42 @@ public class JavadocCommandBuilder {
 	 * @return this
 	 */
 	public JavadocCommandBuilder doclet(String className) {
-		return param("doclet", className);
+		doclet = className;
+		return this;
 	}
 
 	/**
-	 * Sets the doclet's classpath.
+	 * Sets the doclet's classpath. This is only used when javadoc is forked.
 	 * @param classpath the classpath
 	 * @return this
 	 */
 	public JavadocCommandBuilder docletClasspath(String classpath) {
-		return param("docletpath", classpath);
+		docletClasspath = classpath;
+		return this;
+	}
+
+	/**
+	 * Loads the doclet from the JVM's classpath instead of from javadoc's
+	 * doclet path. This lets the doclet's classes be stored in a class data
+	 * sharing archive. This is only used when javadoc is forked.
+	 * @return this
+	 */
+	public JavadocCommandBuilder docletOnJvmClasspath() {
+		docletOnJvmClasspath = true;
+		return this;
 	}
 
 	/**
 	 * Sets the path to the directory containing the source code to analyze.
+	 * If the runner supports it (see
+	 * {@link JavadocRunner#canReadSourceArchives}), this can also be the path
+	 * to a ZIP or JAR file that contains the source code.
 	 * @param path the path
 	 * @return this
 	 */
 	public JavadocCommandBuilder source(String path) {
-		return param("sourcepath", path);
+		source = path;
+		return this;
 	}
 
 	/**
@@ -60,7 +77,8 @@ public class JavadocCommandBuilder {
 	 * @return this
 	 */
 	public JavadocCommandBuilder sourceDependenciesClasspath(String classpath) {
-		return param("classpath", classpath);
+		sourceDependenciesClasspath = classpath;
+		return this;
 	}
 
 	/**
@@ -75,6 +93,17 @@ public class JavadocCommandBuilder {
 		return this;
 	}
 
+	/**
+	 * Defines individual packages the doclet should analyze. Unlike
+	 * {@link #includePackages}, their sub-packages are not analyzed.
+	 * @param packages the packages to analyze
+	 * @return this
+	 */
+	public JavadocCommandBuilder packages(List<String> packages) {
+		options.addAll(packages);
+		return this;
+	}
+
 	/**
 	 * Defines which top-level packages the doclet should ignore.
 	 * @param subpackages the subpackages to ignore
@@ -88,36 +117,166 @@ public class JavadocCommandBuilder {
 	}
 
 	/**
-	 * Sets the system properties to pass to the doclet.
+	 * Sets the system properties to pass to the doclet. This is only used
+	 * when javadoc is forked.
 	 * @param it the system properties
 	 * @return this
 	 */
 	public JavadocCommandBuilder systemProperties(Iterable<Map.Entry<String, String>> it) {
 		for (Map.Entry<String, String> entry : it) {
-			command.add("-J-D" + entry.getKey() + "=" + entry.getValue());
+			jvmOptions.add("-D" + entry.getKey() + "=" + entry.getValue());
 		}
 		return this;
 	}
 
 	/**
-	 * Sets the max heap size of the doclet.
+	 * Sets the max heap size of the doclet. This is only used when javadoc is
+	 * forked.
 	 * @param mb the max heap size in MB
 	 * @return this
 	 */
 	public JavadocCommandBuilder maxHeapSize(int mb) {
-		command.add("-J-Xmx" + mb + "m");
+		jvmOptions.add("-Xmx" + mb + "m");
 		return this;
 	}
 
 	/**
-	 * Builds the command and its arguments (for use with
-	 * {@link java.lang.ProcessBuilder}).
+	 * Sets the garbage collector of the doclet's JVM. This is only used when
+	 * javadoc is forked.
+	 * @param gc the garbage collector
+	 * @return this
+	 */
+	public JavadocCommandBuilder garbageCollector(GarbageCollector gc) {
+		jvmOptions.add(gc.option);
+		return this;
+	}
+
+	/**
+	 * Sets the number of threads the garbage collector of the doclet's JVM
+	 * uses. This is only used when javadoc is forked.
+	 * @param threads the number of threads
+	 * @return this
+	 */
+	public JavadocCommandBuilder gcThreads(int threads) {
+		jvmOptions.add("-XX:ParallelGCThreads=" + threads);
+		return this;
+	}
+
+	/**
+	 * Makes the doclet's JVM exit as soon as it runs out of memory, instead
+	 * of letting javadoc try to recover. This is only used when javadoc is
+	 * forked.
+	 * @return this
+	 */
+	public JavadocCommandBuilder exitOnOutOfMemoryError() {
+		jvmOptions.add("-XX:+ExitOnOutOfMemoryError");
+		return this;
+	}
+
+	/**
+	 * Makes the doclet's JVM use a class data sharing archive, which contains
+	 * classes that have already been parsed and verified. This is only used
+	 * when javadoc is forked.
+	 * @param archive the archive file
+	 * @return this
+	 */
+	public JavadocCommandBuilder sharedArchiveFile(Path archive) {
+		jvmOptions.add("-XX:SharedArchiveFile=" + archive);
+		return this;
+	}
+
+	/**
+	 * Makes the doclet's JVM save the names of the classes it loads, so they
+	 * can be used to create a class data sharing archive. This is only used
+	 * when javadoc is forked.
+	 * @param classList the file to save the class names to
+	 * @return this
+	 */
+	public JavadocCommandBuilder dumpLoadedClassList(Path classList) {
+		jvmOptions.add("-XX:DumpLoadedClassList=" + classList);
+		return this;
+	}
+
+	/**
+	 * Gets the fully-qualified name of the doclet class.
+	 * @return the doclet class name or null if not set
+	 */
+	public String getDoclet() {
+		return doclet;
+	}
+
+	/**
+	 * Gets the doclet's classpath.
+	 * @return the classpath or null if not set
+	 */
+	public String getDocletClasspath() {
+		return docletClasspath;
+	}
+
+	/**
+	 * Gets the path to the directory containing the source code to analyze.
+	 * @return the path or null if not set
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the classpath of the source code's dependencies.
+	 * @return the classpath or null if not set
+	 */
+	public String getSourceDependenciesClasspath() {
+		return sourceDependenciesClasspath;
+	}
+
+	/**
+	 * Builds the command and its arguments for a forked javadoc process (for
+	 * use with {@link java.lang.ProcessBuilder}).
+	 * @param javadocExe the path to the javadoc executable
 	 * @return the command and its arguments
 	 */
-	public List<String> build() {
+	public List<String> build(String javadocExe) {
+		List<String> command = new ArrayList<>();
+		command.add(javadocExe);
+		for (String jvmOption : jvmOptions) {
+			command.add("-J" + jvmOption);
+		}
+		if (docletClasspath != null && docletOnJvmClasspath) {
+			command.add("-J-cp");
+			command.add("-J" + docletClasspath);
+		}
+		if (doclet != null) {
+			command.add("-doclet");
+			command.add(doclet);
+		}
+		if (docletClasspath != null && !docletOnJvmClasspath) {
+			command.add("-docletpath");
+			command.add(docletClasspath);
+		}
+		if (source != null) {
+			command.add("-sourcepath");
+			command.add(source);
+		}
+		if (sourceDependenciesClasspath != null) {
+			command.add("-classpath");
+			command.add(sourceDependenciesClasspath);
+		}
+		command.addAll(options);
 		return command;
 	}
 
+	/**
+	 * Builds the options for an in-process javadoc task. The doclet, the
+	 * doclet classpath, and any JVM options are not included, since the
+	 * doclet is passed to the task directly and runs inside the current JVM.
+	 * The source path and classpath are not included either, since they must
+	 * be set on the task's file manager.
+	 * @return the options
+	 */
+	public List<String> buildOptions() {
+		return new ArrayList<>(options);
+	}
+
 	/**
 	 * Adds a parameter to the command.
 	 * @param name the parameter name
@@ -125,8 +284,22 @@ public class JavadocCommandBuilder {
 	 * @return this
 	 */
 	private JavadocCommandBuilder param(String name, String value) {
-		command.add("-" + name);
-		command.add(value);
+		options.add("-" + name);
+		options.add(value);
 		return this;
 	}
+
+	/**
+	 * The garbage collectors that a forked javadoc process can use.
+	 * @author Michael Angstadt
+	 */
+	public enum GarbageCollector {
+		SERIAL("-XX:+UseSerialGC"), PARALLEL("-XX:+UseParallelGC"), G1("-XX:+UseG1GC");
+
+		private final String option;
+
+		private GarbageCollector(String option) {
+			this.option = option;
+		}
+	}
 }
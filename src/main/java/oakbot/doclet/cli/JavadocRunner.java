@@ -0,0 +1,32 @@
+package oakbot.doclet.cli;
+
+import java.io.IOException;
+
+import oakbot.doclet.ConfigProperties;
+
+/**
+ * Runs the javadoc tool with the OakBot doclet.
+ * @author Michael Angstadt
+ */
+public interface JavadocRunner {
+	/**
+	 * Runs javadoc.
+	 * @param builder the javadoc arguments
+	 * @param properties the doclet's configuration
+	 * @throws IOException if javadoc could not be started or if it reported a
+	 * failure
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 * for javadoc to finish
+	 */
+	void run(JavadocCommandBuilder builder, ConfigProperties properties) throws IOException, InterruptedException;
+
+	/**
+	 * Determines if this runner can read source code straight out of a ZIP or
+	 * JAR file (see {@link JavadocCommandBuilder#source}).
+	 * @return true if it can, false if the source code must be extracted to a
+	 * directory first
+	 */
+	default boolean canReadSourceArchives() {
+		return false;
+	}
+}
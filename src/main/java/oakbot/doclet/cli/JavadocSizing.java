@@ -0,0 +1,195 @@
+package oakbot.doclet.cli;
+
+import oakbot.doclet.cli.JavadocCommandBuilder.GarbageCollector;
+import oakbot.util.JunkDrawer;
+
+/**
+ * Decides how much memory a forked javadoc process gets and which garbage
+ * collector it uses.
+ * <p>
+ * The heap size is estimated from the number and the total size of the
+ * source files that javadoc will process. It is capped so that all of the
+ * javadoc processes that run at the same time fit into the physical memory
+ * that is available. Small heaps, and processes that only get one processor,
+ * use the serial collector. Everything else uses the parallel collector, with
+ * the processors divided evenly between the processes.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class JavadocSizing {
+	/**
+	 * The heap size that a typical library needs. This is used to decide how
+	 * many processes can run at once before the libraries have been measured.
+	 */
+	public static final int TYPICAL_HEAP_MB = 1024;
+
+	/**
+	 * How much memory each javadoc process uses in addition to its heap.
+	 */
+	public static final int OVERHEAD_MB = 256;
+
+	/**
+	 * The smallest heap a javadoc process is given.
+	 */
+	static final int MIN_HEAP_MB = 256;
+
+	/**
+	 * The largest heap a javadoc process is given. Beyond this size, the JVM
+	 * can no longer use compressed object pointers.
+	 */
+	static final int MAX_HEAP_MB = 31 * 1024;
+
+	/**
+	 * The heap that javadoc needs no matter how small the library is.
+	 */
+	private static final int BASE_HEAP_MB = 128;
+
+	/**
+	 * How much heap javadoc needs for each byte of source code (the syntax
+	 * trees, comments, and the doclet's XML documents).
+	 */
+	private static final int HEAP_PER_SOURCE_BYTE = 16;
+
+	/**
+	 * How much heap javadoc needs for each source file, no matter how big it
+	 * is (the file's class symbols and its entry in the doclet's ZIP file).
+	 */
+	private static final int HEAP_PER_SOURCE_FILE = 32 * 1024;
+
+	/**
+	 * Heap sizes are rounded up to a multiple of this number of megabytes.
+	 */
+	private static final int HEAP_STEP_MB = 64;
+
+	/**
+	 * Heaps up to this size are collected by the serial collector, since
+	 * starting the parallel collector's threads is not worth it.
+	 */
+	private static final int SERIAL_GC_MAX_HEAP_MB = 512;
+
+	private final int heapMb, processors, gcThreads;
+	private final long availableMemoryMb;
+	private final GarbageCollector gc;
+
+	/**
+	 * Sizes a javadoc process, based on the local machine's available memory
+	 * and processors.
+	 * @param files the number of source files the process will analyze
+	 * @param bytes the total size of the source files
+	 * @param processes the number of javadoc processes that will run at the
+	 * same time
+	 * @return the sizing
+	 */
+	public static JavadocSizing estimate(long files, long bytes, int processes) {
+		long availableMemoryMb = JunkDrawer.availablePhysicalMemory() / 1024 / 1024;
+		int processors = Runtime.getRuntime().availableProcessors();
+		return estimate(files, bytes, processes, availableMemoryMb, processors);
+	}
+
+	/**
+	 * Sizes a javadoc process.
+	 * @param files the number of source files the process will analyze
+	 * @param bytes the total size of the source files
+	 * @param processes the number of javadoc processes that will run at the
+	 * same time
+	 * @param availableMemoryMb the amount of physical memory that is
+	 * available or 0 if unknown
+	 * @param processors the number of processors
+	 * @return the sizing
+	 */
+	static JavadocSizing estimate(long files, long bytes, int processes, long availableMemoryMb, int processors) {
+		long estimateMb = BASE_HEAP_MB + (bytes * HEAP_PER_SOURCE_BYTE + files * HEAP_PER_SOURCE_FILE) / 1024 / 1024;
+		int heapMb = (int) Math.min(roundUp(Math.max(estimateMb, MIN_HEAP_MB)), maxHeap(availableMemoryMb, processes));
+		return new JavadocSizing(heapMb, processes, availableMemoryMb, processors);
+	}
+
+	private JavadocSizing(int heapMb, int processes, long availableMemoryMb, int processors) {
+		this.heapMb = heapMb;
+		this.availableMemoryMb = availableMemoryMb;
+		this.processors = processors;
+		gcThreads = Math.max(1, processors / processes);
+		gc = (heapMb <= SERIAL_GC_MAX_HEAP_MB || gcThreads == 1) ? GarbageCollector.SERIAL : GarbageCollector.PARALLEL;
+	}
+
+	/**
+	 * Creates a sizing with twice the heap, for retrying a process that ran
+	 * out of memory.
+	 * @param processes the number of javadoc processes that will run at the
+	 * same time as the retried process
+	 * @return the new sizing or null if the heap cannot be made any larger
+	 * without exceeding the available memory
+	 */
+	public JavadocSizing larger(int processes) {
+		int heapMb = Math.min(this.heapMb * 2, maxHeap(availableMemoryMb, processes));
+		if (heapMb <= this.heapMb) {
+			return null;
+		}
+
+		return new JavadocSizing(heapMb, processes, availableMemoryMb, processors);
+	}
+
+	/**
+	 * Applies the sizing to a javadoc command. The process is also told to
+	 * exit as soon as it runs out of memory.
+	 * @param builder the javadoc command
+	 */
+	public void apply(JavadocCommandBuilder builder) {
+		builder.maxHeapSize(heapMb).garbageCollector(gc).exitOnOutOfMemoryError();
+		if (gc == GarbageCollector.PARALLEL) {
+			builder.gcThreads(gcThreads);
+		}
+	}
+
+	/**
+	 * Gets the max heap size.
+	 * @return the heap size in MB
+	 */
+	public int getHeapMb() {
+		return heapMb;
+	}
+
+	/**
+	 * Gets the garbage collector.
+	 * @return the garbage collector
+	 */
+	public GarbageCollector getGarbageCollector() {
+		return gc;
+	}
+
+	/**
+	 * Gets the number of threads the parallel garbage collector uses.
+	 * @return the number of threads
+	 */
+	public int getGcThreads() {
+		return gcThreads;
+	}
+
+	@Override
+	public String toString() {
+		if (gc == GarbageCollector.PARALLEL) {
+			return heapMb + "MB heap, parallel GC with " + gcThreads + " threads";
+		}
+		return heapMb + "MB heap, serial GC";
+	}
+
+	/**
+	 * Determines the largest heap each process can have.
+	 * @param availableMemoryMb the amount of physical memory that is
+	 * available or 0 if unknown
+	 * @param processes the number of processes that will run at the same time
+	 * @return the max heap size in MB
+	 */
+	private static int maxHeap(long availableMemoryMb, int processes) {
+		if (availableMemoryMb <= 0) {
+			return MAX_HEAP_MB;
+		}
+
+		long perProcess = availableMemoryMb / processes - OVERHEAD_MB;
+		long rounded = perProcess / HEAP_STEP_MB * HEAP_STEP_MB;
+		return (int) Math.min(Math.max(rounded, MIN_HEAP_MB), MAX_HEAP_MB);
+	}
+
+	private static long roundUp(long mb) {
+		return (mb + HEAP_STEP_MB - 1) / HEAP_STEP_MB * HEAP_STEP_MB;
+	}
+}
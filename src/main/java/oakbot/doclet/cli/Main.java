@@ -2,23 +2,62 @@ package oakbot.doclet.cli;
 
 import static oakbot.util.JunkDrawer.WINDOWS_OS;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 
+import javax.tools.DocumentationTool;
+import javax.xml.transform.TransformerException;
+
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+import oakbot.doclet.ArchiveReader;
 import oakbot.doclet.ConfigProperties;
+import oakbot.doclet.OakbotDocTreeDoclet;
 import oakbot.doclet.OakbotDoclet;
-import oakbot.util.Downloader;
+import oakbot.doclet.ShardedArchiveReader;
+import oakbot.doclet.cli.ForkedJavadocRunner.OutOfMemoryException;
+import oakbot.doclet.cli.PackageSharder.Shard;
+import oakbot.doclet.cli.WorkspaceManager.Workspace;
+import oakbot.util.Downloader.Progress;
 import oakbot.util.Files2;
+import oakbot.util.Files2.UnzipStats;
+import oakbot.util.JunkDrawer;
+import oakbot.util.XmlUtils;
+import oakbot.util.ZipMerger;
 
 /**
  * A command-line interface for generating a Javadoc ZIP file for OakBot.
@@ -26,7 +65,18 @@ import oakbot.util.Files2;
  */
 public class Main {
 	private static final Console console = new Console();
-	private static Path tempDir;
+
+	/**
+	 * How much memory to leave for this program and the rest of the system
+	 * when deciding how many javadoc processes to run at once.
+	 */
+	private static final int RESERVED_MEMORY_MB = 1024;
+
+	/**
+	 * The hash algorithm that is used to identify source code archives whose
+	 * extracted files can be reused.
+	 */
+	private static final String TREE_KEY_ALGORITHM = "SHA-1";
 
 	public static void main(String args[]) throws Exception {
 		Arguments arguments = new Arguments(args);
@@ -35,156 +85,815 @@ public class Main {
 			return;
 		}
 
-		String javadocExe = getJavadocExe();
-
-		Input input;
-		if (arguments.interactive()) {
-			input = new InteractiveInput(console);
-		} else {
-			input = new ArgumentInput(arguments);
-		}
-
-		InputParameters inputParameters;
+		List<InputParameters> libraries;
 		try {
-			inputParameters = input.read();
+			libraries = readInput(arguments);
 		} catch (IllegalArgumentException e) {
 			System.err.println(e.getMessage());
 			System.exit(1);
 			return;
 		}
 
-		tempDir = Files.createTempDirectory("oakbot.doclet");
+		ClassDataSharing classDataSharing = arguments.noCds() ? null : new ClassDataSharing(arguments.cacheDir().resolve("cds"));
+		JavadocRunner runner = createRunner(arguments, classDataSharing);
+		String doclet = getDoclet(arguments);
+		ArtifactResolver resolver = createResolver(arguments);
+
+		boolean extract = true;
+		if (arguments.noExtract()) {
+			if (runner.canReadSourceArchives()) {
+				extract = false;
+			} else {
+				console.printf("Source code archives have to be extracted when javadoc runs in a separate process.%n");
+			}
+		}
+
+		int shards = getShardCount(arguments, extract);
+		ForkedJavadocRunner shardRunner = (shards > 1) ? createShardRunner(arguments, runner, classDataSharing) : null;
+
+		try (FetchScheduler scheduler = new FetchScheduler(resolver, FetchScheduler.DEFAULT_CONCURRENCY); WorkspaceManager workspaces = createWorkspaceManager(arguments)) {
+			for (InputParameters inputParameters : libraries) {
+				if (libraries.size() > 1) {
+					console.printf("Generating %s %s...%n", inputParameters.getName(), inputParameters.getVersion());
+				}
+				generate(inputParameters, runner, shardRunner, shards, doclet, scheduler, workspaces, !arguments.noCacheSources(), extract);
+			}
+		}
+
+		if (classDataSharing != null) {
+			createProgramArchive(classDataSharing);
+		}
+	}
+
+	/**
+	 * Creates a class data sharing archive for this program's JVM, if this
+	 * JVM is not already using one. The archive is created from the classes
+	 * that have been loaded during this run, so it should be called at the
+	 * end of the run.
+	 * @param classDataSharing the archives
+	 * @throws IOException if there's a problem creating the archive
+	 * @throws InterruptedException if the thread was interrupted while the
+	 * archive was being created
+	 */
+	private static void createProgramArchive(ClassDataSharing classDataSharing) throws IOException, InterruptedException {
+		if (ClassDataSharing.isUsingArchive() || classDataSharing.getProgramArchive() != null) {
+			return;
+		}
+
+		Path archive = classDataSharing.createProgramArchive();
+		if (archive != null) {
+			console.printf("Created a class data sharing archive for this program. To make it start faster, add this argument to the \"java\" command: -XX:SharedArchiveFile=%s%n", archive);
+		}
+	}
+
+	/**
+	 * Reads the libraries to generate ZIP files for.
+	 * @param arguments the command-line arguments
+	 * @return the libraries
+	 * @throws IOException if there's a problem reading the batch file
+	 * @throws IllegalArgumentException if the input is invalid
+	 */
+	static List<InputParameters> readInput(Arguments arguments) throws IOException {
+		if (arguments.interactive()) {
+			return Collections.singletonList(new InteractiveInput(console).read());
+		}
+
+		Path batchFile = arguments.batch();
+		if (batchFile == null) {
+			return Collections.singletonList(new ArgumentInput(arguments).read());
+		}
+
+		/*
+		 * Each line of the batch file contains the command-line arguments of
+		 * one library.
+		 */
+		List<InputParameters> libraries = new ArrayList<>();
+		for (String line : Files.readAllLines(batchFile)) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			Arguments lineArguments = new Arguments(Arguments.split(line));
+			libraries.add(new ArgumentInput(lineArguments).read());
+		}
+		return libraries;
+	}
+
+	/**
+	 * Creates the object that will run javadoc. Javadoc is run inside of this
+	 * JVM, unless the user asked for it to be forked or the program is not
+	 * running in a JDK.
+	 * @param arguments the command-line arguments
+	 * @param classDataSharing the class data sharing archives for forked
+	 * javadoc processes or null not to use them
+	 * @return the javadoc runner
+	 */
+	private static JavadocRunner createRunner(Arguments arguments, ClassDataSharing classDataSharing) {
+		if (!arguments.fork()) {
+			DocumentationTool tool = InProcessJavadocRunner.getSystemDocumentationTool();
+			if (tool != null) {
+				return new InProcessJavadocRunner(tool, console, arguments.verbose());
+			}
+
+			console.printf("The javadoc tool cannot be run inside of this JVM, so it will be run in a separate process.%n");
+		}
+
+		return new ForkedJavadocRunner(getJavadocExe(), console, arguments.verbose()).classDataSharing(classDataSharing);
+	}
+
+	/**
+	 * Determines how many javadoc processes to divide each library between.
+	 * @param arguments the command-line arguments
+	 * @param extract true if source code archives will be extracted, false if
+	 * javadoc will read them directly (only possible with a single in-process
+	 * run)
+	 * @return the number of processes
+	 */
+	private static int getShardCount(Arguments arguments, boolean extract) {
+		Integer shards;
+		try {
+			shards = arguments.shards();
+		} catch (NumberFormatException e) {
+			die("The number of shards must be a number.");
+			return 1;
+		}
+
+		if (shards == null) {
+			return extract ? defaultShardCount() : 1;
+		}
+
+		if (shards > 1 && !extract) {
+			console.printf("Source code archives have to be extracted when javadoc runs in multiple processes, so only one process will be used.%n");
+			return 1;
+		}
+
+		return Math.max(shards, 1);
+	}
+
+	/**
+	 * Determines how many javadoc processes to run at once if the user did
+	 * not specify. One process is run per processor, as long as there is
+	 * enough memory for each process to have a typical heap.
+	 * @return the number of processes
+	 */
+	private static int defaultShardCount() {
+		int processors = Runtime.getRuntime().availableProcessors();
+		long memoryMb = JunkDrawer.totalPhysicalMemory() / 1024 / 1024;
+		if (memoryMb <= 0) {
+			return processors;
+		}
+
+		long byMemory = (memoryMb - RESERVED_MEMORY_MB) / (JavadocSizing.TYPICAL_HEAP_MB + JavadocSizing.OVERHEAD_MB);
+		return (int) Math.max(1, Math.min(processors, byMemory));
+	}
 
+	/**
+	 * Determines how many javadoc processes to divide a library between. Each
+	 * line of a batch file has its own parameters, so this is decided for
+	 * each library. Reproducible libraries are always documented by a single
+	 * process, since the merged output of several processes depends on how
+	 * many there are (e.g. the index is split into one part per process), and
+	 * the default number of processes depends on the machine.
+	 * @param inputParameters the library
+	 * @param shards the number of processes that the libraries are divided
+	 * between (see {@link #getShardCount(Arguments, boolean)})
+	 * @return the number of processes
+	 */
+	static int getShardCount(InputParameters inputParameters, int shards) {
+		if (shards > 1 && inputParameters.getAccessProfile() != null) {
+			console.printf("The classes in an access profile can only be saved in one contiguous warm set by a single javadoc process, so only one process will be used.%n");
+			return 1;
+		}
+
+		if (shards > 1 && inputParameters.isReproducible()) {
+			console.printf("Reproducible output is created by a single javadoc process, so only one process will be used.%n");
+			return 1;
+		}
+
+		return shards;
+	}
+
+	/**
+	 * Creates the runner that runs the javadoc processes of a sharded run.
+	 * @param arguments the command-line arguments
+	 * @param runner the runner that was created for regular runs
+	 * @param classDataSharing the class data sharing archives for forked
+	 * javadoc processes or null not to use them
+	 * @return the runner or null if javadoc cannot be run in separate
+	 * processes
+	 */
+	private static ForkedJavadocRunner createShardRunner(Arguments arguments, JavadocRunner runner, ClassDataSharing classDataSharing) {
+		if (runner instanceof ForkedJavadocRunner) {
+			return (ForkedJavadocRunner) runner;
+		}
+
+		for (String javaHome : new String[] { System.getenv("JAVA_HOME"), System.getProperty("java.home") }) {
+			if (javaHome == null) {
+				continue;
+			}
+
+			Path javadoc = Paths.get(javaHome, "bin", WINDOWS_OS ? "javadoc.exe" : "javadoc");
+			if (Files.exists(javadoc)) {
+				return new ForkedJavadocRunner(javadoc.toString(), console, arguments.verbose()).classDataSharing(classDataSharing);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates the object that finds the files of Maven libraries.
+	 * @param arguments the command-line arguments
+	 * @return the resolver
+	 * @throws IOException if there's a problem creating the cache directory
+	 */
+	private static ArtifactResolver createResolver(Arguments arguments) throws IOException {
+		long cacheSize;
 		try {
+			cacheSize = arguments.cacheSize();
+		} catch (NumberFormatException e) {
+			die("Cache size must be a number of megabytes.");
+			return null;
+		}
+
+		ArtifactCache cache = new ArtifactCache(arguments.cacheDir(), cacheSize);
+		return new ArtifactResolver(cache, ArtifactResolver.defaultLocalRepository(), arguments.repos());
+	}
+
+	/**
+	 * Creates the object that manages the directories that the libraries are
+	 * processed in. Workspaces that were left behind by earlier runs are
+	 * deleted.
+	 * @param arguments the command-line arguments
+	 * @return the workspace manager
+	 * @throws IOException if there's a problem creating the workspace
+	 * directory
+	 */
+	private static WorkspaceManager createWorkspaceManager(Arguments arguments) throws IOException {
+		int keepSources;
+		try {
+			keepSources = arguments.keepSources();
+		} catch (NumberFormatException e) {
+			die("The number of source code trees to keep must be a number.");
+			return null;
+		}
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		WorkspaceManager workspaces = new WorkspaceManager(arguments.cacheDir().resolve("workspaces"), keepSources, threads);
+
+		int stale = workspaces.sweep();
+		if (stale > 0) {
+			console.printf("Deleting %d workspace(s) left behind by earlier runs.%n", stale);
+		}
+
+		return workspaces;
+	}
+
+	/**
+	 * Gets the doclet to run.
+	 * @param arguments the command-line arguments
+	 * @return the fully-qualified class name of the doclet
+	 */
+	private static String getDoclet(Arguments arguments) {
+		if (!arguments.legacyDoclet()) {
+			return OakbotDocTreeDoclet.class.getName();
+		}
+
+		try {
+			Class.forName("com.sun.javadoc.RootDoc");
+		} catch (ClassNotFoundException e) {
+			die("The legacy doclet API was removed in Java 13. Run this program with Java 11 or 12 to use the legacy doclet.");
+		}
+		return OakbotDoclet.class.getName();
+	}
+
+	/**
+	 * Generates the ZIP file of a library.
+	 * @param inputParameters the library
+	 * @param runner runs javadoc
+	 * @param shardRunner runs javadoc when the library is divided between
+	 * multiple processes (null to always use a single run)
+	 * @param shards the number of processes to divide the library between
+	 * @param doclet the fully-qualified class name of the doclet
+	 * @param scheduler fetches the files of Maven libraries
+	 * @param workspaces manages the directories the library is processed in
+	 * @param cacheSources true to add downloaded source code JARs to the
+	 * artifact cache, false to only extract them
+	 * @param extract true to extract source code archives, false to have
+	 * javadoc read the source code straight out of the archives (the runner
+	 * must support this)
+	 * @throws Exception if there's a problem generating the ZIP file
+	 */
+	private static void generate(InputParameters inputParameters, JavadocRunner runner, ForkedJavadocRunner shardRunner, int shards, String doclet, FetchScheduler scheduler, WorkspaceManager workspaces, boolean cacheSources, boolean extract) throws Exception {
+		/*
+		 * The workspace is deleted in the background after javadoc has saved
+		 * the ZIP file.
+		 */
+		try (Workspace workspace = workspaces.createWorkspace()) {
 			Path source = inputParameters.getSource();
+			List<String> excludePackages = inputParameters.getExcludePackages();
+			Path sourcePath;
 			List<Path> dependencyJars;
 			if (source == null) {
 				MavenLibrary maven = inputParameters.getMavenLibrary();
-				source = downloadSourceJar(maven);
-				Path pom = downloadPom(maven);
-				dependencyJars = downloadDependencies(pom);
+				Path files[] = extract ? downloadAndExtract(maven, scheduler, cacheSources, excludePackages, workspaces, workspace) : download(maven, scheduler);
+				sourcePath = files[0];
+				Path pom = files[1];
+				dependencyJars = resolveDependencies(pom, scheduler);
 			} else {
+				sourcePath = (Files.isDirectory(source) || !extract) ? source : unzipSource(source, excludePackages, workspaces, workspace);
 				dependencyJars = Collections.emptyList();
 			}
 
-			Path sourceDir = Files.isDirectory(source) ? source : unzipSource(source);
+			String classpath = dependencyJars.isEmpty() ? null : buildClasspath(dependencyJars);
+			Supplier<JavadocCommandBuilder> builders = () -> new JavadocCommandBuilder() //@formatter:off
+			.doclet(doclet)
+			.docletClasspath(getClasspath())
+			.source(sourcePath.toString())
+			.sourceEncoding("UTF-8")
+			.sourceDependenciesClasspath(classpath)
+			.excludePackages(excludePackages); //@formatter:on
+
+			List<String> subpackages = Files.isDirectory(sourcePath) ? getSubpackages(sourcePath) : ZipSourceFileManager.getSubpackages(sourcePath);
+
+			/*
+			 * Forked processes are sized according to the source code. An
+			 * in-process run uses this JVM's heap.
+			 */
+			boolean forked = runner instanceof ForkedJavadocRunner;
+			boolean sharded = shardRunner != null && getShardCount(inputParameters, shards) > 1;
+			if (Files.isDirectory(sourcePath) && (forked || sharded)) {
+				PackageSharder sharder = new PackageSharder(sourcePath, excludePackages);
+				if (sharded) {
+					List<Shard> plan = sharder.split(subpackages, shards);
+					if (plan.size() > 1) {
+						runShards(plan, sharder.getPackages(subpackages), plan.size(), true, shardRunner, builders, inputParameters, workspace.getDirectory());
+						return;
+					}
+				}
 
-			ConfigProperties systemProperties = new ConfigProperties();
-			systemProperties.setOutputPath(inputParameters.getOutput());
-			systemProperties.setPrettyPrint(inputParameters.isPrettyPrint());
-			systemProperties.setLibraryName(inputParameters.getName());
-			systemProperties.setLibraryVersion(inputParameters.getVersion());
-			if (!inputParameters.getJavadocUrl().isEmpty()) {
-				systemProperties.setLibraryBaseUrl(inputParameters.getJavadocUrl());
+				if (forked) {
+					runForked(sharder, subpackages, (ForkedJavadocRunner) runner, builders, inputParameters, workspace.getDirectory());
+					return;
+				}
 			}
-			if (!inputParameters.getJavadocUrlPattern().isEmpty()) {
-				systemProperties.setLibraryJavadocUrlPattern(inputParameters.getJavadocUrlPattern());
+
+			runner.run(builders.get().includePackages(subpackages), createProperties(inputParameters));
+		}
+	}
+
+	/**
+	 * Runs a single javadoc process whose heap is sized according to the
+	 * library's source code. If the process runs out of memory, it is run
+	 * again with a larger heap. If the heap cannot be made any larger, the
+	 * library is divided into two shards that are run one after the other
+	 * instead (unless an access profile is used).
+	 * @param sharder the library's packages
+	 * @param subpackages the library's top-level packages
+	 * @param runner runs javadoc
+	 * @param builders creates the javadoc arguments
+	 * @param inputParameters the library
+	 * @param workDir the directory to save the partial ZIP files to, if the
+	 * library has to be sharded
+	 * @throws IOException if javadoc failed
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 * for javadoc to finish
+	 */
+	private static void runForked(PackageSharder sharder, List<String> subpackages, ForkedJavadocRunner runner, Supplier<JavadocCommandBuilder> builders, InputParameters inputParameters, Path workDir) throws IOException, InterruptedException {
+		JavadocSizing sizing = JavadocSizing.estimate(sharder.getFileCount(), sharder.getTotalSize(), 1);
+		console.printf("Source code: %d files (%d KB). Running javadoc with %s.%n", sharder.getFileCount(), sharder.getTotalSize() / 1024, sizing);
+
+		try {
+			runSized(runner, builders.get().includePackages(subpackages), sizing, createProperties(inputParameters));
+			return;
+		} catch (OutOfMemoryException e) {
+			JavadocSizing larger = sizing.larger(1);
+			if (larger != null) {
+				console.printf("javadoc ran out of memory. Running it again with %s.%n", larger);
+				runSized(runner, builders.get().includePackages(subpackages), larger, createProperties(inputParameters));
+				return;
 			}
-			if (!inputParameters.getWebsite().isEmpty()) {
-				systemProperties.setProjectUrl(inputParameters.getWebsite());
+
+			/*
+			 * Dividing the library would split the warm set of the access
+			 * profile between the parts.
+			 */
+			if (inputParameters.getAccessProfile() != null) {
+				throw e;
 			}
 
-			JavadocCommandBuilder builder = new JavadocCommandBuilder(javadocExe) //@formatter:off
-			.doclet(OakbotDoclet.class.getName())
-			.docletClasspath(getClasspath())
-			.source(sourceDir.toString())
-			.sourceEncoding("UTF-8")
-			.includePackages(getSubpackages(sourceDir))
-			.excludePackages(inputParameters.getExcludePackages())
-			.systemProperties(systemProperties)
-			.maxHeapSize(1024); //@formatter:on
+			List<Shard> plan = sharder.split(subpackages, 2);
+			if (plan.size() < 2) {
+				throw e;
+			}
+
+			console.printf("javadoc ran out of memory and cannot be given a larger heap. Running it again in %d parts.%n", plan.size());
+			runShards(plan, sharder.getPackages(subpackages), 1, false, runner, builders, inputParameters, workDir);
+		}
+	}
+
+	/**
+	 * Runs a javadoc process and prints how much memory it used.
+	 * @param runner runs javadoc
+	 * @param builder the javadoc arguments
+	 * @param sizing the heap size and garbage collector to use
+	 * @param properties the doclet's configuration
+	 * @throws IOException if javadoc failed
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 * for javadoc to finish
+	 */
+	private static void runSized(ForkedJavadocRunner runner, JavadocCommandBuilder builder, JavadocSizing sizing, ConfigProperties properties) throws IOException, InterruptedException {
+		sizing.apply(builder);
+		long peakMemory = runner.run(builder, properties, null);
+		if (peakMemory > 0) {
+			console.printf("Peak memory usage of javadoc: %d MB (max heap size: %d MB).%n", peakMemory / 1024 / 1024, sizing.getHeapMb());
+		}
+	}
+
+	/**
+	 * Creates the doclet's configuration.
+	 * @param inputParameters the library
+	 * @return the configuration
+	 */
+	private static ConfigProperties createProperties(InputParameters inputParameters) {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setOutputPath(inputParameters.getOutput());
+		properties.setPrettyPrint(inputParameters.isPrettyPrint());
+		properties.setBlockSize(inputParameters.getBlockSize());
+		properties.setDictionary(inputParameters.isDictionary());
+		properties.setSplitDescriptions(inputParameters.isSplitDescriptions());
+		properties.setReproducible(inputParameters.isReproducible());
+		properties.setPackageShards(inputParameters.isPackageShards());
+		properties.setPackageGroups(inputParameters.getPackageGroups());
+		if (inputParameters.getAccessProfile() != null) {
+			properties.setAccessProfile(inputParameters.getAccessProfile().toAbsolutePath());
+		}
+		properties.setChatSummaries(inputParameters.isChatSummaries());
+		properties.setLibraryName(inputParameters.getName());
+		properties.setLibraryVersion(inputParameters.getVersion());
+		if (!inputParameters.getJavadocUrl().isEmpty()) {
+			properties.setLibraryBaseUrl(inputParameters.getJavadocUrl());
+		}
+		if (!inputParameters.getJavadocUrlPattern().isEmpty()) {
+			properties.setLibraryJavadocUrlPattern(inputParameters.getJavadocUrlPattern());
+		}
+		if (!inputParameters.getWebsite().isEmpty()) {
+			properties.setProjectUrl(inputParameters.getWebsite());
+		}
+		return properties;
+	}
 
-			if (!dependencyJars.isEmpty()) {
-				builder.sourceDependenciesClasspath(buildClasspath(dependencyJars));
+	/**
+	 * Runs a separate javadoc process for each shard of a library. Each
+	 * process creates a partial ZIP file, and the partial ZIP files are then
+	 * merged into the final ZIP file. Their entries are copied as-is, without
+	 * being compressed again. The "info.xml" file of the first partial ZIP
+	 * file is kept. If the class XML files are grouped into blocks or
+	 * compressed with a preset dictionary, each process names its blocks,
+	 * dictionary, and index after its shard number, so they do not collide.
+	 * <p>
+	 * If the ZIP file is reproducible, the entries of the merged file are
+	 * sorted and the digest in "info.xml" is recalculated from the manifests
+	 * of all the partial ZIP files.
+	 * </p>
+	 * <p>
+	 * If package shards are enabled, each process creates a partial root ZIP
+	 * file and a partial ZIP file for each package group it came across. The
+	 * partial ZIP files of each group are merged into that group's shard, and
+	 * the partial root ZIP files are merged into the root ZIP file.
+	 * </p>
+	 * <p>
+	 * Each process is given a list of all the library's packages, so that
+	 * {@literal @link} tags that point to the classes of another shard are
+	 * still turned into links.
+	 * </p>
+	 * <p>
+	 * Each process's heap is sized according to its shard's source code. The
+	 * shards that run out of memory can be run again, one at a time, with
+	 * larger heaps.
+	 * </p>
+	 * @param shards the shards
+	 * @param packages all of the library's packages
+	 * @param parallelism the number of processes to run at the same time
+	 * @param retry true to run the shards that run out of memory again, false
+	 * not to
+	 * @param runner runs javadoc
+	 * @param builders creates the javadoc arguments that all the shards share
+	 * @param inputParameters the library
+	 * @param workDir the directory to save the partial ZIP files to
+	 * @throws IOException if any of the javadoc processes failed or there was
+	 * a problem merging the ZIP files
+	 * @throws InterruptedException if the thread was interrupted while waiting
+	 * for the processes to finish
+	 */
+	private static void runShards(List<Shard> shards, List<String> packages, int parallelism, boolean retry, ForkedJavadocRunner runner, Supplier<JavadocCommandBuilder> builders, InputParameters inputParameters, Path workDir) throws IOException, InterruptedException {
+		if (parallelism > 1) {
+			console.printf("Starting doclet in %d processes...%n", shards.size());
+		} else {
+			console.printf("Starting doclet in %d consecutive processes...%n", shards.size());
+		}
+
+		Path packageList = workDir.resolve("package-list").toAbsolutePath();
+		Files.write(packageList, packages);
+
+		List<Path> partials = new ArrayList<>();
+		List<Path> logs = new ArrayList<>();
+		List<JavadocSizing> sizings = new ArrayList<>();
+		List<Future<Long>> futures = new ArrayList<>();
+		Map<Integer, OutOfMemoryException> outOfMemory = new TreeMap<>();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		try {
+			for (Shard shard : shards) {
+				int i = partials.size() + 1;
+				Path partial = workDir.resolve("shard" + i + ".zip");
+				Path log = workDir.resolve("shard" + i + ".log");
+				partials.add(partial);
+				logs.add(log);
+
+				JavadocSizing sizing = JavadocSizing.estimate(shard.getFileCount(), shard.getSize(), parallelism);
+				sizings.add(sizing);
+
+				ConfigProperties properties = createProperties(inputParameters);
+				properties.setOutputPath(partial);
+				properties.setPartName(Integer.toString(i));
+				properties.setLibraryPackageList(packageList);
+				properties.setThreads(Math.max(1, Runtime.getRuntime().availableProcessors() / parallelism));
+				JavadocCommandBuilder builder = builders.get().includePackages(shard.getSubpackages()).packages(shard.getPackages());
+				sizing.apply(builder);
+
+				futures.add(executor.submit(() -> runner.run(builder, properties, log)));
 			}
 
-			runJavadoc(builder.build(), arguments.verbose());
+			for (int i = 0; i < futures.size(); i++) {
+				long peakMemory;
+				try {
+					peakMemory = futures.get(i).get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (retry && cause instanceof OutOfMemoryException) {
+						console.printf("Shard %d ran out of memory (%s).%n", i + 1, sizings.get(i));
+						outOfMemory.put(i, (OutOfMemoryException) cause);
+						continue;
+					}
+
+					printShardLog(i, logs.get(i));
+					throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+				}
+				console.printf("Shard %d of %d finished%s.%n", i + 1, futures.size(), peakMemory(peakMemory));
+			}
 		} finally {
-			console.printf("Cleaning up...");
-			Files2.deleteDirectory(tempDir);
-			console.printf("done.%n");
+			executor.shutdownNow();
+		}
+
+		/*
+		 * Run the shards that ran out of memory again. They are run one at a
+		 * time, so each one can use as much memory as possible.
+		 */
+		for (Map.Entry<Integer, OutOfMemoryException> entry : outOfMemory.entrySet()) {
+			int i = entry.getKey();
+			JavadocSizing larger = sizings.get(i).larger(1);
+			if (larger == null) {
+				printShardLog(i, logs.get(i));
+				throw entry.getValue();
+			}
+
+			console.printf("Running shard %d again with %s...%n", i + 1, larger);
+			Shard shard = shards.get(i);
+			ConfigProperties properties = createProperties(inputParameters);
+			properties.setOutputPath(partials.get(i));
+			properties.setPartName(Integer.toString(i + 1));
+			properties.setLibraryPackageList(packageList);
+			JavadocCommandBuilder builder = builders.get().includePackages(shard.getSubpackages()).packages(shard.getPackages());
+			larger.apply(builder);
+
+			long peakMemory;
+			try {
+				peakMemory = runner.run(builder, properties, logs.get(i));
+			} catch (IOException e) {
+				printShardLog(i, logs.get(i));
+				throw e;
+			}
+			console.printf("Shard %d finished%s.%n", i + 1, peakMemory(peakMemory));
+		}
+
+		Path output = createProperties(inputParameters).resolveOutputPath();
+		if (inputParameters.isPackageShards()) {
+			mergePackageShards(partials, output, inputParameters, workDir);
+		} else {
+			mergeArchives(partials, output, inputParameters, workDir);
 		}
 	}
 
-	private static void runJavadoc(List<String> command, boolean verbose) throws IOException, InterruptedException {
-		if (verbose) {
-			console.printf("Starting doclet: %s%n", command);
+	/**
+	 * Merges partial ZIP files into a single ZIP file.
+	 * @param partials the partial ZIP files
+	 * @param output the path to save the merged ZIP file to
+	 * @param inputParameters the library
+	 * @param workDir the directory to create the merged ZIP file in
+	 * @throws IOException if there's a problem merging the ZIP files
+	 */
+	private static void mergeArchives(List<Path> partials, Path output, InputParameters inputParameters, Path workDir) throws IOException {
+		console.printf("Saving to: %s%n", output);
+
+		Path merged = workDir.resolve("merged.zip");
+		if (inputParameters.isReproducible()) {
+			Map<String, byte[]> info = Collections.singletonMap("info.xml", mergedInfoFile(partials, inputParameters.isPrettyPrint()));
+			ZipMerger.merge(merged, partials, info, true);
 		} else {
-			console.printf("Starting doclet...%n");
+			ZipMerger.merge(merged, partials);
+		}
+		Files.move(merged, output, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Merges partial root ZIP files and their shards. Since the processes
+	 * may have come across the same package groups, the partial shards of
+	 * each group are merged, and the package maps of the partial root ZIP
+	 * files are combined. In reproducible mode, the digests of the merged
+	 * shards are recorded in the root ZIP file.
+	 * @param partials the partial root ZIP files
+	 * @param output the path to save the root ZIP file to
+	 * @param inputParameters the library
+	 * @param workDir the directory to create the merged ZIP files in
+	 * @throws IOException if there's a problem merging the ZIP files
+	 */
+	private static void mergePackageShards(List<Path> partials, Path output, InputParameters inputParameters, Path workDir) throws IOException {
+		Map<String, String> packages = new TreeMap<>();
+		for (Path partial : partials) {
+			try (ShardedArchiveReader reader = new ShardedArchiveReader(partial)) {
+				packages.putAll(reader.getPackages());
+			}
+		}
+
+		for (String group : new TreeSet<>(packages.values())) {
+			List<Path> shards = new ArrayList<>();
+			for (Path partial : partials) {
+				Path shard = ShardedArchiveReader.shardPath(partial, group);
+				if (Files.exists(shard)) {
+					shards.add(shard);
+				}
+			}
+
+			mergeArchives(shards, ShardedArchiveReader.shardPath(output, group), inputParameters, workDir);
+		}
+
+		console.printf("Saving to: %s%n", output);
+
+		Map<String, byte[]> replacements = new HashMap<>();
+		replacements.put(ShardedArchiveReader.PACKAGES_PATH, ShardedArchiveReader.formatPackages(packages));
+		if (inputParameters.isReproducible()) {
+			//the digests of the merged shards differ from the digests of the partial shards
+			Map<String, String> digests = new TreeMap<>();
+			for (String group : new TreeSet<>(packages.values())) {
+				try (ArchiveReader reader = new ArchiveReader(ShardedArchiveReader.shardPath(output, group))) {
+					digests.put(group, ArchiveReader.digest(reader.getManifest()));
+				}
+			}
+			replacements.put(ShardedArchiveReader.DIGESTS_PATH, ShardedArchiveReader.formatDigests(digests));
+			replacements.put("info.xml", infoFile(partials.get(0), ShardedArchiveReader.digest(packages, digests), inputParameters.isPrettyPrint()));
 		}
 
-		ProcessBuilder builder = new ProcessBuilder(command);
-		builder.inheritIO();
-		Process process = builder.start();
-		process.waitFor();
+		Path merged = workDir.resolve("merged.zip");
+		ZipMerger.merge(merged, partials, replacements, inputParameters.isReproducible());
+		Files.move(merged, output, StandardCopyOption.REPLACE_EXISTING);
 	}
 
 	/**
-	 * Downloads the dependencies defined in the given POM file.
-	 * @param pom the POM file
-	 * @return the path to the downloaded JARs
-	 * @throws IOException if there's a problem downloading the dependencies
-	 * @throws InterruptedException if the Maven command was interrupted
+	 * Creates the "info.xml" file of a reproducible ZIP file that is being
+	 * merged from partial ZIP files. It is the "info.xml" file of the first
+	 * partial ZIP file, with a digest that covers all of them.
+	 * @param partials the partial ZIP files
+	 * @param prettyPrint true to pretty print the XML, false not to
+	 * @return the "info.xml" file
+	 * @throws IOException if there's a problem reading the partial ZIP files
 	 */
-	private static List<Path> downloadDependencies(Path pom) throws IOException, InterruptedException {
-		//use Maven to perform the dependency resolution
-		String executable = WINDOWS_OS ? "mvn.cmd" : "mvn";
-		ProcessBuilder builder = new ProcessBuilder(executable, "dependency:copy-dependencies");
-		builder.inheritIO();
-		builder.directory(pom.getParent().toFile());
+	private static byte[] mergedInfoFile(List<Path> partials, boolean prettyPrint) throws IOException {
+		List<String> manifest = new ArrayList<>();
+		for (Path partial : partials) {
+			try (ArchiveReader reader = new ArchiveReader(partial)) {
+				manifest.addAll(reader.getManifest());
+			}
+		}
+
+		return infoFile(partials.get(0), ArchiveReader.digest(manifest), prettyPrint);
+	}
 
-		Process process = builder.start();
-		int exitValue = process.waitFor();
-		if (exitValue != 0) {
-			throw new RuntimeException("Maven processed failed.");
+	/**
+	 * Copies the "info.xml" file of a ZIP file and sets its digest.
+	 * @param zipFile the ZIP file
+	 * @param digest the digest
+	 * @param prettyPrint true to pretty print the XML, false not to
+	 * @return the "info.xml" file
+	 * @throws IOException if there's a problem reading the ZIP file
+	 */
+	private static byte[] infoFile(Path zipFile, String digest, boolean prettyPrint) throws IOException {
+		Document document;
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			ZipEntry entry = zip.getEntry("info.xml");
+			if (entry == null) {
+				throw new ZipException("info.xml is missing from " + zipFile);
+			}
+			try (InputStream in = zip.getInputStream(entry)) {
+				document = XmlUtils.parse(in);
+			}
+		} catch (SAXException e) {
+			throw new IOException(e);
 		}
 
-		Path dependencyDir = tempDir.resolve(Paths.get("target", "dependency"));
-		if (!Files.exists(dependencyDir)) {
-			return Collections.emptyList();
+		document.getDocumentElement().setAttribute("digest", digest);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+		try {
+			XmlUtils.write(document, writer, prettyPrint);
+			writer.flush();
+		} catch (TransformerException e) {
+			throw new IOException(e);
 		}
+		return out.toByteArray();
+	}
 
-		//build a list of all the JARs
-		List<Path> jars = new ArrayList<>();
-		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dependencyDir, entry -> {
-			String filename = entry.getFileName().toString();
-			return filename.endsWith(".jar");
-		})) {
-			stream.forEach(jars::add);
+	/**
+	 * Prints the output of a shard's javadoc process.
+	 * @param i the shard's index
+	 * @param log the file the output was saved to
+	 * @throws IOException if the file could not be read
+	 */
+	private static void printShardLog(int i, Path log) throws IOException {
+		console.printf("Shard %d failed. Its output was:%n%s%n", i + 1, new String(Files.readAllBytes(log), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Describes how much memory a javadoc process used.
+	 * @param bytes the process's peak memory usage or 0 if unknown
+	 * @return the description or empty string if unknown
+	 */
+	private static String peakMemory(long bytes) {
+		return (bytes > 0) ? " (peak memory usage: " + (bytes / 1024 / 1024) + " MB)" : "";
+	}
+
+	/**
+	 * Resolves the dependencies defined in the given POM file.
+	 * @param pom the POM file
+	 * @param scheduler fetches the dependencies' files
+	 * @return the dependency JARs (they should not be modified, since they may
+	 * be in the artifact cache or the local Maven repository)
+	 * @throws IOException if there's a problem resolving the dependencies
+	 */
+	private static List<Path> resolveDependencies(Path pom, FetchScheduler scheduler) throws IOException {
+		console.printf("Resolving dependencies...");
+
+		List<String> warnings = new ArrayList<>();
+		PomResolver resolver = new PomResolver(scheduler).onWarning(warnings::add);
+		List<Path> jars = resolver.resolve(pom);
+
+		console.printf("done (%d JARs).%n", jars.size());
+		for (String warning : warnings) {
+			console.printf("Warning: %s%n", warning);
 		}
 		return jars;
 	}
 
 	/**
-	 * Download the library's POM file from Maven Central.
+	 * Gets the library's source code JAR and POM file. They are downloaded in
+	 * parallel if they are not found locally.
 	 * @param library the library
-	 * @return the path to the downloaded file
-	 * @throws IOException if there's a problem downloading the file
+	 * @param scheduler fetches the files
+	 * @return the source code JAR and the POM file (they should not be
+	 * modified, since they may be in the artifact cache or the local Maven
+	 * repository)
+	 * @throws IOException if there's a problem getting the files
 	 */
-	private static Path downloadPom(MavenLibrary library) throws IOException {
-		console.printf("Downloading project POM...");
+	private static Path[] download(MavenLibrary library, FetchScheduler scheduler) throws IOException {
+		String sourcesPath = library.getSourcesPath();
+		String filename = sourcesPath.substring(sourcesPath.lastIndexOf('/') + 1);
 
-		Path dest = tempDir.resolve("pom.xml");
-		String url = library.getPomUrl();
-		new Downloader(url, dest).start();
+		long bytesBefore = scheduler.getBytesDownloaded();
+		Future<Path> sourcesFuture = scheduler.fetch(sourcesPath, downloadProgress(filename));
+		Future<Path> pomFuture = scheduler.fetch(library.getPomPath());
 
-		console.printf("done.%n");
-		return dest;
+		Path sourceJar = FetchScheduler.get(sourcesFuture);
+		Path pom = FetchScheduler.get(pomFuture);
+
+		long bytes = scheduler.getBytesDownloaded() - bytesBefore;
+		if (bytes > 0) {
+			console.printf("%nDownloaded %dKB (%dKB/s).%n", bytes / 1024, (long) scheduler.getThroughput() / 1024);
+		} else {
+			console.printf("Using local copies of %s and its POM.%n", filename);
+		}
+
+		return new Path[] { sourceJar, pom };
 	}
 
 	/**
-	 * Downloads the source code JAR of the given library from Maven Central.
-	 * @param library the library
-	 * @return the location of the downloaded file
-	 * @throws IOException if there's a problem downloading the file
+	 * Creates a progress callback that prints the progress of a download to
+	 * the console.
+	 * @param filename the name of the file being downloaded
+	 * @return the callback
 	 */
-	private static Path downloadSourceJar(MavenLibrary library) throws IOException {
-		String url = library.getSourcesUrl();
-		int pos = url.lastIndexOf('/');
-		String filename = url.substring(pos + 1);
-		Path dest = tempDir.resolve(filename);
-
-		new Downloader(url, dest).onProgress((downloaded, size) -> {
+	private static Progress downloadProgress(String filename) {
+		return (downloaded, size) -> {
 			long downloadedKb = downloaded / 1024;
 			if (size > 0) {
 				int percent = (int) ((double) downloaded / size * 100);
@@ -193,11 +902,106 @@ public class Main {
 			} else {
 				console.printf("\rDownloading " + filename + " (" + downloadedKb + "KB)");
 			}
-		}).start();
+		};
+	}
+
+	/**
+	 * Gets the library's source code JAR and POM file, and extracts the source
+	 * code. If the source code JAR has to be downloaded, it is extracted while
+	 * it downloads, without being written to disk first. The POM file is
+	 * fetched in parallel.
+	 * @param library the library
+	 * @param scheduler fetches the files
+	 * @param cacheSources true to add the source code JAR to the artifact
+	 * cache if it has to be downloaded, false to only extract it
+	 * @param excludePackages the packages that will be excluded from the
+	 * Javadoc processing
+	 * @param workspaces keeps the extracted source code for reuse
+	 * @param workspace the workspace to extract the source code to
+	 * @return the directory the source code was extracted to (it should not be
+	 * modified, since it may be reused) and the POM file (it should not be
+	 * modified, since it may be in the artifact cache or the local Maven
+	 * repository)
+	 * @throws IOException if there's a problem getting the files
+	 */
+	private static Path[] downloadAndExtract(MavenLibrary library, FetchScheduler scheduler, boolean cacheSources, List<String> excludePackages, WorkspaceManager workspaces, Workspace workspace) throws IOException {
+		String sourcesPath = library.getSourcesPath();
+		String filename = sourcesPath.substring(sourcesPath.lastIndexOf('/') + 1);
+
+		Path localSourceJar = scheduler.findLocal(sourcesPath);
+		if (localSourceJar != null) {
+			Future<Path> pomFuture = scheduler.fetch(library.getPomPath());
+			Path dir = unzipSource(localSourceJar, excludePackages, workspaces, workspace);
+			return new Path[] { dir, FetchScheduler.get(pomFuture) };
+		}
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(TREE_KEY_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		long bytesBefore = scheduler.getBytesDownloaded();
+		PipedInputStream pipe = new PipedInputStream(1024 * 64);
+		Future<Path> sourcesFuture = scheduler.fetch(sourcesPath, downloadProgress(filename), new PipedOutputStream(pipe), cacheSources);
+		Future<Path> pomFuture = scheduler.fetch(library.getPomPath());
+
+		Path dir = workspace.getDirectory().resolve("src");
+		Files.createDirectory(dir);
+		try {
+			Files2.unzip(dir, new DigestInputStream(pipe, digest), sourceFileFilter(excludePackages));
+		} catch (EOFException e) {
+			//the download probably failed part way through, so report that error instead
+			FetchScheduler.get(sourcesFuture);
+			throw e;
+		} catch (IOException e) {
+			sourcesFuture.cancel(true);
+			throw e;
+		}
+
+		FetchScheduler.get(sourcesFuture);
+		Path pom = FetchScheduler.get(pomFuture);
+
+		long bytes = scheduler.getBytesDownloaded() - bytesBefore;
+		if (bytes > 0) {
+			console.printf("%nDownloaded and extracted %dKB (%dKB/s).%n", bytes / 1024, (long) scheduler.getThroughput() / 1024);
+		} else {
+			console.printf("Extracted local copy of %s.%n", filename);
+		}
+
+		//the whole archive was read, so the digest is the hash of the archive
+		String key = treeKey(Files2.toHex(digest.digest()), excludePackages);
+		dir = workspaces.addTree(key, dir);
+
+		return new Path[] { dir, pom };
+	}
+
+	/**
+	 * Creates a filter that decides which files in a source code archive are
+	 * needed to generate the Javadocs. Only Java source files and
+	 * "package.html" files are needed. Files in excluded packages are not
+	 * needed either, since javadoc would ignore them.
+	 * @param excludePackages the packages that will be excluded from the
+	 * Javadoc processing (their sub-packages are excluded too)
+	 * @return the filter, which receives the file paths within the archive
+	 */
+	private static Predicate<String> sourceFileFilter(List<String> excludePackages) {
+		List<String> excludedDirs = excludePackages.stream().map(p -> p.replace('.', '/') + "/").collect(Collectors.toList());
 
-		console.printf("%n");
+		return zipPath -> {
+			String filename = zipPath.substring(zipPath.lastIndexOf('/') + 1);
+			if (!filename.endsWith(".java") && !filename.equals("package.html")) {
+				return false;
+			}
 
-		return dest;
+			for (String excludedDir : excludedDirs) {
+				if (zipPath.startsWith(excludedDir)) {
+					return false;
+				}
+			}
+			return true;
+		};
 	}
 
 	/**
@@ -220,20 +1024,52 @@ public class Main {
 	}
 
 	/**
-	 * Extracts a source code JAR file.
+	 * Extracts a source code JAR file. If the same JAR file was extracted
+	 * before, and that copy was kept, that copy is used instead.
 	 * @param sourceJar the JAR file
-	 * @return the path to the extracted files
+	 * @param excludePackages the packages that will be excluded from the
+	 * Javadoc processing
+	 * @param workspaces keeps the extracted source code for reuse
+	 * @param workspace the workspace to extract the files to
+	 * @return the path to the extracted files (they should not be modified,
+	 * since they may be reused)
 	 * @throws IOException if there's a problem extracting the files
 	 */
-	private static Path unzipSource(Path sourceJar) throws IOException {
+	private static Path unzipSource(Path sourceJar, List<String> excludePackages, WorkspaceManager workspaces, Workspace workspace) throws IOException {
+		String key = treeKey(Files2.checksum(sourceJar, TREE_KEY_ALGORITHM), excludePackages);
+		Path tree = workspaces.getTree(key);
+		if (tree != null) {
+			console.printf("Using previously extracted source code.%n");
+			return tree;
+		}
+
 		console.printf("Extracting files from source archive...");
 
-		Path dir = tempDir.resolve("src");
+		Path dir = workspace.getDirectory().resolve("src");
 		Files.createDirectory(dir);
-		Files2.unzip(dir, sourceJar);
+		UnzipStats stats = Files2.unzip(dir, sourceJar, sourceFileFilter(excludePackages));
 
 		console.printf("done.%n");
-		return dir;
+		console.printf("Extracted %d files (%dKB) in %dms. Skipped %d unneeded files (%dKB), saving about %dms.%n", stats.getFilesExtracted(), stats.getBytesExtracted() / 1024, stats.getMillis(), stats.getFilesSkipped(), stats.getBytesSkipped() / 1024, stats.getEstimatedMillisSaved());
+		return workspaces.addTree(key, dir);
+	}
+
+	/**
+	 * Builds the key that an extracted source code tree is kept under. The
+	 * excluded packages are part of the key, since they determine which files
+	 * are extracted.
+	 * @param archiveHash the hash of the source code archive
+	 * @param excludePackages the packages that are excluded
+	 * @return the key
+	 */
+	private static String treeKey(String archiveHash, List<String> excludePackages) {
+		if (excludePackages.isEmpty()) {
+			return archiveHash;
+		}
+
+		List<String> sorted = new ArrayList<>(excludePackages);
+		Collections.sort(sorted);
+		return archiveHash + "-" + Integer.toHexString(String.join(",", sorted).hashCode());
 	}
 
 	/**
@@ -241,24 +1077,7 @@ public class Main {
 	 * @return the classpath string
 	 */
 	private static String getClasspath() {
-		URL urls[] = ((URLClassLoader) (Thread.currentThread().getContextClassLoader())).getURLs();
-		List<Path> paths = new ArrayList<>(urls.length);
-		for (URL url : urls) {
-			String urlPath = url.getPath();
-			if (WINDOWS_OS) {
-				//example URL: /C:/Users/mikea/OakBot/workspace/oakbot-doclet/target/oakbot-doclet-0.0.4-jar-with-dependencies.jar
-				//@formatter:off
-				urlPath = urlPath
-					.substring(1) //remove the first slash
-					.replace('/', '\\'); //use backslashes
-				//@formatter:on
-			}
-
-			Path path = Paths.get(urlPath);
-			paths.add(path);
-		}
-
-		return buildClasspath(paths);
+		return System.getProperty("java.class.path");
 	}
 
 	/**
@@ -35,21 +35,36 @@ public class MavenLibrary {
 		return version;
 	}
 
-	private String getBaseUrl() {
-		String group = groupId.replace('.', '/');
-		return "http://repo1.maven.org/maven2/" + group + "/" + artifactId + "/" + version + "/" + artifactId + "-" + version;
+	/**
+	 * Gets the location of one of the library's files, relative to the root of
+	 * a Maven repository.
+	 * @param classifier the classifier (e.g. "sources") or null for none
+	 * @param extension the file extension (e.g. "jar")
+	 * @return the path (e.g. "org/jsoup/jsoup/1.8.3/jsoup-1.8.3-sources.jar")
+	 */
+	public String getPath(String classifier, String extension) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(groupId.replace('.', '/')).append('/');
+		sb.append(artifactId).append('/');
+		sb.append(version).append('/');
+		sb.append(artifactId).append('-').append(version);
+		if (classifier != null) {
+			sb.append('-').append(classifier);
+		}
+		sb.append('.').append(extension);
+		return sb.toString();
 	}
 
-	public String getJarUrl() {
-		return getBaseUrl() + ".jar";
+	public String getJarPath() {
+		return getPath(null, "jar");
 	}
 
-	public String getSourcesUrl() {
-		return getBaseUrl() + "-sources.jar";
+	public String getSourcesPath() {
+		return getPath("sources", "jar");
 	}
 
-	public String getPomUrl() {
-		return getBaseUrl() + ".pom";
+	public String getPomPath() {
+		return getPath(null, "pom");
 	}
 
 	@Override
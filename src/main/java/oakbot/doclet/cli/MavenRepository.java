@@ -0,0 +1,58 @@
+package oakbot.doclet.cli;
+
+import java.nio.file.Paths;
+
+/**
+ * Represents a remote Maven repository, such as Maven Central. Repositories
+ * on the local file system are supported too (using "file://" URLs), which is
+ * useful for working offline.
+ * @author Michael Angstadt
+ */
+public class MavenRepository {
+	/**
+	 * Maven Central.
+	 */
+	public static final MavenRepository CENTRAL = new MavenRepository("https://repo1.maven.org/maven2/");
+
+	private final String baseUrl;
+
+	/**
+	 * @param baseUrl the URL of the repository's root directory
+	 */
+	public MavenRepository(String baseUrl) {
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
+	}
+
+	/**
+	 * Parses a repository location.
+	 * @param location a URL (e.g. "https://repo.example.com/maven2",
+	 * "file:///home/user/repo") or a path to a directory on the local file
+	 * system
+	 * @return the repository
+	 */
+	public static MavenRepository parse(String location) {
+		if (location.matches("^[a-zA-Z][a-zA-Z0-9+.-]+://.*")) {
+			return new MavenRepository(location);
+		}
+		return new MavenRepository(Paths.get(location).toAbsolutePath().toUri().toString());
+	}
+
+	/**
+	 * Gets the URL of a file in the repository.
+	 * @param path the path to the file, relative to the repository root (see
+	 * {@link MavenLibrary#getPath})
+	 * @return the URL
+	 */
+	public String getUrl(String path) {
+		return baseUrl + path;
+	}
+
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	@Override
+	public String toString() {
+		return baseUrl;
+	}
+}
@@ -0,0 +1,321 @@
+package oakbot.doclet.cli;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import javax.lang.model.SourceVersion;
+
+/**
+ * Divides the packages of a library into groups (shards) of about the same
+ * size, so that each group can be processed by a separate javadoc process.
+ * <p>
+ * The top-level packages are split into smaller units until there are enough
+ * units to balance the shards. A package that is split becomes one unit for
+ * the package itself (without its sub-packages) plus one unit for each of its
+ * sub-packages. Each unit is weighed by the total size of its source files.
+ * The units are then assigned to the shards, largest first, each unit going to
+ * the shard that is the smallest at the time.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class PackageSharder {
+	/**
+	 * The number of units to aim for per shard. More units make the shards
+	 * more even.
+	 */
+	private static final int UNITS_PER_SHARD = 4;
+
+	private final List<String> excludePackages;
+
+	/**
+	 * The total size of the source files in each package, not including
+	 * sub-packages.
+	 */
+	private final NavigableMap<String, Long> packageSizes = new TreeMap<>();
+
+	/**
+	 * The number of source files in each package, not including
+	 * sub-packages.
+	 */
+	private final NavigableMap<String, Long> packageFileCounts = new TreeMap<>();
+
+	private long totalSize, fileCount;
+
+	/**
+	 * @param sourceDir the directory that contains the source code
+	 * @param excludePackages the packages that are excluded from the javadoc
+	 * run (their sub-packages are excluded too)
+	 * @throws IOException if there's a problem reading the directory
+	 */
+	public PackageSharder(Path sourceDir, List<String> excludePackages) throws IOException {
+		this.excludePackages = excludePackages;
+
+		try (Stream<Path> stream = Files.walk(sourceDir)) {
+			stream.filter(file -> file.getFileName().toString().endsWith(".java")).forEach(file -> {
+				Path dir = sourceDir.relativize(file).getParent();
+				if (dir == null) {
+					return;
+				}
+
+				String packageName = dir.toString().replace(dir.getFileSystem().getSeparator(), ".");
+				if (isExcluded(packageName)) {
+					return;
+				}
+
+				long size;
+				try {
+					size = Files.size(file);
+				} catch (IOException e) {
+					size = 0;
+				}
+				packageSizes.merge(packageName, size, Long::sum);
+				packageFileCounts.merge(packageName, 1L, Long::sum);
+				totalSize += size;
+				fileCount++;
+			});
+		}
+	}
+
+	/**
+	 * Gets the total size of the source files that javadoc will process.
+	 * @return the size in bytes
+	 */
+	public long getTotalSize() {
+		return totalSize;
+	}
+
+	/**
+	 * Gets the number of source files that javadoc will process.
+	 * @return the number of files
+	 */
+	public long getFileCount() {
+		return fileCount;
+	}
+
+	/**
+	 * Gets the packages that contain source files.
+	 * @param subpackages the top-level packages (see
+	 * {@link JavadocCommandBuilder#includePackages})
+	 * @return the packages in these top-level packages, including the
+	 * top-level packages themselves
+	 */
+	public List<String> getPackages(List<String> subpackages) {
+		List<String> packages = new ArrayList<>();
+		for (String subpackage : subpackages) {
+			if (packageSizes.containsKey(subpackage)) {
+				packages.add(subpackage);
+			}
+			packages.addAll(subpackages(packageSizes, subpackage).keySet());
+		}
+		return packages;
+	}
+
+	/**
+	 * Divides the packages into shards.
+	 * @param subpackages the top-level packages (see
+	 * {@link JavadocCommandBuilder#includePackages})
+	 * @param count the number of shards to create
+	 * @return the shards. There may be fewer shards than requested if the
+	 * library is too small or does not have enough packages. Empty shards are
+	 * not returned.
+	 */
+	public List<Shard> split(List<String> subpackages, int count) {
+		List<Unit> units = new ArrayList<>();
+		long total = 0;
+		for (String subpackage : subpackages) {
+			Unit unit = new Unit(subpackage, true, size(subpackage, true));
+			if (unit.size > 0) {
+				units.add(unit);
+				total += unit.size;
+			}
+		}
+
+		/*
+		 * Split the largest units until there are enough units, or the units
+		 * are small enough.
+		 */
+		long targetSize = total / ((long) count * UNITS_PER_SHARD);
+		while (units.size() < count * UNITS_PER_SHARD) {
+			Unit largest = null;
+			for (Unit unit : units) {
+				if (unit.recursive && unit.size > targetSize && (largest == null || unit.size > largest.size) && !childPackages(unit.packageName).isEmpty()) {
+					largest = unit;
+				}
+			}
+			if (largest == null) {
+				break;
+			}
+
+			units.remove(largest);
+			long ownSize = size(largest.packageName, false);
+			if (ownSize > 0) {
+				units.add(new Unit(largest.packageName, false, ownSize));
+			}
+			for (String child : childPackages(largest.packageName)) {
+				long childSize = size(child, true);
+				if (childSize > 0) {
+					units.add(new Unit(child, true, childSize));
+				}
+			}
+		}
+
+		List<Shard> shards = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			shards.add(new Shard());
+		}
+
+		units.sort(Comparator.comparingLong((Unit unit) -> unit.size).reversed().thenComparing(unit -> unit.packageName));
+		for (Unit unit : units) {
+			Shard smallest = shards.stream().min(Comparator.comparingLong(Shard::getSize)).get();
+			if (unit.recursive) {
+				smallest.subpackages.add(unit.packageName);
+			} else {
+				smallest.packages.add(unit.packageName);
+			}
+			smallest.size += unit.size;
+			smallest.fileCount += total(packageFileCounts, unit.packageName, unit.recursive);
+		}
+
+		shards.removeIf(shard -> shard.size == 0);
+		return shards;
+	}
+
+	/**
+	 * Gets the total size of a package's source files.
+	 * @param packageName the package name
+	 * @param recursive true to include the sub-packages, false not to
+	 * @return the size in bytes
+	 */
+	private long size(String packageName, boolean recursive) {
+		return total(packageSizes, packageName, recursive);
+	}
+
+	/**
+	 * Adds up a package's values.
+	 * @param values the values of each package
+	 * @param packageName the package name
+	 * @param recursive true to include the sub-packages, false not to
+	 * @return the total
+	 */
+	private static long total(NavigableMap<String, Long> values, String packageName, boolean recursive) {
+		long total = values.getOrDefault(packageName, 0L);
+		if (!recursive) {
+			return total;
+		}
+
+		for (long value : subpackages(values, packageName).values()) {
+			total += value;
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the direct sub-packages of a package that contain source files.
+	 * @param packageName the package name
+	 * @return the sub-packages (fully-qualified)
+	 */
+	private List<String> childPackages(String packageName) {
+		Set<String> children = new LinkedHashSet<>();
+		String prefix = packageName + ".";
+		for (String name : subpackages(packageSizes, packageName).keySet()) {
+			int dot = name.indexOf('.', prefix.length());
+			String child = (dot < 0) ? name : name.substring(0, dot);
+			String simpleName = child.substring(prefix.length());
+
+			//javadoc ignores directories that are not valid package names
+			if (SourceVersion.isIdentifier(simpleName)) {
+				children.add(child);
+			}
+		}
+		return new ArrayList<>(children);
+	}
+
+	/**
+	 * Gets the values of all of a package's sub-packages.
+	 * @param values the values of each package
+	 * @param packageName the package name
+	 * @return the values of the sub-packages, at any depth
+	 */
+	private static SortedMap<String, Long> subpackages(NavigableMap<String, Long> values, String packageName) {
+		String prefix = packageName + ".";
+		return values.subMap(prefix, prefix + Character.MAX_VALUE);
+	}
+
+	private boolean isExcluded(String packageName) {
+		for (String excluded : excludePackages) {
+			if (packageName.equals(excluded) || packageName.startsWith(excluded + ".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A package to process, with or without its sub-packages.
+	 */
+	private static class Unit {
+		private final String packageName;
+		private final boolean recursive;
+		private final long size;
+
+		public Unit(String packageName, boolean recursive, long size) {
+			this.packageName = packageName;
+			this.recursive = recursive;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * A group of packages to process in a single javadoc run.
+	 * @author Michael Angstadt
+	 */
+	public static class Shard {
+		private final List<String> subpackages = new ArrayList<>();
+		private final List<String> packages = new ArrayList<>();
+		private long size, fileCount;
+
+		/**
+		 * Gets the packages to process along with their sub-packages (see
+		 * {@link JavadocCommandBuilder#includePackages}).
+		 * @return the packages
+		 */
+		public List<String> getSubpackages() {
+			return subpackages;
+		}
+
+		/**
+		 * Gets the packages to process without their sub-packages (see
+		 * {@link JavadocCommandBuilder#packages}).
+		 * @return the packages
+		 */
+		public List<String> getPackages() {
+			return packages;
+		}
+
+		/**
+		 * Gets the total size of the shard's source files.
+		 * @return the size in bytes
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * Gets the number of source files in the shard.
+		 * @return the number of files
+		 */
+		public long getFileCount() {
+			return fileCount;
+		}
+	}
+}
@@ -0,0 +1,657 @@
+package oakbot.doclet.cli;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import oakbot.util.XmlUtils;
+
+/**
+ * Resolves the dependencies of a Maven project without running Maven. The
+ * following POM features are supported:
+ * <ul>
+ * <li>parent POMs</li>
+ * <li>dependencyManagement, including "import" scoped BOMs</li>
+ * <li>dependency scopes (the resolved dependencies are the ones needed to
+ * compile the project)</li>
+ * <li>optional dependencies</li>
+ * <li>exclusions</li>
+ * <li>property interpolation (e.g. "${project.version}")</li>
+ * </ul>
+ * Profiles are not supported. When the same library is found more than once
+ * in the dependency tree, the one that is closest to the root wins, like in
+ * Maven.
+ * @author Michael Angstadt
+ */
+public class PomResolver {
+	private static final Pattern PROPERTY_REGEX = Pattern.compile("\\$\\{(.*?)\\}");
+
+	private final FetchScheduler scheduler;
+	private final Map<Path, Pom> effectivePoms = new HashMap<>();
+	private Consumer<String> warningListener = warning -> {};
+
+	/**
+	 * @param scheduler fetches the POM and JAR files
+	 */
+	public PomResolver(FetchScheduler scheduler) {
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Receives warnings about problems that do not stop the dependencies from
+	 * being resolved, such as a dependency that could not be found.
+	 * @param warningListener the callback
+	 * @return this
+	 */
+	public PomResolver onWarning(Consumer<String> warningListener) {
+		this.warningListener = warningListener;
+		return this;
+	}
+
+	/**
+	 * Resolves the dependencies of a project.
+	 * @param pomFile the project's POM file
+	 * @return the project's dependency JARs. The files are not copied
+	 * anywhere, so they should not be modified (they may be in the artifact
+	 * cache or the local Maven repository).
+	 * @throws IOException if there's a problem reading or fetching any of the
+	 * POM files
+	 */
+	public List<Path> resolve(Path pomFile) throws IOException {
+		Pom root = effectivePom(pomFile);
+		Map<String, Dependency> managed = new HashMap<>();
+		for (Dependency dependency : root.dependencyManagement) {
+			managed.put(dependency.getKey(), dependency);
+		}
+
+		List<TreeNode> level = new ArrayList<>();
+		for (Dependency dependency : root.dependencies) {
+			dependency = dependency.managedBy(managed.get(dependency.getKey()), false);
+			switch (dependency.scope) {
+			case "compile":
+			case "provided":
+			case "runtime":
+				level.add(new TreeNode(dependency, new HashSet<>(dependency.exclusions)));
+				break;
+			}
+		}
+
+		/*
+		 * Walk the dependency tree one level at a time (breadth first), so
+		 * that the dependencies closest to the root win. The POMs of each
+		 * level are fetched in parallel.
+		 */
+		Map<String, Dependency> resolved = new LinkedHashMap<>();
+		while (!level.isEmpty()) {
+			List<TreeNode> added = new ArrayList<>();
+			for (TreeNode node : level) {
+				Dependency dependency = node.dependency;
+				if (dependency.version == null) {
+					warn("Version of " + dependency.getKey() + " could not be determined. Ignoring.");
+					continue;
+				}
+				if (resolved.putIfAbsent(dependency.getKey(), dependency) == null) {
+					added.add(node);
+				}
+			}
+
+			List<Future<Path>> pomFutures = new ArrayList<>(added.size());
+			for (TreeNode node : added) {
+				pomFutures.add(scheduler.fetch(node.dependency.toLibrary().getPomPath()));
+			}
+
+			List<TreeNode> nextLevel = new ArrayList<>();
+			for (int i = 0; i < added.size(); i++) {
+				TreeNode node = added.get(i);
+
+				Pom pom;
+				try {
+					pom = effectivePom(FetchScheduler.get(pomFutures.get(i)));
+				} catch (FileNotFoundException e) {
+					warn("POM of " + node.dependency.toLibrary() + " not found. Its dependencies will not be included.");
+					continue;
+				}
+
+				for (Dependency child : pom.dependencies) {
+					if (child.optional || node.excludes(child)) {
+						continue;
+					}
+					if (!"compile".equals(child.scope) && !"runtime".equals(child.scope)) {
+						continue;
+					}
+
+					//the root project's dependencyManagement section overrides everything else
+					child = child.managedBy(managed.get(child.getKey()), true);
+
+					Set<String> exclusions = new HashSet<>(node.exclusions);
+					exclusions.addAll(child.exclusions);
+					nextLevel.add(new TreeNode(child, exclusions));
+				}
+			}
+
+			level = nextLevel;
+		}
+
+		return fetchJars(resolved.values());
+	}
+
+	/**
+	 * Fetches the JAR files of the resolved dependencies in parallel.
+	 * @param dependencies the dependencies
+	 * @return the JAR files
+	 * @throws IOException if there's a problem fetching the files
+	 */
+	private List<Path> fetchJars(Iterable<Dependency> dependencies) throws IOException {
+		Map<Dependency, Future<Path>> futures = new LinkedHashMap<>();
+		for (Dependency dependency : dependencies) {
+			String path = dependency.getJarPath();
+			if (path != null) {
+				futures.put(dependency, scheduler.fetch(path));
+			}
+		}
+
+		List<Path> jars = new ArrayList<>(futures.size());
+		for (Map.Entry<Dependency, Future<Path>> entry : futures.entrySet()) {
+			try {
+				jars.add(FetchScheduler.get(entry.getValue()));
+			} catch (FileNotFoundException e) {
+				warn("JAR of " + entry.getKey().toLibrary() + " not found. Ignoring.");
+			}
+		}
+		return jars;
+	}
+
+	/**
+	 * Builds the effective model of a POM, which is the POM combined with its
+	 * parent POMs and imported BOMs, with all of its properties interpolated.
+	 * @param pomFile the POM file
+	 * @return the effective model
+	 * @throws IOException if there's a problem reading or fetching the POMs
+	 */
+	private Pom effectivePom(Path pomFile) throws IOException {
+		Pom pom = effectivePoms.get(pomFile);
+		if (pom != null) {
+			return pom;
+		}
+
+		pom = Pom.parse(pomFile);
+
+		if (pom.parent != null) {
+			Path parentFile = FetchScheduler.get(scheduler.fetch(pom.parent.getPomPath()));
+			pom.inherit(effectivePom(parentFile));
+		}
+
+		pom.interpolate();
+
+		List<Dependency> dependencyManagement = new ArrayList<>();
+		Set<String> keys = new HashSet<>();
+		List<Dependency> imports = new ArrayList<>();
+		for (Dependency dependency : pom.dependencyManagement) {
+			if ("import".equals(dependency.scope) && "pom".equals(dependency.type)) {
+				imports.add(dependency);
+			} else if (keys.add(dependency.getKey())) {
+				dependencyManagement.add(dependency);
+			}
+		}
+		for (Dependency bom : imports) {
+			Pom bomPom;
+			try {
+				bomPom = effectivePom(FetchScheduler.get(scheduler.fetch(bom.toLibrary().getPomPath())));
+			} catch (FileNotFoundException e) {
+				warn("BOM " + bom.toLibrary() + " not found. Ignoring.");
+				continue;
+			}
+
+			for (Dependency dependency : bomPom.dependencyManagement) {
+				if (keys.add(dependency.getKey())) {
+					dependencyManagement.add(dependency);
+				}
+			}
+		}
+		pom.dependencyManagement = dependencyManagement;
+
+		//fill in the versions and scopes of the POM's own dependencies
+		Map<String, Dependency> managed = new HashMap<>();
+		for (Dependency dependency : dependencyManagement) {
+			managed.put(dependency.getKey(), dependency);
+		}
+		List<Dependency> dependencies = new ArrayList<>(pom.dependencies.size());
+		for (Dependency dependency : pom.dependencies) {
+			dependencies.add(dependency.managedBy(managed.get(dependency.getKey()), false));
+		}
+		pom.dependencies = dependencies;
+
+		effectivePoms.put(pomFile, pom);
+		return pom;
+	}
+
+	private void warn(String message) {
+		warningListener.accept(message);
+	}
+
+	/**
+	 * A dependency in the dependency tree.
+	 */
+	private static class TreeNode {
+		private final Dependency dependency;
+
+		/**
+		 * The exclusions of this dependency and all of its ancestors, in the
+		 * form "groupId:artifactId".
+		 */
+		private final Set<String> exclusions;
+
+		public TreeNode(Dependency dependency, Set<String> exclusions) {
+			this.dependency = dependency;
+			this.exclusions = exclusions;
+		}
+
+		public boolean excludes(Dependency dependency) {
+			//@formatter:off
+			return
+				exclusions.contains(dependency.groupId + ":" + dependency.artifactId) ||
+				exclusions.contains(dependency.groupId + ":*") ||
+				exclusions.contains("*:" + dependency.artifactId) ||
+				exclusions.contains("*:*");
+			//@formatter:on
+		}
+	}
+
+	/**
+	 * The parts of a POM file that are needed to resolve dependencies.
+	 */
+	private static class Pom {
+		private String groupId, artifactId, version;
+		private MavenLibrary parent;
+		private final Map<String, String> properties = new LinkedHashMap<>();
+		private List<Dependency> dependencyManagement = new ArrayList<>();
+		private List<Dependency> dependencies = new ArrayList<>();
+
+		/**
+		 * Parses a POM file.
+		 * @param file the file
+		 * @return the parsed file
+		 * @throws IOException if there's a problem reading the file
+		 */
+		public static Pom parse(Path file) throws IOException {
+			Document document;
+			try {
+				document = XmlUtils.parse(file);
+			} catch (SAXException e) {
+				throw new IOException("Could not parse POM file " + file + ".", e);
+			}
+
+			Element project = document.getDocumentElement();
+			Pom pom = new Pom();
+			pom.groupId = childText(project, "groupId");
+			pom.artifactId = childText(project, "artifactId");
+			pom.version = childText(project, "version");
+
+			Element parent = child(project, "parent");
+			if (parent != null) {
+				pom.parent = new MavenLibrary(childText(parent, "groupId"), childText(parent, "artifactId"), childText(parent, "version"));
+				if (pom.groupId == null) {
+					pom.groupId = pom.parent.getGroupId();
+				}
+				if (pom.version == null) {
+					pom.version = pom.parent.getVersion();
+				}
+			}
+
+			Element properties = child(project, "properties");
+			if (properties != null) {
+				for (Element property : children(properties)) {
+					pom.properties.put(property.getTagName(), property.getTextContent().trim());
+				}
+			}
+
+			Element dependencyManagement = child(project, "dependencyManagement");
+			if (dependencyManagement != null) {
+				pom.dependencyManagement = parseDependencies(child(dependencyManagement, "dependencies"));
+			}
+
+			pom.dependencies = parseDependencies(child(project, "dependencies"));
+
+			return pom;
+		}
+
+		private static List<Dependency> parseDependencies(Element dependenciesElement) {
+			List<Dependency> dependencies = new ArrayList<>();
+			if (dependenciesElement == null) {
+				return dependencies;
+			}
+
+			for (Element element : children(dependenciesElement)) {
+				if (!"dependency".equals(element.getTagName())) {
+					continue;
+				}
+
+				List<String> exclusions = new ArrayList<>();
+				Element exclusionsElement = child(element, "exclusions");
+				if (exclusionsElement != null) {
+					for (Element exclusion : children(exclusionsElement)) {
+						exclusions.add(childText(exclusion, "groupId") + ":" + childText(exclusion, "artifactId"));
+					}
+				}
+
+				//@formatter:off
+				dependencies.add(new Dependency(
+					childText(element, "groupId"),
+					childText(element, "artifactId"),
+					childText(element, "version"),
+					childText(element, "type"),
+					childText(element, "classifier"),
+					childText(element, "scope"),
+					"true".equals(childText(element, "optional")),
+					exclusions
+				));
+				//@formatter:on
+			}
+			return dependencies;
+		}
+
+		/**
+		 * Inherits the properties, dependencyManagement section, and
+		 * dependencies of a parent POM.
+		 * @param parent the parent POM's effective model
+		 */
+		public void inherit(Pom parent) {
+			Map<String, String> properties = new LinkedHashMap<>(parent.properties);
+			properties.putAll(this.properties);
+			this.properties.clear();
+			this.properties.putAll(properties);
+
+			List<Dependency> dependencyManagement = new ArrayList<>(this.dependencyManagement);
+			dependencyManagement.addAll(parent.dependencyManagement);
+			this.dependencyManagement = dependencyManagement;
+
+			Map<String, Dependency> dependencies = new LinkedHashMap<>();
+			for (Dependency dependency : parent.dependencies) {
+				dependencies.put(dependency.getKey(), dependency);
+			}
+			for (Dependency dependency : this.dependencies) {
+				dependencies.put(dependency.getKey(), dependency);
+			}
+			this.dependencies = new ArrayList<>(dependencies.values());
+		}
+
+		/**
+		 * Replaces all property references (e.g. "${project.version}") with
+		 * their values.
+		 */
+		public void interpolate() {
+			Map<String, String> values = new HashMap<>();
+			values.put("project.groupId", groupId);
+			values.put("project.artifactId", artifactId);
+			values.put("project.version", version);
+			values.put("pom.groupId", groupId);
+			values.put("pom.artifactId", artifactId);
+			values.put("pom.version", version);
+			values.put("groupId", groupId);
+			values.put("artifactId", artifactId);
+			values.put("version", version);
+			if (parent != null) {
+				values.put("project.parent.groupId", parent.getGroupId());
+				values.put("project.parent.artifactId", parent.getArtifactId());
+				values.put("project.parent.version", parent.getVersion());
+				values.put("parent.version", parent.getVersion());
+			}
+			values.putAll(properties);
+
+			groupId = PomResolver.interpolate(groupId, values);
+			version = PomResolver.interpolate(version, values);
+
+			List<Dependency> dependencyManagement = new ArrayList<>(this.dependencyManagement.size());
+			for (Dependency dependency : this.dependencyManagement) {
+				dependencyManagement.add(dependency.interpolate(values));
+			}
+			this.dependencyManagement = dependencyManagement;
+
+			List<Dependency> dependencies = new ArrayList<>(this.dependencies.size());
+			for (Dependency dependency : this.dependencies) {
+				dependencies.add(dependency.interpolate(values));
+			}
+			this.dependencies = dependencies;
+		}
+	}
+
+	/**
+	 * A dependency that is defined in a POM.
+	 */
+	private static class Dependency {
+		private final String groupId, artifactId, version, type, classifier, scope;
+		private final boolean optional;
+
+		/**
+		 * In the form "groupId:artifactId".
+		 */
+		private final List<String> exclusions;
+
+		/**
+		 * @param groupId the group ID
+		 * @param artifactId the artifact ID
+		 * @param version the version or null if it is managed
+		 * @param type the type or null for "jar"
+		 * @param classifier the classifier or null for none
+		 * @param scope the scope or null for "compile"
+		 * @param optional true if the dependency is optional
+		 * @param exclusions the exclusions
+		 */
+		public Dependency(String groupId, String artifactId, String version, String type, String classifier, String scope, boolean optional, List<String> exclusions) {
+			this.groupId = groupId;
+			this.artifactId = artifactId;
+			this.version = version;
+			this.type = (type == null) ? "jar" : type;
+			this.classifier = classifier;
+			this.scope = scope;
+			this.optional = optional;
+			this.exclusions = exclusions;
+		}
+
+		/**
+		 * Gets the key that identifies this dependency in dependencyManagement
+		 * sections and in the dependency tree.
+		 * @return the key
+		 */
+		public String getKey() {
+			return groupId + ":" + artifactId + ":" + type + ((classifier == null) ? "" : ":" + classifier);
+		}
+
+		/**
+		 * Applies a dependencyManagement entry to this dependency.
+		 * @param managed the entry or null if there isn't one
+		 * @param override true to override the version and scope of this
+		 * dependency (done for transitive dependencies), false to only fill
+		 * them in if they are missing
+		 * @return the resulting dependency
+		 */
+		public Dependency managedBy(Dependency managed, boolean override) {
+			String version = this.version;
+			String scope = this.scope;
+			List<String> exclusions = this.exclusions;
+			if (managed != null) {
+				if (override || version == null) {
+					version = (managed.version == null) ? version : managed.version;
+				}
+				if (scope == null) {
+					scope = managed.scope;
+				}
+				if (exclusions.isEmpty()) {
+					exclusions = managed.exclusions;
+				}
+			}
+			if (scope == null) {
+				scope = "compile";
+			}
+
+			return new Dependency(groupId, artifactId, version, type, classifier, scope, optional, exclusions);
+		}
+
+		public Dependency interpolate(Map<String, String> values) {
+			List<String> exclusions = new ArrayList<>(this.exclusions.size());
+			for (String exclusion : this.exclusions) {
+				exclusions.add(PomResolver.interpolate(exclusion, values));
+			}
+
+			//@formatter:off
+			return new Dependency(
+				PomResolver.interpolate(groupId, values),
+				PomResolver.interpolate(artifactId, values),
+				toSingleVersion(PomResolver.interpolate(version, values)),
+				PomResolver.interpolate(type, values),
+				PomResolver.interpolate(classifier, values),
+				PomResolver.interpolate(scope, values),
+				optional,
+				exclusions
+			);
+			//@formatter:on
+		}
+
+		public MavenLibrary toLibrary() {
+			return new MavenLibrary(groupId, artifactId, version);
+		}
+
+		/**
+		 * Gets the repository path of this dependency's JAR file.
+		 * @return the path or null if the dependency doesn't have a JAR file
+		 * (e.g. POM dependencies)
+		 */
+		public String getJarPath() {
+			switch (type) {
+			case "jar":
+			case "bundle":
+			case "ejb":
+			case "maven-plugin":
+				return toLibrary().getPath(classifier, "jar");
+			case "test-jar":
+				return toLibrary().getPath((classifier == null) ? "tests" : classifier, "jar");
+			default:
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Replaces all property references (e.g. "${project.version}") in a
+	 * string with their values. References to unknown properties are checked
+	 * against the system properties (e.g. "${java.version}"), and left alone
+	 * if they are not found there either.
+	 * @param value the string (can be null)
+	 * @param values the property values
+	 * @return the interpolated string
+	 */
+	private static String interpolate(String value, Map<String, String> values) {
+		if (value == null || !value.contains("${")) {
+			return value;
+		}
+
+		//properties can reference other properties
+		for (int i = 0; i < 10 && value.contains("${"); i++) {
+			Matcher m = PROPERTY_REGEX.matcher(value);
+			StringBuffer sb = new StringBuffer();
+			boolean replaced = false;
+			while (m.find()) {
+				String name = m.group(1);
+				String replacement = values.get(name);
+				if (replacement == null) {
+					replacement = System.getProperty(name);
+				}
+				if (replacement == null) {
+					replacement = m.group();
+				} else {
+					replaced = true;
+				}
+				m.appendReplacement(sb, Matcher.quoteReplacement(replacement));
+			}
+			m.appendTail(sb);
+			value = sb.toString();
+
+			if (!replaced) {
+				break;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Converts a version range (e.g. "[1.0,2.0)") to a single version. The
+	 * lowest version that the range allows is chosen, since the available
+	 * versions are not known.
+	 * @param version the version or version range (can be null)
+	 * @return the version
+	 */
+	private static String toSingleVersion(String version) {
+		if (version == null || version.isEmpty()) {
+			return null;
+		}
+
+		char first = version.charAt(0);
+		if (first != '[' && first != '(') {
+			return version;
+		}
+
+		String range = version.substring(1, version.length() - 1);
+		int comma = range.indexOf(',');
+		if (comma < 0) {
+			//e.g. "[1.0]"
+			return range.trim();
+		}
+
+		String lower = range.substring(0, comma).trim();
+		if (!lower.isEmpty()) {
+			return lower;
+		}
+
+		//e.g. "(,1.0]"
+		String upper = range.substring(comma + 1).trim();
+		return upper.isEmpty() ? null : upper;
+	}
+
+	private static Element child(Element parent, String name) {
+		for (Element child : children(parent)) {
+			if (name.equals(child.getTagName())) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	private static String childText(Element parent, String name) {
+		Element child = child(parent, name);
+		if (child == null) {
+			return null;
+		}
+
+		String text = child.getTextContent().trim();
+		return text.isEmpty() ? null : text;
+	}
+
+	private static List<Element> children(Element parent) {
+		NodeList nodes = parent.getChildNodes();
+		List<Element> elements = new ArrayList<>(nodes.getLength());
+		for (int i = 0; i < nodes.getLength(); i++) {
+			Node node = nodes.item(i);
+			if (node instanceof Element) {
+				elements.add((Element) node);
+			}
+		}
+		return elements;
+	}
+}
@@ -0,0 +1,447 @@
+package oakbot.doclet.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import oakbot.util.Files2;
+
+/**
+ * Manages the scratch directories that libraries are processed in.
+ * <p>
+ * Each run gets its own workspace directory, which is locked for as long as
+ * the run is using it. When the run is finished, the workspace is moved to a
+ * trash directory and deleted on background threads, so the program does not
+ * have to wait for it. If the program is killed, the lock is released by the
+ * operating system, and the workspace is deleted the next time the program
+ * starts (see {@link #sweep}).
+ * </p>
+ * <p>
+ * Extracted source code trees can be kept for reuse. They are keyed by the
+ * hash of the archive they were extracted from. Only a limited number of trees
+ * are kept, and the least recently used trees are deleted first.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class WorkspaceManager implements Closeable {
+	/**
+	 * The default number of extracted source code trees to keep.
+	 */
+	public static final int DEFAULT_MAX_TREES = 3;
+
+	/**
+	 * Workspaces that are younger than this are never considered stale. This
+	 * covers the brief moment between when a workspace's lock file is created
+	 * and when it is locked.
+	 */
+	private static final long STALE_AGE = TimeUnit.MINUTES.toMillis(1);
+
+	private static final String LOCK_EXTENSION = ".lock", TREE_EXTENSION = ".used";
+
+	private final Path runsDir, treesDir, trashDir;
+	private final int maxTrees;
+	private final ForkJoinPool deleters;
+
+	/**
+	 * @param directory the directory to store the workspaces in (created if it
+	 * doesn't exist)
+	 * @param maxTrees the maximum number of extracted source code trees to
+	 * keep (0 to not keep any)
+	 * @param threads the number of threads to delete files with
+	 * @throws IOException if there's a problem creating the directory
+	 */
+	public WorkspaceManager(Path directory, int maxTrees, int threads) throws IOException {
+		runsDir = directory.resolve("runs");
+		treesDir = directory.resolve("trees");
+		trashDir = directory.resolve("trash");
+		this.maxTrees = maxTrees;
+
+		Files.createDirectories(runsDir);
+		Files.createDirectories(treesDir);
+		Files.createDirectories(trashDir);
+
+		deleters = new ForkJoinPool(threads, pool -> {
+			ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+			thread.setName("cleanup");
+			return thread;
+		}, null, false);
+	}
+
+	/**
+	 * Deletes the workspaces and trees that were left behind by runs that did
+	 * not finish (for example, because the program was killed). The files are
+	 * deleted in the background.
+	 * @return the number of workspaces that were left behind
+	 * @throws IOException if there's a problem reading the directory
+	 */
+	public synchronized int sweep() throws IOException {
+		//files that were not deleted before the program last exited
+		for (Path path : list(trashDir)) {
+			deleteInBackground(path);
+		}
+
+		long now = System.currentTimeMillis();
+		int stale = 0;
+		for (Path path : list(runsDir)) {
+			String filename = path.getFileName().toString();
+			if (filename.endsWith(LOCK_EXTENSION)) {
+				Path dir = runsDir.resolve(filename.substring(0, filename.length() - LOCK_EXTENSION.length()));
+				if (now - lastModified(path) > STALE_AGE && tryDeleteLock(path)) {
+					stale++;
+					if (Files.exists(dir)) {
+						trash(dir);
+					}
+				}
+				continue;
+			}
+
+			//a workspace without a lock file
+			if (Files.exists(path) && !Files.exists(path.resolveSibling(filename + LOCK_EXTENSION)) && now - lastModified(path) > STALE_AGE) {
+				stale++;
+				trash(path);
+			}
+		}
+
+		//trees that were not completely extracted
+		for (Path path : list(treesDir)) {
+			String filename = path.getFileName().toString();
+			if (!filename.endsWith(TREE_EXTENSION) && !Files.exists(path.resolveSibling(filename + TREE_EXTENSION))) {
+				trash(path);
+			}
+		}
+
+		return stale;
+	}
+
+	/**
+	 * Creates a new workspace. The workspace must be closed when the run is
+	 * finished.
+	 * @return the workspace
+	 * @throws IOException if there's a problem creating the workspace
+	 */
+	public Workspace createWorkspace() throws IOException {
+		Path lockFile = Files.createTempFile(runsDir, "run", LOCK_EXTENSION);
+		FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE);
+		try {
+			FileLock lock = channel.lock();
+			String filename = lockFile.getFileName().toString();
+			Path dir = runsDir.resolve(filename.substring(0, filename.length() - LOCK_EXTENSION.length()));
+			Files.createDirectory(dir);
+			return new Workspace(dir, lockFile, channel, lock);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			Files.deleteIfExists(lockFile);
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets an extracted source code tree.
+	 * @param key the tree's key
+	 * @return the tree or null if there is no tree with the given key
+	 * @throws IOException if there's a problem reading the directory
+	 */
+	public synchronized Path getTree(String key) throws IOException {
+		Path dir = treesDir.resolve(key);
+		Path usedFile = treesDir.resolve(key + TREE_EXTENSION);
+		if (!Files.exists(usedFile) || !Files.isDirectory(dir)) {
+			return null;
+		}
+
+		//the modification time is used to determine which trees were least recently used
+		Files.setLastModifiedTime(usedFile, FileTime.fromMillis(System.currentTimeMillis()));
+		return dir;
+	}
+
+	/**
+	 * Keeps an extracted source code tree for reuse. The directory is moved,
+	 * not copied. Trees that are no longer needed are deleted afterwards if
+	 * there are too many trees.
+	 * @param key the tree's key
+	 * @param dir the directory that the source code was extracted to (must be
+	 * inside of a workspace)
+	 * @return the location of the tree. This is the given directory if trees
+	 * are not being kept.
+	 * @throws IOException if there's a problem moving the directory
+	 */
+	public synchronized Path addTree(String key, Path dir) throws IOException {
+		if (maxTrees <= 0) {
+			return dir;
+		}
+
+		Path existing = getTree(key);
+		if (existing != null) {
+			trash(dir);
+			return existing;
+		}
+
+		Path tree = treesDir.resolve(key);
+		if (Files.exists(tree)) {
+			//left over from an earlier run
+			trash(tree);
+		}
+
+		try {
+			Files.move(dir, tree, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			return dir;
+		}
+		Files.write(treesDir.resolve(key + TREE_EXTENSION), new byte[0]);
+
+		evictTrees(tree);
+
+		return tree;
+	}
+
+	/**
+	 * Waits for all of the files that are being deleted in the background to
+	 * be deleted.
+	 */
+	@Override
+	public void close() {
+		deleters.shutdown();
+		try {
+			deleters.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Deletes the least recently used trees until the number of trees is
+	 * within the limit.
+	 * @param keep a tree that should not be deleted (e.g. the tree that was
+	 * just added)
+	 * @throws IOException if there's a problem deleting the trees
+	 */
+	private void evictTrees(Path keep) throws IOException {
+		List<Path> usedFiles = new ArrayList<>();
+		for (Path path : list(treesDir)) {
+			if (path.getFileName().toString().endsWith(TREE_EXTENSION)) {
+				usedFiles.add(path);
+			}
+		}
+		if (usedFiles.size() <= maxTrees) {
+			return;
+		}
+
+		usedFiles.sort(Comparator.comparingLong(WorkspaceManager::lastModified));
+
+		int count = usedFiles.size();
+		for (Path usedFile : usedFiles) {
+			if (count <= maxTrees) {
+				break;
+			}
+
+			String filename = usedFile.getFileName().toString();
+			Path tree = treesDir.resolve(filename.substring(0, filename.length() - TREE_EXTENSION.length()));
+			if (tree.equals(keep)) {
+				continue;
+			}
+
+			Files.delete(usedFile);
+			if (Files.exists(tree)) {
+				trash(tree);
+			}
+			count--;
+		}
+	}
+
+	/**
+	 * Moves a directory to the trash and deletes it in the background. Moving
+	 * the directory is quick, and ensures that nothing else uses the directory
+	 * while it is being deleted.
+	 * @param dir the directory
+	 * @throws IOException if there's a problem moving the directory
+	 */
+	private void trash(Path dir) throws IOException {
+		Path trashed = Files.createTempDirectory(trashDir, "trash");
+		try {
+			Files.move(dir, trashed.resolve(dir.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.delete(trashed);
+			Files2.deleteDirectory(dir);
+			return;
+		}
+
+		deleteInBackground(trashed);
+	}
+
+	private void deleteInBackground(Path path) {
+		try {
+			deleters.execute(new DeleteTask(path));
+		} catch (RejectedExecutionException e) {
+			//shutting down, it will be deleted the next time the program runs
+		}
+	}
+
+	/**
+	 * Lists the contents of a directory.
+	 * @param dir the directory
+	 * @return the files and directories it contains
+	 * @throws IOException if there's a problem reading the directory
+	 */
+	private static List<Path> list(Path dir) throws IOException {
+		List<Path> paths = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			stream.forEach(paths::add);
+		}
+		return paths;
+	}
+
+	/**
+	 * Deletes a workspace's lock file if no other process has the workspace
+	 * locked.
+	 * @param lockFile the lock file
+	 * @return true if the lock file was deleted, false if the workspace is in
+	 * use
+	 */
+	private static boolean tryDeleteLock(Path lockFile) {
+		try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+			FileLock lock;
+			try {
+				lock = channel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				//locked by this JVM
+				return false;
+			}
+			if (lock == null) {
+				return false;
+			}
+		} catch (NoSuchFileException e) {
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+
+		try {
+			Files.deleteIfExists(lockFile);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static long lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * A directory that a single run uses for its scratch files.
+	 * @author Michael Angstadt
+	 */
+	public class Workspace implements Closeable {
+		private final Path dir, lockFile;
+		private final FileChannel channel;
+		private final FileLock lock;
+
+		private Workspace(Path dir, Path lockFile, FileChannel channel, FileLock lock) {
+			this.dir = dir;
+			this.lockFile = lockFile;
+			this.channel = channel;
+			this.lock = lock;
+		}
+
+		/**
+		 * Gets the workspace directory.
+		 * @return the directory
+		 */
+		public Path getDirectory() {
+			return dir;
+		}
+
+		/**
+		 * Releases the workspace. Its files are deleted in the background.
+		 * @throws IOException if there's a problem releasing the workspace
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				synchronized (WorkspaceManager.this) {
+					if (Files.exists(dir)) {
+						trash(dir);
+					}
+				}
+			} finally {
+				lock.release();
+				channel.close();
+				Files.deleteIfExists(lockFile);
+			}
+		}
+	}
+
+	/**
+	 * Deletes a directory tree, deleting each sub-directory in a separate
+	 * task. Files that cannot be deleted are left behind. They are deleted the
+	 * next time the trash is swept.
+	 */
+	private static class DeleteTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Path path;
+
+		public DeleteTask(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		protected void compute() {
+			BasicFileAttributes attributes;
+			try {
+				attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+			} catch (IOException e) {
+				return;
+			}
+
+			if (attributes.isDirectory()) {
+				List<DeleteTask> subtasks = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+					for (Path child : stream) {
+						if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+							subtasks.add(new DeleteTask(child));
+						} else {
+							deleteQuietly(child);
+						}
+					}
+				} catch (IOException e) {
+					return;
+				}
+				invokeAll(subtasks);
+			}
+
+			deleteQuietly(path);
+		}
+
+		private static void deleteQuietly(Path path) {
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				//ignore
+			}
+		}
+	}
+}
@@ -0,0 +1,286 @@
+package oakbot.doclet.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager that lets javadoc read source files straight out of a
+ * source code archive (such as a "-sources.jar" file), so the archive does not
+ * have to be extracted first. The archive is opened as a ZIP
+ * {@link FileSystem}, which builds its directory tree from the archive's
+ * central directory. Each source file is decompressed only when javadoc reads
+ * it.
+ * <p>
+ * The archive takes the place of the {@link StandardLocation#SOURCE_PATH
+ * source path}. All other locations are handled by the wrapped file manager.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ZipSourceFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+	private final FileSystem zipFileSystem;
+	private final Path root;
+	private final Charset charset;
+
+	/**
+	 * @param fileManager the file manager to use for all the other locations
+	 * @param archive the source code archive
+	 * @param charset the character encoding of the source files
+	 * @throws IOException if there's a problem opening the archive
+	 */
+	public ZipSourceFileManager(StandardJavaFileManager fileManager, Path archive, Charset charset) throws IOException {
+		super(fileManager);
+		zipFileSystem = FileSystems.newFileSystem(archive, (ClassLoader) null);
+		root = zipFileSystem.getRootDirectories().iterator().next();
+		this.charset = charset;
+	}
+
+	/**
+	 * Gets the names of the top-level packages in a source code archive that
+	 * contain source files. Only the archive's central directory is read.
+	 * @param archive the source code archive
+	 * @return the top-level packages (e.g. "org", "com")
+	 * @throws IOException if there's a problem reading the archive
+	 */
+	public static List<String> getSubpackages(Path archive) throws IOException {
+		Set<String> subpackages = new TreeSet<>();
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				int slash = name.indexOf('/');
+				if (slash > 0 && name.endsWith(Kind.SOURCE.extension)) {
+					String subpackage = name.substring(0, slash);
+					if (!subpackage.equals("META-INF")) {
+						subpackages.add(subpackage);
+					}
+				}
+			}
+		}
+		return new ArrayList<>(subpackages);
+	}
+
+	@Override
+	public boolean hasLocation(Location location) {
+		return location == StandardLocation.SOURCE_PATH || super.hasLocation(location);
+	}
+
+	@Override
+	public Iterable<JavaFileObject> list(Location location, String packageName, Set<Kind> kinds, boolean recurse) throws IOException {
+		if (location != StandardLocation.SOURCE_PATH) {
+			return super.list(location, packageName, kinds, recurse);
+		}
+		if (!kinds.contains(Kind.SOURCE)) {
+			return Collections.emptyList();
+		}
+
+		Path dir = packageDir(packageName);
+		if (!Files.isDirectory(dir)) {
+			return Collections.emptyList();
+		}
+
+		try (Stream<Path> stream = recurse ? Files.walk(dir) : Files.list(dir)) {
+			return stream.filter(ZipSourceFileManager::isSourceFile).map(ZipSourceFile::new).collect(Collectors.toList());
+		}
+	}
+
+	@Override
+	public String inferBinaryName(Location location, JavaFileObject file) {
+		if (file instanceof ZipSourceFile) {
+			return ((ZipSourceFile) file).binaryName();
+		}
+		return super.inferBinaryName(location, file);
+	}
+
+	@Override
+	public boolean isSameFile(FileObject a, FileObject b) {
+		if (a instanceof ZipSourceFile || b instanceof ZipSourceFile) {
+			return a.equals(b);
+		}
+		return super.isSameFile(a, b);
+	}
+
+	@Override
+	public boolean contains(Location location, FileObject file) throws IOException {
+		if (file instanceof ZipSourceFile) {
+			return location == StandardLocation.SOURCE_PATH;
+		}
+		return super.contains(location, file);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForInput(Location location, String className, Kind kind) throws IOException {
+		if (location != StandardLocation.SOURCE_PATH) {
+			return super.getJavaFileForInput(location, className, kind);
+		}
+		if (kind != Kind.SOURCE) {
+			return null;
+		}
+
+		Path file = root.resolve(className.replace('.', '/') + Kind.SOURCE.extension);
+		return Files.isRegularFile(file) ? new ZipSourceFile(file) : null;
+	}
+
+	@Override
+	public FileObject getFileForInput(Location location, String packageName, String relativeName) throws IOException {
+		if (location != StandardLocation.SOURCE_PATH) {
+			return super.getFileForInput(location, packageName, relativeName);
+		}
+
+		Path file = packageDir(packageName).resolve(relativeName);
+		return Files.isRegularFile(file) ? new ZipSourceFile(file) : null;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			zipFileSystem.close();
+		} finally {
+			super.close();
+		}
+	}
+
+	private Path packageDir(String packageName) {
+		return packageName.isEmpty() ? root : root.resolve(packageName.replace('.', '/'));
+	}
+
+	private static boolean isSourceFile(Path path) {
+		return path.getFileName() != null && path.getFileName().toString().endsWith(Kind.SOURCE.extension) && Files.isRegularFile(path);
+	}
+
+	/**
+	 * A file inside of the source code archive.
+	 */
+	private class ZipSourceFile implements JavaFileObject {
+		private final Path path;
+		private final Kind kind;
+
+		public ZipSourceFile(Path path) {
+			this.path = path;
+			kind = path.getFileName().toString().endsWith(Kind.SOURCE.extension) ? Kind.SOURCE : Kind.OTHER;
+		}
+
+		/**
+		 * Gets the fully-qualified name of the class that the file contains,
+		 * based on its location in the archive.
+		 * @return the class name (e.g. "org.jsoup.Jsoup")
+		 */
+		public String binaryName() {
+			String relative = root.relativize(path).toString();
+			return relative.substring(0, relative.length() - Kind.SOURCE.extension.length()).replace('/', '.');
+		}
+
+		@Override
+		public URI toUri() {
+			return path.toUri();
+		}
+
+		@Override
+		public String getName() {
+			return root.relativize(path).toString();
+		}
+
+		@Override
+		public Kind getKind() {
+			return kind;
+		}
+
+		@Override
+		public boolean isNameCompatible(String simpleName, Kind kind) {
+			return kind == this.kind && path.getFileName().toString().equals(simpleName + kind.extension);
+		}
+
+		@Override
+		public InputStream openInputStream() throws IOException {
+			return Files.newInputStream(path);
+		}
+
+		@Override
+		public Reader openReader(boolean ignoreEncodingErrors) throws IOException {
+			return new StringReader(getCharContent(ignoreEncodingErrors).toString());
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+			return charset.decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Writer openWriter() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean delete() {
+			return false;
+		}
+
+		@Override
+		public long getLastModified() {
+			try {
+				return Files.getLastModifiedTime(path).toMillis();
+			} catch (IOException e) {
+				return 0;
+			}
+		}
+
+		@Override
+		public NestingKind getNestingKind() {
+			return null;
+		}
+
+		@Override
+		public Modifier getAccessLevel() {
+			return null;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ZipSourceFile && ((ZipSourceFile) obj).path.equals(path);
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return toUri().toString();
+		}
+	}
+}
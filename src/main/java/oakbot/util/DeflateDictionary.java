@@ -0,0 +1,234 @@
+package oakbot.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Builds and uses preset dictionaries for DEFLATE compression. A preset
+ * dictionary contains byte sequences that are common in the data being
+ * compressed. When a small piece of data is compressed, DEFLATE can then
+ * refer back to the dictionary instead of starting from an empty window.
+ * <p>
+ * Data is compressed as a raw DEFLATE stream (without a zlib header), so it
+ * can be stored in a ZIP entry.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class DeflateDictionary {
+	/**
+	 * The largest useful dictionary size. DEFLATE cannot refer back further
+	 * than this.
+	 */
+	public static final int MAX_SIZE = 32 * 1024;
+
+	/**
+	 * The length of the byte sequences that are counted when the dictionary
+	 * is built.
+	 */
+	private static final int K = 8;
+
+	/**
+	 * The length of the segments that the dictionary is built out of.
+	 */
+	private static final int SEGMENT_SIZE = 48;
+
+	/**
+	 * The distance between the starting positions of the segments that are
+	 * considered.
+	 */
+	private static final int SEGMENT_STEP = 12;
+
+	/**
+	 * Builds a dictionary out of the byte sequences that appear most often in
+	 * the given samples.
+	 * <p>
+	 * The samples are divided into overlapping segments, and each segment is
+	 * scored by how often the 8-byte sequences it contains appear across all
+	 * the samples. The best segments are added to the dictionary, and the
+	 * sequences they contain no longer count towards the scores of the
+	 * remaining segments. The best segments are put at the end of the
+	 * dictionary, since DEFLATE can refer to nearby data with fewer bits.
+	 * </p>
+	 * @param samples the samples
+	 * @param size the maximum size of the dictionary (should not be larger than
+	 * {@link #MAX_SIZE})
+	 * @return the dictionary (may be smaller than the requested size if the
+	 * samples do not have enough in common)
+	 */
+	public static byte[] build(List<byte[]> samples, int size) {
+		Map<Long, Integer> counts = new HashMap<>();
+		for (byte[] sample : samples) {
+			for (int i = 0; i + K <= sample.length; i++) {
+				counts.merge(kmer(sample, i), 1, Integer::sum);
+			}
+		}
+
+		PriorityQueue<Segment> queue = new PriorityQueue<>();
+		for (byte[] sample : samples) {
+			for (int i = 0; i < sample.length; i += SEGMENT_STEP) {
+				int end = Math.min(i + SEGMENT_SIZE, sample.length);
+				Segment segment = new Segment(sample, i, end);
+				segment.score = score(segment, counts);
+				if (segment.score > 0) {
+					queue.add(segment);
+				}
+			}
+		}
+
+		List<Segment> chosen = new ArrayList<>();
+		int total = 0;
+		while (total < size && !queue.isEmpty()) {
+			Segment segment = queue.poll();
+
+			/*
+			 * A segment's score goes down when other segments that share its
+			 * byte sequences are chosen. Scores are only recalculated when a
+			 * segment reaches the top of the queue.
+			 */
+			long score = score(segment, counts);
+			if (score <= 0) {
+				continue;
+			}
+			if (score < segment.score) {
+				segment.score = score;
+				queue.add(segment);
+				continue;
+			}
+
+			chosen.add(segment);
+			total += segment.end - segment.start;
+			for (int i = segment.start; i + K <= segment.end; i++) {
+				counts.remove(kmer(segment.sample, i));
+			}
+		}
+
+		Collections.reverse(chosen);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(total);
+		for (Segment segment : chosen) {
+			out.write(segment.sample, segment.start, segment.end - segment.start);
+		}
+
+		byte dictionary[] = out.toByteArray();
+		if (dictionary.length <= size) {
+			return dictionary;
+		}
+
+		byte truncated[] = new byte[size];
+		System.arraycopy(dictionary, dictionary.length - size, truncated, 0, size);
+		return truncated;
+	}
+
+	/**
+	 * Compresses data as a raw DEFLATE stream.
+	 * @param data the data to compress
+	 * @param dictionary the preset dictionary
+	 * @return the compressed data
+	 */
+	public static byte[] compress(byte[] data, byte[] dictionary) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			if (dictionary.length > 0) {
+				deflater.setDictionary(dictionary);
+			}
+			deflater.setInput(data);
+			deflater.finish();
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+			byte buffer[] = new byte[8192];
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				out.write(buffer, 0, length);
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decompresses a raw DEFLATE stream that was compressed with
+	 * {@link #compress}.
+	 * @param in the compressed data
+	 * @param dictionary the preset dictionary that the data was compressed
+	 * with
+	 * @return the decompressed data (closing this stream closes the given
+	 * stream)
+	 */
+	public static InputStream inflate(InputStream in, byte[] dictionary) {
+		Inflater inflater = new Inflater(true);
+		if (dictionary.length > 0) {
+			inflater.setDictionary(dictionary);
+		}
+
+		return new InflaterInputStream(in, inflater) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					inflater.end();
+				}
+			}
+		};
+	}
+
+	private static long score(Segment segment, Map<Long, Integer> counts) {
+		Set<Long> seen = new HashSet<>();
+		long score = 0;
+		for (int i = segment.start; i + K <= segment.end; i++) {
+			long kmer = kmer(segment.sample, i);
+			if (!seen.add(kmer)) {
+				continue;
+			}
+
+			Integer count = counts.get(kmer);
+			if (count != null && count > 1) {
+				score += count;
+			}
+		}
+		return score;
+	}
+
+	/**
+	 * Packs the byte sequence at the given position into a long.
+	 * @param data the data
+	 * @param position the position of the sequence
+	 * @return the packed sequence
+	 */
+	private static long kmer(byte[] data, int position) {
+		long value = 0;
+		for (int i = 0; i < K; i++) {
+			value = (value << 8) | (data[position + i] & 0xff);
+		}
+		return value;
+	}
+
+	private static class Segment implements Comparable<Segment> {
+		private final byte[] sample;
+		private final int start, end;
+		private long score;
+
+		public Segment(byte[] sample, int start, int end) {
+			this.sample = sample;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int compareTo(Segment that) {
+			return Long.compare(that.score, this.score);
+		}
+	}
+}
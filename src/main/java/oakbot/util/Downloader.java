@@ -1,26 +1,63 @@
 package oakbot.util;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Downloads files from the Internet.
+ * <p>
+ * If the download fails part way through (for example, because the connection
+ * was reset), it is retried after a delay that doubles after each attempt. If
+ * the server supports HTTP range requests, the retry picks up where the failed
+ * attempt left off.
+ * </p>
  * @author Michael Angstadt
  */
 public class Downloader {
 	private final String url;
 	private final Path saveTo;
 	private Progress progress;
+	private long progressInterval = 100;
+	private int retries = 3;
+	private long retryDelay = 1000;
+	private List<String> checksumAlgorithms = new ArrayList<>();
+	private OutputStream tee;
+
+	/**
+	 * The number of bytes of the file that have been received.
+	 */
+	private long received;
+
+	/**
+	 * The number of bytes of the file that have been written to the tee
+	 * stream.
+	 */
+	private long teed;
 
 	/**
 	 * @param url the URL to the file
-	 * @param saveTo where to save the file
+	 * @param saveTo where to save the file or null not to save it (see
+	 * {@link #tee}). If this file already exists, it is treated as a
+	 * partially downloaded copy of the file, and the download will be resumed
+	 * from the end of it if the server supports it.
 	 */
 	public Downloader(String url, Path saveTo) {
 		this.url = url;
@@ -37,40 +74,360 @@ public class Downloader {
 		return this;
 	}
 
+	/**
+	 * Writes the file to a stream while it is being downloaded. Each byte of
+	 * the file is written to the stream once and in order, even if the
+	 * download has to be retried.
+	 * @param tee the stream (it is not closed)
+	 * @return this
+	 */
+	public Downloader tee(OutputStream tee) {
+		this.tee = tee;
+		return this;
+	}
+
+	/**
+	 * Sets the minimum amount of time between calls to the progress callback.
+	 * The callback is always called when the download finishes.
+	 * @param progressInterval the interval in milliseconds (defaults to 100)
+	 * @return this
+	 */
+	public Downloader progressInterval(long progressInterval) {
+		this.progressInterval = progressInterval;
+		return this;
+	}
+
+	/**
+	 * Sets how many times to retry the download if it fails. Downloads are
+	 * not retried if the file does not exist.
+	 * @param retries the number of retries (defaults to 3)
+	 * @param retryDelay the delay before the first retry, in milliseconds.
+	 * The delay doubles after each retry (defaults to 1000).
+	 * @return this
+	 */
+	public Downloader retries(int retries, long retryDelay) {
+		this.retries = retries;
+		this.retryDelay = retryDelay;
+		return this;
+	}
+
+	/**
+	 * Verifies the file against the checksum file that the server provides
+	 * alongside it (e.g. "jsoup-1.8.3.jar.sha1"). The checksum is computed
+	 * while the file is being downloaded. If the server does not have a
+	 * checksum file for any of the given algorithms, the file is not
+	 * verified.
+	 * @param algorithms the checksum algorithms to look for, in order of
+	 * preference (supported: "SHA-1", "SHA-256", "SHA-512", "MD5")
+	 * @return this
+	 */
+	public Downloader verifyChecksum(String... algorithms) {
+		checksumAlgorithms = Arrays.asList(algorithms);
+		return this;
+	}
+
 	/**
 	 * Downloads the file.
-	 * @throws IOException if there's a problem downloading the file
+	 * @throws FileNotFoundException if the file does not exist
+	 * @throws IOException if there's a problem downloading the file, if the
+	 * file does not match its checksum (the downloaded file is deleted in this
+	 * case), or if there's a problem writing to the tee stream (the download
+	 * is not retried in this case)
 	 */
 	public void start() throws IOException {
-		HttpURLConnection connection = getConnection(url);
-		try (InputStream in = new BufferedInputStream(connection.getInputStream())) {
-			if (progress == null) {
-				Files.copy(in, saveTo);
-				return;
+		String algorithm = null, expected = null;
+		for (String checksumAlgorithm : checksumAlgorithms) {
+			String checksumUrl = url + "." + checksumAlgorithm.replace("-", "").toLowerCase();
+			String contents = withRetries(() -> downloadString(checksumUrl));
+			if (contents != null) {
+				algorithm = checksumAlgorithm;
+				expected = parseChecksum(contents);
+				break;
+			}
+		}
+
+		MessageDigest digest = (algorithm == null) ? null : createDigest(algorithm);
+
+		received = 0;
+		teed = 0;
+		if (saveTo != null && Files.exists(saveTo)) {
+			if (tee == null) {
+				//resume the partial download
+				received = Files.size(saveTo);
+				if (digest != null) {
+					try (InputStream in = Files.newInputStream(saveTo)) {
+						update(digest, in);
+					}
+				}
+			} else {
+				//the tee stream would miss the beginning of the file
+				Files.delete(saveTo);
+			}
+		}
+
+		try {
+			withRetries(() -> {
+				download(digest);
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		if (digest != null) {
+			String actual = Files2.toHex(digest.digest());
+			if (!expected.equals(actual)) {
+				if (saveTo != null) {
+					Files.deleteIfExists(saveTo);
+				}
+				throw new IOException(algorithm + " checksum of " + url + " does not match. Expected " + expected + ", but was " + actual + ".");
+			}
+		}
+	}
+
+	/**
+	 * Makes one attempt to download the file. If an earlier attempt failed,
+	 * the server is asked to send only the part of the file that is missing.
+	 * @param digest computes the file's checksum (can be null)
+	 * @throws IOException if there's a problem downloading the file
+	 * @throws UncheckedIOException if there's a problem writing to the tee
+	 * stream
+	 */
+	private void download(MessageDigest digest) throws IOException {
+		URLConnection connection = getConnection(url);
+		if (received > 0) {
+			connection.setRequestProperty("Range", "bytes=" + received + "-");
+		}
+
+		InputStream connectionIn;
+		try {
+			connectionIn = connection.getInputStream();
+		} catch (IOException e) {
+			if (received > 0 && responseCode(connection) == 416) {
+				//the partial file is not a prefix of the file, start over
+				received = 0;
 			}
+			discardErrorResponse(connection);
+			throw e;
+		}
 
-			long size = connection.getContentLengthLong();
-			long downloaded = 0;
-			byte buffer[] = new byte[1024 * 16];
-			try (OutputStream out = Files.newOutputStream(saveTo)) {
-				int read;
-				while ((read = in.read(buffer)) != -1) {
+		boolean resume = (received > 0 && responseCode(connection) == HttpURLConnection.HTTP_PARTIAL);
+		if (!resume) {
+			//the server is sending the whole file
+			received = 0;
+			if (digest != null) {
+				digest.reset();
+			}
+		}
+
+		long size = connection.getContentLengthLong();
+		if (size >= 0) {
+			size += received;
+		}
+
+		long lastProgress = System.nanoTime();
+		boolean progressPending = false;
+		byte buffer[] = new byte[1024 * 16];
+		try (InputStream in = new BufferedInputStream(connectionIn); OutputStream out = openSaveTo(resume)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				if (out != null) {
 					out.write(buffer, 0, read);
-					downloaded += read;
-					progress.progress(downloaded, size);
 				}
+				if (digest != null) {
+					digest.update(buffer, 0, read);
+				}
+
+				long start = received;
+				received += read;
+				if (tee != null && received > teed) {
+					//skip the bytes that were already sent to the tee stream by an earlier attempt
+					int skip = (int) Math.max(0, teed - start);
+					try {
+						tee.write(buffer, skip, read - skip);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					teed = received;
+				}
+
+				if (progress != null) {
+					long now = System.nanoTime();
+					if (now - lastProgress >= progressInterval * 1_000_000) {
+						progress.progress(received, size);
+						lastProgress = now;
+						progressPending = false;
+					} else {
+						progressPending = true;
+					}
+				}
+			}
+		}
+
+		if (progressPending) {
+			progress.progress(received, size);
+		}
+	}
+
+	private OutputStream openSaveTo(boolean append) throws IOException {
+		if (saveTo == null) {
+			return null;
+		}
+		return append ? Files.newOutputStream(saveTo, StandardOpenOption.APPEND) : Files.newOutputStream(saveTo);
+	}
+
+	/**
+	 * Downloads a small text file, such as a checksum file.
+	 * @param url the URL of the file
+	 * @return the contents of the file or null if the file does not exist
+	 * @throws IOException if there's a problem downloading the file
+	 */
+	private String downloadString(String url) throws IOException {
+		URLConnection connection = getConnection(url);
+		InputStream connectionIn;
+		try {
+			connectionIn = connection.getInputStream();
+		} catch (FileNotFoundException e) {
+			discardErrorResponse(connection);
+			return null;
+		} catch (IOException e) {
+			discardErrorResponse(connection);
+			throw e;
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = connectionIn) {
+			byte buffer[] = new byte[1024];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
 			}
 		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
 	}
 
 	/**
-	 * Opens an HTTP connection to the file (for unit testing).
+	 * Runs an operation, retrying it with exponential backoff if it fails.
+	 * Operations that fail because the file does not exist are not retried.
+	 * @param operation the operation
+	 * @return the operation's return value
+	 * @throws IOException if the last attempt failed
+	 */
+	private <T> T withRetries(IOOperation<T> operation) throws IOException {
+		long delay = retryDelay;
+		for (int attempt = 0;; attempt++) {
+			try {
+				return operation.run();
+			} catch (FileNotFoundException e) {
+				throw e;
+			} catch (IOException e) {
+				if (attempt >= retries) {
+					throw e;
+				}
+				sleep(delay);
+				delay *= 2;
+			}
+		}
+	}
+
+	/**
+	 * Parses the contents of a checksum file. Some checksum files contain the
+	 * name of the file after the checksum (e.g. "2fd4e1c6  jsoup-1.8.3.jar").
+	 * @param contents the contents of the checksum file
+	 * @return the checksum (in lower case)
+	 */
+	public static String parseChecksum(String contents) {
+		String trimmed = contents.trim();
+		int space = trimmed.indexOf(' ');
+		return ((space < 0) ? trimmed : trimmed.substring(0, space)).toLowerCase();
+	}
+
+	private static MessageDigest createDigest(String algorithm) throws IOException {
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static void update(MessageDigest digest, InputStream in) throws IOException {
+		byte buffer[] = new byte[1024 * 16];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			digest.update(buffer, 0, read);
+		}
+	}
+
+	/**
+	 * Gets the HTTP response code of a connection.
+	 * @param connection the connection
+	 * @return the response code or -1 if it is not an HTTP connection or the
+	 * response code could not be read
+	 */
+	private static int responseCode(URLConnection connection) {
+		if (!(connection instanceof HttpURLConnection)) {
+			return -1;
+		}
+
+		try {
+			return ((HttpURLConnection) connection).getResponseCode();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Reads and closes the body of an HTTP error response (e.g. a 404 page).
+	 * This allows the underlying connection to be kept alive and reused for
+	 * the next request.
+	 * @param connection the connection
+	 */
+	private static void discardErrorResponse(URLConnection connection) {
+		if (!(connection instanceof HttpURLConnection)) {
+			return;
+		}
+
+		try (InputStream error = ((HttpURLConnection) connection).getErrorStream()) {
+			if (error == null) {
+				return;
+			}
+
+			byte buffer[] = new byte[1024];
+			while (error.read(buffer) != -1) {
+				//discard
+			}
+		} catch (IOException ignore) {
+			//the connection will not be reused
+		}
+	}
+
+	/**
+	 * Opens a connection to the file (for unit testing). Besides HTTP, any
+	 * protocol that Java supports can be used (such as "file://" URLs).
 	 * @param url the URL
 	 * @return the connection
 	 * @throws IOException if there's a problem establishing the connection
 	 */
-	HttpURLConnection getConnection(String url) throws IOException {
-		return (HttpURLConnection) new URL(url).openConnection();
+	URLConnection getConnection(String url) throws IOException {
+		return new URL(url).openConnection();
+	}
+
+	/**
+	 * Waits before retrying a failed download (for unit testing).
+	 * @param millis the amount of time to wait
+	 * @throws InterruptedIOException if the thread is interrupted
+	 */
+	void sleep(long millis) throws InterruptedIOException {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+
+	private interface IOOperation<T> {
+		T run() throws IOException;
 	}
 
 	/**
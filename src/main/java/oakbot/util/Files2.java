@@ -1,12 +1,16 @@
 package oakbot.util;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Predicate;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -23,11 +27,46 @@ public class Files2 {
 	 * @throws IOException if there's a problem extracting the ZIP file
 	 */
 	public static void unzip(Path destinationDir, Path zipFile) throws IOException {
-		try (ZipInputStream zin = new ZipInputStream(Files.newInputStream(zipFile))) {
+		unzip(destinationDir, zipFile, zipPath -> true);
+	}
+
+	/**
+	 * Extracts some of the files in a ZIP file. The files that are not
+	 * extracted are skipped over without being decompressed. The files are
+	 * extracted in parallel, using one thread per processor.
+	 * @param destinationDir the destination directory
+	 * @param zipFile the ZIP file
+	 * @param filter decides which files to extract, based on their paths
+	 * within the archive (e.g. "org/jsoup/Jsoup.java")
+	 * @return statistics about the extraction
+	 * @throws IOException if there's a problem extracting the ZIP file
+	 * @see ZipExtractor
+	 */
+	public static UnzipStats unzip(Path destinationDir, Path zipFile, Predicate<String> filter) throws IOException {
+		int threads = Runtime.getRuntime().availableProcessors();
+		return new ZipExtractor(threads).extract(destinationDir, zipFile, filter);
+	}
+
+	/**
+	 * Extracts the files in a ZIP archive while the archive is being read from
+	 * a stream (for example, while it is being downloaded). The stream is read
+	 * to the end, even after the last file is extracted, and then closed.
+	 * @param destinationDir the destination directory
+	 * @param in the ZIP archive
+	 * @param filter decides which files to extract, based on their paths
+	 * within the archive (e.g. "org/jsoup/Jsoup.java")
+	 * @throws IOException if there's a problem extracting the ZIP archive
+	 */
+	public static void unzip(Path destinationDir, InputStream in, Predicate<String> filter) throws IOException {
+		try (ZipInputStream zin = new ZipInputStream(in)) {
 			ZipEntry entry;
 			while ((entry = zin.getNextEntry()) != null) {
 				String zipPath = entry.getName();
-				Path destFile = destinationDir.resolve(zipPath);
+				if (!filter.test(zipPath)) {
+					continue;
+				}
+
+				Path destFile = resolveZipEntry(destinationDir, zipPath);
 
 				//entry is a directory
 				if (zipPath.endsWith("/")) {
@@ -46,7 +85,76 @@ public class Files2 {
 				//copy the file
 				Files.copy(zin, destFile, StandardCopyOption.REPLACE_EXISTING);
 			}
+
+			/*
+			 * Read the rest of the archive (its central directory). If the
+			 * stream is being fed by another thread, this allows that thread
+			 * to finish.
+			 */
+			byte buffer[] = new byte[1024 * 8];
+			while (in.read(buffer) != -1) {
+				//discard
+			}
+		}
+	}
+
+	/**
+	 * Determines where to extract a ZIP entry to. Entry paths that would end
+	 * up outside of the destination directory (e.g. "../../.bashrc") are
+	 * rejected. Such entries are used in "zip slip" attacks.
+	 * @param destinationDir the destination directory
+	 * @param zipPath the path of the entry within the archive
+	 * @return the path to extract the entry to
+	 * @throws IOException if the entry path points outside of the destination
+	 * directory
+	 */
+	public static Path resolveZipEntry(Path destinationDir, String zipPath) throws IOException {
+		Path normalizedDir = destinationDir.normalize();
+		Path destFile = normalizedDir.resolve(zipPath).normalize();
+		if (!destFile.startsWith(normalizedDir) || destFile.equals(normalizedDir)) {
+			throw new IOException("ZIP entry points to a location outside of the destination directory: " + zipPath);
+		}
+		return destFile;
+	}
+
+	/**
+	 * Computes the checksum of a file.
+	 * @param file the file
+	 * @param algorithm the hash algorithm (e.g. "SHA-1")
+	 * @return the checksum as a lower-case hex string
+	 * @throws IOException if there's a problem reading the file
+	 */
+	public static String checksum(Path file, String algorithm) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		try (InputStream in = Files.newInputStream(file)) {
+			byte buffer[] = new byte[1024 * 16];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Converts a byte array to a hex string.
+	 * @param bytes the bytes
+	 * @return the lower-case hex string
+	 */
+	public static String toHex(byte bytes[]) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
 		}
+		return sb.toString();
 	}
 
 	/**
@@ -86,4 +194,77 @@ public class Files2 {
 			}
 		});
 	}
+
+	/**
+	 * Statistics about the extraction of a ZIP file.
+	 * @author Michael Angstadt
+	 * @see Files2#unzip(Path, Path, Predicate)
+	 */
+	public static class UnzipStats {
+		private final int filesExtracted, filesSkipped;
+		private final long bytesExtracted, bytesSkipped, nanos;
+
+		/**
+		 * @param filesExtracted the number of files that were extracted
+		 * @param bytesExtracted the number of bytes that were written to disk
+		 * @param filesSkipped the number of files that were skipped
+		 * @param bytesSkipped the uncompressed size of the skipped files
+		 * @param nanos how long the extraction took
+		 */
+		UnzipStats(int filesExtracted, long bytesExtracted, int filesSkipped, long bytesSkipped, long nanos) {
+			this.filesExtracted = filesExtracted;
+			this.bytesExtracted = bytesExtracted;
+			this.filesSkipped = filesSkipped;
+			this.bytesSkipped = bytesSkipped;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return the number of files that were extracted
+		 */
+		public int getFilesExtracted() {
+			return filesExtracted;
+		}
+
+		/**
+		 * @return the number of bytes that were written to disk
+		 */
+		public long getBytesExtracted() {
+			return bytesExtracted;
+		}
+
+		/**
+		 * @return the number of files that were skipped
+		 */
+		public int getFilesSkipped() {
+			return filesSkipped;
+		}
+
+		/**
+		 * @return the uncompressed size of the files that were skipped
+		 */
+		public long getBytesSkipped() {
+			return bytesSkipped;
+		}
+
+		/**
+		 * @return how long the extraction took, in milliseconds
+		 */
+		public long getMillis() {
+			return nanos / 1_000_000;
+		}
+
+		/**
+		 * Estimates how much time was saved by skipping files. This is the
+		 * time it would have taken to extract the skipped files at the same
+		 * rate that the other files were extracted.
+		 * @return the estimated time saved, in milliseconds
+		 */
+		public long getEstimatedMillisSaved() {
+			if (bytesExtracted == 0) {
+				return 0;
+			}
+			return (long) ((double) bytesSkipped / bytesExtracted * getMillis());
+		}
+	}
 }
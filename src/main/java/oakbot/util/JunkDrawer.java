@@ -1,5 +1,13 @@
 package oakbot.util;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 /**
  * CLASS WITH PUBLIC STATIC METHODS THAT HAVE NOTHING TO DO WITH EACH OTHER.
  * @author Michael Angstadt
@@ -14,6 +22,52 @@ public final class JunkDrawer {
 		WINDOWS_OS = (os.indexOf("windows") == 0);
 	}
 
+	/**
+	 * Gets the total amount of physical memory on the local machine.
+	 * @return the amount of memory in bytes or 0 if it cannot be determined
+	 */
+	public static long totalPhysicalMemory() {
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize();
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the amount of physical memory on the local machine that can be
+	 * used without swapping. On Linux, this includes the memory that the
+	 * operating system uses for caches, since that memory is freed when it is
+	 * needed.
+	 * @return the amount of memory in bytes or 0 if it cannot be determined
+	 */
+	public static long availablePhysicalMemory() {
+		Path meminfo = Paths.get("/proc/meminfo");
+		if (Files.isReadable(meminfo)) {
+			try (BufferedReader reader = Files.newBufferedReader(meminfo)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("MemAvailable:")) {
+						String kb = line.substring("MemAvailable:".length()).replace("kB", "").trim();
+						long available = Long.parseLong(kb) * 1024;
+
+						//the total may be smaller if running in a container
+						long total = totalPhysicalMemory();
+						return (total > 0) ? Math.min(available, total) : available;
+					}
+				}
+			} catch (IOException | NumberFormatException ignore) {
+				//fall back to the JVM's value
+			}
+		}
+
+		OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+		if (os instanceof com.sun.management.OperatingSystemMXBean) {
+			return ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize();
+		}
+		return 0;
+	}
+
 	private JunkDrawer() {
 		//hide
 	}
@@ -0,0 +1,172 @@
+package oakbot.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Shortens SO Chat markdown without breaking its formatting. The text is only
+ * cut between words, links and "code" spans are never cut in half, and any
+ * bold, italic, or strike-through formatting that is still open at the cut is
+ * closed again.
+ * @author Michael Angstadt
+ * @see ChatBuilder
+ */
+public class MarkdownTruncator {
+	/**
+	 * The maximum length of a single-line SO Chat message. Longer messages
+	 * are not formatted.
+	 */
+	public static final int MAX_MESSAGE_LENGTH = 500;
+
+	/**
+	 * The text that is appended to truncated markdown.
+	 */
+	private static final String ELLIPSIS = "...";
+
+	/**
+	 * Shortens markdown to the given length.
+	 * @param markdown the markdown (should not contain newlines)
+	 * @param maxLength the maximum length
+	 * @return the markdown, or the shortened markdown followed by an ellipsis
+	 * if it is too long
+	 */
+	public static String truncate(String markdown, int maxLength) {
+		if (markdown.length() <= maxLength) {
+			return markdown;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		Deque<String> open = new ArrayDeque<>();
+		int kept = 0;
+		Deque<String> keptOpen = new ArrayDeque<>();
+
+		int i = 0;
+		while (i < markdown.length()) {
+			int end = tokenEnd(markdown, i);
+			String token = markdown.substring(i, end);
+
+			if (isFormatting(token)) {
+				if (token.equals(open.peek())) {
+					open.pop();
+				} else {
+					open.push(token);
+				}
+			}
+
+			if (sb.length() + token.length() + closingLength(open) + ELLIPSIS.length() > maxLength) {
+				break;
+			}
+			sb.append(token);
+			i = end;
+
+			/*
+			 * Only cut after a word or before a space, and never while a
+			 * marker has just been opened.
+			 */
+			boolean boundary = (i >= markdown.length() || markdown.charAt(i) == ' ') && !token.equals(open.peek());
+			if (boundary) {
+				kept = sb.length();
+				keptOpen = new ArrayDeque<>(open);
+			}
+		}
+
+		sb.setLength(kept);
+		while (sb.length() > 0 && sb.charAt(sb.length() - 1) == ' ') {
+			sb.setLength(sb.length() - 1);
+		}
+		for (String marker : keptOpen) {
+			sb.append(marker);
+		}
+		return sb.append(ELLIPSIS).toString();
+	}
+
+	/**
+	 * Finds the end of the token that starts at the given position. A token
+	 * is a link, a "code" span, an escaped character, a formatting marker, a
+	 * space, or a run of other characters.
+	 * @param markdown the markdown
+	 * @param start the start of the token
+	 * @return the end of the token (exclusive)
+	 */
+	private static int tokenEnd(String markdown, int start) {
+		char c = markdown.charAt(start);
+		switch (c) {
+		case '\\':
+			return Math.min(start + 2, markdown.length());
+		case '`': {
+			int end = markdown.indexOf('`', start + 1);
+			return (end < 0) ? start + 1 : end + 1;
+		}
+		case '[': {
+			int end = linkEnd(markdown, start);
+			return (end < 0) ? start + 1 : end;
+		}
+		case '*':
+			return (start + 1 < markdown.length() && markdown.charAt(start + 1) == '*') ? start + 2 : start + 1;
+		case '-':
+			if (markdown.startsWith("---", start)) {
+				return start + 3;
+			}
+			break;
+		case ' ':
+			return start + 1;
+		}
+
+		int end = start + 1;
+		while (end < markdown.length() && "\\`[*- ".indexOf(markdown.charAt(end)) < 0) {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * Finds the end of a link.
+	 * @param markdown the markdown
+	 * @param start the position of the link's opening bracket
+	 * @return the end of the link (exclusive) or -1 if it is not a link
+	 */
+	private static int linkEnd(String markdown, int start) {
+		int i = start + 1;
+		while (i < markdown.length()) {
+			char c = markdown.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+			if (c == ']') {
+				break;
+			}
+			i++;
+		}
+		if (!markdown.startsWith("](", i)) {
+			return -1;
+		}
+
+		//URLs can contain parentheses (e.g. Javadoc anchors)
+		int depth = 0;
+		for (i += 2; i < markdown.length(); i++) {
+			char c = markdown.charAt(i);
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (depth == 0) {
+					return i + 1;
+				}
+				depth--;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isFormatting(String token) {
+		return token.equals("*") || token.equals("**") || token.equals("---");
+	}
+
+	private static int closingLength(Deque<String> open) {
+		int length = 0;
+		for (String marker : open) {
+			length += marker.length();
+		}
+		return length;
+	}
+}
@@ -1,25 +1,110 @@
 package oakbot.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
 
 import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
 
 /**
  * Contains XML utility methods.
+ * <p>
+ * The methods can be called from multiple threads at once. The JAXP factories
+ * are looked up once, since each lookup searches the classpath. The document
+ * builders and transformers they create are not thread-safe, so each thread
+ * gets its own, which is then reused.
+ * </p>
  * @author Michael Angstadt
  */
 public class XmlUtils {
+	private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+	private static final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+	private static final ThreadLocal<DocumentBuilder> documentBuilder = ThreadLocal.withInitial(() -> {
+		synchronized (documentBuilderFactory) {
+			try {
+				return documentBuilderFactory.newDocumentBuilder();
+			} catch (ParserConfigurationException e) {
+				//should never be thrown
+				throw new RuntimeException(e);
+			}
+		}
+	});
+
+	private static final ThreadLocal<Transformer> transformer = ThreadLocal.withInitial(() -> {
+		synchronized (transformerFactory) {
+			try {
+				return transformerFactory.newTransformer();
+			} catch (TransformerConfigurationException e) {
+				//should never be thrown
+				throw new RuntimeException(e);
+			}
+		}
+	});
+
 	/**
 	 * Creates an empty XML document.
 	 * @return the XML document
 	 */
 	public static Document newDocument() {
-		try {
-			return DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-		} catch (ParserConfigurationException e) {
-			//should never be thrown
-			throw new RuntimeException(e);
+		return documentBuilder.get().newDocument();
+	}
+
+	/**
+	 * Parses an XML file.
+	 * @param file the file
+	 * @return the XML document
+	 * @throws SAXException if the file is not valid XML
+	 * @throws IOException if there's a problem reading the file
+	 */
+	public static Document parse(Path file) throws SAXException, IOException {
+		try (InputStream in = Files.newInputStream(file)) {
+			return parse(in);
 		}
 	}
+
+	/**
+	 * Parses an XML document.
+	 * @param in the input stream to read the document from (it is not closed)
+	 * @return the XML document
+	 * @throws SAXException if the input is not valid XML
+	 * @throws IOException if there's a problem reading from the stream
+	 */
+	public static Document parse(InputStream in) throws SAXException, IOException {
+		DocumentBuilder builder = documentBuilder.get();
+		builder.reset();
+		return builder.parse(in);
+	}
+
+	/**
+	 * Writes an XML document.
+	 * @param document the XML document
+	 * @param writer the writer to write the document to (it is not closed)
+	 * @param prettyPrint true to indent the XML, false not to
+	 * @throws TransformerException if the document could not be written
+	 */
+	public static void write(Document document, Writer writer, boolean prettyPrint) throws TransformerException {
+		Transformer transformer = XmlUtils.transformer.get();
+		transformer.reset();
+		if (prettyPrint) {
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+		}
+
+		transformer.transform(new DOMSource(document), new StreamResult(writer));
+	}
 }
@@ -0,0 +1,160 @@
+package oakbot.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes the records that end a ZIP file, and the ZIP64 extensions that a ZIP
+ * file needs once it has more than 65535 entries or is larger than 4GB.
+ * <p>
+ * A value that does not fit in its header field is set to its maximum (e.g.
+ * 0xFFFFFFFF) and stored in a ZIP64 extra field instead. If the central
+ * directory does not fit in the end of central directory record, a ZIP64 end
+ * of central directory record and its locator are written before it.
+ * </p>
+ * @author Michael Angstadt
+ * @see ZipWriter
+ * @see ZipMerger
+ */
+final class Zip64 {
+	static final int END_SIGNATURE = 0x06054b50;
+	static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+
+	static final int END_SIZE = 22;
+	static final int ZIP64_END_SIZE = 56;
+	static final int ZIP64_LOCATOR_SIZE = 20;
+
+	/**
+	 * The header ID of the ZIP64 extra field.
+	 */
+	static final short EXTRA_ID = 0x0001;
+
+	/**
+	 * The version that is needed to extract entries that use ZIP64 extensions.
+	 */
+	static final short VERSION = 45;
+
+	/**
+	 * The largest size or offset that fits in a header field.
+	 */
+	static final long MAX_SIZE = 0xffffffffL;
+
+	/**
+	 * The largest number of entries that fits in the end of central directory
+	 * record.
+	 */
+	static final int MAX_ENTRIES = 0xffff;
+
+	private Zip64() {
+		//hide
+	}
+
+	/**
+	 * Gets the value to store in a 4-byte size or offset field.
+	 * @param value the value
+	 * @return the value or 0xFFFFFFFF if it is stored in the ZIP64 extra field
+	 */
+	static int field(long value) {
+		return (int) Math.min(value, MAX_SIZE);
+	}
+
+	/**
+	 * Builds the ZIP64 extra field of a local file header. If either size is
+	 * too big, both sizes are stored in it, as the specification requires.
+	 * @param size the uncompressed size
+	 * @param compressedSize the compressed size
+	 * @return the extra field or an empty array if it is not needed
+	 */
+	static byte[] localExtraField(long size, long compressedSize) {
+		if (size < MAX_SIZE && compressedSize < MAX_SIZE) {
+			return new byte[0];
+		}
+
+		ByteBuffer extra = ByteBuffer.allocate(4 + 16).order(ByteOrder.LITTLE_ENDIAN);
+		extra.putShort(EXTRA_ID);
+		extra.putShort((short) 16);
+		extra.putLong(size);
+		extra.putLong(compressedSize);
+		return extra.array();
+	}
+
+	/**
+	 * Builds the ZIP64 extra field of a central directory header. It contains
+	 * the values that do not fit in the header, in the order the specification
+	 * requires.
+	 * @param size the uncompressed size
+	 * @param compressedSize the compressed size
+	 * @param localHeaderOffset the offset of the entry's local header
+	 * @return the extra field or an empty array if it is not needed
+	 */
+	static byte[] centralExtraField(long size, long compressedSize, long localHeaderOffset) {
+		int length = 0;
+		for (long value : new long[] { size, compressedSize, localHeaderOffset }) {
+			if (value >= MAX_SIZE) {
+				length += 8;
+			}
+		}
+		if (length == 0) {
+			return new byte[0];
+		}
+
+		ByteBuffer extra = ByteBuffer.allocate(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+		extra.putShort(EXTRA_ID);
+		extra.putShort((short) length);
+		for (long value : new long[] { size, compressedSize, localHeaderOffset }) {
+			if (value >= MAX_SIZE) {
+				extra.putLong(value);
+			}
+		}
+		return extra.array();
+	}
+
+	/**
+	 * Writes the end of central directory record. It is preceded by the ZIP64
+	 * end of central directory record and its locator if any of the values do
+	 * not fit in it.
+	 * @param out the output stream (positioned right after the central
+	 * directory)
+	 * @param count the number of entries
+	 * @param centralDirectorySize the size of the central directory
+	 * @param centralDirectoryOffset the offset of the central directory
+	 * @throws IOException if there's a problem writing to the stream
+	 */
+	static void writeEnd(OutputStream out, long count, long centralDirectorySize, long centralDirectoryOffset) throws IOException {
+		if (count >= MAX_ENTRIES || centralDirectorySize >= MAX_SIZE || centralDirectoryOffset >= MAX_SIZE) {
+			long zip64EndOffset = centralDirectoryOffset + centralDirectorySize;
+
+			ByteBuffer zip64End = ByteBuffer.allocate(ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			zip64End.putInt(ZIP64_END_SIGNATURE);
+			zip64End.putLong(ZIP64_END_SIZE - 12); //size of the rest of the record
+			zip64End.putShort(VERSION); //version made by
+			zip64End.putShort(VERSION); //version needed
+			zip64End.putInt(0); //disk number
+			zip64End.putInt(0); //disk where central directory starts
+			zip64End.putLong(count);
+			zip64End.putLong(count);
+			zip64End.putLong(centralDirectorySize);
+			zip64End.putLong(centralDirectoryOffset);
+
+			zip64End.putInt(ZIP64_LOCATOR_SIGNATURE);
+			zip64End.putInt(0); //disk where ZIP64 end record is
+			zip64End.putLong(zip64EndOffset);
+			zip64End.putInt(1); //total number of disks
+			out.write(zip64End.array());
+		}
+
+		ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		end.putInt(END_SIGNATURE);
+		end.putShort((short) 0); //disk number
+		end.putShort((short) 0); //disk where central directory starts
+		end.putShort((short) Math.min(count, MAX_ENTRIES));
+		end.putShort((short) Math.min(count, MAX_ENTRIES));
+		end.putInt(field(centralDirectorySize));
+		end.putInt(field(centralDirectoryOffset));
+		end.putShort((short) 0); //comment length
+		out.write(end.array());
+	}
+}
@@ -0,0 +1,239 @@
+package oakbot.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts ZIP files using multiple threads. This makes a big difference for
+ * archives that contain a very large number of small files, such as the JDK's
+ * "src.zip".
+ * <p>
+ * The archive's central directory is read first, and all of the directories
+ * that are needed are created up front. Then, the files are divided among the
+ * worker threads in small batches. Each worker opens its own {@link ZipFile}
+ * instance, so the workers do not have to wait on each other's reads, and
+ * reuses the same buffer for all of the files it extracts. Since the central
+ * directory contains the size of each file, most files are written with a
+ * single write call.
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ZipExtractor {
+	/**
+	 * The number of files each worker takes at a time.
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * Files that are larger than this are streamed to disk instead of being
+	 * read into memory first.
+	 */
+	private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+	private final int threads;
+
+	/**
+	 * @param threads the number of threads to use
+	 */
+	public ZipExtractor(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Extracts some of the files in a ZIP file. The files that are not
+	 * extracted are skipped over without being decompressed.
+	 * @param destinationDir the destination directory
+	 * @param zipFile the ZIP file
+	 * @param filter decides which files to extract, based on their paths
+	 * within the archive (e.g. "org/jsoup/Jsoup.java")
+	 * @return statistics about the extraction
+	 * @throws IOException if there's a problem extracting the ZIP file or if
+	 * any of its entries point to a location outside of the destination
+	 * directory
+	 */
+	public Files2.UnzipStats extract(Path destinationDir, Path zipFile, Predicate<String> filter) throws IOException {
+		long start = System.nanoTime();
+
+		int filesSkipped = 0;
+		long bytesSkipped = 0;
+		List<ZipEntry> entries = new ArrayList<>();
+		List<Path> destFiles = new ArrayList<>();
+		Set<Path> dirs = new LinkedHashSet<>();
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			Enumeration<? extends ZipEntry> it = zip.entries();
+			while (it.hasMoreElements()) {
+				ZipEntry entry = it.nextElement();
+				String zipPath = entry.getName();
+				if (!filter.test(zipPath)) {
+					if (!entry.isDirectory()) {
+						filesSkipped++;
+						bytesSkipped += Math.max(entry.getSize(), 0);
+					}
+					continue;
+				}
+
+				Path destFile = Files2.resolveZipEntry(destinationDir, zipPath);
+				if (entry.isDirectory()) {
+					dirs.add(destFile);
+					continue;
+				}
+
+				dirs.add(destFile.getParent());
+				entries.add(entry);
+				destFiles.add(destFile);
+			}
+		}
+
+		for (Path dir : dirs) {
+			Files.createDirectories(dir);
+		}
+
+		LongAdder bytesExtracted = new LongAdder();
+		AtomicInteger next = new AtomicInteger();
+		Callable<Void> worker = () -> {
+			try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+				byte buffer[] = new byte[1024 * 64];
+				int first;
+				while ((first = next.getAndAdd(BATCH_SIZE)) < entries.size()) {
+					int last = Math.min(first + BATCH_SIZE, entries.size());
+					for (int i = first; i < last; i++) {
+						if (Thread.currentThread().isInterrupted()) {
+							throw new InterruptedIOException();
+						}
+
+						ZipEntry entry = entries.get(i);
+						long size = entry.getSize();
+						if (size > buffer.length && size <= MAX_BUFFER_SIZE) {
+							buffer = new byte[(int) size];
+						}
+						bytesExtracted.add(extract(zip, entry, destFiles.get(i), buffer));
+					}
+				}
+			}
+			return null;
+		};
+
+		int workers = Math.max(1, Math.min(threads, (entries.size() + BATCH_SIZE - 1) / BATCH_SIZE));
+		if (workers == 1) {
+			try {
+				worker.call();
+			} catch (IOException | RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IOException(e);
+			}
+		} else {
+			runInParallel(worker, workers);
+		}
+
+		return new Files2.UnzipStats(entries.size(), bytesExtracted.sum(), filesSkipped, bytesSkipped, System.nanoTime() - start);
+	}
+
+	/**
+	 * Runs copies of a task on multiple threads and waits for them to finish.
+	 * If one of the tasks fails, the others are stopped.
+	 * @param task the task
+	 * @param count the number of threads
+	 * @throws IOException if any of the tasks failed
+	 */
+	private static void runInParallel(Callable<Void> task, int count) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(count, runnable -> {
+			Thread thread = new Thread(runnable, "unzip");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		try {
+			List<Future<Void>> futures = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				futures.add(executor.submit(task));
+			}
+
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IOException(cause);
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Extracts a single file.
+	 * @param zip the ZIP file
+	 * @param entry the file's entry
+	 * @param destFile where to save the file
+	 * @param buffer the buffer to use
+	 * @return the number of bytes written
+	 * @throws IOException if there's a problem extracting the file
+	 */
+	private static long extract(ZipFile zip, ZipEntry entry, Path destFile, byte buffer[]) throws IOException {
+		long size = entry.getSize();
+		try (InputStream in = zip.getInputStream(entry); FileChannel out = FileChannel.open(destFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			if (size >= 0 && size <= buffer.length) {
+				//read the whole file, then write it all at once
+				int length = readFully(in, buffer);
+				write(out, buffer, length);
+				return length;
+			}
+
+			long written = 0;
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				write(out, buffer, read);
+				written += read;
+			}
+			return written;
+		}
+	}
+
+	private static int readFully(InputStream in, byte buffer[]) throws IOException {
+		int total = 0;
+		int read;
+		while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) != -1) {
+			total += read;
+		}
+		return total;
+	}
+
+	private static void write(FileChannel out, byte buffer[], int length) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(buffer, 0, length);
+		while (bb.hasRemaining()) {
+			out.write(bb);
+		}
+	}
+}
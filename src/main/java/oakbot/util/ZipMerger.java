@@ -0,0 +1,403 @@
+package oakbot.util;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Combines multiple ZIP files into one. The entries are copied as-is, without
+ * being decompressed and compressed again. Only the headers are rewritten.
+ * <p>
+ * If more than one of the ZIP files contain an entry with the same name, only
+ * the entry from the first ZIP file is kept.
+ * </p>
+ * <p>
+ * The ZIP files can use the ZIP64 extensions, and the merged file uses them if
+ * it ends up with more than 65535 entries or more than 4GB of data (see
+ * {@link Zip64}).
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ZipMerger {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	/**
+	 * The "data descriptor" flag. It is cleared, since the sizes and CRC are
+	 * always written to the local headers of the merged file.
+	 */
+	private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+
+	private static final short METHOD_STORED = 0;
+
+	/**
+	 * The date of entries that are added to the merged file, rather than
+	 * copied (January 1, 1980 in MS-DOS format).
+	 */
+	private static final short DOS_EPOCH_DATE = (1 << 5) | 1;
+
+	/**
+	 * Merges ZIP files.
+	 * @param output the file to write the merged ZIP file to (overwritten if
+	 * it already exists)
+	 * @param inputs the ZIP files to merge
+	 * @return the number of entries in the merged file
+	 * @throws IOException if there's a problem reading the ZIP files or
+	 * writing the merged file
+	 */
+	public static int merge(Path output, List<Path> inputs) throws IOException {
+		return merge(output, inputs, Collections.emptyMap(), false);
+	}
+
+	/**
+	 * Merges ZIP files.
+	 * @param output the file to write the merged ZIP file to (overwritten if
+	 * it already exists)
+	 * @param inputs the ZIP files to merge
+	 * @param replacements entries whose contents should be replaced (or that
+	 * should be added if none of the ZIP files contain them). These entries
+	 * are stored without compression.
+	 * @param sort true to sort the entries of the merged file by name, false
+	 * to keep them in the order they appear in the ZIP files
+	 * @return the number of entries in the merged file
+	 * @throws IOException if there's a problem reading the ZIP files or
+	 * writing the merged file
+	 */
+	public static int merge(Path output, List<Path> inputs, Map<String, byte[]> replacements, boolean sort) throws IOException {
+		List<FileChannel> channels = new ArrayList<>();
+		try {
+			Map<String, Entry> entries = new LinkedHashMap<>();
+			for (Path input : inputs) {
+				FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+				channels.add(channel);
+				for (Entry entry : readCentralDirectory(channel, input)) {
+					if (entries.containsKey(entry.name)) {
+						continue;
+					}
+
+					entry.dataOffset = dataOffset(channel, entry, input);
+					entry.channel = channel;
+					entries.put(entry.name, entry);
+				}
+			}
+
+			for (Map.Entry<String, byte[]> replacement : replacements.entrySet()) {
+				Entry entry = entries.get(replacement.getKey());
+				if (entry == null) {
+					entry = new Entry();
+					entry.name = replacement.getKey();
+					entry.nameBytes = entry.name.getBytes(StandardCharsets.UTF_8);
+					entry.versionMadeBy = entry.versionNeeded = 20;
+					entry.date = DOS_EPOCH_DATE;
+					entries.put(entry.name, entry);
+				}
+				replace(entry, replacement.getValue());
+			}
+
+			List<Entry> sorted = new ArrayList<>(entries.values());
+			if (sort) {
+				sorted.sort(Comparator.comparing(entry -> entry.name));
+			}
+
+			write(output, sorted);
+			return sorted.size();
+		} finally {
+			for (FileChannel channel : channels) {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Replaces the contents of an entry. The new contents are stored without
+	 * compression.
+	 * @param entry the entry
+	 * @param data the new contents
+	 */
+	private static void replace(Entry entry, byte[] data) {
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		entry.data = data;
+		entry.channel = null;
+		entry.method = METHOD_STORED;
+		entry.crc = (int) crc.getValue();
+		entry.compressedSize = entry.size = data.length;
+	}
+
+	private static void write(Path output, List<Entry> entries) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+			long offset = 0;
+			for (Entry entry : entries) {
+				entry.localHeaderOffset = offset;
+				offset += writeLocalHeader(out, entry);
+				if (entry.data == null) {
+					copy(entry.channel, entry.dataOffset, entry.compressedSize, out);
+				} else {
+					out.write(entry.data);
+				}
+				offset += entry.compressedSize;
+			}
+
+			long centralDirectoryOffset = offset;
+			long centralDirectorySize = 0;
+			for (Entry entry : entries) {
+				centralDirectorySize += writeCentralHeader(out, entry);
+			}
+			Zip64.writeEnd(out, entries.size(), centralDirectorySize, centralDirectoryOffset);
+		}
+	}
+
+	/**
+	 * Reads the entries in a ZIP file's central directory.
+	 * @param channel the ZIP file
+	 * @param file the path to the ZIP file (for error messages)
+	 * @return the entries, in the order they appear in the central directory
+	 * @throws IOException if there's a problem reading the file
+	 */
+	private static List<Entry> readCentralDirectory(FileChannel channel, Path file) throws IOException {
+		long size = channel.size();
+
+		/*
+		 * The end of central directory record is at the end of the file,
+		 * followed by a comment that can be up to 64KB long.
+		 */
+		int tailSize = (int) Math.min(size, Zip64.END_SIZE + 0xffff);
+		ByteBuffer tail = read(channel, size - tailSize, tailSize);
+		int end = -1;
+		for (int i = tailSize - Zip64.END_SIZE; i >= 0; i--) {
+			if (tail.getInt(i) == Zip64.END_SIGNATURE) {
+				end = i;
+				break;
+			}
+		}
+		if (end < 0) {
+			throw new ZipException("Not a ZIP file: " + file);
+		}
+
+		long count = tail.getShort(end + 10) & 0xffff;
+		long centralDirectorySize = tail.getInt(end + 12) & 0xffffffffL;
+		long centralDirectoryOffset = tail.getInt(end + 16) & 0xffffffffL;
+
+		/*
+		 * If the file uses ZIP64, the locator of the ZIP64 end of central
+		 * directory record comes right before the end of central directory
+		 * record.
+		 */
+		int locator = end - Zip64.ZIP64_LOCATOR_SIZE;
+		if (locator >= 0 && tail.getInt(locator) == Zip64.ZIP64_LOCATOR_SIGNATURE) {
+			ByteBuffer zip64End = read(channel, tail.getLong(locator + 8), Zip64.ZIP64_END_SIZE);
+			if (zip64End.getInt(0) != Zip64.ZIP64_END_SIGNATURE) {
+				throw new ZipException("Corrupt ZIP64 end of central directory record: " + file);
+			}
+			count = zip64End.getLong(32);
+			centralDirectorySize = zip64End.getLong(40);
+			centralDirectoryOffset = zip64End.getLong(48);
+		}
+		if (centralDirectorySize > Integer.MAX_VALUE) {
+			throw new ZipException("Central directory is too big: " + file);
+		}
+
+		ByteBuffer buffer = read(channel, centralDirectoryOffset, (int) centralDirectorySize);
+		List<Entry> entries = new ArrayList<>();
+		int position = 0;
+		for (int i = 0; i < count; i++) {
+			if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Corrupt central directory: " + file);
+			}
+
+			Entry entry = new Entry();
+			entry.versionMadeBy = buffer.getShort(position + 4);
+			entry.versionNeeded = buffer.getShort(position + 6);
+			entry.flags = buffer.getShort(position + 8) & ~FLAG_DATA_DESCRIPTOR;
+			entry.method = buffer.getShort(position + 10);
+			entry.time = buffer.getShort(position + 12);
+			entry.date = buffer.getShort(position + 14);
+			entry.crc = buffer.getInt(position + 16);
+			entry.compressedSize = buffer.getInt(position + 20) & 0xffffffffL;
+			entry.size = buffer.getInt(position + 24) & 0xffffffffL;
+			int nameLength = buffer.getShort(position + 28) & 0xffff;
+			int extraLength = buffer.getShort(position + 30) & 0xffff;
+			int commentLength = buffer.getShort(position + 32) & 0xffff;
+			entry.externalAttributes = buffer.getInt(position + 38);
+			entry.localHeaderOffset = buffer.getInt(position + 42) & 0xffffffffL;
+
+			entry.nameBytes = new byte[nameLength];
+			buffer.position(position + CENTRAL_HEADER_SIZE);
+			buffer.get(entry.nameBytes);
+			entry.name = new String(entry.nameBytes, StandardCharsets.UTF_8);
+			readZip64ExtraField(buffer, position + CENTRAL_HEADER_SIZE + nameLength, extraLength, entry);
+
+			entries.add(entry);
+			position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Reads the values that did not fit in a central directory header from
+	 * its ZIP64 extra field, if it has one.
+	 * @param buffer the central directory
+	 * @param position the position of the header's extra fields
+	 * @param length the length of the extra fields
+	 * @param entry the entry
+	 */
+	private static void readZip64ExtraField(ByteBuffer buffer, int position, int length, Entry entry) {
+		int end = position + length;
+		while (position + 4 <= end) {
+			short id = buffer.getShort(position);
+			int size = buffer.getShort(position + 2) & 0xffff;
+			if (id == Zip64.EXTRA_ID) {
+				int value = position + 4;
+				if (entry.size == Zip64.MAX_SIZE) {
+					entry.size = buffer.getLong(value);
+					value += 8;
+				}
+				if (entry.compressedSize == Zip64.MAX_SIZE) {
+					entry.compressedSize = buffer.getLong(value);
+					value += 8;
+				}
+				if (entry.localHeaderOffset == Zip64.MAX_SIZE) {
+					entry.localHeaderOffset = buffer.getLong(value);
+				}
+				return;
+			}
+			position += 4 + size;
+		}
+	}
+
+	/**
+	 * Determines where an entry's data begins. The local header has to be
+	 * read, since its "extra" field can be a different length than the one in
+	 * the central directory.
+	 * @param channel the ZIP file
+	 * @param entry the entry
+	 * @param file the path to the ZIP file (for error messages)
+	 * @return the file offset of the entry's data
+	 * @throws IOException if there's a problem reading the file
+	 */
+	private static long dataOffset(FileChannel channel, Entry entry, Path file) throws IOException {
+		ByteBuffer header = read(channel, entry.localHeaderOffset, LOCAL_HEADER_SIZE);
+		if (header.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+			throw new ZipException("Corrupt local header for entry \"" + entry.name + "\": " + file);
+		}
+
+		int nameLength = header.getShort(26) & 0xffff;
+		int extraLength = header.getShort(28) & 0xffff;
+		return entry.localHeaderOffset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+	}
+
+	private static int writeLocalHeader(OutputStream out, Entry entry) throws IOException {
+		byte extra[] = Zip64.localExtraField(entry.size, entry.compressedSize);
+
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.nameBytes.length + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(LOCAL_HEADER_SIGNATURE);
+		header.putShort((extra.length > 0) ? Zip64.VERSION : entry.versionNeeded);
+		header.putShort((short) entry.flags);
+		header.putShort(entry.method);
+		header.putShort(entry.time);
+		header.putShort(entry.date);
+		header.putInt(entry.crc);
+		header.putInt((extra.length > 0) ? -1 : (int) entry.compressedSize);
+		header.putInt((extra.length > 0) ? -1 : (int) entry.size);
+		header.putShort((short) entry.nameBytes.length);
+		header.putShort((short) extra.length);
+		header.put(entry.nameBytes);
+		header.put(extra);
+		out.write(header.array());
+		return header.capacity();
+	}
+
+	private static int writeCentralHeader(OutputStream out, Entry entry) throws IOException {
+		byte extra[] = Zip64.centralExtraField(entry.size, entry.compressedSize, entry.localHeaderOffset);
+
+		ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.nameBytes.length + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(CENTRAL_HEADER_SIGNATURE);
+		header.putShort(entry.versionMadeBy);
+		header.putShort((extra.length > 0) ? Zip64.VERSION : entry.versionNeeded);
+		header.putShort((short) entry.flags);
+		header.putShort(entry.method);
+		header.putShort(entry.time);
+		header.putShort(entry.date);
+		header.putInt(entry.crc);
+		header.putInt(Zip64.field(entry.compressedSize));
+		header.putInt(Zip64.field(entry.size));
+		header.putShort((short) entry.nameBytes.length);
+		header.putShort((short) extra.length);
+		header.putShort((short) 0); //comment length
+		header.putShort((short) 0); //disk number
+		header.putShort((short) 0); //internal attributes
+		header.putInt(entry.externalAttributes);
+		header.putInt(Zip64.field(entry.localHeaderOffset));
+		header.put(entry.nameBytes);
+		header.put(extra);
+		out.write(header.array());
+		return header.capacity();
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new ZipException("Unexpected end of ZIP file.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static void copy(FileChannel channel, long position, long length, OutputStream out) throws IOException {
+		WritableByteChannel target = Channels.newChannel(out);
+		long copied = 0;
+		while (copied < length) {
+			long transferred = channel.transferTo(position + copied, length - copied, target);
+			if (transferred <= 0) {
+				throw new ZipException("Unexpected end of ZIP file.");
+			}
+			copied += transferred;
+		}
+	}
+
+	/**
+	 * An entry from a ZIP file's central directory.
+	 */
+	private static class Entry {
+		private String name;
+		private byte nameBytes[];
+		private short versionMadeBy, versionNeeded, method, time, date;
+		private int flags, crc, externalAttributes;
+		private long compressedSize, size, localHeaderOffset;
+
+		/**
+		 * The location of the entry's data in the ZIP file it is copied from.
+		 */
+		private FileChannel channel;
+		private long dataOffset;
+
+		/**
+		 * The entry's new contents or null to copy them from the ZIP file.
+		 */
+		private byte data[];
+	}
+}
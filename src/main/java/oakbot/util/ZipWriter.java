@@ -0,0 +1,449 @@
+package oakbot.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes a ZIP file, compressing its entries on multiple threads.
+ * <p>
+ * Each entry is compressed on a worker thread, which also calculates its CRC.
+ * The thread that calls {@link #add} writes the compressed entries to the file
+ * in the order they were added, so the output does not depend on the number
+ * of threads. The number of entries that are waiting to be written is
+ * limited, so the whole ZIP file is never held in memory.
+ * </p>
+ * <p>
+ * To create the same file from the same input every time, give the entries a
+ * fixed timestamp with {@link #time} and, if the order in which the entries
+ * are added can vary, sort them with {@link #sorted}.
+ * </p>
+ * <p>
+ * If the ZIP file ends up with more than 65535 entries or more than 4GB of
+ * data, the ZIP64 extensions are used (see {@link Zip64}).
+ * </p>
+ * @author Michael Angstadt
+ */
+public class ZipWriter implements Closeable {
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+
+	private static final short VERSION = 20;
+	private static final short METHOD_STORED = 0;
+	private static final short METHOD_DEFLATED = 8;
+
+	/**
+	 * The "language encoding" flag, which means the entry names are UTF-8.
+	 */
+	private static final int FLAG_UTF8 = 0x800;
+
+	/**
+	 * The number of entries per thread that can wait to be written.
+	 */
+	private static final int QUEUE_SIZE_PER_THREAD = 8;
+
+	/**
+	 * Each worker thread reuses the same compressor and output buffer.
+	 */
+	private static final ThreadLocal<Deflater> deflater = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+	private static final ThreadLocal<ByteArrayOutputStream> buffer = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(64 * 1024));
+
+	/**
+	 * The algorithm of the entry digests (see {@link #digests}).
+	 */
+	public static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private final OutputStream out;
+	private final ExecutorService executor;
+	private final int maxQueueSize;
+	private final Deque<Future<Entry>> queue = new ArrayDeque<>();
+	private final List<Entry> written = new ArrayList<>();
+	private final List<Entry> unsorted = new ArrayList<>();
+	private short time, date;
+	private boolean sorted = false, digests = false;
+	private long offset = 0;
+	private boolean closed = false;
+
+	/**
+	 * @param file the file to write to (overwritten if it already exists)
+	 * @param threads the number of threads to compress the entries on
+	 * @throws IOException if there's a problem creating the file
+	 */
+	public ZipWriter(Path file, int threads) throws IOException {
+		threads = Math.max(threads, 1);
+		out = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024);
+		executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "zip-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		maxQueueSize = threads * QUEUE_SIZE_PER_THREAD;
+		time(LocalDateTime.now());
+	}
+
+	/**
+	 * Sets the last-modified timestamp of the entries that are added from now
+	 * on (defaults to the time this object was created).
+	 * @param timestamp the timestamp (ZIP files cannot store times before
+	 * 1980 or with more than 2-second precision)
+	 * @return this
+	 */
+	public ZipWriter time(LocalDateTime timestamp) {
+		if (timestamp.getYear() < 1980) {
+			timestamp = LocalDateTime.of(1980, 1, 1, 0, 0);
+		}
+
+		time = (short) ((timestamp.getHour() << 11) | (timestamp.getMinute() << 5) | (timestamp.getSecond() / 2));
+		date = (short) (((timestamp.getYear() - 1980) << 9) | (timestamp.getMonthValue() << 5) | timestamp.getDayOfMonth());
+		return this;
+	}
+
+	/**
+	 * Sets whether the entries are sorted by name. If they are, the
+	 * compressed entries are held in memory until the ZIP file is closed.
+	 * This must be called before any entries are added.
+	 * @param sorted true to sort the entries, false to write them in the order
+	 * they were added (default)
+	 * @return this
+	 */
+	public ZipWriter sorted(boolean sorted) {
+		this.sorted = sorted;
+		return this;
+	}
+
+	/**
+	 * Sets whether to calculate a digest of each entry's uncompressed
+	 * contents (see {@link #getDigests}). The digests are calculated by the
+	 * worker threads. This must be called before any entries are added.
+	 * @param digests true to calculate digests, false not to (default)
+	 * @return this
+	 */
+	public ZipWriter digests(boolean digests) {
+		this.digests = digests;
+		return this;
+	}
+
+	/**
+	 * Adds an entry to the ZIP file.
+	 * @param name the entry name (e.g. "java/util/List.xml")
+	 * @param data the entry's contents
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	public void add(String name, byte[] data) throws IOException {
+		add(name, () -> data);
+	}
+
+	/**
+	 * Adds an entry to the ZIP file. The entry's contents are produced on a
+	 * worker thread, which is useful if they need to be transformed in some
+	 * way before they are compressed.
+	 * @param name the entry name (e.g. "java/util/List.xml")
+	 * @param data produces the entry's contents
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	public void add(String name, Supplier<byte[]> data) throws IOException {
+		add(name, data, true);
+	}
+
+	/**
+	 * Adds an entry to the ZIP file. The entry's contents are produced on a
+	 * worker thread.
+	 * @param name the entry name (e.g. "java/util/List.xml")
+	 * @param data produces the entry's contents
+	 * @param deflate true to compress the contents, false to store them as-is
+	 * (for contents that are already compressed, which DEFLATE would only make
+	 * larger)
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	public void add(String name, Supplier<byte[]> data, boolean deflate) throws IOException {
+		boolean digest = digests;
+		submit(() -> {
+			byte bytes[] = data.get();
+			return compress(name, bytes, digest ? bytes : null, deflate);
+		});
+	}
+
+	/**
+	 * Adds an entry whose contents are encoded on a worker thread, such as
+	 * contents that are compressed with a preset dictionary. The encoded
+	 * contents are stored as-is. The entry's digest (see {@link #digests}) is
+	 * calculated from the contents before they are encoded, so it does not
+	 * depend on how the encoder is implemented.
+	 * @param name the entry name (e.g. "java/util/List.xml")
+	 * @param contents the entry's contents, before they are encoded
+	 * @param encoder encodes the contents
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	public void add(String name, byte[] contents, UnaryOperator<byte[]> encoder) throws IOException {
+		boolean digest = digests;
+		submit(() -> compress(name, encoder.apply(contents), digest ? contents : null, false));
+	}
+
+	/**
+	 * Queues an entry to be compressed on a worker thread.
+	 * @param task compresses the entry
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	private void submit(Callable<Entry> task) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("ZIP file has been closed.");
+		}
+
+		short time = this.time, date = this.date;
+		queue.add(executor.submit(() -> {
+			Entry entry = task.call();
+			entry.time = time;
+			entry.date = date;
+			return entry;
+		}));
+		writeFinished(queue.size() >= maxQueueSize);
+	}
+
+	/**
+	 * Writes the entries at the front of the queue that have finished being
+	 * compressed.
+	 * @param wait true to wait for the first entry to finish if it hasn't
+	 * already, false not to
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	private void writeFinished(boolean wait) throws IOException {
+		while (!queue.isEmpty() && (wait || queue.peek().isDone())) {
+			wait = false;
+
+			Entry entry;
+			try {
+				entry = queue.poll().get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw (cause instanceof IOException) ? (IOException) cause : new IOException(cause);
+			}
+
+			if (sorted) {
+				unsorted.add(entry);
+			} else {
+				write(entry);
+			}
+		}
+	}
+
+	/**
+	 * Waits for all the entries that have been added so far to be compressed
+	 * and gets their digests. {@link #digests} must be enabled.
+	 * @return the digests of the entries' uncompressed contents (see
+	 * {@link #DIGEST_ALGORITHM}), in the order they were added
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	public Map<String, byte[]> getDigests() throws IOException {
+		if (!digests) {
+			throw new IllegalStateException("Digests are not enabled.");
+		}
+
+		while (!queue.isEmpty()) {
+			writeFinished(true);
+		}
+
+		Map<String, byte[]> map = new LinkedHashMap<>();
+		for (List<Entry> entries : List.of(written, unsorted)) {
+			for (Entry entry : entries) {
+				map.put(entry.name, entry.digest);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Compresses an entry.
+	 * @param name the entry name
+	 * @param data the data to store
+	 * @param digestInput the data to calculate the entry's digest from or
+	 * null not to calculate a digest
+	 * @param deflate true to compress the data, false to store it as-is
+	 * @return the entry
+	 * @throws NoSuchAlgorithmException if the digest algorithm is not
+	 * supported
+	 */
+	private static Entry compress(String name, byte[] data, byte[] digestInput, boolean deflate) throws NoSuchAlgorithmException {
+		Entry entry = new Entry();
+		entry.name = name;
+		entry.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		entry.size = data.length;
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		entry.crc = (int) crc.getValue();
+
+		if (digestInput != null) {
+			entry.digest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(digestInput);
+		}
+
+		if (!deflate) {
+			entry.method = METHOD_STORED;
+			entry.data = data;
+			return entry;
+		}
+
+		Deflater deflater = ZipWriter.deflater.get();
+		ByteArrayOutputStream out = ZipWriter.buffer.get();
+		deflater.reset();
+		out.reset();
+
+		deflater.setInput(data);
+		deflater.finish();
+		byte chunk[] = new byte[8192];
+		while (!deflater.finished()) {
+			int length = deflater.deflate(chunk);
+			out.write(chunk, 0, length);
+		}
+
+		/*
+		 * Small or incompressible entries can come out larger than they went
+		 * in.
+		 */
+		if (out.size() < data.length) {
+			entry.method = METHOD_DEFLATED;
+			entry.data = out.toByteArray();
+		} else {
+			entry.method = METHOD_STORED;
+			entry.data = data;
+		}
+
+		return entry;
+	}
+
+	private void write(Entry entry) throws IOException {
+		entry.localHeaderOffset = offset;
+
+		ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE + entry.nameBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(LOCAL_HEADER_SIGNATURE);
+		header.putShort(VERSION);
+		header.putShort((short) FLAG_UTF8);
+		header.putShort(entry.method);
+		header.putShort(entry.time);
+		header.putShort(entry.date);
+		header.putInt(entry.crc);
+		header.putInt(entry.data.length);
+		header.putInt((int) entry.size);
+		header.putShort((short) entry.nameBytes.length);
+		header.putShort((short) 0); //extra field length
+		header.put(entry.nameBytes);
+		out.write(header.array());
+		out.write(entry.data);
+
+		offset += header.capacity() + entry.data.length;
+
+		entry.compressedSize = entry.data.length;
+		entry.data = null;
+		written.add(entry);
+	}
+
+	/**
+	 * Waits for the remaining entries to be compressed, writes them, and then
+	 * writes the central directory.
+	 * @throws IOException if there's a problem writing to the file
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			while (!queue.isEmpty()) {
+				writeFinished(true);
+			}
+
+			unsorted.sort(Comparator.comparing(entry -> entry.name));
+			for (Entry entry : unsorted) {
+				write(entry);
+			}
+			unsorted.clear();
+
+			long centralDirectoryOffset = offset;
+			long centralDirectorySize = 0;
+			for (Entry entry : written) {
+				centralDirectorySize += writeCentralHeader(entry);
+			}
+			Zip64.writeEnd(out, written.size(), centralDirectorySize, centralDirectoryOffset);
+		} finally {
+			executor.shutdownNow();
+			out.close();
+		}
+	}
+
+	private int writeCentralHeader(Entry entry) throws IOException {
+		/*
+		 * The entries are held in memory, so only the offset of the local
+		 * header can be too big for its field.
+		 */
+		byte extra[] = Zip64.centralExtraField(entry.size, entry.compressedSize, entry.localHeaderOffset);
+		short version = (extra.length > 0) ? Zip64.VERSION : VERSION;
+
+		ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + entry.nameBytes.length + extra.length).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(CENTRAL_HEADER_SIGNATURE);
+		header.putShort(version); //version made by
+		header.putShort(version); //version needed
+		header.putShort((short) FLAG_UTF8);
+		header.putShort(entry.method);
+		header.putShort(entry.time);
+		header.putShort(entry.date);
+		header.putInt(entry.crc);
+		header.putInt((int) entry.compressedSize);
+		header.putInt((int) entry.size);
+		header.putShort((short) entry.nameBytes.length);
+		header.putShort((short) extra.length);
+		header.putShort((short) 0); //comment length
+		header.putShort((short) 0); //disk number
+		header.putShort((short) 0); //internal attributes
+		header.putInt(0); //external attributes
+		header.putInt(Zip64.field(entry.localHeaderOffset));
+		header.put(entry.nameBytes);
+		header.put(extra);
+		out.write(header.array());
+		return header.capacity();
+	}
+
+	/**
+	 * A compressed entry.
+	 */
+	private static class Entry {
+		private String name;
+		private byte nameBytes[];
+		private byte data[], digest[];
+		private short method, time, date;
+		private int crc;
+		private long compressedSize, size, localHeaderOffset;
+	}
+}
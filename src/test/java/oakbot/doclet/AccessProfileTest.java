@@ -0,0 +1,60 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class AccessProfileTest {
+	@Test
+	public void parse() throws Exception {
+		//@formatter:off
+		String text =
+		"# exported from the query logs\n" +
+		"java.lang.String 1520\n" +
+		"   873 java.util.List\n" +
+		"\n" +
+		"java.util.Map$Entry\t12\n" +
+		"java.util.Map.Entry 3\n" +
+		"java.lang.String 5\n";
+		//@formatter:on
+
+		AccessProfile profile = AccessProfile.parse(new StringReader(text));
+		assertEquals(1525, profile.getCount("java.lang.String"));
+		assertEquals(873, profile.getCount("java.util.List"));
+		assertEquals(15, profile.getCount("java.util.Map.Entry"));
+		assertEquals(15, profile.getCount("java.util.Map$Entry"));
+		assertEquals(0, profile.getCount("java.util.Set"));
+	}
+
+	@Test
+	public void parse_invalid() throws Exception {
+		for (String text : Arrays.asList("java.lang.String", "java.lang.String many", "java.lang.String 1 2")) {
+			try {
+				AccessProfile.parse(new StringReader(text));
+				fail(text);
+			} catch (IOException e) {
+				//expected
+			}
+		}
+	}
+
+	@Test
+	public void sort() throws Exception {
+		AccessProfile profile = AccessProfile.parse(new StringReader("b 5\nd 10\ne 5"));
+		List<String> classes = Arrays.asList("a", "b", "c", "d", "e", "f");
+
+		List<String> sorted = profile.sort(classes, Function.identity());
+		assertEquals(Arrays.asList("d", "b", "e", "a", "c", "f"), sorted);
+		assertEquals(3, profile.countWarm(sorted, Function.identity()));
+	}
+}
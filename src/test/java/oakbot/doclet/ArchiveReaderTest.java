@@ -0,0 +1,465 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import oakbot.util.XmlUtils;
+import oakbot.util.ZipMerger;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ArchiveReaderTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void read_blocks() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 50);
+		Path zip = write(classes, 1024, false, "0");
+
+		try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+			long blocks = zipFile.stream().filter(entry -> entry.getName().startsWith("blocks/")).count();
+			assertTrue(blocks > 1);
+			assertNull(zipFile.getEntry("com/example/Class0.xml"));
+		}
+
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertEquals(classes.keySet(), reader.getClassPaths());
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				assertArrayEquals(toBytes(entry.getValue()), reader.read(entry.getKey()));
+			}
+
+			Document document = reader.parse("com/example/Class7.xml");
+			assertEquals("Class7", document.getDocumentElement().getAttribute("name"));
+
+			assertNull(reader.read("com/example/DoesNotExist.xml"));
+			assertNull(reader.parse("com/example/DoesNotExist.xml"));
+		}
+	}
+
+	@Test
+	public void read_dictionary() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 50);
+		Path zip = write(classes, 0, true, "0");
+
+		try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+			assertNotNull(zipFile.getEntry("dictionaries/0"));
+			ZipEntry entry = zipFile.getEntry("com/example/Class0.xml");
+			assertTrue(entry.getSize() < toBytes(classes.get("com/example/Class0.xml")).length);
+		}
+
+		assertClasses(zip, classes);
+	}
+
+	@Test
+	public void read_dictionary_blocks() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 50);
+		Path zip = write(classes, 1024, true, "0");
+		assertClasses(zip, classes);
+	}
+
+	@Test
+	public void read_dictionary_sample_size_exceeded() throws Exception {
+		/*
+		 * Large enough that the dictionary is built before all the classes
+		 * are written.
+		 */
+		Map<String, Document> classes = classes("com/example/", ArchiveWriter.SAMPLE_SIZE / 80);
+		Path zip = write(classes, 0, true, "0");
+		assertClasses(zip, classes);
+	}
+
+	@Test
+	public void read_default_layout() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 3);
+		Path zip = write(classes, 0, false, "0");
+
+		try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+			assertNull(zipFile.getEntry("index/0.txt"));
+		}
+
+		assertClasses(zip, classes);
+	}
+
+	@Test
+	public void read_merged_parts() throws Exception {
+		Map<String, Document> one = classes("com/example/one/", 20);
+		Map<String, Document> two = classes("com/example/two/", 20);
+		Path zip1 = write(one, 512, true, "1");
+		Path zip2 = write(two, 0, true, "2");
+
+		Path merged = temp.getRoot().toPath().resolve("merged.zip");
+		ZipMerger.merge(merged, Arrays.asList(zip1, zip2));
+
+		try (ArchiveReader reader = new ArchiveReader(merged)) {
+			assertEquals(40, reader.getClassPaths().size());
+			for (Map<String, Document> classes : Arrays.asList(one, two)) {
+				for (Map.Entry<String, Document> entry : classes.entrySet()) {
+					assertArrayEquals(toBytes(entry.getValue()), reader.read(entry.getKey()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void read_split_descriptions() throws Exception {
+		for (int blockSize : new int[] { 0, 1024 }) {
+			Map<String, Document> classes = classesWithDescriptions(10);
+			Map<String, byte[]> expected = new LinkedHashMap<>();
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				expected.put(entry.getKey(), toBytes(entry.getValue()));
+			}
+
+			Path zip = write(classes, blockSize, false, true, "0");
+
+			try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+				assertNotNull(zipFile.getEntry("descriptions/com/example/Class3.xml"));
+				assertNull(zipFile.getEntry("descriptions/com/example/Class0.xml")); //has no descriptions
+			}
+
+			try (ArchiveReader reader = new ArchiveReader(zip)) {
+				assertEquals(expected.keySet(), reader.getClassPaths());
+				for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+					assertArrayEquals(entry.getKey(), entry.getValue(), toBytes(reader.parse(entry.getKey())));
+				}
+
+				Document skeleton = reader.parseSkeleton("com/example/Class3.xml");
+				Element method = (Element) skeleton.getElementsByTagName("method").item(0);
+				assertEquals(0, method.getElementsByTagName("description").getLength());
+				assertEquals("1", method.getAttribute("description"));
+
+				//empty descriptions are left in the skeleton
+				Element constructor = (Element) skeleton.getElementsByTagName("constructor").item(0);
+				assertEquals(1, constructor.getElementsByTagName("description").getLength());
+				assertEquals("", constructor.getAttribute("description"));
+
+				List<String> descriptions = reader.getDescriptions("com/example/Class3.xml");
+				assertEquals(Arrays.asList("Class 3 has a <description> & more.", "Method of class 3."), descriptions);
+				assertEquals(Collections.emptyList(), reader.getDescriptions("com/example/Class0.xml"));
+				assertNull(reader.parse("com/example/DoesNotExist.xml"));
+			}
+		}
+	}
+
+	@Test
+	public void reproducible() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 20);
+		List<String> paths = new ArrayList<>(classes.keySet());
+		Collections.reverse(paths);
+		Map<String, Document> reversed = new LinkedHashMap<>();
+		for (String path : paths) {
+			reversed.put(path, classes.get(path));
+		}
+
+		Path zip1 = writeReproducible(classes, "one.zip");
+		Path zip2 = writeReproducible(reversed, "two.zip");
+		assertArrayEquals(Files.readAllBytes(zip1), Files.readAllBytes(zip2));
+
+		String digest;
+		try (ZipFile zipFile = new ZipFile(zip1.toFile())) {
+			List<String> names = zipFile.stream().map(ZipEntry::getName).collect(Collectors.toList());
+			List<String> sorted = new ArrayList<>(names);
+			Collections.sort(sorted);
+			assertEquals(sorted, names);
+
+			ZipEntry entry = zipFile.getEntry("info.xml");
+			assertEquals(LocalDateTime.ofEpochSecond(1_700_000_000, 0, ZoneOffset.UTC), entry.getTimeLocal());
+
+			Element info;
+			try (InputStream in = zipFile.getInputStream(entry)) {
+				info = XmlUtils.parse(in).getDocumentElement();
+			}
+			assertEquals("2023-11-14T22:13:20+0000", info.getAttribute("generated"));
+			digest = info.getAttribute("digest");
+		}
+
+		try (ArchiveReader reader = new ArchiveReader(zip1)) {
+			List<String> manifest = reader.getManifest();
+			assertEquals(classes.size(), manifest.size());
+			assertTrue(manifest.get(0), manifest.get(0).matches("[0-9a-f]{64}  com/example/Class0\\.xml"));
+			assertEquals(ArchiveReader.digest(manifest), digest);
+		}
+		assertClasses(zip1, classes);
+	}
+
+	@Test
+	public void reproducible_digest_changes_with_contents() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 5);
+		Path zip1 = writeReproducible(classes, "one.zip");
+
+		classes.get("com/example/Class3.xml").getDocumentElement().setTextContent("Changed.");
+		Path zip2 = writeReproducible(classes, "two.zip");
+
+		try (ArchiveReader reader1 = new ArchiveReader(zip1); ArchiveReader reader2 = new ArchiveReader(zip2)) {
+			List<String> manifest1 = reader1.getManifest();
+			List<String> manifest2 = reader2.getManifest();
+			assertTrue(ArchiveReader.digest(manifest1).matches("[0-9a-f]{64}"));
+			assertNotEquals(ArchiveReader.digest(manifest1), ArchiveReader.digest(manifest2));
+
+			//the order of the lines does not matter
+			List<String> reversed = new ArrayList<>(manifest1);
+			Collections.reverse(reversed);
+			assertEquals(ArchiveReader.digest(manifest1), ArchiveReader.digest(reversed));
+		}
+	}
+
+	@Test
+	public void not_reproducible() throws Exception {
+		Path zip = write(classes("com/example/", 5), 0, false, "0");
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertTrue(reader.getManifest().isEmpty());
+		}
+	}
+
+	@Test
+	public void warm_set() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 50);
+		List<String> warm = Arrays.asList("com/example/Class0.xml", "com/example/Class1.xml", "com/example/Class2.xml");
+
+		for (int blockSize : new int[] { 0, 1024 }) {
+			Path zip = writeWarm(classes, warm.size(), blockSize);
+			try (ArchiveReader reader = new ArchiveReader(zip)) {
+				assertEquals(warm, reader.getWarmSet());
+			}
+			assertClasses(zip, classes);
+
+			try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+				String index = new String(zipFile.getInputStream(zipFile.getEntry("index/0.txt")).readAllBytes(), StandardCharsets.UTF_8);
+				assertTrue(index, index.startsWith("#warm\t3\n"));
+			}
+		}
+
+		Path zip = write(classes, 1024, false, "0");
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertTrue(reader.getWarmSet().isEmpty());
+		}
+	}
+
+	@Test
+	public void warm_set_reproducible() throws Exception {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		classes.putAll(classes("com/example/b/", 20));
+		classes.putAll(classes("com/example/a/", 20));
+
+		Path zip = writeWarm(classes, 20, 0, true);
+		try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+			List<String> names = zipFile.stream().map(ZipEntry::getName).collect(Collectors.toList());
+			assertEquals("com/example/b/Class0.xml", names.get(0));
+			assertTrue(names.indexOf("com/example/b/Class19.xml") < names.indexOf("com/example/a/Class0.xml"));
+		}
+
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertEquals(20, reader.getWarmSet().size());
+		}
+	}
+
+	@Test
+	public void urls() throws Exception {
+		Map<String, Document> classes = classes("com/example/", 20);
+		for (Map.Entry<String, Document> entry : classes.entrySet()) {
+			String path = entry.getKey();
+			if (!path.equals("com/example/Class0.xml")) {
+				entry.getValue().getDocumentElement().setAttribute("url", "https://example.com/api/" + path.replace(".xml", ".html"));
+			}
+		}
+
+		for (int blockSize : new int[] { 0, 1024 }) {
+			Path zip = write(classes, blockSize, true, "0");
+			assertClasses(zip, classes);
+
+			try (ArchiveReader reader = new ArchiveReader(zip)) {
+				assertNull(reader.getUrl("com/example/Class0.xml"));
+				assertEquals("https://example.com/api/com/example/Class1.html", reader.getUrl("com/example/Class1.xml"));
+				assertEquals("https://example.com/api/com/example/Class19.html", reader.getUrl("com/example/Class19.xml"));
+				assertNull(reader.getUrl("com/example/DoesNotExist.xml"));
+			}
+		}
+	}
+
+	@Test
+	public void no_classes() throws Exception {
+		Path zip = write(Collections.emptyMap(), 1024, true, "0");
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertTrue(reader.getClassPaths().isEmpty());
+		}
+	}
+
+	private static void assertClasses(Path zip, Map<String, Document> classes) throws Exception {
+		try (ArchiveReader reader = new ArchiveReader(zip)) {
+			assertEquals(classes.keySet(), reader.getClassPaths());
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				assertArrayEquals(toBytes(entry.getValue()), reader.read(entry.getKey()));
+			}
+		}
+	}
+
+	private Path write(Map<String, Document> classes, int blockSize, boolean dictionary, String partName) throws Exception {
+		return write(classes, blockSize, dictionary, false, partName);
+	}
+
+	private Path write(Map<String, Document> classes, int blockSize, boolean dictionary, boolean splitDescriptions, String partName) throws Exception {
+		Path output = temp.getRoot().toPath().resolve("part" + partName + "-" + blockSize + "-" + dictionary + "-" + splitDescriptions + ".zip");
+
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("test");
+		properties.setLibraryVersion("1.0");
+		properties.setOutputPath(output);
+		properties.setBlockSize(blockSize);
+		properties.setDictionary(dictionary);
+		properties.setSplitDescriptions(splitDescriptions);
+		properties.setPartName(partName);
+
+		try (ArchiveWriter writer = new ArchiveWriter(properties)) {
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				writer.writeClass(entry.getKey(), entry.getValue());
+			}
+			writer.commit();
+		}
+
+		return output;
+	}
+
+	private Path writeReproducible(Map<String, Document> classes, String filename) throws Exception {
+		Path output = temp.getRoot().toPath().resolve(filename);
+
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("test");
+		properties.setLibraryVersion("1.0");
+		properties.setOutputPath(output);
+		properties.setReproducible(true);
+		properties.setSourceDateEpoch(1_700_000_000L);
+
+		try (ArchiveWriter writer = new ArchiveWriter(properties)) {
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				writer.writeClass(entry.getKey(), entry.getValue());
+			}
+			writer.commit();
+		}
+
+		return output;
+	}
+
+	private Path writeWarm(Map<String, Document> classes, int warm, int blockSize) throws Exception {
+		return writeWarm(classes, warm, blockSize, false);
+	}
+
+	/**
+	 * Writes classes as if an access profile was used.
+	 * @param classes the classes, with the classes that are accessed the most
+	 * first
+	 * @param warm the number of classes in the warm set
+	 * @param blockSize the block size
+	 * @param reproducible true to create a reproducible ZIP file
+	 * @return the ZIP file
+	 */
+	private Path writeWarm(Map<String, Document> classes, int warm, int blockSize, boolean reproducible) throws Exception {
+		Path output = temp.getRoot().toPath().resolve("warm-" + blockSize + "-" + reproducible + ".zip");
+
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("test");
+		properties.setLibraryVersion("1.0");
+		properties.setOutputPath(output);
+		properties.setBlockSize(blockSize);
+		properties.setReproducible(reproducible);
+		properties.setAccessProfile(temp.getRoot().toPath().resolve("profile.txt"));
+
+		try (ArchiveWriter writer = new ArchiveWriter(properties)) {
+			int written = 0;
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				writer.writeClass(entry.getKey(), entry.getValue());
+				if (++written == warm) {
+					writer.markWarmSet();
+				}
+			}
+			writer.commit();
+		}
+
+		return output;
+	}
+
+	private static Map<String, Document> classes(String packagePath, int count) {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			Document document = XmlUtils.newDocument();
+			Element element = document.createElement("class");
+			element.setAttribute("name", "Class" + i);
+			element.setTextContent("Description of class " + i + ", with a non-ASCII character: é");
+			document.appendChild(element);
+			classes.put(packagePath + "Class" + i + ".xml", document);
+		}
+		return classes;
+	}
+
+	/**
+	 * Creates classes whose elements have descriptions. The first class's
+	 * descriptions are all empty.
+	 * @param count the number of classes
+	 * @return the classes
+	 */
+	private static Map<String, Document> classesWithDescriptions(int count) {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			Document document = XmlUtils.newDocument();
+			Element element = document.createElement("class");
+			element.setAttribute("name", "com.example|Class" + i);
+			element.appendChild(description(document, (i == 0) ? "" : "Class " + i + " has a <description> & more."));
+
+			Element constructor = document.createElement("constructor");
+			constructor.appendChild(description(document, ""));
+			element.appendChild(constructor);
+
+			Element method = document.createElement("method");
+			method.setAttribute("name", "method");
+			method.appendChild(description(document, (i == 0) ? "" : "Method of class " + i + "."));
+			Element parameter = document.createElement("parameter");
+			parameter.setAttribute("name", "value");
+			parameter.setAttribute("type", "int");
+			method.appendChild(parameter);
+			element.appendChild(method);
+
+			document.appendChild(element);
+			classes.put("com/example/Class" + i + ".xml", document);
+		}
+		return classes;
+	}
+
+	private static Element description(Document document, String text) {
+		Element element = document.createElement("description");
+		element.setTextContent(text);
+		return element;
+	}
+
+	private static byte[] toBytes(Document document) throws Exception {
+		StringWriter writer = new StringWriter();
+		XmlUtils.write(document, writer, false);
+		return writer.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
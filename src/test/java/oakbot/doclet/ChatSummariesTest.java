@@ -0,0 +1,61 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import oakbot.util.MarkdownTruncator;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ChatSummariesTest {
+	private final ChatSummaries summaries = new ChatSummaries();
+
+	@Test
+	public void forClass() {
+		assertEquals("[**`java.util.Map.Entry`**](https://docs.oracle.com/javase/8/docs/api/java/util/Map.Entry.html): A map entry (key-value pair).", summaries.forClass("java.util|Map.Entry", "https://docs.oracle.com/javase/8/docs/api/java/util/Map.Entry.html", "A map entry (key-value pair)."));
+	}
+
+	@Test
+	public void forMethod() {
+		assertEquals("[**`Map.Entry#equals(Object)`**](https://docs.oracle.com/en/java/javase/11/docs/api/java.base/java/util/Map.Entry.html#equals(java.lang.Object)): Compares the specified object with this entry for equality.", summaries.forMethod("java.util|Map.Entry", "equals", Arrays.asList("java.lang|Object"), "https://docs.oracle.com/en/java/javase/11/docs/api/java.base/java/util/Map.Entry.html#equals(java.lang.Object)", "Compares the specified object\n with this entry  for equality."));
+	}
+
+	@Test
+	public void forConstructor() {
+		assertEquals("[**`HashMap(int, float)`**](https://docs.oracle.com/javase/8/docs/api/java/util/HashMap.html#%3Cinit%3E(int,float))", summaries.forConstructor("java.util|HashMap", Arrays.asList("int", "float"), "https://docs.oracle.com/javase/8/docs/api/java/util/HashMap.html#%3Cinit%3E(int,float)", ""));
+	}
+
+	@Test
+	public void no_url() {
+		assertEquals("**`Foo#run(String[])`**: Runs it.", summaries.forMethod("|Foo", "run", Arrays.asList("java.lang|String[]"), null, "Runs it."));
+	}
+
+	@Test
+	public void truncated() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append("Lorem **ipsum** dolor. ");
+		}
+
+		String chat = summaries.forConstructor("java.util|HashMap", Collections.emptyList(), null, sb.toString());
+		assertTrue(chat.length() <= MarkdownTruncator.MAX_MESSAGE_LENGTH);
+		assertTrue(chat.endsWith("..."));
+	}
+
+	@Test
+	public void create() {
+		ConfigProperties properties = new ConfigProperties();
+		assertNull(ChatSummaries.create(properties));
+
+		properties.setChatSummaries(true);
+		assertNotNull(ChatSummaries.create(properties));
+	}
+}
@@ -0,0 +1,151 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.sun.source.doctree.DocCommentTree;
+import com.sun.source.doctree.LinkTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.DocTrees;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreePath;
+
+/**
+ * @author Michael Angstadt
+ */
+public class DescriptionDocTreeVisitorTest {
+	@Test
+	public void formatting() throws Exception {
+		String javadoc = "Formatting test: <b>bold</b>, <i>italic</i>, <code>code</code>, <s>strike</s>";
+
+		String expected = "Formatting test: **bold**, *italic*, `code`, ---strike---";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void link() throws Exception {
+		String javadoc = "Link test: <a href=\"http://www.example.com\">link1</a>, <a href=\"http://www.example.com\" title=\"the title\">link2</a>, <a href=\"relative.html\">link3</a>";
+
+		String expected = "Link test: [link1](http://www.example.com), [link2](http://www.example.com \"the title\"), link3";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void inline_tags() throws Exception {
+		String javadoc = "Inline tag test: {@code a < b}, {@literal a*b}, {@link String}, {@link String#indexOf(String, int) indexOf}";
+
+		String expected = "Inline tag test: `a < b`, a\\*b, String, indexOf";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void resolved_links() throws Exception {
+		String javadoc = "Link test: {@link String}, {@link String#indexOf(String, int) indexOf}, {@linkplain String#trim() trimmed}, {@link Object}";
+
+		String expected = "Link test: [`String`](https://example.com/String.html), [`indexOf`](https://example.com/String.html#indexOf(java.lang.String,int)), [trimmed](https://example.com/String.html#trim()), Object";
+		String actual = toMarkdown(javadoc, link -> {
+			switch (link.getReference().getSignature()) {
+			case "String":
+				return "https://example.com/String.html";
+			case "String#indexOf(String, int)":
+				return "https://example.com/String.html#indexOf(java.lang.String,int)";
+			case "String#trim()":
+				return "https://example.com/String.html#trim()";
+			default:
+				return null;
+			}
+		});
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void inline_tag_that_spans_lines() throws Exception {
+		String javadoc = "Use the {@code\n * String.format()} method.";
+
+		String expected = "Use the `String.format()` method.";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void entities() throws Exception {
+		String javadoc = "Entity test: &lt;&gt; &amp; &#60; &#x3C; &copy;";
+
+		String expected = "Entity test: <> & < < ©";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void lists() throws Exception {
+		String javadoc = "<p>List test:</p>\n * <ul>\n *  <li>one</li>\n *  <li>two</li>\n * </ul>";
+
+		String expected = "List test:\n\none two";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void pre() throws Exception {
+		String javadoc = "Pre test:\n * <pre>\n * if (true) {\n *   return;\n * }\n * </pre>";
+
+		String expected = "Pre test:\n\n    if (true) {\n      return;\n    }";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void escape() throws Exception {
+		String javadoc = "Escape test: *_[]` <code>*_[]`</code>";
+
+		String expected = "Escape test: \\*\\_\\[\\]\\` `*_[]``";
+		String actual = toMarkdown(javadoc);
+		assertEquals(expected, actual);
+	}
+
+	/**
+	 * Parses a Javadoc comment with javac and converts its description to
+	 * markdown.
+	 * @param javadoc the Javadoc comment (without the surrounding "/**" and
+	 * "*&#47;")
+	 * @return the markdown
+	 */
+	private static String toMarkdown(String javadoc) throws IOException {
+		return toMarkdown(javadoc, null);
+	}
+
+	private static String toMarkdown(String javadoc, Function<LinkTree, String> linkResolver) throws IOException {
+		String source = "/**\n * " + javadoc + "\n */\npublic class Test {}";
+		JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Test.java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		JavacTask task = (JavacTask) compiler.getTask(null, null, null, null, null, Arrays.asList(file));
+		DocTrees docTrees = DocTrees.instance(task);
+
+		CompilationUnitTree compilationUnit = task.parse().iterator().next();
+		Tree classTree = compilationUnit.getTypeDecls().get(0);
+		DocCommentTree docComment = docTrees.getDocCommentTree(new TreePath(new TreePath(compilationUnit), classTree));
+
+		return DescriptionDocTreeVisitor.toMarkdown(docComment.getFullBody(), linkResolver);
+	}
+}
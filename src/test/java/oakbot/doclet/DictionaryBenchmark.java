@@ -0,0 +1,122 @@
+package oakbot.doclet;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.w3c.dom.Document;
+
+import oakbot.util.XmlUtils;
+
+/**
+ * Compares the size of a ZIP file and the time it takes to decode all of its
+ * classes, with and without a preset dictionary. The classes are taken from a
+ * ZIP file that the doclet generated with the default settings (for example,
+ * the ZIP file of the JDK).
+ *
+ * <pre>
+ * Usage: DictionaryBenchmark ZIP_FILE
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class DictionaryBenchmark {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: DictionaryBenchmark ZIP_FILE");
+			System.exit(1);
+		}
+
+		List<String> paths = new ArrayList<>();
+		List<Document> documents = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(args[0])) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !entry.getName().endsWith(".xml") || entry.getName().equals("info.xml")) {
+					continue;
+				}
+
+				try (InputStream in = zip.getInputStream(entry)) {
+					documents.add(XmlUtils.parse(in));
+				}
+				paths.add(entry.getName());
+			}
+		}
+
+		Path tempDir = Files.createTempDirectory("dictionary-benchmark");
+		Path plain = write(tempDir, paths, documents, false);
+		Path dictionary = write(tempDir, paths, documents, true);
+
+		/*
+		 * Alternate between the files so they are both affected equally by
+		 * the JIT warming up and anything else that is running on the
+		 * machine.
+		 */
+		long plainTimes[] = new long[ITERATIONS];
+		long dictionaryTimes[] = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			plainTimes[i] = decodeAll(plain, paths);
+			dictionaryTimes[i] = decodeAll(dictionary, paths);
+		}
+
+		System.out.println(paths.size() + " classes");
+		System.out.println();
+		System.out.println("ZIP size in bytes:");
+		System.out.println("plain DEFLATE:      " + Files.size(plain));
+		System.out.println("preset dictionary:  " + Files.size(dictionary));
+		System.out.println();
+		System.out.println("Time to decode every class in ms:");
+		System.out.println("plain DEFLATE:      " + Arrays.toString(plainTimes) + ", median " + median(plainTimes));
+		System.out.println("preset dictionary:  " + Arrays.toString(dictionaryTimes) + ", median " + median(dictionaryTimes));
+
+		Files.delete(plain);
+		Files.delete(dictionary);
+		Files.delete(tempDir);
+	}
+
+	private static Path write(Path dir, List<String> paths, List<Document> documents, boolean dictionary) throws Exception {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion(dictionary ? "dictionary" : "plain");
+		properties.setOutputPath(dir);
+		properties.setDictionary(dictionary);
+
+		try (ArchiveWriter writer = new ArchiveWriter(properties)) {
+			for (int i = 0; i < paths.size(); i++) {
+				writer.writeClass(paths.get(i), documents.get(i));
+			}
+			writer.commit();
+		}
+		return properties.resolveOutputPath();
+	}
+
+	/**
+	 * Reads every class in a ZIP file.
+	 * @param file the ZIP file
+	 * @param paths the classes
+	 * @return the time it took in milliseconds
+	 */
+	private static long decodeAll(Path file, List<String> paths) throws Exception {
+		long start = System.nanoTime();
+		try (ArchiveReader reader = new ArchiveReader(file)) {
+			for (String path : paths) {
+				reader.read(path);
+			}
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,231 @@
+package oakbot.doclet;
+
+import static oakbot.util.XmlUtils.newDocument;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Compares {@link OakbotDoclet} with {@link OakbotDocTreeDoclet} on the same
+ * source code. Reports how long each doclet takes and lists the differences in
+ * their output. Must be run on Java 11 or 12, since the legacy doclet API was
+ * removed in Java 13.
+ * 
+ * <pre>
+ * Usage: DocletBenchmark SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class DocletBenchmark {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: DocletBenchmark SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]");
+			System.exit(1);
+		}
+
+		Path sourceDir = Paths.get(args[0]);
+		List<String> options = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			options.add("-subpackages");
+			options.add(args[i]);
+		}
+		options.add("-quiet");
+
+		Path legacyZip = Files.createTempFile("legacy", ".zip");
+		Path docTreeZip = Files.createTempFile("doctree", ".zip");
+
+		/*
+		 * Alternate between the doclets so that they both benefit equally from
+		 * the JIT warming up.
+		 */
+		long legacyTimes[] = new long[ITERATIONS];
+		long docTreeTimes[] = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			legacyTimes[i] = run(OakbotDoclet.class, sourceDir, options, legacyZip);
+			docTreeTimes[i] = run(OakbotDocTreeDoclet.class, sourceDir, options, docTreeZip);
+		}
+
+		System.out.println();
+		System.out.println("Run times in ms (first run includes JIT warm-up):");
+		System.out.println("legacy:   " + Arrays.toString(legacyTimes) + ", median " + median(legacyTimes));
+		System.out.println("DocTree:  " + Arrays.toString(docTreeTimes) + ", median " + median(docTreeTimes));
+		System.out.println("ZIP size: legacy=" + Files.size(legacyZip) + " bytes, DocTree=" + Files.size(docTreeZip) + " bytes");
+
+		compare(legacyZip, docTreeZip);
+
+		Files.delete(legacyZip);
+		Files.delete(docTreeZip);
+	}
+
+	/**
+	 * Runs a doclet in-process.
+	 * @param doclet the doclet class
+	 * @param sourceDir the source code
+	 * @param options the javadoc options
+	 * @param output where to save the ZIP file
+	 * @return the run time in milliseconds
+	 */
+	private static long run(Class<?> doclet, Path sourceDir, List<String> options, Path output) throws IOException {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion("1");
+		properties.setOutputPath(output);
+		ConfigProperties.setCurrent(properties);
+
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		long start = System.nanoTime();
+		try (StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, null)) {
+			fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.singletonList(sourceDir.toFile()));
+			fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.<File> emptyList());
+			if (!tool.getTask(null, fileManager, null, doclet, options, null).call()) {
+				throw new IOException(doclet.getSimpleName() + " failed.");
+			}
+		} finally {
+			ConfigProperties.setCurrent(null);
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	/**
+	 * Prints the differences between the class files of two ZIP files. The
+	 * order of the elements within each class file is ignored.
+	 * @param legacyZip the ZIP file of the legacy doclet
+	 * @param docTreeZip the ZIP file of the DocTree doclet
+	 */
+	private static void compare(Path legacyZip, Path docTreeZip) throws Exception {
+		try (ZipFile legacy = new ZipFile(legacyZip.toFile()); ZipFile docTree = new ZipFile(docTreeZip.toFile())) {
+			Set<String> names = new TreeSet<>();
+			names.addAll(entryNames(legacy));
+			names.addAll(entryNames(docTree));
+			names.remove("info.xml");
+
+			int same = 0, different = 0, missing = 0;
+			for (String name : names) {
+				ZipEntry legacyEntry = legacy.getEntry(name);
+				ZipEntry docTreeEntry = docTree.getEntry(name);
+				if (legacyEntry == null || docTreeEntry == null) {
+					System.out.println("Only in " + ((legacyEntry == null) ? "DocTree" : "legacy") + ": " + name);
+					missing++;
+					continue;
+				}
+
+				List<String> legacyLines = canonicalize(legacy, legacyEntry);
+				List<String> docTreeLines = canonicalize(docTree, docTreeEntry);
+				if (legacyLines.equals(docTreeLines)) {
+					same++;
+					continue;
+				}
+
+				different++;
+				System.out.println("Different: " + name);
+				List<String> onlyLegacy = new ArrayList<>(legacyLines);
+				onlyLegacy.removeAll(docTreeLines);
+				List<String> onlyDocTree = new ArrayList<>(docTreeLines);
+				onlyDocTree.removeAll(legacyLines);
+				onlyLegacy.forEach(line -> System.out.println("  - " + line));
+				onlyDocTree.forEach(line -> System.out.println("  + " + line));
+			}
+
+			System.out.println("Classes: " + names.size() + ", identical: " + same + ", different: " + different + ", missing: " + missing);
+		}
+	}
+
+	private static List<String> entryNames(ZipFile zip) {
+		List<String> names = new ArrayList<>();
+		Enumeration<? extends ZipEntry> it = zip.entries();
+		while (it.hasMoreElements()) {
+			ZipEntry entry = it.nextElement();
+			if (!entry.isDirectory()) {
+				names.add(entry.getName());
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Converts a class file into a sorted list of lines, one line per XML
+	 * element.
+	 * @param zip the ZIP file
+	 * @param entry the class file
+	 * @return the lines
+	 */
+	private static List<String> canonicalize(ZipFile zip, ZipEntry entry) throws Exception {
+		Document document;
+		try (InputStream in = zip.getInputStream(entry)) {
+			document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+		}
+
+		List<String> lines = new ArrayList<>();
+		canonicalize(document.getDocumentElement(), "", lines);
+		Collections.sort(lines);
+		return lines;
+	}
+
+	private static void canonicalize(Element element, String parentPath, List<String> lines) {
+		StringBuilder sb = new StringBuilder(parentPath).append('/').append(element.getTagName());
+		NamedNodeMap attributes = element.getAttributes();
+		for (int i = 0; i < attributes.getLength(); i++) {
+			Attr attribute = (Attr) attributes.item(i);
+			if (attribute.getName().equals("name") || attribute.getName().equals("type")) {
+				sb.append('[').append(attribute.getName()).append('=').append(attribute.getValue()).append(']');
+			}
+		}
+		String path = sb.toString();
+
+		StringBuilder line = new StringBuilder(path);
+		for (int i = 0; i < attributes.getLength(); i++) {
+			Attr attribute = (Attr) attributes.item(i);
+			line.append(' ').append(attribute.getName()).append("=\"").append(attribute.getValue()).append('"');
+		}
+
+		NodeList children = element.getChildNodes();
+		for (int i = 0; i < children.getLength(); i++) {
+			Node child = children.item(i);
+			if (child instanceof Element) {
+				canonicalize((Element) child, path, lines);
+			} else if (child.getNodeType() == Node.TEXT_NODE && !child.getTextContent().trim().isEmpty()) {
+				line.append(" text=").append(child.getTextContent().replace("\n", "\\n"));
+			}
+		}
+		lines.add(line.toString());
+	}
+
+	static {
+		//make sure the XML classes are initialized before the timing starts
+		newDocument();
+	}
+}
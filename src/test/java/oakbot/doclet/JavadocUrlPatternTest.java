@@ -0,0 +1,47 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavadocUrlPatternTest {
+	@Test
+	public void expand() {
+		JavadocUrlPattern pattern = new JavadocUrlPattern(JavadocUrlPattern.DEFAULT_PATTERN);
+		assertTrue(pattern.usesBaseUrl());
+		assertEquals("https://example.com/api/java/util/Map.Entry.html", pattern.expand("https://example.com/api/", "java.util|Map.Entry"));
+		assertEquals("https://example.com/api/Foo.html", pattern.expand("https://example.com/api/", "|Foo"));
+
+		pattern = new JavadocUrlPattern("https://example.com/{full}.html");
+		assertFalse(pattern.usesBaseUrl());
+		assertEquals("https://example.com/java.util.Map.Entry.html", pattern.expand(null, "java.util|Map.Entry"));
+
+		pattern = new JavadocUrlPattern("{baseUrl}?class={full -}");
+		assertEquals("https://example.com/?class=java-util-Map.Entry", pattern.expand("https://example.com/", "java.util|Map.Entry"));
+	}
+
+	@Test
+	public void invalid() {
+		assertInvalid("{baseUrl}{full /.html");
+		assertInvalid("{baseUrl}full /}.html");
+		assertInvalid("{baseUrl}{class}.html");
+		assertInvalid("{baseUrl /}{full /}.html");
+		assertInvalid("{baseUrl}{full }.html");
+		assertInvalid("{baseUrl}index.html");
+	}
+
+	private static void assertInvalid(String pattern) {
+		try {
+			new JavadocUrlPattern(pattern);
+			fail("Expected IllegalArgumentException: " + pattern);
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
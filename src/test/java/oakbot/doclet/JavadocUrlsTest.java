@@ -0,0 +1,54 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavadocUrlsTest {
+	@Test
+	public void anchor() {
+		assertEquals("equals(java.lang.Object)", JavadocUrls.anchor("equals", Arrays.asList("java.lang.Object")));
+		assertEquals("toString()", JavadocUrls.anchor("toString", Collections.emptyList()));
+		assertEquals("%3Cinit%3E(int,float)", JavadocUrls.anchor(null, Arrays.asList("int", "float")));
+		assertEquals("sort(int%5B%5D)", JavadocUrls.anchor("sort", Arrays.asList("int[]")));
+		assertEquals("asList(T...)", JavadocUrls.anchor("asList", Arrays.asList("T...")));
+	}
+
+	@Test
+	public void java8Anchor() {
+		assertEquals("equals-java.lang.Object-", JavadocUrls.java8Anchor("equals", Arrays.asList("java.lang.Object")));
+		assertEquals("toString--", JavadocUrls.java8Anchor("toString", Collections.emptyList()));
+		assertEquals("HashMap-int-float-", JavadocUrls.java8Anchor("HashMap", Arrays.asList("int", "float")));
+		assertEquals("sort-int:A:A-", JavadocUrls.java8Anchor("sort", Arrays.asList("int[][]")));
+		assertEquals("asList-T...-", JavadocUrls.java8Anchor("asList", Arrays.asList("T...")));
+	}
+
+	@Test
+	public void create() {
+		ConfigProperties properties = new ConfigProperties();
+		assertNull(JavadocUrls.create(properties));
+
+		properties.setLibraryBaseUrl("https://docs.oracle.com/javase/8/docs/api");
+		assertEquals("https://docs.oracle.com/javase/8/docs/api/java/util/Map.Entry.html", JavadocUrls.create(properties).classUrl("java.util|Map.Entry"));
+
+		properties.setLibraryBaseUrl("http://developer.android.com/reference/");
+		properties.setLibraryJavadocUrlPattern("{baseUrl}{full /}");
+		assertEquals("http://developer.android.com/reference/android/app/Activity", JavadocUrls.create(properties).classUrl("android.app|Activity"));
+
+		properties.setLibraryBaseUrl(null);
+		try {
+			JavadocUrls.create(properties);
+			fail();
+		} catch (IllegalArgumentException e) {
+			//expected
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package oakbot.doclet;
+
+import static oakbot.util.XmlUtils.newDocument;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Measures how much turning {@literal @link} tags into links (see
+ * {@link SymbolTable}) adds to the run time of {@link OakbotDocTreeDoclet}.
+ * Runs the doclet on the same source code with and without a base Javadoc URL
+ * and reports how long each run takes and how many links were resolved.
+ * <p>
+ * To run it on a package of the JDK, such as the link-heavy
+ * {@code java.util.stream} package, extract the package from the JDK's
+ * "lib/src.zip" file and pass the name of its module, so the sources are
+ * patched into the module instead of clashing with it:
+ * </p>
+ *
+ * <pre>
+ * Usage: LinkBenchmark [--module=MODULE] SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]
+ * Example: LinkBenchmark --module=java.base jdk-src/java.base java.util.stream
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class LinkBenchmark {
+	private static final int ITERATIONS = 5;
+	private static final String BASE_URL = "https://docs.oracle.com/en/java/javase/11/docs/api/";
+
+	public static void main(String args[]) throws Exception {
+		List<String> arguments = new ArrayList<>(Arrays.asList(args));
+		String module = null;
+		if (!arguments.isEmpty() && arguments.get(0).startsWith("--module=")) {
+			module = arguments.remove(0).substring("--module=".length());
+		}
+		if (arguments.size() < 2) {
+			System.err.println("Usage: LinkBenchmark [--module=MODULE] SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]");
+			System.exit(1);
+		}
+
+		Path sourceDir = Paths.get(arguments.get(0));
+		List<String> options = new ArrayList<>();
+		if (module != null) {
+			options.add("--patch-module");
+			options.add(module + "=" + sourceDir.toAbsolutePath());
+			sourceDir = null;
+		}
+		for (int i = 1; i < arguments.size(); i++) {
+			options.add("-subpackages");
+			options.add(arguments.get(i));
+		}
+		options.add("-quiet");
+
+		Path plainZip = Files.createTempFile("plain", ".zip");
+		Path linkedZip = Files.createTempFile("linked", ".zip");
+
+		/*
+		 * Alternate between the runs so that they both benefit equally from
+		 * the JIT warming up.
+		 */
+		long plainTimes[] = new long[ITERATIONS];
+		long linkedTimes[] = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			plainTimes[i] = run(sourceDir, options, null, plainZip);
+			linkedTimes[i] = run(sourceDir, options, BASE_URL, linkedZip);
+		}
+
+		long plainMedian = median(plainTimes);
+		long linkedMedian = median(linkedTimes);
+		int links = countLinks(linkedZip);
+
+		System.out.println();
+		System.out.println("Run times in ms (first run includes JIT warm-up):");
+		System.out.println("no URLs:        " + Arrays.toString(plainTimes) + ", median " + plainMedian);
+		System.out.println("URLs and links: " + Arrays.toString(linkedTimes) + ", median " + linkedMedian);
+		System.out.println("Resolved links: " + links);
+		if (links > 0) {
+			System.out.printf("Difference:     %d ms (%.1f us per link)%n", linkedMedian - plainMedian, (linkedMedian - plainMedian) * 1000.0 / links);
+		}
+
+		Files.delete(plainZip);
+		Files.delete(linkedZip);
+	}
+
+	/**
+	 * Runs the doclet in-process.
+	 * @param sourceDir the source code or null if it is passed in the options
+	 * @param options the javadoc options
+	 * @param baseUrl the base Javadoc URL or null not to build URLs and links
+	 * @param output where to save the ZIP file
+	 * @return the run time in milliseconds
+	 */
+	private static long run(Path sourceDir, List<String> options, String baseUrl, Path output) throws IOException {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion("1");
+		properties.setLibraryBaseUrl(baseUrl);
+		properties.setOutputPath(output);
+		ConfigProperties.setCurrent(properties);
+
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		long start = System.nanoTime();
+		try (StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, null)) {
+			if (sourceDir != null) {
+				fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.singletonList(sourceDir.toFile()));
+			}
+			fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.<File> emptyList());
+			if (!tool.getTask(null, fileManager, null, OakbotDocTreeDoclet.class, options, null).call()) {
+				throw new IOException("Doclet failed.");
+			}
+		} finally {
+			ConfigProperties.setCurrent(null);
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	/**
+	 * Counts the markdown links to the base URL in the class files of a ZIP
+	 * file.
+	 * @param zipFile the ZIP file
+	 * @return the number of links
+	 */
+	private static int countLinks(Path zipFile) throws IOException {
+		String needle = "](" + BASE_URL;
+		int count = 0;
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			Enumeration<? extends ZipEntry> it = zip.entries();
+			while (it.hasMoreElements()) {
+				ZipEntry entry = it.nextElement();
+				if (entry.isDirectory() || entry.getName().equals("info.xml")) {
+					continue;
+				}
+
+				String xml;
+				try (InputStream in = zip.getInputStream(entry)) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					in.transferTo(out);
+					xml = new String(out.toByteArray(), StandardCharsets.UTF_8);
+				}
+
+				for (int i = xml.indexOf(needle); i >= 0; i = xml.indexOf(needle, i + 1)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	static {
+		//make sure the XML classes are initialized before the timing starts
+		newDocument();
+	}
+}
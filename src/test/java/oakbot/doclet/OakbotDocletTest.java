@@ -0,0 +1,161 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.DocumentationTool;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class OakbotDocletTest {
+	private static final String BASE_URL = "https://example.com/api/";
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void links_between_shards() throws Exception {
+		Path source = temp.newFolder("src").toPath();
+		write(source, "pa/A.java", //@formatter:off
+			"package pa;",
+			"/**",
+			" * Calls {@link pb.B#run(java.lang.String,int)} on a {@link pb.B}, reads",
+			" * {@link pb.B#count}, and creates a {@link pb.C#C(int)}, but not a",
+			" * {@link pb.B#run(String,int)}.",
+			" */",
+			"public class A {",
+			"	/** Runs. */",
+			"	public void run() {}",
+			"	void secret() {}",
+			"}"
+		); //@formatter:on
+		write(source, "pb/B.java", //@formatter:off
+			"package pb;",
+			"/** Called by {@link pa.A#run()}. */",
+			"public class B {",
+			"	/** Count. */",
+			"	public int count;",
+			"	/** Runs. */",
+			"	public void run(String s, int i) {}",
+			"	void hidden() {}",
+			"}"
+		); //@formatter:on
+		write(source, "pb/D.java", //@formatter:off
+			"package pb;",
+			"/** Skips {@link pa.A#secret()}. */",
+			"public class D {",
+			"	/** Uses {@link pa.A#run()}. */",
+			"	public void use(pa.A a) {}",
+			"}"
+		); //@formatter:on
+		write(source, "pb/C.java", //@formatter:off
+			"package pb;",
+			"public class C {",
+			"	public C(int i) {}",
+			"}"
+		); //@formatter:on
+
+		Path packageList = temp.newFile("package-list").toPath();
+		Files.write(packageList, Arrays.asList("pa", "pb"));
+
+		Path shard1 = temp.getRoot().toPath().resolve("shard1.zip");
+		Path shard2 = temp.getRoot().toPath().resolve("shard2.zip");
+		run(source, "pa", packageList, shard1);
+		run(source, "pb", packageList, shard2);
+
+		String a = read(shard1, "pa/A.xml");
+		assertTrue(a, a.contains("(" + BASE_URL + "pb/B.html#run(java.lang.String,int))"));
+		assertTrue(a, a.contains("(" + BASE_URL + "pb/B.html)"));
+		assertTrue(a, a.contains("(" + BASE_URL + "pb/B.html#count)"));
+		assertTrue(a, a.contains("(" + BASE_URL + "pb/C.html#%3Cinit%3E(int))"));
+
+		//the parameter types of unresolved references must be fully qualified
+		assertFalse(a, a.contains("[`pb.B#run(String,int)`]"));
+
+		String b = read(shard2, "pb/B.xml");
+		assertTrue(b, b.contains("(" + BASE_URL + "pa/A.html#run())"));
+
+		//references to classes that the code uses are resolved
+		String d = read(shard2, "pb/D.xml");
+		assertTrue(d, d.contains("(" + BASE_URL + "pa/A.html#run())"));
+		assertFalse(d, d.contains(BASE_URL + "pa/A.html#secret"));
+	}
+
+	@Test
+	public void no_package_list() throws Exception {
+		Path source = temp.newFolder("src").toPath();
+		write(source, "pa/A.java", //@formatter:off
+			"package pa;",
+			"/** Calls {@link pb.B#run()}. */",
+			"public class A {}"
+		); //@formatter:on
+		write(source, "pb/B.java", //@formatter:off
+			"package pb;",
+			"public class B {",
+			"	public void run() {}",
+			"}"
+		); //@formatter:on
+
+		Path output = temp.getRoot().toPath().resolve("output.zip");
+		run(source, "pa", null, output);
+
+		String a = read(output, "pa/A.xml");
+		assertFalse(a, a.contains(BASE_URL + "pb/"));
+	}
+
+	/**
+	 * Runs the doclet in-process on one shard of a library.
+	 * @param source the library's source code
+	 * @param subpackage the package to document
+	 * @param packageList all of the library's packages or null if not set
+	 * @param output where to save the ZIP file
+	 */
+	private static void run(Path source, String subpackage, Path packageList, Path output) throws IOException {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("test");
+		properties.setLibraryVersion("1");
+		properties.setLibraryBaseUrl(BASE_URL);
+		properties.setLibraryPackageList(packageList);
+		properties.setOutputPath(output);
+		ConfigProperties.setCurrent(properties);
+
+		DocumentationTool tool = ToolProvider.getSystemDocumentationTool();
+		try (StandardJavaFileManager fileManager = tool.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+			fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.singletonList(source.toFile()));
+			fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.<File> emptyList());
+			List<String> options = Arrays.asList("-subpackages", subpackage, "-quiet");
+			assertTrue(tool.getTask(null, fileManager, null, OakbotDoclet.class, options, null).call());
+		} finally {
+			ConfigProperties.setCurrent(null);
+		}
+	}
+
+	private static void write(Path source, String path, String... lines) throws IOException {
+		Path file = source.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, Arrays.asList(lines));
+	}
+
+	private static String read(Path zipFile, String path) throws IOException {
+		try (ArchiveReader reader = new ArchiveReader(zipFile)) {
+			return new String(reader.read(path), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import oakbot.util.XmlUtils;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ShardedArchiveReaderTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void groupOf() {
+		List<String> groups = Arrays.asList("java.util", "java.util.concurrent");
+		assertEquals("java.util", ShardedArchiveWriter.groupOf("java.util", groups));
+		assertEquals("java.util", ShardedArchiveWriter.groupOf("java.util.function", groups));
+		assertEquals("java.util.concurrent", ShardedArchiveWriter.groupOf("java.util.concurrent", groups));
+		assertEquals("java.util.concurrent", ShardedArchiveWriter.groupOf("java.util.concurrent.atomic", groups));
+		assertEquals("java", ShardedArchiveWriter.groupOf("java.utility", groups));
+		assertEquals("javax", ShardedArchiveWriter.groupOf("javax.swing", groups));
+		assertEquals("org", ShardedArchiveWriter.groupOf("org", groups));
+		assertEquals("default", ShardedArchiveWriter.groupOf("", groups));
+	}
+
+	@Test
+	public void shardPath() {
+		Path root = temp.getRoot().toPath().resolve("jdk-11.zip");
+		assertEquals(temp.getRoot().toPath().resolve("jdk-11-java.util.zip"), ShardedArchiveReader.shardPath(root, "java.util"));
+
+		root = temp.getRoot().toPath().resolve("jdk");
+		assertEquals(temp.getRoot().toPath().resolve("jdk-java.zip"), ShardedArchiveReader.shardPath(root, "java"));
+	}
+
+	@Test
+	public void read_top_level_packages() throws Exception {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		classes.putAll(classes("java/lang/", 5));
+		classes.putAll(classes("java/util/", 5));
+		classes.putAll(classes("javax/swing/", 5));
+		classes.putAll(classes("", 2));
+
+		Path root = write(classes, Collections.emptyList(), "root.zip");
+
+		Path dir = temp.getRoot().toPath();
+		assertTrue(Files.exists(dir.resolve("root-java.zip")));
+		assertTrue(Files.exists(dir.resolve("root-javax.zip")));
+		assertTrue(Files.exists(dir.resolve("root-default.zip")));
+
+		try (ZipFile zip = new ZipFile(root.toFile())) {
+			assertEquals(2, zip.size());
+			Document info = XmlUtils.parse(zip.getInputStream(zip.getEntry("info.xml")));
+			assertEquals("true", info.getDocumentElement().getAttribute("packageShards"));
+		}
+
+		try (ArchiveReader shard = new ArchiveReader(dir.resolve("root-java.zip"))) {
+			assertEquals(10, shard.getClassPaths().size());
+		}
+
+		try (ShardedArchiveReader reader = new ShardedArchiveReader(root)) {
+			Map<String, String> expected = new TreeMap<>();
+			expected.put("", "default");
+			expected.put("java.lang", "java");
+			expected.put("java.util", "java");
+			expected.put("javax.swing", "javax");
+			assertEquals(expected, reader.getPackages());
+
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				assertArrayEquals(toBytes(entry.getValue()), reader.read(entry.getKey()));
+			}
+			assertEquals("Class3", reader.parse("javax/swing/Class3.xml").getDocumentElement().getAttribute("name"));
+
+			assertNull(reader.read("java/lang/DoesNotExist.xml"));
+			assertNull(reader.read("com/example/Class0.xml"));
+		}
+	}
+
+	@Test
+	public void read_package_groups() throws Exception {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		classes.putAll(classes("java/util/", 5));
+		classes.putAll(classes("java/util/concurrent/", 5));
+		classes.putAll(classes("java/util/concurrent/atomic/", 5));
+		classes.putAll(classes("java/lang/", 5));
+
+		Path root = write(classes, Arrays.asList("java.util", "java.util.concurrent"), "root.zip");
+
+		Path dir = temp.getRoot().toPath();
+		assertTrue(Files.exists(dir.resolve("root-java.zip")));
+		assertTrue(Files.exists(dir.resolve("root-java.util.zip")));
+		assertTrue(Files.exists(dir.resolve("root-java.util.concurrent.zip")));
+
+		try (ArchiveReader shard = new ArchiveReader(dir.resolve("root-java.util.concurrent.zip"))) {
+			assertEquals(10, shard.getClassPaths().size());
+		}
+
+		/*
+		 * Shards are only opened when one of their classes is read.
+		 */
+		Files.delete(dir.resolve("root-java.zip"));
+		try (ShardedArchiveReader reader = new ShardedArchiveReader(root)) {
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				if (!entry.getKey().startsWith("java/lang/")) {
+					assertArrayEquals(toBytes(entry.getValue()), reader.read(entry.getKey()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void reproducible() throws Exception {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		classes.putAll(classes("java/lang/", 5));
+		classes.putAll(classes("javax/swing/", 5));
+
+		Path root1 = writeReproducible(classes, "one.zip");
+		Path root2 = writeReproducible(classes, "two.zip");
+		assertArrayEquals(Files.readAllBytes(root1), Files.readAllBytes(root2));
+		assertArrayEquals(Files.readAllBytes(ShardedArchiveReader.shardPath(root1, "java")), Files.readAllBytes(ShardedArchiveReader.shardPath(root2, "java")));
+	}
+
+	@Test
+	public void reproducible_digests() throws Exception {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		classes.putAll(classes("java/lang/", 5));
+		classes.putAll(classes("javax/swing/", 5));
+		Path root = writeReproducible(classes, "one.zip");
+
+		String rootDigest;
+		try (ShardedArchiveReader reader = new ShardedArchiveReader(root)) {
+			Map<String, String> digests = reader.getDigests();
+			assertEquals(Arrays.asList("java", "javax"), new ArrayList<>(digests.keySet()));
+			assertEquals(infoDigest(ShardedArchiveReader.shardPath(root, "java")), digests.get("java"));
+			assertEquals(infoDigest(ShardedArchiveReader.shardPath(root, "javax")), digests.get("javax"));
+
+			rootDigest = infoDigest(root);
+			assertEquals(ShardedArchiveReader.digest(reader.getPackages(), digests), rootDigest);
+		}
+
+		//changing one shard changes the root digest and only that shard's digest
+		classes.putAll(classes("javax/swing/", 6));
+		Path changed = writeReproducible(classes, "two.zip");
+		try (ShardedArchiveReader reader = new ShardedArchiveReader(changed)) {
+			assertEquals(infoDigest(ShardedArchiveReader.shardPath(root, "java")), reader.getDigests().get("java"));
+			assertNotEquals(infoDigest(ShardedArchiveReader.shardPath(root, "javax")), reader.getDigests().get("javax"));
+			assertNotEquals(rootDigest, infoDigest(changed));
+		}
+
+		//not reproducible
+		Path plain = write(classes, Collections.emptyList(), "three.zip");
+		try (ShardedArchiveReader reader = new ShardedArchiveReader(plain)) {
+			assertTrue(reader.getDigests().isEmpty());
+		}
+	}
+
+	@Test
+	public void not_committed() throws Exception {
+		Path output = temp.getRoot().toPath().resolve("root.zip");
+		ConfigProperties properties = properties(output);
+
+		try (ArchiveOutput writer = ArchiveOutput.open(properties)) {
+			assertTrue(writer instanceof ShardedArchiveWriter);
+			for (Map.Entry<String, Document> entry : classes("java/lang/", 5).entrySet()) {
+				writer.writeClass(entry.getKey(), entry.getValue());
+			}
+		}
+
+		assertFalse(Files.exists(output));
+		assertFalse(Files.exists(ShardedArchiveReader.shardPath(output, "java")));
+	}
+
+	private Path write(Map<String, Document> classes, List<String> groups, String filename) throws Exception {
+		Path output = temp.getRoot().toPath().resolve(filename);
+		ConfigProperties properties = properties(output);
+		properties.setPackageGroups(groups);
+		properties.setBlockSize(1024);
+		return write(classes, properties);
+	}
+
+	private Path writeReproducible(Map<String, Document> classes, String filename) throws Exception {
+		Path output = temp.getRoot().toPath().resolve(filename);
+		ConfigProperties properties = properties(output);
+		properties.setReproducible(true);
+		properties.setSourceDateEpoch(1_700_000_000L);
+		return write(classes, properties);
+	}
+
+	private static Path write(Map<String, Document> classes, ConfigProperties properties) throws Exception {
+		try (ArchiveOutput writer = ArchiveOutput.open(properties)) {
+			for (Map.Entry<String, Document> entry : classes.entrySet()) {
+				writer.writeClass(entry.getKey(), entry.getValue());
+			}
+			writer.commit();
+		}
+		return properties.resolveOutputPath();
+	}
+
+	private static ConfigProperties properties(Path output) {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("test");
+		properties.setLibraryVersion("1.0");
+		properties.setOutputPath(output);
+		properties.setPackageShards(true);
+		return properties;
+	}
+
+	private static String infoDigest(Path zipFile) throws Exception {
+		try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+			Document info = XmlUtils.parse(zip.getInputStream(zip.getEntry("info.xml")));
+			return info.getDocumentElement().getAttribute("digest");
+		}
+	}
+
+	private static Map<String, Document> classes(String packagePath, int count) {
+		Map<String, Document> classes = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			Document document = XmlUtils.newDocument();
+			Element element = document.createElement("class");
+			element.setAttribute("name", "Class" + i);
+			element.setTextContent("Description of class " + i + " in " + packagePath);
+			document.appendChild(element);
+			classes.put(packagePath + "Class" + i + ".xml", document);
+		}
+		return classes;
+	}
+
+	private static byte[] toBytes(Document document) throws Exception {
+		StringWriter writer = new StringWriter();
+		XmlUtils.write(document, writer, false);
+		return writer.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
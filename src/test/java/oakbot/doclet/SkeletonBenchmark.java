@@ -0,0 +1,173 @@
+package oakbot.doclet;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.w3c.dom.Document;
+
+import oakbot.util.XmlUtils;
+
+/**
+ * Compares how long it takes to load every class of a ZIP file, and how much
+ * heap the loaded classes take up, when the descriptions are split from the
+ * signatures and only the skeletons are loaded. The classes are taken from a
+ * ZIP file that the doclet generated with the default settings (for example,
+ * the ZIP file of the JDK or Android).
+ *
+ * <pre>
+ * Usage: SkeletonBenchmark ZIP_FILE
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class SkeletonBenchmark {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: SkeletonBenchmark ZIP_FILE");
+			System.exit(1);
+		}
+
+		List<String> paths = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(args[0])) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !entry.getName().endsWith(".xml") || entry.getName().equals("info.xml")) {
+					continue;
+				}
+				paths.add(entry.getName());
+			}
+		}
+
+		Path tempDir = Files.createTempDirectory("skeleton-benchmark");
+		Path full = write(args[0], tempDir, paths, false);
+		Path split = write(args[0], tempDir, paths, true);
+
+		/*
+		 * Alternate between the variants so they are all affected equally by
+		 * the JIT warming up and anything else that is running on the
+		 * machine.
+		 */
+		long fullTimes[] = new long[ITERATIONS];
+		long skeletonTimes[] = new long[ITERATIONS];
+		long mergedTimes[] = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			fullTimes[i] = loadAll(full, paths, false);
+			skeletonTimes[i] = loadAll(split, paths, true);
+			mergedTimes[i] = loadAll(split, paths, false);
+		}
+
+		long fullHeap = heap(full, paths, false);
+		long skeletonHeap = heap(split, paths, true);
+
+		System.out.println(paths.size() + " classes");
+		System.out.println();
+		System.out.println("ZIP size in bytes:");
+		System.out.println("descriptions inline:  " + Files.size(full));
+		System.out.println("descriptions split:   " + Files.size(split));
+		System.out.println();
+		System.out.println("Time to load every class in ms:");
+		System.out.println("full documents:               " + Arrays.toString(fullTimes) + ", median " + median(fullTimes));
+		System.out.println("skeletons:                    " + Arrays.toString(skeletonTimes) + ", median " + median(skeletonTimes));
+		System.out.println("skeletons with descriptions:  " + Arrays.toString(mergedTimes) + ", median " + median(mergedTimes));
+		System.out.println();
+		System.out.println("Heap used by every loaded class in KB:");
+		System.out.println("full documents:  " + fullHeap / 1024);
+		System.out.println("skeletons:       " + skeletonHeap / 1024);
+
+		Files.delete(full);
+		Files.delete(split);
+		Files.delete(tempDir);
+	}
+
+	private static Path write(String input, Path dir, List<String> paths, boolean splitDescriptions) throws Exception {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion(splitDescriptions ? "split" : "full");
+		properties.setOutputPath(dir);
+		properties.setSplitDescriptions(splitDescriptions);
+
+		/*
+		 * The documents are parsed again for each ZIP file, since splitting
+		 * the descriptions modifies them.
+		 */
+		try (ZipFile zip = new ZipFile(input); ArchiveWriter writer = new ArchiveWriter(properties)) {
+			for (String path : paths) {
+				Document document;
+				try (InputStream in = zip.getInputStream(zip.getEntry(path))) {
+					document = XmlUtils.parse(in);
+				}
+				writer.writeClass(path, document);
+			}
+			writer.commit();
+		}
+		return properties.resolveOutputPath();
+	}
+
+	/**
+	 * Loads every class in a ZIP file.
+	 * @param file the ZIP file
+	 * @param paths the classes
+	 * @param skeleton true to only load the skeletons, false to load the full
+	 * documents
+	 * @return the time it took in milliseconds
+	 */
+	private static long loadAll(Path file, List<String> paths, boolean skeleton) throws Exception {
+		long start = System.nanoTime();
+		load(file, paths, skeleton);
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static List<Document> load(Path file, List<String> paths, boolean skeleton) throws Exception {
+		List<Document> documents = new ArrayList<>(paths.size());
+		try (ArchiveReader reader = new ArchiveReader(file)) {
+			for (String path : paths) {
+				documents.add(skeleton ? reader.parseSkeleton(path) : reader.parse(path));
+			}
+		}
+		return documents;
+	}
+
+	/**
+	 * Measures how much heap the documents of every class in a ZIP file take
+	 * up once they are loaded.
+	 * @param file the ZIP file
+	 * @param paths the classes
+	 * @param skeleton true to only load the skeletons, false to load the full
+	 * documents
+	 * @return the number of bytes
+	 */
+	private static long heap(Path file, List<String> paths, boolean skeleton) throws Exception {
+		long before = usedHeap();
+		List<Document> documents = load(file, paths, skeleton);
+		long after = usedHeap();
+
+		if (documents.isEmpty()) {
+			System.out.println(); //keep the documents reachable until here
+		}
+		return after - before;
+	}
+
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
@@ -0,0 +1,167 @@
+package oakbot.doclet;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.w3c.dom.Document;
+
+import oakbot.util.XmlUtils;
+
+/**
+ * Compares the size of a ZIP file and the time it takes to look up a random
+ * class in it, with and without grouping the class XML files into blocks. The
+ * classes are taken from a ZIP file that the doclet generated without a block
+ * size.
+ *
+ * <pre>
+ * Usage: SolidArchiveBenchmark ZIP_FILE [BLOCK_SIZE_KB...]
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class SolidArchiveBenchmark {
+	private static final int ITERATIONS = 5;
+	private static final int LOOKUPS = 2000;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: SolidArchiveBenchmark ZIP_FILE [BLOCK_SIZE_KB...]");
+			System.exit(1);
+		}
+
+		List<String> paths = new ArrayList<>();
+		List<Document> documents = new ArrayList<>();
+		try (ZipFile zip = new ZipFile(args[0])) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory() || !entry.getName().endsWith(".xml") || entry.getName().equals("info.xml")) {
+					continue;
+				}
+
+				try (InputStream in = zip.getInputStream(entry)) {
+					documents.add(XmlUtils.parse(in));
+				}
+				paths.add(entry.getName());
+			}
+		}
+
+		int blockSizes[];
+		if (args.length > 1) {
+			blockSizes = Arrays.stream(args, 1, args.length).mapToInt(Integer::parseInt).toArray();
+		} else {
+			blockSizes = new int[] { 16, 64, 256 };
+		}
+
+		Path tempDir = Files.createTempDirectory("solid-benchmark");
+		Path perClass = write(tempDir, paths, documents, 0);
+		List<Path> solid = new ArrayList<>();
+		for (int blockSize : blockSizes) {
+			solid.add(write(tempDir, paths, documents, blockSize * 1024));
+		}
+
+		/*
+		 * Look up the same random classes in each ZIP file, alternating
+		 * between the files so they are all affected equally by anything else
+		 * that is running on the machine.
+		 */
+		List<String> lookups = new ArrayList<>();
+		Random random = new Random(1);
+		for (int i = 0; i < LOOKUPS; i++) {
+			lookups.add(paths.get(random.nextInt(paths.size())));
+		}
+
+		long perClassTimes[] = new long[ITERATIONS];
+		long solidTimes[][] = new long[blockSizes.length][ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			perClassTimes[i] = lookupPerClass(perClass, lookups);
+			for (int j = 0; j < blockSizes.length; j++) {
+				solidTimes[j][i] = lookupSolid(solid.get(j), lookups);
+			}
+		}
+
+		System.out.println(paths.size() + " classes, " + LOOKUPS + " random lookups per run");
+		System.out.println();
+		System.out.println("ZIP size in bytes:");
+		System.out.println("one entry per class: " + Files.size(perClass));
+		for (int j = 0; j < blockSizes.length; j++) {
+			System.out.println(blockSizes[j] + "KB blocks: " + Files.size(solid.get(j)));
+		}
+
+		System.out.println();
+		System.out.println("Average lookup time in microseconds (median of " + ITERATIONS + " runs):");
+		System.out.println("one entry per class: " + median(perClassTimes) / LOOKUPS / 1000.0);
+		for (int j = 0; j < blockSizes.length; j++) {
+			System.out.println(blockSizes[j] + "KB blocks: " + median(solidTimes[j]) / LOOKUPS / 1000.0);
+		}
+
+		for (Path path : solid) {
+			Files.delete(path);
+		}
+		Files.delete(perClass);
+		Files.delete(tempDir);
+	}
+
+	private static Path write(Path dir, List<String> paths, List<Document> documents, int blockSize) throws Exception {
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion(Integer.toString(blockSize));
+		properties.setOutputPath(dir);
+		properties.setBlockSize(blockSize);
+
+		try (ArchiveWriter writer = new ArchiveWriter(properties)) {
+			for (int i = 0; i < paths.size(); i++) {
+				writer.writeClass(paths.get(i), documents.get(i));
+			}
+			writer.commit();
+		}
+		return properties.resolveOutputPath();
+	}
+
+	/**
+	 * Reads classes from a ZIP file that has one entry per class.
+	 * @param file the ZIP file
+	 * @param lookups the classes to read
+	 * @return the time it took in nanoseconds
+	 */
+	private static long lookupPerClass(Path file, List<String> lookups) throws Exception {
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			long start = System.nanoTime();
+			for (String path : lookups) {
+				try (InputStream in = zip.getInputStream(zip.getEntry(path))) {
+					in.readAllBytes();
+				}
+			}
+			return System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Reads classes from a ZIP file whose classes are grouped into blocks.
+	 * @param file the ZIP file
+	 * @param lookups the classes to read
+	 * @return the time it took in nanoseconds
+	 */
+	private static long lookupSolid(Path file, List<String> lookups) throws Exception {
+		try (ArchiveReader reader = new ArchiveReader(file)) {
+			long start = System.nanoTime();
+			for (String path : lookups) {
+				reader.read(path);
+			}
+			return System.nanoTime() - start;
+		}
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
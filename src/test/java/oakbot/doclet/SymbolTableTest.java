@@ -0,0 +1,65 @@
+package oakbot.doclet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class SymbolTableTest {
+	@Test
+	public void key() {
+		assertEquals("java.util.HashMap#<init>(int,float)", SymbolTable.key("java.util.HashMap", null, Arrays.asList("int", "float")));
+		assertEquals("java.lang.Object#toString()", SymbolTable.key("java.lang.Object", "toString", Collections.emptyList()));
+		assertEquals("java.lang.String#CASE_INSENSITIVE_ORDER", SymbolTable.key("java.lang.String", "CASE_INSENSITIVE_ORDER"));
+	}
+
+	@Test
+	public void put_get() {
+		SymbolTable table = new SymbolTable(0);
+		table.put("java.util.List", "List.html");
+		table.put("java.util.List#size()", "List.html#size()");
+		assertEquals("List.html", table.get("java.util.List"));
+		assertEquals("List.html#size()", table.get("java.util.List#size()"));
+		assertNull(table.get("java.util.Map"));
+		assertEquals(2, table.size());
+
+		table.put("java.util.List", "List2.html");
+		assertEquals("List2.html", table.get("java.util.List"));
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void resize() {
+		SymbolTable table = new SymbolTable(1);
+		for (int i = 0; i < 10000; i++) {
+			table.put("Class" + i, "url" + i);
+		}
+
+		assertEquals(10000, table.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals("url" + i, table.get("Class" + i));
+		}
+		assertNull(table.get("Class10000"));
+	}
+
+	@Test
+	public void collisions() {
+		//"Aa" and "BB" have the same hash code
+		SymbolTable table = new SymbolTable(0);
+		table.put("Aa", "1");
+		table.put("BB", "2");
+		table.put("AaBB", "3");
+		table.put("BBAa", "4");
+		assertEquals("1", table.get("Aa"));
+		assertEquals("2", table.get("BB"));
+		assertEquals("3", table.get("AaBB"));
+		assertEquals("4", table.get("BBAa"));
+		assertNull(table.get("AaAa"));
+	}
+}
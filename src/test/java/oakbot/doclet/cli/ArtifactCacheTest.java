@@ -0,0 +1,112 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ArtifactCacheTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void put_and_get() throws Exception {
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), Long.MAX_VALUE);
+		assertNull(cache.get("com/example/lib/1.0/lib-1.0.jar"));
+
+		Path blob = cache.put("com/example/lib/1.0/lib-1.0.jar", file(cache, new byte[] { 1, 2, 3 }));
+		assertTrue(blob.getFileName().toString().endsWith(".jar"));
+		assertEquals(blob, cache.get("com/example/lib/1.0/lib-1.0.jar"));
+		assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(blob));
+	}
+
+	@Test
+	public void same_contents_stored_once() throws Exception {
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), Long.MAX_VALUE);
+
+		Path blob1 = cache.put("com/example/lib/1.0/lib-1.0.jar", file(cache, new byte[] { 1, 2, 3 }));
+		Path blob2 = cache.put("com/example/lib/1.1/lib-1.1.jar", file(cache, new byte[] { 1, 2, 3 }));
+		assertEquals(blob1, blob2);
+		assertEquals(3, cache.size());
+	}
+
+	@Test
+	public void corrupt() throws Exception {
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), Long.MAX_VALUE);
+
+		Path blob = cache.put("com/example/lib/1.0/lib-1.0.jar", file(cache, new byte[] { 1, 2, 3 }));
+		Files.write(blob, new byte[] { 4, 5, 6 });
+
+		assertNull(cache.get("com/example/lib/1.0/lib-1.0.jar"));
+		assertFalse(Files.exists(blob));
+	}
+
+	@Test
+	public void evict_least_recently_used() throws Exception {
+		ArtifactCache previousRun = new ArtifactCache(temp.getRoot().toPath(), 10);
+		Path blob1 = previousRun.put("one.jar", file(previousRun, new byte[4]));
+		Files.setLastModifiedTime(blob1, FileTime.fromMillis(1000));
+		Path blob2 = previousRun.put("two.jar", file(previousRun, new byte[5]));
+		Files.setLastModifiedTime(blob2, FileTime.fromMillis(3000));
+
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), 10);
+
+		//make "one" the most recently used
+		cache.get("one.jar");
+
+		cache.put("three.jar", file(cache, new byte[6]));
+		assertEquals(blob1, cache.get("one.jar"));
+		assertNull(cache.get("two.jar"));
+		assertEquals(10, cache.size());
+	}
+
+	@Test
+	public void evict_skips_files_in_use() throws Exception {
+		ArtifactCache previousRun = new ArtifactCache(temp.getRoot().toPath(), 10);
+		Path blob1 = previousRun.put("one.jar", file(previousRun, new byte[4]));
+		Files.setLastModifiedTime(blob1, FileTime.fromMillis(1000));
+		Path blob2 = previousRun.put("two.jar", file(previousRun, new byte[5]));
+		Files.setLastModifiedTime(blob2, FileTime.fromMillis(2000));
+
+		//files that were returned during this run are not evicted, even if they are the least recently used
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), 10);
+		assertEquals(blob1, cache.get("one.jar"));
+		Files.setLastModifiedTime(blob1, FileTime.fromMillis(1000));
+		Path blob3 = cache.put("three.jar", file(cache, new byte[6]));
+		Path blob4 = cache.put("four.jar", file(cache, new byte[7]));
+
+		assertTrue(Files.exists(blob1));
+		assertFalse(Files.exists(blob2));
+		assertTrue(Files.exists(blob3));
+		assertTrue(Files.exists(blob4));
+		assertEquals(17, cache.size());
+	}
+
+	@Test
+	public void get_evicted_file() throws Exception {
+		ArtifactCache cache = new ArtifactCache(temp.getRoot().toPath(), 100);
+		Path blob = cache.put("one.jar", file(cache, new byte[4]));
+
+		//deleted by another process
+		Files.delete(blob);
+		assertNull(cache.get("one.jar"));
+	}
+
+	private static Path file(ArtifactCache cache, byte content[]) throws Exception {
+		Path file = cache.createTempFile();
+		Files.write(file, content);
+		return file;
+	}
+}
@@ -0,0 +1,178 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.util.Files2;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ArtifactResolverTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private final MavenLibrary library = new MavenLibrary("com.example", "lib", "1.0");
+	private final byte content[] = "content".getBytes(StandardCharsets.UTF_8);
+	private Path remoteDir, localDir;
+	private ArtifactCache cache;
+
+	@Before
+	public void before() throws Exception {
+		remoteDir = temp.newFolder("remote").toPath();
+		localDir = temp.newFolder("local").toPath();
+		cache = new ArtifactCache(temp.newFolder("cache").toPath(), Long.MAX_VALUE);
+	}
+
+	@Test
+	public void download_from_remote() throws Exception {
+		Path remoteFile = write(remoteDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		Path file = resolver.resolve(library.getPomPath());
+		assertArrayEquals(content, Files.readAllBytes(file));
+		assertTrue(file.startsWith(temp.getRoot().toPath().resolve("cache")));
+
+		//should be pulled from the cache the second time
+		Files.delete(remoteFile);
+		assertEquals(file, resolver.resolve(library.getPomPath()));
+	}
+
+	@Test
+	public void multiple_remotes() throws Exception {
+		Path remoteDir2 = temp.newFolder("remote2").toPath();
+		write(remoteDir2, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir, remoteDir2);
+
+		Path file = resolver.resolve(library.getPomPath());
+		assertArrayEquals(content, Files.readAllBytes(file));
+	}
+
+	@Test
+	public void local_repository() throws Exception {
+		Path localFile = write(localDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		assertEquals(localFile, resolver.resolve(library.getPomPath()));
+	}
+
+	@Test
+	public void local_repository_bad_checksum() throws Exception {
+		Path localFile = write(localDir, library.getPomPath(), content, true);
+		Files.write(localFile, "corrupt".getBytes(StandardCharsets.UTF_8));
+		write(remoteDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		Path file = resolver.resolve(library.getPomPath());
+		assertNotEquals(localFile, file);
+		assertArrayEquals(content, Files.readAllBytes(file));
+	}
+
+	@Test
+	public void remote_bad_checksum() throws Exception {
+		Path remoteFile = write(remoteDir, library.getPomPath(), content, true);
+		Files.write(remoteFile, "corrupt".getBytes(StandardCharsets.UTF_8));
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		try {
+			resolver.resolve(library.getPomPath());
+			fail();
+		} catch (FileNotFoundException e) {
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+
+		//the file should not be cached
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void remote_no_checksum() throws Exception {
+		write(remoteDir, library.getPomPath(), content, false);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		Path file = resolver.resolve(library.getPomPath());
+		assertArrayEquals(content, Files.readAllBytes(file));
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void not_found() throws Exception {
+		ArtifactResolver resolver = resolver(remoteDir);
+		resolver.resolve(library.getPomPath());
+	}
+
+	@Test
+	public void stream_without_caching() throws Exception {
+		write(remoteDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertNull(resolver.resolve(library.getPomPath(), null, out, false));
+		assertArrayEquals(content, out.toByteArray());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void stream_with_caching() throws Exception {
+		write(remoteDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Path file = resolver.resolve(library.getPomPath(), null, out, true);
+		assertArrayEquals(content, out.toByteArray());
+		assertArrayEquals(content, Files.readAllBytes(file));
+
+		//cached files are streamed too
+		out = new ByteArrayOutputStream();
+		assertEquals(file, resolver.resolve(library.getPomPath(), null, out, true));
+		assertArrayEquals(content, out.toByteArray());
+	}
+
+	@Test
+	public void corrupt_cache_entry() throws Exception {
+		write(remoteDir, library.getPomPath(), content, true);
+		ArtifactResolver resolver = resolver(remoteDir);
+
+		Path file = resolver.resolve(library.getPomPath());
+		Files.write(file, "corrupt".getBytes(StandardCharsets.UTF_8));
+
+		//should be downloaded again
+		file = resolver.resolve(library.getPomPath());
+		assertArrayEquals(content, Files.readAllBytes(file));
+	}
+
+	private ArtifactResolver resolver(Path... remoteDirs) {
+		MavenRepository repositories[] = Arrays.stream(remoteDirs).map(dir -> MavenRepository.parse(dir.toString())).toArray(MavenRepository[]::new);
+		return new ArtifactResolver(cache, localDir, (repositories.length == 0) ? Collections.emptyList() : Arrays.asList(repositories));
+	}
+
+	private static Path write(Path repository, String path, byte content[], boolean checksum) throws IOException {
+		Path file = repository.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content);
+		if (checksum) {
+			Path checksumFile = file.resolveSibling(file.getFileName() + ".sha1");
+			Files.write(checksumFile, Files2.checksum(file, "SHA-1").getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+}
@@ -0,0 +1,108 @@
+package oakbot.doclet.cli;
+
+import static oakbot.util.JunkDrawer.WINDOWS_OS;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import oakbot.doclet.ConfigProperties;
+import oakbot.doclet.OakbotDocTreeDoclet;
+
+/**
+ * Measures how long a forked javadoc process takes with and without a class
+ * data sharing archive. Small libraries show the difference best, since most
+ * of their run time is JVM startup.
+ * <p>
+ * The doclet's classes can only be archived if this class is run with a
+ * classpath that only contains JAR files (for example, the shaded JAR plus
+ * the test classes packaged as a JAR). Otherwise, only the JDK's classes are
+ * archived.
+ * </p>
+ *
+ * <pre>
+ * Usage: ClassDataSharingBenchmark SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class ClassDataSharingBenchmark {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: ClassDataSharingBenchmark SOURCE_DIR SUBPACKAGE [SUBPACKAGE...]");
+			System.exit(1);
+		}
+
+		Path sourceDir = Paths.get(args[0]);
+		String javadocExe = Paths.get(System.getProperty("java.home"), "bin", WINDOWS_OS ? "javadoc.exe" : "javadoc").toString();
+		Console console = new Console();
+
+		Path tempDir = Files.createTempDirectory("cds-benchmark");
+		Path output = tempDir.resolve("output.zip");
+		Path log = tempDir.resolve("javadoc.log");
+		ClassDataSharing classDataSharing = new ClassDataSharing(tempDir.resolve("cds"));
+
+		ForkedJavadocRunner plain = new ForkedJavadocRunner(javadocExe, console, false);
+		ForkedJavadocRunner shared = new ForkedJavadocRunner(javadocExe, console, false).classDataSharing(classDataSharing);
+
+		//the first run creates the archive
+		run(shared, sourceDir, args, output, log);
+
+		/*
+		 * Alternate between the runners so that they are both affected
+		 * equally by anything else that is running on the machine.
+		 */
+		long plainTimes[] = new long[ITERATIONS];
+		long sharedTimes[] = new long[ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			plainTimes[i] = run(plain, sourceDir, args, output, log);
+			sharedTimes[i] = run(shared, sourceDir, args, output, log);
+		}
+
+		System.out.println();
+		System.out.println("Run times in ms:");
+		System.out.println("without archive: " + Arrays.toString(plainTimes) + ", median " + median(plainTimes));
+		System.out.println("with archive:    " + Arrays.toString(sharedTimes) + ", median " + median(sharedTimes));
+
+		try (Stream<Path> stream = Files.walk(tempDir)) {
+			stream.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * Runs a forked javadoc process.
+	 * @param runner the runner
+	 * @param sourceDir the source code
+	 * @param args the program arguments (the subpackages start at index 1)
+	 * @param output where to save the ZIP file
+	 * @param log where to save javadoc's output
+	 * @return the run time in milliseconds
+	 */
+	private static long run(ForkedJavadocRunner runner, Path sourceDir, String args[], Path output, Path log) throws Exception {
+		JavadocCommandBuilder builder = new JavadocCommandBuilder() //@formatter:off
+		.doclet(OakbotDocTreeDoclet.class.getName())
+		.docletClasspath(System.getProperty("java.class.path"))
+		.source(sourceDir.toString())
+		.sourceEncoding("UTF-8")
+		.includePackages(Arrays.asList(args).subList(1, args.length)); //@formatter:on
+
+		ConfigProperties properties = new ConfigProperties();
+		properties.setLibraryName("benchmark");
+		properties.setLibraryVersion("1");
+		properties.setOutputPath(output);
+
+		long start = System.nanoTime();
+		runner.run(builder, properties, log);
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
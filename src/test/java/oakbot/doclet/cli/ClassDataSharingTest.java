@@ -0,0 +1,126 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.doclet.cli.ClassDataSharing.Recording;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ClassDataSharingTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void configure_records_once() throws Exception {
+		Path javadoc = temp.newFile("javadoc").toPath();
+		ClassDataSharing cds = new ClassDataSharing(temp.getRoot().toPath().resolve("cds"));
+
+		JavadocCommandBuilder builder = new JavadocCommandBuilder().docletClasspath(temp.getRoot().toString());
+		Recording recording = cds.configure(builder, javadoc.toString());
+		assertNotNull(recording);
+		assertTrue(jvmOptions(builder).stream().anyMatch(arg -> arg.startsWith("-J-XX:DumpLoadedClassList=")));
+
+		//only one process records at a time
+		JavadocCommandBuilder builder2 = new JavadocCommandBuilder().docletClasspath(temp.getRoot().toString());
+		assertNull(cds.configure(builder2, javadoc.toString()));
+		assertTrue(jvmOptions(builder2).isEmpty());
+
+		recording.close();
+
+		JavadocCommandBuilder builder3 = new JavadocCommandBuilder().docletClasspath(temp.getRoot().toString());
+		try (Recording recording3 = cds.configure(builder3, javadoc.toString())) {
+			assertNotNull(recording3);
+		}
+	}
+
+	@Test
+	public void configure_doclet_classpath() throws Exception {
+		Path javadoc = temp.newFile("javadoc").toPath();
+		Path jar1 = temp.newFile("one.jar").toPath();
+		Path jar2 = temp.newFile("two.jar").toPath();
+		ClassDataSharing cds = new ClassDataSharing(temp.getRoot().toPath().resolve("cds"));
+
+		//JAR files can be archived, so the doclet is loaded from the JVM's classpath
+		JavadocCommandBuilder builder = new JavadocCommandBuilder().docletClasspath(jar1 + File.pathSeparator + jar2);
+		try (Recording recording = cds.configure(builder, javadoc.toString())) {
+			assertNotNull(recording);
+			List<String> command = builder.build("javadoc");
+			assertTrue(command.contains("-J-cp"));
+			assertFalse(command.contains("-docletpath"));
+		}
+
+		//directories cannot
+		builder = new JavadocCommandBuilder().docletClasspath(jar1 + File.pathSeparator + temp.getRoot());
+		try (Recording recording = cds.configure(builder, javadoc.toString())) {
+			assertNotNull(recording);
+			List<String> command = builder.build("javadoc");
+			assertFalse(command.contains("-J-cp"));
+			assertTrue(command.contains("-docletpath"));
+		}
+	}
+
+	@Test
+	public void configure_existing_archive() throws Exception {
+		Path javadoc = temp.newFile("javadoc").toPath();
+		ClassDataSharing cds = new ClassDataSharing(temp.getRoot().toPath().resolve("cds"));
+
+		Path archive;
+		try (Recording recording = cds.configure(new JavadocCommandBuilder(), javadoc.toString())) {
+			archive = recording.getArchive();
+		}
+		Files.write(archive, new byte[] { 1 });
+
+		JavadocCommandBuilder builder = new JavadocCommandBuilder();
+		assertNull(cds.configure(builder, javadoc.toString()));
+		assertEquals(Arrays.asList("-J-XX:SharedArchiveFile=" + archive), jvmOptions(builder));
+
+		//a different javadoc executable needs a different archive
+		Path otherJavadoc = temp.newFile("javadoc2").toPath();
+		try (Recording recording = cds.configure(new JavadocCommandBuilder(), otherJavadoc.toString())) {
+			assertNotNull(recording);
+			assertNotEquals(archive, recording.getArchive());
+		}
+	}
+
+	@Test
+	public void close_deletes_class_list() throws Exception {
+		Path javadoc = temp.newFile("javadoc").toPath();
+		Path dir = temp.getRoot().toPath().resolve("cds");
+		ClassDataSharing cds = new ClassDataSharing(dir);
+
+		JavadocCommandBuilder builder = new JavadocCommandBuilder();
+		try (Recording recording = cds.configure(builder, javadoc.toString())) {
+			assertNotNull(recording);
+			String option = jvmOptions(builder).get(0);
+			Path classList = Paths.get(option.substring(option.indexOf('=') + 1));
+			assertTrue(Files.exists(classList));
+		}
+
+		try (Stream<Path> stream = Files.list(dir)) {
+			assertEquals(0, stream.count());
+		}
+	}
+
+	private static List<String> jvmOptions(JavadocCommandBuilder builder) {
+		return builder.build("javadoc").stream().filter(arg -> arg.startsWith("-J")).collect(Collectors.toList());
+	}
+}
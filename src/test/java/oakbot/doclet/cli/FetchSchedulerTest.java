@@ -0,0 +1,164 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import oakbot.util.Files2;
+
+/**
+ * @author Michael Angstadt
+ */
+public class FetchSchedulerTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private HttpServer server;
+	private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger inFlight = new AtomicInteger(), maxInFlight = new AtomicInteger();
+
+	@Before
+	public void before() throws Exception {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	@After
+	public void after() {
+		server.stop(0);
+	}
+
+	/**
+	 * Stands in for Maven Central.
+	 * @param exchange the HTTP request/response
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		clientPorts.add(exchange.getRemoteAddress().getPort());
+		int count = inFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(count, Math::max);
+
+		try (OutputStream out = exchange.getResponseBody()) {
+			//give the other fetches a chance to start
+			Thread.sleep(20);
+
+			String path = exchange.getRequestURI().getPath().substring(1);
+			byte body[] = files.get(path);
+			if (body == null) {
+				body = "Not found".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(404, body.length);
+			} else {
+				exchange.sendResponseHeaders(200, body.length);
+			}
+			out.write(body);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} finally {
+			inFlight.decrementAndGet();
+		}
+	}
+
+	@Test
+	public void fetchAll() throws Exception {
+		List<String> paths = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			MavenLibrary library = new MavenLibrary("com.example", "lib" + i, "1.0");
+			byte content[] = new byte[1000 + i];
+			content[0] = (byte) i;
+			serve(library.getJarPath(), content);
+			paths.add(library.getJarPath());
+		}
+
+		try (FetchScheduler scheduler = new FetchScheduler(resolver(), 3)) {
+			List<Path> fetched = scheduler.fetchAll(paths);
+
+			assertEquals(paths.size(), fetched.size());
+			for (int i = 0; i < paths.size(); i++) {
+				assertArrayEquals(files.get(paths.get(i)), Files.readAllBytes(fetched.get(i)));
+			}
+
+			assertEquals(20, scheduler.getFilesDownloaded());
+			assertEquals(20 * 1000 + (19 * 20 / 2), scheduler.getBytesDownloaded());
+			assertTrue(scheduler.getThroughput() > 0);
+		}
+
+		//concurrency is bounded
+		assertTrue("max in flight: " + maxInFlight, maxInFlight.get() <= 3);
+		assertTrue("max in flight: " + maxInFlight, maxInFlight.get() > 1);
+
+		//connections are reused (each file requires two requests: the file and its checksum)
+		assertTrue("connections: " + clientPorts.size(), clientPorts.size() <= 5);
+	}
+
+	@Test
+	public void cached_files_are_not_counted() throws Exception {
+		MavenLibrary library = new MavenLibrary("com.example", "lib", "1.0");
+		serve(library.getJarPath(), new byte[100]);
+
+		ArtifactResolver resolver = resolver();
+		try (FetchScheduler scheduler = new FetchScheduler(resolver, 2)) {
+			scheduler.fetchAll(Collections.singletonList(library.getJarPath()));
+			scheduler.fetchAll(Collections.singletonList(library.getJarPath()));
+
+			assertEquals(1, scheduler.getFilesDownloaded());
+			assertEquals(100, scheduler.getBytesDownloaded());
+		}
+	}
+
+	@Test
+	public void not_found() throws Exception {
+		MavenLibrary library = new MavenLibrary("com.example", "lib", "1.0");
+		serve(library.getJarPath(), new byte[100]);
+
+		try (FetchScheduler scheduler = new FetchScheduler(resolver(), 2)) {
+			scheduler.fetchAll(Arrays.asList(library.getJarPath(), library.getPomPath()));
+			fail();
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+	}
+
+	private ArtifactResolver resolver() throws IOException {
+		ArtifactCache cache = new ArtifactCache(temp.newFolder().toPath(), Long.MAX_VALUE);
+		MavenRepository repository = new MavenRepository("http://localhost:" + server.getAddress().getPort() + "/");
+		return new ArtifactResolver(cache, null, Collections.singletonList(repository));
+	}
+
+	private void serve(String path, byte content[]) throws Exception {
+		files.put(path, content);
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		files.put(path + ".sha1", Files2.toHex(digest.digest(content)).getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,94 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import oakbot.doclet.cli.JavadocCommandBuilder.GarbageCollector;
+
+/**
+ * @author Michael Angstadt
+ */
+public class JavadocSizingTest {
+	private static final long MB = 1024 * 1024;
+
+	@Test
+	public void estimate_small_library() {
+		JavadocSizing sizing = JavadocSizing.estimate(100, MB, 1, 16 * 1024, 8);
+		assertEquals(JavadocSizing.MIN_HEAP_MB, sizing.getHeapMb());
+		assertEquals(GarbageCollector.SERIAL, sizing.getGarbageCollector());
+	}
+
+	@Test
+	public void estimate_large_library() {
+		JavadocSizing sizing = JavadocSizing.estimate(6000, 100 * MB, 1, 16 * 1024, 8);
+		assertTrue(sizing.getHeapMb() > 1024);
+		assertTrue(sizing.getHeapMb() < 4096);
+		assertEquals(0, sizing.getHeapMb() % 64);
+		assertEquals(GarbageCollector.PARALLEL, sizing.getGarbageCollector());
+		assertEquals(8, sizing.getGcThreads());
+	}
+
+	@Test
+	public void estimate_limited_by_memory() {
+		//(4096 / 2) - 256 = 1792
+		JavadocSizing sizing = JavadocSizing.estimate(6000, 100 * MB, 2, 4096, 8);
+		assertEquals(1792, sizing.getHeapMb());
+		assertEquals(4, sizing.getGcThreads());
+	}
+
+	@Test
+	public void estimate_unknown_memory() {
+		JavadocSizing sizing = JavadocSizing.estimate(6000, 100 * MB, 1, 0, 8);
+		assertEquals(JavadocSizing.estimate(6000, 100 * MB, 1, 64 * 1024, 8).getHeapMb(), sizing.getHeapMb());
+	}
+
+	@Test
+	public void estimate_one_processor() {
+		JavadocSizing sizing = JavadocSizing.estimate(6000, 100 * MB, 1, 16 * 1024, 1);
+		assertEquals(GarbageCollector.SERIAL, sizing.getGarbageCollector());
+	}
+
+	@Test
+	public void larger() {
+		JavadocSizing sizing = JavadocSizing.estimate(100, MB, 1, 1024, 1);
+		assertEquals(256, sizing.getHeapMb());
+
+		sizing = sizing.larger(1);
+		assertEquals(512, sizing.getHeapMb());
+
+		//(1024 - 256) = 768
+		sizing = sizing.larger(1);
+		assertEquals(768, sizing.getHeapMb());
+
+		assertNull(sizing.larger(1));
+	}
+
+	@Test
+	public void larger_fewer_processes() {
+		//(2048 / 4) - 256 = 256
+		JavadocSizing sizing = JavadocSizing.estimate(100, MB, 4, 2048, 4);
+		assertEquals(256, sizing.getHeapMb());
+		assertNull(sizing.larger(4));
+
+		sizing = sizing.larger(1);
+		assertEquals(512, sizing.getHeapMb());
+		assertEquals(GarbageCollector.SERIAL, sizing.getGarbageCollector());
+	}
+
+	@Test
+	public void apply() {
+		JavadocCommandBuilder builder = new JavadocCommandBuilder();
+		JavadocSizing.estimate(6000, 100 * MB, 2, 64 * 1024, 8).apply(builder);
+
+		List<String> command = builder.build("javadoc");
+		assertTrue(command.contains("-J-XX:+UseParallelGC"));
+		assertTrue(command.contains("-J-XX:ParallelGCThreads=4"));
+		assertTrue(command.contains("-J-XX:+ExitOnOutOfMemoryError"));
+		assertTrue(command.stream().anyMatch(arg -> arg.matches("-J-Xmx\\d+m")));
+	}
+}
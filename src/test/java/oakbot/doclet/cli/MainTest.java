@@ -0,0 +1,44 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class MainTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void getShardCount_batch_access_profile() throws Exception {
+		Path profile = temp.newFile("profile.txt").toPath();
+		Path batch = temp.newFile("batch.txt").toPath();
+		Files.write(batch, Arrays.asList( //@formatter:off
+			"--maven=org.example:one:1.0",
+			"--maven=org.example:two:1.0 --accessProfile=" + profile
+		)); //@formatter:on
+
+		List<InputParameters> libraries = Main.readInput(new Arguments(new String[] { "--batch=" + batch, "--shards=4" }));
+		assertEquals(2, libraries.size());
+		assertEquals(4, Main.getShardCount(libraries.get(0), 4));
+		assertEquals(1, Main.getShardCount(libraries.get(1), 4));
+	}
+
+	@Test
+	public void getShardCount_reproducible() throws Exception {
+		List<InputParameters> libraries = Main.readInput(new Arguments(new String[] { "--maven=org.example:one:1.0", "--reproducible" }));
+		assertEquals(1, Main.getShardCount(libraries.get(0), 4));
+
+		libraries = Main.readInput(new Arguments(new String[] { "--maven=org.example:one:1.0" }));
+		assertEquals(4, Main.getShardCount(libraries.get(0), 4));
+	}
+}
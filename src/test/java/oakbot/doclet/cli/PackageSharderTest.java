@@ -0,0 +1,112 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.doclet.cli.PackageSharder.Shard;
+
+/**
+ * @author Michael Angstadt
+ */
+public class PackageSharderTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void split() throws Exception {
+		Path dir = temp.getRoot().toPath();
+		file(dir, "org/Root.java", 100);
+		file(dir, "org/apache/one/One.java", 1000);
+		file(dir, "org/apache/two/Two.java", 1000);
+		file(dir, "org/apache/two/sub/Sub.java", 1000);
+		file(dir, "org/apache/three/Three.java", 1000);
+		file(dir, "org/apache/three/Three2.java", 1000);
+		file(dir, "com/example/Example.java", 500);
+
+		PackageSharder sharder = new PackageSharder(dir, Collections.emptyList());
+		assertEquals(5600, sharder.getTotalSize());
+		assertEquals(7, sharder.getFileCount());
+
+		List<Shard> shards = sharder.split(Arrays.asList("com", "org"), 2);
+		assertEquals(2, shards.size());
+
+		//every package is processed exactly once
+		List<String> all = new ArrayList<>();
+		long total = 0, files = 0;
+		for (Shard shard : shards) {
+			all.addAll(shard.getSubpackages());
+			all.addAll(shard.getPackages());
+			total += shard.getSize();
+			files += shard.getFileCount();
+		}
+		Collections.sort(all);
+		assertEquals(Arrays.asList("com", "org", "org.apache.one", "org.apache.three", "org.apache.two", "org.apache.two.sub"), all);
+		assertEquals(5600, total);
+		assertEquals(7, files);
+		assertTrue(shards.get(0).getPackages().contains("org") || shards.get(1).getPackages().contains("org"));
+
+		//the shards are balanced
+		for (Shard shard : shards) {
+			assertTrue(shard.getSize() >= 2500 && shard.getSize() <= 3100);
+		}
+	}
+
+	@Test
+	public void getPackages() throws Exception {
+		Path dir = temp.getRoot().toPath();
+		file(dir, "org/Root.java", 100);
+		file(dir, "org/apache/one/One.java", 1000);
+		file(dir, "org/apache/internal/Internal.java", 1000);
+		file(dir, "com/example/Example.java", 500);
+
+		PackageSharder sharder = new PackageSharder(dir, Arrays.asList("org.apache.internal"));
+		assertEquals(Arrays.asList("org", "org.apache.one"), sharder.getPackages(Arrays.asList("org")));
+		assertEquals(Arrays.asList("com.example", "org", "org.apache.one"), sharder.getPackages(Arrays.asList("com", "org")));
+	}
+
+	@Test
+	public void split_excluded() throws Exception {
+		Path dir = temp.getRoot().toPath();
+		file(dir, "org/one/One.java", 1000);
+		file(dir, "org/two/Two.java", 1000);
+		file(dir, "org/internal/Internal.java", 5000);
+
+		PackageSharder sharder = new PackageSharder(dir, Arrays.asList("org.internal"));
+		assertEquals(2000, sharder.getTotalSize());
+		assertEquals(2, sharder.getFileCount());
+
+		List<Shard> shards = sharder.split(Arrays.asList("org"), 2);
+		assertEquals(2, shards.size());
+		assertEquals(1000, shards.get(0).getSize());
+		assertEquals(1000, shards.get(1).getSize());
+	}
+
+	@Test
+	public void split_too_small() throws Exception {
+		Path dir = temp.getRoot().toPath();
+		file(dir, "org/One.java", 1000);
+		file(dir, "org/Two.java", 1000);
+
+		PackageSharder sharder = new PackageSharder(dir, Collections.emptyList());
+		List<Shard> shards = sharder.split(Arrays.asList("org"), 4);
+		assertEquals(1, shards.size());
+		assertEquals(Arrays.asList("org"), shards.get(0).getSubpackages());
+	}
+
+	private static void file(Path dir, String path, int size) throws Exception {
+		Path file = dir.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, new byte[size]);
+	}
+}
@@ -0,0 +1,246 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.util.Files2;
+
+/**
+ * @author Michael Angstadt
+ */
+public class PomResolverTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	private Path repositoryDir, cacheDir;
+	private FetchScheduler scheduler;
+	private final List<String> warnings = new ArrayList<>();
+
+	@Before
+	public void before() throws Exception {
+		repositoryDir = temp.newFolder("repository").toPath();
+		cacheDir = temp.newFolder("cache").toPath();
+
+		ArtifactCache cache = new ArtifactCache(cacheDir, Long.MAX_VALUE);
+		MavenRepository repository = MavenRepository.parse(repositoryDir.toString());
+		scheduler = new FetchScheduler(new ArtifactResolver(cache, null, Collections.singletonList(repository)), 2);
+	}
+
+	@After
+	public void after() {
+		scheduler.close();
+	}
+
+	@Test
+	public void resolve() throws Exception {
+		//@formatter:off
+		library("com.example:parent:1.0",
+			"<properties><managed.version>2.0</managed.version></properties>" +
+			"<dependencyManagement><dependencies>" +
+				dependency("com.example:managed:${managed.version}", "") +
+			"</dependencies></dependencyManagement>" +
+			"<dependencies>" +
+				dependency("com.example:inherited:1.0", "") +
+			"</dependencies>"
+		);
+		Path pom = library("com.example:app:1.0",
+			"<parent><groupId>com.example</groupId><artifactId>parent</artifactId><version>1.0</version></parent>" +
+			"<dependencies>" +
+				dependency("com.example:a:1.0", "") +
+				dependency("com.example:managed", "") +
+				dependency("com.example:provided:1.0", "<scope>provided</scope>") +
+				dependency("com.example:runtime:1.0", "<scope>runtime</scope>") +
+				dependency("com.example:test:1.0", "<scope>test</scope>") +
+				dependency("com.example:h:2.0", "") +
+			"</dependencies>"
+		);
+		library("com.example:a:1.0",
+			"<dependencies>" +
+				dependency("com.example:b:${project.version}", "") +
+				dependency("com.example:c:1.0", "<optional>true</optional>") +
+				dependency("com.example:d:1.0", "<exclusions><exclusion><groupId>com.example</groupId><artifactId>e</artifactId></exclusion></exclusions>") +
+				dependency("com.example:h:1.0", "") +
+			"</dependencies>"
+		);
+		library("com.example:b:1.0",
+			"<dependencies>" +
+				dependency("com.example:g:1.0", "<scope>provided</scope>") +
+				dependency("com.example:managed:1.5", "") +
+			"</dependencies>"
+		);
+		library("com.example:d:1.0",
+			"<dependencies>" +
+				dependency("com.example:e:1.0", "") +
+				dependency("com.example:f:1.0", "") +
+			"</dependencies>"
+		);
+		library("com.example:managed:1.5", "");
+		library("com.example:managed:2.0", "");
+		library("com.example:inherited:1.0", "");
+		library("com.example:provided:1.0", "");
+		library("com.example:runtime:1.0", "");
+		library("com.example:test:1.0", "");
+		library("com.example:c:1.0", "");
+		library("com.example:e:1.0", "");
+		library("com.example:f:1.0", "");
+		library("com.example:g:1.0", "");
+		library("com.example:h:1.0", "");
+		library("com.example:h:2.0", "");
+		//@formatter:on
+
+		List<Path> jars = resolver().resolve(pom);
+
+		//@formatter:off
+		assertJars(jars,
+			"inherited-1.0.jar",
+			"a-1.0.jar",
+			"managed-2.0.jar",
+			"provided-1.0.jar",
+			"runtime-1.0.jar",
+			"h-2.0.jar",
+			"b-1.0.jar",
+			"d-1.0.jar",
+			"f-1.0.jar"
+		);
+		//@formatter:on
+
+		//the JARs should not be copied anywhere
+		for (Path jar : jars) {
+			assertTrue(jar.startsWith(cacheDir));
+		}
+		assertEquals(Collections.emptyList(), warnings);
+	}
+
+	@Test
+	public void wildcard_exclusion() throws Exception {
+		//@formatter:off
+		Path pom = library("com.example:app:1.0",
+			"<dependencies>" +
+				dependency("com.example:a:1.0", "<exclusions><exclusion><groupId>*</groupId><artifactId>*</artifactId></exclusion></exclusions>") +
+			"</dependencies>"
+		);
+		library("com.example:a:1.0",
+			"<dependencies>" +
+				dependency("com.example:b:1.0", "") +
+			"</dependencies>"
+		);
+		library("com.example:b:1.0", "");
+		//@formatter:on
+
+		List<Path> jars = resolver().resolve(pom);
+		assertJars(jars, "a-1.0.jar");
+	}
+
+	@Test
+	public void import_bom() throws Exception {
+		//@formatter:off
+		library("com.example:bom:1.0",
+			"<dependencyManagement><dependencies>" +
+				dependency("com.example:a:3.0", "") +
+			"</dependencies></dependencyManagement>"
+		);
+		Path pom = library("com.example:app:1.0",
+			"<dependencyManagement><dependencies>" +
+				dependency("com.example:bom:1.0", "<type>pom</type><scope>import</scope>") +
+			"</dependencies></dependencyManagement>" +
+			"<dependencies>" +
+				dependency("com.example:a", "") +
+			"</dependencies>"
+		);
+		library("com.example:a:3.0", "");
+		//@formatter:on
+
+		List<Path> jars = resolver().resolve(pom);
+		assertJars(jars, "a-3.0.jar");
+	}
+
+	@Test
+	public void missing_dependency() throws Exception {
+		//@formatter:off
+		Path pom = library("com.example:app:1.0",
+			"<dependencies>" +
+				dependency("com.example:a:[1.0,2.0)", "") +
+				dependency("com.example:missing:1.0", "") +
+			"</dependencies>"
+		);
+		library("com.example:a:1.0", "");
+		//@formatter:on
+
+		List<Path> jars = resolver().resolve(pom);
+		assertJars(jars, "a-1.0.jar");
+		assertEquals(2, warnings.size());
+	}
+
+	private PomResolver resolver() {
+		return new PomResolver(scheduler).onWarning(warnings::add);
+	}
+
+	/**
+	 * Adds a library to the repository. The contents of each library's JAR
+	 * file is its filename, so the JARs can be identified after they are
+	 * resolved.
+	 * @param coordinates the library's coordinates
+	 * @param body the XML elements to put in the POM
+	 * @return the POM file
+	 */
+	private Path library(String coordinates, String body) throws IOException {
+		MavenLibrary library = MavenLibrary.parse(coordinates);
+
+		//@formatter:off
+		String pom =
+		"<project>" +
+			"<groupId>" + library.getGroupId() + "</groupId>" +
+			"<artifactId>" + library.getArtifactId() + "</artifactId>" +
+			"<version>" + library.getVersion() + "</version>" +
+			body +
+		"</project>";
+		//@formatter:on
+
+		String jarPath = library.getJarPath();
+		write(jarPath, jarPath.substring(jarPath.lastIndexOf('/') + 1));
+		return write(library.getPomPath(), pom);
+	}
+
+	private Path write(String path, String content) throws IOException {
+		Path file = repositoryDir.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+		Path checksumFile = file.resolveSibling(file.getFileName() + ".sha1");
+		Files.write(checksumFile, Files2.checksum(file, "SHA-1").getBytes(StandardCharsets.UTF_8));
+
+		return file;
+	}
+
+	private static String dependency(String coordinates, String extra) {
+		String split[] = coordinates.split(":");
+		String version = (split.length > 2) ? "<version>" + split[2] + "</version>" : "";
+		return "<dependency><groupId>" + split[0] + "</groupId><artifactId>" + split[1] + "</artifactId>" + version + extra + "</dependency>";
+	}
+
+	private static void assertJars(List<Path> jars, String... expected) throws IOException {
+		Set<String> actual = new HashSet<>();
+		for (Path jar : jars) {
+			actual.add(new String(Files.readAllBytes(jar), StandardCharsets.UTF_8));
+		}
+		assertEquals(new HashSet<>(Arrays.asList(expected)), actual);
+		assertEquals(expected.length, jars.size());
+	}
+}
@@ -0,0 +1,163 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.doclet.cli.WorkspaceManager.Workspace;
+
+/**
+ * @author Michael Angstadt
+ */
+public class WorkspaceManagerTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void workspace() throws Exception {
+		Path root = temp.getRoot().toPath();
+		Path dir;
+		try (WorkspaceManager workspaces = new WorkspaceManager(root, 0, 2)) {
+			try (Workspace workspace = workspaces.createWorkspace()) {
+				dir = workspace.getDirectory();
+				assertTrue(Files.isDirectory(dir));
+				createTree(dir);
+
+				//still in use
+				assertEquals(0, workspaces.sweep());
+			}
+		}
+
+		assertFalse(Files.exists(dir));
+		assertEmpty(root.resolve("runs"));
+		assertEmpty(root.resolve("trash"));
+	}
+
+	@Test
+	public void sweep() throws Exception {
+		Path root = temp.getRoot().toPath();
+		Path runs = root.resolve("runs");
+		Files.createDirectories(runs);
+
+		//killed run: lock file is not locked
+		Path killed = Files.createDirectory(runs.resolve("run1"));
+		createTree(killed);
+		Path killedLock = Files.createFile(runs.resolve("run1.lock"));
+		makeOld(killed);
+		makeOld(killedLock);
+
+		//workspace without a lock file
+		Path orphan = Files.createDirectory(runs.resolve("run2"));
+		makeOld(orphan);
+
+		//too new to tell
+		Path recent = Files.createDirectory(runs.resolve("run3"));
+
+		//not completely extracted
+		Path partialTree = Files.createDirectories(root.resolve("trees").resolve("abc"));
+
+		//left in the trash
+		Path trash = Files.createDirectories(root.resolve("trash").resolve("old"));
+		createTree(trash);
+
+		try (WorkspaceManager workspaces = new WorkspaceManager(root, 3, 2)) {
+			assertEquals(2, workspaces.sweep());
+		}
+
+		assertFalse(Files.exists(killed));
+		assertFalse(Files.exists(killedLock));
+		assertFalse(Files.exists(orphan));
+		assertTrue(Files.exists(recent));
+		assertFalse(Files.exists(partialTree));
+		assertEmpty(root.resolve("trash"));
+	}
+
+	@Test
+	public void trees() throws Exception {
+		Path root = temp.getRoot().toPath();
+		try (WorkspaceManager workspaces = new WorkspaceManager(root, 2, 2)) {
+			assertNull(workspaces.getTree("a"));
+
+			Path a, b, c;
+			try (Workspace workspace = workspaces.createWorkspace()) {
+				Path dir = createTree(workspace.getDirectory().resolve("src"));
+				a = workspaces.addTree("a", dir);
+				assertNotEquals(dir, a);
+				assertFalse(Files.exists(dir));
+				assertTrue(Files.exists(a.resolve("com/example/Foo.java")));
+			}
+
+			//the tree is not deleted with the workspace
+			assertEquals(a, workspaces.getTree("a"));
+			assertTrue(Files.exists(a.resolve("com/example/Foo.java")));
+
+			try (Workspace workspace = workspaces.createWorkspace()) {
+				//a tree with the same key already exists
+				Path dir = createTree(workspace.getDirectory().resolve("src"));
+				assertEquals(a, workspaces.addTree("a", dir));
+				assertFalse(Files.exists(dir));
+
+				dir = createTree(workspace.getDirectory().resolve("src"));
+				b = workspaces.addTree("b", dir);
+			}
+
+			makeOld(root.resolve("trees").resolve("a.used"));
+
+			try (Workspace workspace = workspaces.createWorkspace()) {
+				//"a" is the least recently used
+				Path dir = createTree(workspace.getDirectory().resolve("src"));
+				c = workspaces.addTree("c", dir);
+			}
+
+			assertNull(workspaces.getTree("a"));
+			assertEquals(b, workspaces.getTree("b"));
+			assertEquals(c, workspaces.getTree("c"));
+		}
+	}
+
+	@Test
+	public void trees_disabled() throws Exception {
+		Path root = temp.getRoot().toPath();
+		try (WorkspaceManager workspaces = new WorkspaceManager(root, 0, 2)) {
+			try (Workspace workspace = workspaces.createWorkspace()) {
+				Path dir = createTree(workspace.getDirectory().resolve("src"));
+				assertEquals(dir, workspaces.addTree("a", dir));
+			}
+			assertNull(workspaces.getTree("a"));
+		}
+	}
+
+	private static Path createTree(Path dir) throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Path sub = Files.createDirectories(dir.resolve("com/example/sub" + i));
+			for (int j = 0; j < 10; j++) {
+				Files.write(sub.resolve("File" + j + ".java"), new byte[100]);
+			}
+		}
+		Files.write(dir.resolve("com/example/Foo.java"), new byte[100]);
+		return dir;
+	}
+
+	private static void makeOld(Path path) throws Exception {
+		long old = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+		Files.setLastModifiedTime(path, FileTime.fromMillis(old));
+	}
+
+	private static void assertEmpty(Path dir) throws Exception {
+		try (Stream<Path> stream = Files.list(dir)) {
+			assertEquals(0, stream.count());
+		}
+	}
+}
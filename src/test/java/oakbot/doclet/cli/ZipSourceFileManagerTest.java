@@ -0,0 +1,122 @@
+package oakbot.doclet.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ZipSourceFileManagerTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void getSubpackages() throws Exception {
+		Path archive = zip();
+		assertEquals(Arrays.asList("com", "org"), ZipSourceFileManager.getSubpackages(archive));
+	}
+
+	@Test
+	public void list() throws Exception {
+		Path archive = zip();
+		try (ZipSourceFileManager fileManager = new ZipSourceFileManager(ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null), archive, StandardCharsets.UTF_8)) {
+			assertTrue(fileManager.hasLocation(StandardLocation.SOURCE_PATH));
+
+			List<String> names = new ArrayList<>();
+			for (JavaFileObject file : fileManager.list(StandardLocation.SOURCE_PATH, "com.example", EnumSet.of(Kind.SOURCE), false)) {
+				names.add(fileManager.inferBinaryName(StandardLocation.SOURCE_PATH, file));
+			}
+			Collections.sort(names);
+			assertEquals(Arrays.asList("com.example.Bar", "com.example.Foo"), names);
+
+			names.clear();
+			for (JavaFileObject file : fileManager.list(StandardLocation.SOURCE_PATH, "com", EnumSet.of(Kind.SOURCE), true)) {
+				names.add(fileManager.inferBinaryName(StandardLocation.SOURCE_PATH, file));
+			}
+			Collections.sort(names);
+			assertEquals(Arrays.asList("com.example.Bar", "com.example.Foo", "com.example.sub.Baz"), names);
+
+			assertFalse(fileManager.list(StandardLocation.SOURCE_PATH, "does.not.exist", EnumSet.of(Kind.SOURCE), true).iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void getJavaFileForInput() throws Exception {
+		Path archive = zip();
+		try (ZipSourceFileManager fileManager = new ZipSourceFileManager(ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null), archive, StandardCharsets.UTF_8)) {
+			JavaFileObject file = fileManager.getJavaFileForInput(StandardLocation.SOURCE_PATH, "com.example.Foo", Kind.SOURCE);
+			assertEquals("package com.example; public class Foo {}", file.getCharContent(true).toString());
+			assertTrue(file.isNameCompatible("Foo", Kind.SOURCE));
+			assertEquals("com/example/Foo.java", file.getName());
+
+			assertNull(fileManager.getJavaFileForInput(StandardLocation.SOURCE_PATH, "com.example.Missing", Kind.SOURCE));
+		}
+	}
+
+	@Test
+	public void compile() throws Exception {
+		Path archive = zip();
+		Path outputDir = temp.newFolder().toPath();
+
+		StandardJavaFileManager standardFileManager = ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, null);
+		standardFileManager.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(outputDir.toFile()));
+		try (ZipSourceFileManager fileManager = new ZipSourceFileManager(standardFileManager, archive, StandardCharsets.UTF_8)) {
+
+			//only "Bar" is given to the compiler, "Foo" must be found on the source path
+			JavaFileObject bar = fileManager.getJavaFileForInput(StandardLocation.SOURCE_PATH, "com.example.Bar", Kind.SOURCE);
+			boolean success = ToolProvider.getSystemJavaCompiler().getTask(null, fileManager, null, null, null, Arrays.asList(bar)).call();
+			assertTrue(success);
+		}
+
+		assertTrue(Files.exists(outputDir.resolve("com/example/Bar.class")));
+		assertTrue(Files.exists(outputDir.resolve("com/example/Foo.class")));
+	}
+
+	private Path zip() throws IOException {
+		Map<String, String> files = new LinkedHashMap<>();
+		files.put("META-INF/MANIFEST.MF", "");
+		files.put("META-INF/Ignored.java", "");
+		files.put("com/example/Foo.java", "package com.example; public class Foo {}");
+		files.put("com/example/Bar.java", "package com.example; public class Bar extends Foo {}");
+		files.put("com/example/sub/Baz.java", "package com.example.sub; public class Baz {}");
+		files.put("com/example/image.png", "");
+		files.put("org/example/Qux.java", "package org.example; public class Qux {}");
+		files.put("README.md", "");
+
+		Path zipFile = temp.newFile().toPath();
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			for (Map.Entry<String, String> entry : files.entrySet()) {
+				out.putNextEntry(new ZipEntry(entry.getKey()));
+				out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+				out.closeEntry();
+			}
+		}
+		return zipFile;
+	}
+}
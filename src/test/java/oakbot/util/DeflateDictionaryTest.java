@@ -0,0 +1,81 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class DeflateDictionaryTest {
+	@Test
+	public void build() {
+		List<byte[]> samples = samples(200);
+		byte dictionary[] = DeflateDictionary.build(samples, 1024);
+		assertTrue(dictionary.length > 0);
+		assertTrue(dictionary.length <= 1024);
+
+		String text = new String(dictionary, StandardCharsets.UTF_8);
+		assertTrue(text, text.contains("modifiers=\"public\""));
+	}
+
+	@Test
+	public void build_no_common_sequences() {
+		List<byte[]> samples = new ArrayList<>();
+		samples.add("abcdefghijklmnop".getBytes(StandardCharsets.UTF_8));
+		samples.add("qrstuvwxyz012345".getBytes(StandardCharsets.UTF_8));
+		assertEquals(0, DeflateDictionary.build(samples, 1024).length);
+		assertEquals(0, DeflateDictionary.build(Collections.emptyList(), 1024).length);
+	}
+
+	@Test
+	public void compress_and_inflate() throws Exception {
+		List<byte[]> samples = samples(200);
+		byte dictionary[] = DeflateDictionary.build(samples, DeflateDictionary.MAX_SIZE);
+
+		byte data[] = sample(500);
+		byte compressed[] = DeflateDictionary.compress(data, dictionary);
+		byte compressedWithoutDictionary[] = DeflateDictionary.compress(data, new byte[0]);
+		assertTrue(compressed.length < compressedWithoutDictionary.length);
+
+		assertArrayEquals(data, inflate(compressed, dictionary));
+		assertArrayEquals(data, inflate(compressedWithoutDictionary, new byte[0]));
+	}
+
+	private static byte[] inflate(byte[] compressed, byte[] dictionary) throws IOException {
+		try (InputStream in = DeflateDictionary.inflate(new ByteArrayInputStream(compressed), dictionary)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static List<byte[]> samples(int count) {
+		List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			samples.add(sample(i));
+		}
+		return samples;
+	}
+
+	private static byte[] sample(int i) {
+		//@formatter:off
+		String xml =
+		"<class name=\"com.example.Class" + i + "\" modifiers=\"public\">" +
+			"<description>Class number " + i + ".</description>" +
+			"<method name=\"method" + i + "\" modifiers=\"public\" returns=\"java.lang|String\">" +
+				"<parameter name=\"value\" type=\"java.lang|String\" />" +
+			"</method>" +
+		"</class>";
+		//@formatter:on
+		return xml.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -2,16 +2,33 @@ package oakbot.util;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -58,7 +75,7 @@ public class DownloaderTest {
 		};
 
 		Progress progress = mock(Progress.class);
-		downloader.onProgress(progress);
+		downloader.onProgress(progress).progressInterval(0);
 
 		downloader.start();
 
@@ -69,10 +86,302 @@ public class DownloaderTest {
 		assertArrayEquals(content, Files.readAllBytes(saveTo));
 	}
 
+	@Test
+	public void progress_rate_limited() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = new byte[100000];
+
+		Downloader downloader = new Downloader("http://www.example.com/file.txt", saveTo) {
+			@Override
+			HttpURLConnection getConnection(String url) throws IOException {
+				return mockConnection(content);
+			}
+		};
+
+		Progress progress = mock(Progress.class);
+		downloader.onProgress(progress).progressInterval(60000);
+
+		downloader.start();
+
+		//the final progress is always reported
+		verify(progress).progress(100000, 100000);
+		verifyNoMoreInteractions(progress);
+	}
+
+	@Test
+	public void retry_and_resume() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = new byte[30000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		HttpURLConnection first = mockConnection(failingStream(content, 20000), content.length);
+		HttpURLConnection second = mockConnection(Arrays.copyOfRange(content, 20000, 30000));
+		when(second.getResponseCode()).thenReturn(206);
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", first, second);
+
+		Progress progress = mock(Progress.class);
+		downloader.onProgress(progress).progressInterval(0);
+
+		downloader.start();
+
+		verify(first, never()).setRequestProperty("Range", "bytes=0-");
+		verify(second).setRequestProperty("Range", "bytes=20000-");
+		assertEquals(Arrays.asList(1000L), downloader.sleeps);
+		verify(progress).progress(30000, 30000);
+
+		assertArrayEquals(content, Files.readAllBytes(saveTo));
+	}
+
+	@Test
+	public void resume_not_supported() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = new byte[30000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		HttpURLConnection first = mockConnection(failingStream(content, 20000), content.length);
+		HttpURLConnection second = mockConnection(content);
+		when(second.getResponseCode()).thenReturn(200);
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", first, second);
+		downloader.respond("http://www.example.com/file.txt.sha1", mockConnection(sha1(content)));
+		downloader.verifyChecksum("SHA-1");
+
+		downloader.start();
+
+		//the server sent the whole file, so it should start over
+		verify(second).setRequestProperty("Range", "bytes=20000-");
+		assertArrayEquals(content, Files.readAllBytes(saveTo));
+	}
+
+	@Test
+	public void tee() throws Exception {
+		byte content[] = new byte[30000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+
+		//the server does not support resuming, so the whole file is sent again
+		HttpURLConnection first = mockConnection(failingStream(content, 20000), content.length);
+		HttpURLConnection second = mockConnection(content);
+		MockDownloader downloader = new MockDownloader(null);
+		downloader.respond("http://www.example.com/file.txt", first, second);
+		downloader.respond("http://www.example.com/file.txt.sha1", mockConnection(sha1(content)));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		downloader.tee(out).verifyChecksum("SHA-1");
+
+		downloader.start();
+
+		//each byte should be written once
+		assertArrayEquals(content, out.toByteArray());
+	}
+
+	@Test
+	public void tee_error_not_retried() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", mockConnection(new byte[100]));
+		downloader.tee(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Pipe closed");
+			}
+		});
+
+		try {
+			downloader.start();
+			fail();
+		} catch (IOException e) {
+			assertEquals("Pipe closed", e.getMessage());
+		}
+
+		assertEquals(Arrays.asList(), downloader.sleeps);
+	}
+
+	@Test
+	public void retries_exhausted() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = new byte[30000];
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		HttpURLConnection connections[] = new HttpURLConnection[4];
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = mockConnection(failingStream(content, 0), content.length);
+		}
+		downloader.respond("http://www.example.com/file.txt", connections);
+
+		try {
+			downloader.start();
+			fail();
+		} catch (SocketException e) {
+			//expected
+		}
+
+		//exponential backoff
+		assertEquals(Arrays.asList(1000L, 2000L, 4000L), downloader.sleeps);
+	}
+
+	@Test
+	public void not_found_not_retried() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		HttpURLConnection connection = mock(HttpURLConnection.class);
+		when(connection.getInputStream()).thenThrow(new FileNotFoundException());
+		downloader.respond("http://www.example.com/file.txt", connection);
+
+		try {
+			downloader.start();
+			fail();
+		} catch (FileNotFoundException e) {
+			//expected
+		}
+
+		assertEquals(Arrays.asList(), downloader.sleeps);
+	}
+
+	@Test
+	public void checksum() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = "content".getBytes(StandardCharsets.UTF_8);
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", mockConnection(content));
+		downloader.respond("http://www.example.com/file.txt.sha1", mockConnection((sha1(content) + "  file.txt").getBytes(StandardCharsets.UTF_8)));
+		downloader.verifyChecksum("SHA-1", "SHA-256");
+
+		downloader.start();
+
+		assertArrayEquals(content, Files.readAllBytes(saveTo));
+		assertEquals(Arrays.asList("http://www.example.com/file.txt.sha1", "http://www.example.com/file.txt"), downloader.requested);
+	}
+
+	@Test
+	public void checksum_fallback() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = "content".getBytes(StandardCharsets.UTF_8);
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", mockConnection(content));
+		downloader.respond("http://www.example.com/file.txt.sha256", mockConnection("bad".getBytes(StandardCharsets.UTF_8)));
+		downloader.verifyChecksum("SHA-1", "SHA-256");
+
+		try {
+			downloader.start();
+			fail();
+		} catch (FileNotFoundException e) {
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+
+		//the SHA-256 checksum file should have been used
+		assertEquals(Arrays.asList("http://www.example.com/file.txt.sha1", "http://www.example.com/file.txt.sha256", "http://www.example.com/file.txt"), downloader.requested);
+		assertFalse(Files.exists(saveTo));
+	}
+
+	@Test
+	public void no_checksum_file() throws Exception {
+		Path saveTo = temp.getRoot().toPath().resolve("file.txt");
+		byte content[] = "content".getBytes(StandardCharsets.UTF_8);
+
+		MockDownloader downloader = new MockDownloader(saveTo);
+		downloader.respond("http://www.example.com/file.txt", mockConnection(content));
+		downloader.verifyChecksum("SHA-1", "SHA-256");
+
+		downloader.start();
+
+		assertArrayEquals(content, Files.readAllBytes(saveTo));
+	}
+
+	/**
+	 * Returns canned connections for each URL and records the retry delays.
+	 */
+	private static class MockDownloader extends Downloader {
+		private final Map<String, Queue<HttpURLConnection>> responses = new HashMap<>();
+		private final List<String> requested = new ArrayList<>();
+		private final List<Long> sleeps = new ArrayList<>();
+
+		public MockDownloader(Path saveTo) {
+			super("http://www.example.com/file.txt", saveTo);
+		}
+
+		public void respond(String url, HttpURLConnection... connections) {
+			responses.computeIfAbsent(url, k -> new LinkedList<>()).addAll(Arrays.asList(connections));
+		}
+
+		@Override
+		HttpURLConnection getConnection(String url) throws IOException {
+			requested.add(url);
+
+			Queue<HttpURLConnection> queue = responses.get(url);
+			if (queue == null || queue.isEmpty()) {
+				HttpURLConnection connection = mock(HttpURLConnection.class);
+				when(connection.getInputStream()).thenThrow(new FileNotFoundException(url));
+				return connection;
+			}
+			return queue.remove();
+		}
+
+		@Override
+		void sleep(long millis) {
+			sleeps.add(millis);
+		}
+	}
+
 	private static HttpURLConnection mockConnection(byte data[]) throws IOException {
+		return mockConnection(new ByteArrayInputStream(data), data.length);
+	}
+
+	private static HttpURLConnection mockConnection(String data) throws IOException {
+		return mockConnection(data.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static HttpURLConnection mockConnection(InputStream in, long size) throws IOException {
 		HttpURLConnection connection = mock(HttpURLConnection.class);
-		when(connection.getInputStream()).thenReturn(new ByteArrayInputStream(data));
-		when(connection.getContentLengthLong()).thenReturn((long) data.length);
+		when(connection.getInputStream()).thenReturn(in);
+		when(connection.getContentLengthLong()).thenReturn(size);
 		return connection;
 	}
+
+	/**
+	 * Creates a stream that simulates a dropped connection.
+	 * @param data the data
+	 * @param failAt the number of bytes to return before failing
+	 * @return the stream
+	 */
+	private static InputStream failingStream(byte data[], int failAt) {
+		return new InputStream() {
+			private int pos;
+
+			@Override
+			public int read() throws IOException {
+				if (pos >= failAt) {
+					throw new SocketException("Connection reset");
+				}
+				return data[pos++] & 0xff;
+			}
+
+			@Override
+			public int read(byte b[], int off, int len) throws IOException {
+				if (pos >= failAt) {
+					throw new SocketException("Connection reset");
+				}
+				int read = Math.min(len, failAt - pos);
+				System.arraycopy(data, pos, b, off, read);
+				pos += read;
+				return read;
+			}
+		};
+	}
+
+	private static String sha1(byte data[]) throws Exception {
+		return Files2.toHex(MessageDigest.getInstance("SHA-1").digest(data));
+	}
 }
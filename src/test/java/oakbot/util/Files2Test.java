@@ -1,8 +1,10 @@
 package oakbot.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -11,6 +13,8 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import oakbot.util.Files2.UnzipStats;
+
 public class Files2Test {
 	@Rule
 	public TemporaryFolder temp = new TemporaryFolder();
@@ -27,6 +31,38 @@ public class Files2Test {
 		assertTrue(Files.exists(destinationDir.resolve("dir1").resolve("file2.txt")));
 	}
 
+	@Test
+	public void unzip_filter() throws Exception {
+		Path destinationDir = temp.getRoot().toPath();
+		Path zipFile = Paths.get("src", "test", "resources", "oakbot", "util", "archive.zip");
+
+		UnzipStats stats = Files2.unzip(destinationDir, zipFile, zipPath -> zipPath.startsWith("dir1/"));
+
+		assertFalse(Files.exists(destinationDir.resolve("file1.txt")));
+		assertTrue(Files.exists(destinationDir.resolve("dir1").resolve("file2.txt")));
+
+		assertEquals(1, stats.getFilesExtracted());
+		assertEquals(Files.size(destinationDir.resolve("dir1").resolve("file2.txt")), stats.getBytesExtracted());
+		assertEquals(1, stats.getFilesSkipped());
+		assertTrue(stats.getBytesSkipped() > 0);
+	}
+
+	@Test
+	public void unzip_stream() throws Exception {
+		Path destinationDir = temp.getRoot().toPath();
+		Path zipFile = Paths.get("src", "test", "resources", "oakbot", "util", "archive.zip");
+		byte archive[] = Files.readAllBytes(zipFile);
+		ByteArrayInputStream in = new ByteArrayInputStream(archive);
+
+		Files2.unzip(destinationDir, in, zipPath -> zipPath.endsWith(".txt") && zipPath.contains("/"));
+
+		assertFalse(Files.exists(destinationDir.resolve("file1.txt")));
+		assertTrue(Files.exists(destinationDir.resolve("dir1").resolve("file2.txt")));
+
+		//the whole stream should be read
+		assertEquals(0, in.available());
+	}
+
 	@Test
 	public void deleteDirectory() throws Exception {
 		Path dir = temp.newFolder().toPath();
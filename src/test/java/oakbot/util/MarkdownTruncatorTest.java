@@ -0,0 +1,47 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Michael Angstadt
+ */
+public class MarkdownTruncatorTest {
+	@Test
+	public void short_enough() {
+		assertEquals("**one** two", MarkdownTruncator.truncate("**one** two", 11));
+	}
+
+	@Test
+	public void word_boundary() {
+		assertEquals("one two...", MarkdownTruncator.truncate("one two three four", 12));
+	}
+
+	@Test
+	public void code_span() {
+		assertEquals("see...", MarkdownTruncator.truncate("see `a long code span` here", 15));
+	}
+
+	@Test
+	public void link() {
+		assertEquals("a [link](http://x.com/a(b))...", MarkdownTruncator.truncate("a [link](http://x.com/a(b)) more words", 30));
+	}
+
+	@Test
+	public void close_formatting() {
+		assertEquals("**one**...", MarkdownTruncator.truncate("**one two three**", 12));
+		assertEquals("*one **two***...", MarkdownTruncator.truncate("*one **two three** four*", 16));
+		assertEquals("---one---...", MarkdownTruncator.truncate("---one two three---", 14));
+	}
+
+	@Test
+	public void escaped_characters() {
+		assertEquals("a\\*b...", MarkdownTruncator.truncate("a\\*b c\\* d e f", 10));
+	}
+
+	@Test
+	public void nothing_fits() {
+		assertEquals("...", MarkdownTruncator.truncate("abcdefghijklmnop", 10));
+	}
+}
@@ -0,0 +1,89 @@
+package oakbot.util;
+
+import java.io.StringWriter;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Measures the setup cost of creating and writing the XML document of one
+ * class. The old approach looked up the JAXP factories and created a new
+ * document builder for every class (plus a new transformer for every ZIP
+ * file). {@link XmlUtils} looks up the factories once and reuses each
+ * thread's document builder and transformer.
+ *
+ * <pre>
+ * Usage: XmlUtilsBenchmark
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class XmlUtilsBenchmark {
+	private static final int WARMUP = 20_000;
+	private static final int ITERATIONS = 100_000;
+
+	public static void main(String args[]) throws Exception {
+		for (int round = 1; round <= 3; round++) {
+			System.out.println("Round " + round + ":");
+
+			run("setup, old", WARMUP, ITERATIONS, () -> {
+				Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+				TransformerFactory.newInstance().newTransformer();
+				return document;
+			});
+			run("setup, XmlUtils", WARMUP, ITERATIONS, XmlUtils::newDocument);
+
+			run("setup + write, old", WARMUP / 10, ITERATIONS / 10, () -> {
+				Document document = populate(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+				Transformer transformer = TransformerFactory.newInstance().newTransformer();
+				transformer.transform(new DOMSource(document), new StreamResult(new StringWriter()));
+				return document;
+			});
+			run("setup + write, XmlUtils", WARMUP / 10, ITERATIONS / 10, () -> {
+				Document document = populate(XmlUtils.newDocument());
+				XmlUtils.write(document, new StringWriter(), false);
+				return document;
+			});
+		}
+	}
+
+	private static void run(String name, int warmup, int iterations, Task task) throws Exception {
+		for (int i = 0; i < warmup; i++) {
+			task.run();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		long nsPerOp = (System.nanoTime() - start) / iterations;
+		System.out.printf("  %-25s %,8d ns/class%n", name, nsPerOp);
+	}
+
+	/**
+	 * Adds the kind of content a small class has.
+	 * @param document the document
+	 * @return the document
+	 */
+	private static Document populate(Document document) {
+		Element root = document.createElement("class");
+		root.setAttribute("name", "Benchmark");
+		document.appendChild(root);
+		for (int i = 0; i < 10; i++) {
+			Element method = document.createElement("method");
+			method.setAttribute("name", "method" + i);
+			method.setTextContent("Does something with the <code>value</code>.");
+			root.appendChild(method);
+		}
+		return document;
+	}
+
+	private interface Task {
+		Document run() throws Exception;
+	}
+}
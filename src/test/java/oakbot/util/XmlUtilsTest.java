@@ -0,0 +1,175 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * @author Michael Angstadt
+ */
+public class XmlUtilsTest {
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 200;
+
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void write() throws Exception {
+		Document document = document("Foo", 3);
+
+		StringWriter writer = new StringWriter();
+		XmlUtils.write(document, writer, false);
+		assertEquals(expected(document, false), writer.toString());
+
+		writer = new StringWriter();
+		XmlUtils.write(document, writer, true);
+		assertEquals(expected(document, true), writer.toString());
+
+		//the pretty-print setting does not stick
+		writer = new StringWriter();
+		XmlUtils.write(document, writer, false);
+		assertEquals(expected(document, false), writer.toString());
+	}
+
+	@Test
+	public void newDocument() {
+		Document one = XmlUtils.newDocument();
+		Document two = XmlUtils.newDocument();
+		assertNotSame(one, two);
+		assertSame(one.getImplementation(), two.getImplementation());
+	}
+
+	@Test
+	public void write_concurrently() throws Exception {
+		/*
+		 * Each thread builds and writes its own documents, alternating
+		 * between pretty-printed and compact output. If a document builder or
+		 * transformer were shared between threads, the output would get mixed
+		 * up or an exception would be thrown.
+		 */
+		List<Callable<Void>> tasks = new ArrayList<>();
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			tasks.add(() -> {
+				start.await();
+				for (int i = 0; i < ITERATIONS; i++) {
+					String name = "Thread" + thread + "Class" + i;
+					boolean prettyPrint = (i % 2 == 0);
+					Document document = document(name, i % 5);
+
+					StringWriter writer = new StringWriter();
+					XmlUtils.write(document, writer, prettyPrint);
+					assertEquals(expected(document, prettyPrint), writer.toString());
+				}
+				return null;
+			});
+		}
+
+		runAll(tasks, start);
+	}
+
+	@Test
+	public void parse_concurrently() throws Exception {
+		List<Path> files = new ArrayList<>();
+		for (int i = 0; i < THREADS * 4; i++) {
+			Path file = temp.getRoot().toPath().resolve("class" + i + ".xml");
+			Files.write(file, expected(document("Class" + i, i % 5), false).getBytes(StandardCharsets.UTF_8));
+			files.add(file);
+		}
+
+		List<Callable<Void>> tasks = new ArrayList<>();
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			tasks.add(() -> {
+				start.await();
+				for (int i = 0; i < ITERATIONS; i++) {
+					int index = (thread + i) % files.size();
+					Document document = XmlUtils.parse(files.get(index));
+					Element root = document.getDocumentElement();
+					assertEquals("Class" + index, root.getAttribute("name"));
+					assertEquals(index % 5, root.getElementsByTagName("method").getLength());
+				}
+				return null;
+			});
+		}
+
+		runAll(tasks, start);
+	}
+
+	private static void runAll(List<Callable<Void>> tasks, CountDownLatch start) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (Callable<Void> task : tasks) {
+				futures.add(executor.submit(task));
+			}
+			start.countDown();
+
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Document document(String name, int methods) {
+		Document document = XmlUtils.newDocument();
+		Element root = document.createElement("class");
+		root.setAttribute("name", name);
+		document.appendChild(root);
+
+		for (int i = 0; i < methods; i++) {
+			Element method = document.createElement("method");
+			method.setAttribute("name", "method" + i);
+			method.setTextContent("Description of <method" + i + "> & more.");
+			root.appendChild(method);
+		}
+		return document;
+	}
+
+	/**
+	 * Writes a document using a new transformer.
+	 * @param document the document
+	 * @param prettyPrint true to indent the XML, false not to
+	 * @return the XML
+	 */
+	private static String expected(Document document, boolean prettyPrint) throws Exception {
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		if (prettyPrint) {
+			transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+			transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+		}
+
+		StringWriter writer = new StringWriter();
+		transformer.transform(new DOMSource(document), new StreamResult(writer));
+		return writer.toString();
+	}
+}
@@ -0,0 +1,113 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import oakbot.util.Files2.UnzipStats;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ZipExtractorTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void extract() throws Exception {
+		Random random = new Random(1);
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		for (int i = 0; i < 1000; i++) {
+			byte content[] = new byte[random.nextInt(5000)];
+			random.nextBytes(content);
+			files.put("pkg" + (i % 7) + "/sub" + (i % 3) + "/File" + i + ".java", content);
+		}
+
+		//bigger than the buffer
+		byte big[] = new byte[3 * 1024 * 1024];
+		random.nextBytes(big);
+		files.put("big/Big.java", big);
+
+		files.put("empty/Empty.java", new byte[0]);
+
+		Path zipFile = zip(files);
+		Path destinationDir = temp.newFolder("dest").toPath();
+
+		UnzipStats stats = new ZipExtractor(4).extract(destinationDir, zipFile, zipPath -> true);
+
+		long bytes = 0;
+		for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+			assertArrayEquals(entry.getKey(), entry.getValue(), Files.readAllBytes(destinationDir.resolve(entry.getKey())));
+			bytes += entry.getValue().length;
+		}
+		assertEquals(files.size(), stats.getFilesExtracted());
+		assertEquals(bytes, stats.getBytesExtracted());
+		assertEquals(0, stats.getFilesSkipped());
+	}
+
+	@Test
+	public void filter() throws Exception {
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("com/example/Foo.java", new byte[10]);
+		files.put("com/example/foo.png", new byte[20]);
+		files.put("META-INF/MANIFEST.MF", new byte[30]);
+
+		Path zipFile = zip(files);
+		Path destinationDir = temp.newFolder("dest").toPath();
+
+		UnzipStats stats = new ZipExtractor(2).extract(destinationDir, zipFile, zipPath -> zipPath.endsWith(".java"));
+
+		assertEquals(10, Files.size(destinationDir.resolve("com/example/Foo.java")));
+		assertFalse(Files.exists(destinationDir.resolve("com/example/foo.png")));
+		assertFalse(Files.exists(destinationDir.resolve("META-INF")));
+		assertEquals(1, stats.getFilesExtracted());
+		assertEquals(2, stats.getFilesSkipped());
+		assertEquals(50, stats.getBytesSkipped());
+	}
+
+	@Test
+	public void zip_slip() throws Exception {
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("Foo.java", new byte[10]);
+		files.put("../../evil.java", new byte[10]);
+
+		Path zipFile = zip(files);
+		Path destinationDir = temp.newFolder("one", "two", "dest").toPath();
+
+		try {
+			new ZipExtractor(2).extract(destinationDir, zipFile, zipPath -> true);
+			fail();
+		} catch (IOException e) {
+			//expected
+		}
+
+		assertFalse(Files.exists(destinationDir.resolve("../../evil.java")));
+		assertFalse(Files.exists(destinationDir.resolve("Foo.java")));
+	}
+
+	private Path zip(Map<String, byte[]> files) throws IOException {
+		Path zipFile = temp.newFile().toPath();
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+				out.putNextEntry(new ZipEntry(entry.getKey()));
+				out.write(entry.getValue());
+				out.closeEntry();
+			}
+		}
+		return zipFile;
+	}
+}
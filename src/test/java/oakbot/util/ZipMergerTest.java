@@ -0,0 +1,243 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ZipMergerTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void merge() throws Exception {
+		Random random = new Random(1);
+
+		Map<String, byte[]> files1 = new LinkedHashMap<>();
+		files1.put("info.xml", "one".getBytes(StandardCharsets.UTF_8));
+		files1.put("java/util/List.xml", text(random, 5000));
+		files1.put("java/util/Map.xml", text(random, 3000));
+
+		Map<String, byte[]> files2 = new LinkedHashMap<>();
+		files2.put("info.xml", "two".getBytes(StandardCharsets.UTF_8));
+		files2.put("java/io/File.xml", text(random, 4000));
+		byte stored[] = new byte[1000];
+		random.nextBytes(stored);
+		files2.put("java/io/stored.bin", stored);
+
+		Path zip1 = zip(files1, false);
+		Path zip2 = zip(files2, true);
+		Path output = temp.getRoot().toPath().resolve("merged.zip");
+
+		int count = ZipMerger.merge(output, Arrays.asList(zip1, zip2));
+		assertEquals(5, count);
+
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		expected.putAll(files1);
+		files2.remove("info.xml");
+		expected.putAll(files2);
+
+		//read using the central directory
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		try (ZipFile zip = new ZipFile(output.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				try (InputStream in = zip.getInputStream(entry)) {
+					actual.put(entry.getName(), readAll(in));
+				}
+			}
+		}
+		assertZipContents(expected, actual);
+
+		//read using the local headers
+		actual.clear();
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(output))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				actual.put(entry.getName(), readAll(in));
+			}
+		}
+		assertZipContents(expected, actual);
+	}
+
+	@Test
+	public void merge_sort_and_replace() throws Exception {
+		Map<String, byte[]> files1 = new LinkedHashMap<>();
+		files1.put("info.xml", "one".getBytes(StandardCharsets.UTF_8));
+		files1.put("b/One.xml", "b1".getBytes(StandardCharsets.UTF_8));
+
+		Map<String, byte[]> files2 = new LinkedHashMap<>();
+		files2.put("info.xml", "two".getBytes(StandardCharsets.UTF_8));
+		files2.put("a/Two.xml", "a2".getBytes(StandardCharsets.UTF_8));
+
+		Path output = temp.getRoot().toPath().resolve("merged.zip");
+		Map<String, byte[]> replacements = new LinkedHashMap<>();
+		replacements.put("info.xml", "replaced".getBytes(StandardCharsets.UTF_8));
+		replacements.put("added.txt", "added".getBytes(StandardCharsets.UTF_8));
+		int count = ZipMerger.merge(output, Arrays.asList(zip(files1, false), zip(files2, false)), replacements, true);
+		assertEquals(4, count);
+
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		expected.put("a/Two.xml", "a2".getBytes(StandardCharsets.UTF_8));
+		expected.put("added.txt", "added".getBytes(StandardCharsets.UTF_8));
+		expected.put("b/One.xml", "b1".getBytes(StandardCharsets.UTF_8));
+		expected.put("info.xml", "replaced".getBytes(StandardCharsets.UTF_8));
+
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		try (ZipFile zip = new ZipFile(output.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				try (InputStream in = zip.getInputStream(entry)) {
+					actual.put(entry.getName(), readAll(in));
+				}
+			}
+		}
+		assertZipContents(expected, actual);
+
+		actual.clear();
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(output))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				actual.put(entry.getName(), readAll(in));
+			}
+		}
+		assertZipContents(expected, actual);
+	}
+
+	@Test
+	public void merge_zip64() throws Exception {
+		Path zip1 = temp.newFile().toPath();
+		try (ZipWriter writer = new ZipWriter(zip1, 2)) {
+			for (int i = 0; i < 70000; i++) {
+				writer.add("a/" + i + ".xml", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		Path zip2 = temp.newFile().toPath();
+		try (ZipWriter writer = new ZipWriter(zip2, 2)) {
+			for (int i = 0; i < 1000; i++) {
+				writer.add("b/" + i + ".xml", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		Path output = temp.getRoot().toPath().resolve("merged.zip");
+		int count = ZipMerger.merge(output, Arrays.asList(zip1, zip2));
+		assertEquals(71000, count);
+
+		try (ZipFile zip = new ZipFile(output.toFile())) {
+			assertEquals(71000, zip.size());
+			for (String name : Arrays.asList("a/0.xml", "a/69999.xml", "b/999.xml")) {
+				try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+					assertEquals(name.substring(2, name.length() - 4), new String(readAll(in), StandardCharsets.UTF_8));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void merge_zip_file_system() throws Exception {
+		//ZIP file system entries have "extra" fields
+		Path zip1 = temp.getRoot().toPath().resolve("one.zip");
+		try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + zip1.toUri()), Collections.singletonMap("create", "true"))) {
+			Files.createDirectories(fs.getPath("a"));
+			Files.write(fs.getPath("a/One.xml"), "one".getBytes(StandardCharsets.UTF_8));
+		}
+
+		Path zip2 = temp.getRoot().toPath().resolve("two.zip");
+		try (FileSystem fs = FileSystems.newFileSystem(URI.create("jar:" + zip2.toUri()), Collections.singletonMap("create", "true"))) {
+			Files.createDirectories(fs.getPath("a"));
+			Files.write(fs.getPath("a/Two.xml"), "two".getBytes(StandardCharsets.UTF_8));
+		}
+
+		Path output = temp.getRoot().toPath().resolve("merged.zip");
+		ZipMerger.merge(output, Arrays.asList(zip1, zip2));
+
+		try (FileSystem fs = FileSystems.newFileSystem(output, (ClassLoader) null)) {
+			assertEquals("one", new String(Files.readAllBytes(fs.getPath("a/One.xml")), StandardCharsets.UTF_8));
+			assertEquals("two", new String(Files.readAllBytes(fs.getPath("a/Two.xml")), StandardCharsets.UTF_8));
+		}
+	}
+
+	private static void assertZipContents(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	private static byte[] text(Random random, int length) {
+		List<String> words = Arrays.asList("class", "method", "the", "returns", "<p>", "value", "null");
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append(words.get(random.nextInt(words.size()))).append(' ');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte buffer[] = new byte[4096];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Creates a ZIP file.
+	 * @param files the files to add
+	 * @param storeBinary true to store ".bin" files without compressing them
+	 * @return the ZIP file
+	 */
+	private Path zip(Map<String, byte[]> files, boolean storeBinary) throws IOException {
+		Path zipFile = temp.newFile().toPath();
+		try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+			for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+				ZipEntry zipEntry = new ZipEntry(entry.getKey());
+				byte data[] = entry.getValue();
+				if (storeBinary && entry.getKey().endsWith(".bin")) {
+					CRC32 crc = new CRC32();
+					crc.update(data);
+					zipEntry.setMethod(ZipEntry.STORED);
+					zipEntry.setSize(data.length);
+					zipEntry.setCompressedSize(data.length);
+					zipEntry.setCrc(crc.getValue());
+				}
+				out.putNextEntry(zipEntry);
+				out.write(data);
+				out.closeEntry();
+			}
+		}
+		return zipFile;
+	}
+}
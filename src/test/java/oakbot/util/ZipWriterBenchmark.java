@@ -0,0 +1,111 @@
+package oakbot.util;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Measures how long it takes {@link ZipWriter} to write a ZIP file with
+ * different numbers of compression threads. The entries are taken from an
+ * existing ZIP file (for example, the ZIP file of the JDK that the doclet
+ * generated).
+ *
+ * <pre>
+ * Usage: ZipWriterBenchmark ZIP_FILE [MAX_THREADS]
+ * </pre>
+ * @author Michael Angstadt
+ */
+public class ZipWriterBenchmark {
+	private static final int ITERATIONS = 5;
+
+	public static void main(String args[]) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: ZipWriterBenchmark ZIP_FILE [MAX_THREADS]");
+			System.exit(1);
+		}
+
+		int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+		List<String> names = new ArrayList<>();
+		List<byte[]> contents = new ArrayList<>();
+		long totalSize = 0;
+		try (ZipFile zip = new ZipFile(args[0])) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) {
+					continue;
+				}
+
+				try (InputStream in = zip.getInputStream(entry)) {
+					byte data[] = in.readAllBytes();
+					contents.add(data);
+					totalSize += data.length;
+				}
+				names.add(entry.getName());
+			}
+		}
+
+		List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < maxThreads; threads *= 2) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(maxThreads);
+
+		Path file = Files.createTempFile("zip-writer-benchmark", ".zip");
+
+		/*
+		 * Alternate between the thread counts so they are all affected equally
+		 * by the JIT warming up and anything else that is running on the
+		 * machine.
+		 */
+		long times[][] = new long[threadCounts.size()][ITERATIONS];
+		for (int i = 0; i < ITERATIONS; i++) {
+			for (int j = 0; j < threadCounts.size(); j++) {
+				times[j][i] = write(file, names, contents, threadCounts.get(j));
+			}
+		}
+
+		System.out.println(names.size() + " entries, " + totalSize + " bytes uncompressed, " + Files.size(file) + " bytes compressed");
+		System.out.println(Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println();
+		System.out.println("Time to write the ZIP file in ms:");
+		for (int j = 0; j < threadCounts.size(); j++) {
+			long median = median(times[j]);
+			long throughput = (median == 0) ? 0 : totalSize / 1024 / 1024 * 1000 / median;
+			System.out.println(String.format("%2d threads:  ", threadCounts.get(j)) + Arrays.toString(times[j]) + ", median " + median + " (" + throughput + " MB/s)");
+		}
+
+		Files.delete(file);
+	}
+
+	/**
+	 * Writes a ZIP file.
+	 * @param file the file to write to
+	 * @param names the entry names
+	 * @param contents the entry contents
+	 * @param threads the number of compression threads
+	 * @return the time it took in milliseconds
+	 */
+	private static long write(Path file, List<String> names, List<byte[]> contents, int threads) throws Exception {
+		long start = System.nanoTime();
+		try (ZipWriter zip = new ZipWriter(file, threads)) {
+			for (int i = 0; i < names.size(); i++) {
+				zip.add(names.get(i), contents.get(i));
+			}
+		}
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private static long median(long values[]) {
+		long sorted[] = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+}
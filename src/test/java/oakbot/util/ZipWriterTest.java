@@ -0,0 +1,335 @@
+package oakbot.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Michael Angstadt
+ */
+public class ZipWriterTest {
+	@Rule
+	public TemporaryFolder temp = new TemporaryFolder();
+
+	@Test
+	public void write() throws Exception {
+		Map<String, byte[]> files = files();
+		Path file = zip(files, 4);
+
+		//read using the central directory
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				byte data[];
+				try (InputStream in = zip.getInputStream(entry)) {
+					data = in.readAllBytes();
+				}
+
+				CRC32 crc = new CRC32();
+				crc.update(data);
+				assertEquals(entry.getName(), crc.getValue(), entry.getCrc());
+				assertEquals(entry.getName(), data.length, entry.getSize());
+
+				actual.put(entry.getName(), data);
+			}
+
+			//incompressible data should be stored
+			assertEquals(ZipEntry.STORED, zip.getEntry("random.bin").getMethod());
+			assertEquals(ZipEntry.DEFLATED, zip.getEntry("java/util/List.xml").getMethod());
+		}
+		assertZipContents(files, actual);
+
+		//read using the local headers
+		actual.clear();
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(file))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				actual.put(entry.getName(), in.readAllBytes());
+			}
+		}
+		assertZipContents(files, actual);
+
+		//read using a ZIP file system
+		try (FileSystem fs = FileSystems.newFileSystem(file, (ClassLoader) null)) {
+			assertArrayEquals(files.get("java/util/List.xml"), Files.readAllBytes(fs.getPath("java/util/List.xml")));
+		}
+	}
+
+	@Test
+	public void output_does_not_depend_on_thread_count() throws Exception {
+		Map<String, byte[]> files = files();
+		Path one = zip(files, 1);
+		Path many = zip(files, 4);
+
+		try (ZipFile zip1 = new ZipFile(one.toFile()); ZipFile zip2 = new ZipFile(many.toFile())) {
+			List<? extends ZipEntry> entries1 = Collections.list(zip1.entries());
+			List<? extends ZipEntry> entries2 = Collections.list(zip2.entries());
+			assertEquals(entries1.size(), entries2.size());
+			for (int i = 0; i < entries1.size(); i++) {
+				ZipEntry entry1 = entries1.get(i);
+				ZipEntry entry2 = entries2.get(i);
+				assertEquals(entry1.getName(), entry2.getName());
+				assertEquals(entry1.getMethod(), entry2.getMethod());
+				assertEquals(entry1.getCrc(), entry2.getCrc());
+				assertEquals(entry1.getCompressedSize(), entry2.getCompressedSize());
+			}
+		}
+
+		//the files are identical except for the entry timestamps
+		assertEquals(Files.size(one), Files.size(many));
+	}
+
+	@Test
+	public void reproducible() throws Exception {
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("b.txt", "b".getBytes(StandardCharsets.UTF_8));
+		files.put("c/a.txt", "c/a".getBytes(StandardCharsets.UTF_8));
+		files.put("a.txt", "a".getBytes(StandardCharsets.UTF_8));
+
+		LocalDateTime time = LocalDateTime.of(2020, 5, 6, 7, 8, 10);
+		Path file1 = temp.newFile().toPath();
+		Path file2 = temp.newFile().toPath();
+		Map<String, byte[]> digests;
+		try (ZipWriter zip1 = new ZipWriter(file1, 2).time(time).sorted(true).digests(true); ZipWriter zip2 = new ZipWriter(file2, 1).time(time).sorted(true)) {
+			for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+				zip1.add(entry.getKey(), entry.getValue());
+			}
+
+			List<String> names = new ArrayList<>(files.keySet());
+			Collections.reverse(names);
+			for (String name : names) {
+				zip2.add(name, files.get(name));
+			}
+
+			digests = zip1.getDigests();
+		}
+
+		assertArrayEquals(Files.readAllBytes(file1), Files.readAllBytes(file2));
+
+		try (ZipFile zip = new ZipFile(file1.toFile())) {
+			List<String> names = new ArrayList<>();
+			for (ZipEntry entry : Collections.list(zip.entries())) {
+				names.add(entry.getName());
+				assertEquals(time, entry.getTimeLocal());
+			}
+			assertEquals(Arrays.asList("a.txt", "b.txt", "c/a.txt"), names);
+		}
+
+		assertEquals(files.keySet(), digests.keySet());
+		for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+			byte expected[] = MessageDigest.getInstance(ZipWriter.DIGEST_ALGORITHM).digest(entry.getValue());
+			assertArrayEquals(expected, digests.get(entry.getKey()));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void digests_not_enabled() throws Exception {
+		try (ZipWriter zip = new ZipWriter(temp.newFile().toPath(), 1)) {
+			zip.getDigests();
+		}
+	}
+
+	@Test
+	public void supplier() throws Exception {
+		Path file = temp.newFile().toPath();
+		try (ZipWriter zip = new ZipWriter(file, 2)) {
+			zip.add("one.txt", () -> "one".getBytes(StandardCharsets.UTF_8));
+		}
+
+		try (ZipFile zip = new ZipFile(file.toFile()); InputStream in = zip.getInputStream(zip.getEntry("one.txt"))) {
+			assertEquals("one", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void stored() throws Exception {
+		byte data[] = new byte[10000];
+		Path file = temp.newFile().toPath();
+		try (ZipWriter zip = new ZipWriter(file, 2)) {
+			zip.add("deflated.bin", () -> data);
+			zip.add("stored.bin", () -> data, false);
+		}
+
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			assertEquals(ZipEntry.DEFLATED, zip.getEntry("deflated.bin").getMethod());
+
+			ZipEntry entry = zip.getEntry("stored.bin");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertEquals(data.length, entry.getCompressedSize());
+			try (InputStream in = zip.getInputStream(entry)) {
+				assertArrayEquals(data, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	public void encoder() throws Exception {
+		byte contents[] = "contents".getBytes(StandardCharsets.UTF_8);
+		byte encoded[] = "encoded".getBytes(StandardCharsets.UTF_8);
+		Path file = temp.newFile().toPath();
+		Map<String, byte[]> digests;
+		try (ZipWriter zip = new ZipWriter(file, 2).digests(true)) {
+			zip.add("a.bin", contents, bytes -> {
+				assertArrayEquals(contents, bytes);
+				return encoded;
+			});
+			digests = zip.getDigests();
+		}
+
+		byte expected[] = MessageDigest.getInstance(ZipWriter.DIGEST_ALGORITHM).digest(contents);
+		assertArrayEquals(expected, digests.get("a.bin"));
+
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			ZipEntry entry = zip.getEntry("a.bin");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			try (InputStream in = zip.getInputStream(entry)) {
+				assertArrayEquals(encoded, in.readAllBytes());
+			}
+		}
+	}
+
+	@Test
+	public void supplier_throws_exception() throws Exception {
+		Path file = temp.newFile().toPath();
+		ZipWriter zip = new ZipWriter(file, 2);
+		try {
+			zip.add("one.txt", () -> {
+				throw new IllegalStateException();
+			});
+			zip.close();
+			fail();
+		} catch (IOException e) {
+			assertEquals(IllegalStateException.class, e.getCause().getClass());
+		} finally {
+			zip.close();
+		}
+	}
+
+	@Test
+	public void empty() throws Exception {
+		Path file = temp.newFile().toPath();
+		new ZipWriter(file, 2).close();
+
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			assertEquals(0, zip.size());
+		}
+	}
+
+	@Test
+	public void zip64() throws Exception {
+		Path file = temp.newFile().toPath();
+		try (ZipWriter writer = new ZipWriter(file, 2)) {
+			for (int i = 0; i < 70000; i++) {
+				writer.add("a/" + i + ".xml", Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		try (ZipFile zip = new ZipFile(file.toFile())) {
+			assertEquals(70000, zip.size());
+			try (InputStream in = zip.getInputStream(zip.getEntry("a/69999.xml"))) {
+				assertEquals("69999", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	@Test
+	public void merge() throws Exception {
+		Map<String, byte[]> files1 = new LinkedHashMap<>();
+		files1.put("a/One.xml", "one".getBytes(StandardCharsets.UTF_8));
+		Map<String, byte[]> files2 = new LinkedHashMap<>();
+		files2.put("a/Two.xml", "two".getBytes(StandardCharsets.UTF_8));
+
+		Path output = temp.getRoot().toPath().resolve("merged.zip");
+		ZipMerger.merge(output, Arrays.asList(zip(files1, 2), zip(files2, 2)));
+
+		Map<String, byte[]> expected = new LinkedHashMap<>();
+		expected.putAll(files1);
+		expected.putAll(files2);
+
+		Map<String, byte[]> actual = new LinkedHashMap<>();
+		try (ZipInputStream in = new ZipInputStream(Files.newInputStream(output))) {
+			ZipEntry entry;
+			while ((entry = in.getNextEntry()) != null) {
+				actual.put(entry.getName(), in.readAllBytes());
+			}
+		}
+		assertZipContents(expected, actual);
+	}
+
+	private static void assertZipContents(Map<String, byte[]> expected, Map<String, byte[]> actual) {
+		assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+		for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+			assertArrayEquals(entry.getKey(), entry.getValue(), actual.get(entry.getKey()));
+		}
+	}
+
+	private static Map<String, byte[]> files() {
+		Random random = new Random(1);
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("info.xml", "<info />".getBytes(StandardCharsets.UTF_8));
+		files.put("java/util/List.xml", text(random, 50000));
+		files.put("java/util/Map.xml", text(random, 3000));
+		files.put("java/util/Map.Entry.xml", new byte[0]);
+		byte binary[] = new byte[1000];
+		random.nextBytes(binary);
+		files.put("random.bin", binary);
+		for (int i = 0; i < 100; i++) {
+			files.put("com/example/Class" + i + ".xml", text(random, 2000));
+		}
+		files.put("com/example/été.xml", text(random, 100));
+		return files;
+	}
+
+	private static byte[] text(Random random, int length) {
+		List<String> words = Arrays.asList("class", "method", "the", "returns", "<p>", "value", "null");
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append(words.get(random.nextInt(words.size()))).append(' ');
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates a ZIP file.
+	 * @param files the files to add
+	 * @param threads the number of compression threads
+	 * @return the ZIP file
+	 */
+	private Path zip(Map<String, byte[]> files, int threads) throws IOException {
+		Path file = temp.newFile().toPath();
+		try (ZipWriter zip = new ZipWriter(file, threads)) {
+			for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+				zip.add(entry.getKey(), entry.getValue());
+			}
+		}
+		return file;
+	}
+}